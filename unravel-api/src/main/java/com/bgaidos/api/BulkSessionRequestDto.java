@@ -0,0 +1,8 @@
+package com.bgaidos.api;
+
+import java.util.List;
+
+public record BulkSessionRequestDto(
+	List<String> userIds
+) {
+}
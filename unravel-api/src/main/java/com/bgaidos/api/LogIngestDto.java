@@ -0,0 +1,11 @@
+package com.bgaidos.api;
+
+public record LogIngestDto(
+	// Entries queued, or folded into a queued summary by compaction
+	long accepted,
+	// Lines that were not a valid log entry
+	long rejected,
+	// Valid entries dropped by the log processor's overflow policy
+	long shed
+) {
+}
@@ -0,0 +1,23 @@
+package com.bgaidos.api;
+
+import java.time.Instant;
+import java.util.Map;
+
+public record LogTrafficDto(
+	Instant start,
+	long lengthMillis,
+	// Keyed by priority
+	Map<String, Traffic> priorities
+) {
+
+	public record Traffic(
+		long produced,
+		// UTF-8 bytes of the produced messages
+		long bytes,
+		long consumed,
+		// Wait from creation to consumption of the consumed entries
+		double meanWaitMillis,
+		long maxWaitMillis
+	) {
+	}
+}
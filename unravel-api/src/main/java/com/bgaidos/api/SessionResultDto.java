@@ -0,0 +1,17 @@
+package com.bgaidos.api;
+
+public record SessionResultDto(
+	String userId,
+	// Null unless the status is FOUND or CREATED
+	String sessionId,
+	Status status
+) {
+
+	public enum Status {
+		FOUND,
+		NOT_FOUND,
+		CREATED,
+		CONFLICT,
+		REMOVED
+	}
+}
@@ -0,0 +1,8 @@
+package com.bgaidos.exceptions;
+
+public class LogIngestException extends RuntimeException {
+
+	public LogIngestException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
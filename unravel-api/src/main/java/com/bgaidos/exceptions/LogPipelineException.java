@@ -0,0 +1,12 @@
+package com.bgaidos.exceptions;
+
+public class LogPipelineException extends RuntimeException {
+
+	public LogPipelineException(String message) {
+		super(message);
+	}
+
+	public LogPipelineException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,8 @@
+package com.bgaidos.exceptions;
+
+public class LogProcessorFullException extends RuntimeException {
+
+	public LogProcessorFullException(String message) {
+		super(message);
+	}
+}
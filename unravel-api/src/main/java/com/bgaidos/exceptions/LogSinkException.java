@@ -0,0 +1,8 @@
+package com.bgaidos.exceptions;
+
+public class LogSinkException extends RuntimeException {
+
+	public LogSinkException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
@@ -0,0 +1,33 @@
+package com.bgaidos.benchmarks.processor;
+
+import com.bgaidos.config.LogProcessorProperties.Engine;
+import com.bgaidos.service.processor.queue.CompactLogQueue;
+import com.bgaidos.service.processor.queue.HeapLogQueue;
+import com.bgaidos.service.processor.queue.LogQueue;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.PartitionedLogQueue;
+import com.bgaidos.service.processor.queue.RingBufferLogQueue;
+import com.bgaidos.service.processor.queue.SourceFairLogQueue;
+
+/**
+ * Builds each {@link Engine} with the defaults {@link com.bgaidos.config.LogProcessorConfig} uses, so a new engine
+ * only needs a case here to be measured against the HEAP baseline by every benchmark.
+ */
+final class Engines {
+
+	private Engines() {
+	}
+
+	static LogQueue create(Engine engine) {
+		return switch (engine) {
+			case HEAP -> new HeapLogQueue();
+			case MULTI_LEVEL -> new MultiLevelLogQueue();
+			case PARTITIONED -> new PartitionedLogQueue();
+			case RING_BUFFER -> new RingBufferLogQueue();
+			case COMPACT -> new CompactLogQueue();
+			case SOURCE_FAIR -> new SourceFairLogQueue();
+			// Measures the Redis server more than the engine, and needs one running
+			case REDIS_STREAMS -> throw new UnsupportedOperationException("%s is not benchmarked".formatted(engine));
+		};
+	}
+}
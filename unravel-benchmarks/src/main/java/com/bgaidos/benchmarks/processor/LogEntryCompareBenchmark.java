@@ -0,0 +1,70 @@
+package com.bgaidos.benchmarks.processor;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the ordering rule. {@link LogEntry#compareTo(LogEntry)} reads the wall clock twice per comparison, which is
+ * what every sift of the HEAP engine pays; the single-clock variant is what the multi-level engines pay per lane head.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LogEntryCompareBenchmark {
+
+	private static final int ENTRIES = 1024;
+
+	@Param({"UNIFORM", "LOW_HEAVY", "CRITICAL_HEAVY"})
+	public PriorityMix priorityMix;
+
+	private LogEntry[] entries;
+	private int index;
+
+	@Setup
+	public void setUp() {
+		var priorities = priorityMix.sequence();
+		var now = Instant.now();
+		entries = new LogEntry[ENTRIES];
+		for (int i = 0; i < ENTRIES; i++) {
+			entries[i] = LogEntry.builder()
+				.offset(i)
+				.message("Log " + i)
+				.priority(priorities[i % priorities.length])
+				// Spread over the last minute, so aging takes part in the comparison
+				.creationTime(now.minusMillis((i * 7919L) % 60_000))
+				.build();
+		}
+	}
+
+	@Benchmark
+	public int compareTo() {
+		int i = index++ & (ENTRIES - 1);
+		return entries[i].compareTo(entries[(i + 1) & (ENTRIES - 1)]);
+	}
+
+	@Benchmark
+	public int compareWithSingleClockRead() {
+		int i = index++ & (ENTRIES - 1);
+		long nowSecond = Math.floorDiv(System.currentTimeMillis(), 1000);
+		var entry = entries[i];
+		var other = entries[(i + 1) & (ENTRIES - 1)];
+		int difference = Long.compare(other.effectivePriority(nowSecond), entry.effectivePriority(nowSecond));
+		return difference != 0 ? difference : Long.compare(entry.offset(), other.offset());
+	}
+}
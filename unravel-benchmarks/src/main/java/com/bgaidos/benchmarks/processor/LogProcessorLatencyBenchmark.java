@@ -0,0 +1,56 @@
+package com.bgaidos.benchmarks.processor;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency percentiles of one produce followed by one consume at a constant backlog. Sample mode reports p50 up to
+ * p99.99 per engine; the contended variant runs the same round trip from four threads on one processor.
+ * <p>
+ * Every thread produces before it consumes, so the queue always holds at least as many entries as there are
+ * threads waiting to consume and a blocking consume never waits past the end of the iteration.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LogProcessorLatencyBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Processor extends ProcessorFixture {
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadBuffers {
+		final StringBuilder message = new StringBuilder(32);
+		final CompactLogEntry flyweight = new CompactLogEntry();
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void roundTrip(Processor processor, ThreadBuffers buffers, Blackhole blackhole) throws InterruptedException {
+		processor.produce(buffers.message);
+		processor.consume(buffers.flyweight, blackhole);
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void roundTripContended(Processor processor, ThreadBuffers buffers, Blackhole blackhole)
+		throws InterruptedException {
+		processor.produce(buffers.message);
+		processor.consume(buffers.flyweight, blackhole);
+	}
+}
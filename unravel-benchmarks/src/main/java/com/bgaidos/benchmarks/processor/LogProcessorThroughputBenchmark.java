@@ -0,0 +1,71 @@
+package com.bgaidos.benchmarks.processor;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer and consumer throughput with dedicated producer and consumer threads, one of each and four of each.
+ * The backlog is held between depth and depth + {@link ProcessorFixture#SLACK}, so the numbers reflect a queue at
+ * that depth rather than one that is filling up or running dry.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LogProcessorThroughputBenchmark {
+
+	@State(Scope.Group)
+	public static class Pipeline extends ProcessorFixture {
+	}
+
+	@State(Scope.Thread)
+	public static class ThreadBuffers {
+		final StringBuilder message = new StringBuilder(32);
+		final CompactLogEntry flyweight = new CompactLogEntry();
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	public boolean spscProduce(Pipeline pipeline, ThreadBuffers buffers, Control control) {
+		return pipeline.produceWithBackpressure(buffers.message, control);
+	}
+
+	@Benchmark
+	@Group("spsc")
+	@GroupThreads(1)
+	public void spscConsume(Pipeline pipeline, ThreadBuffers buffers, Blackhole blackhole, Control control)
+		throws InterruptedException {
+		pipeline.consumeAboveDepth(buffers.flyweight, blackhole, control);
+	}
+
+	@Benchmark
+	@Group("mpmc")
+	@GroupThreads(4)
+	public boolean mpmcProduce(Pipeline pipeline, ThreadBuffers buffers, Control control) {
+		return pipeline.produceWithBackpressure(buffers.message, control);
+	}
+
+	@Benchmark
+	@Group("mpmc")
+	@GroupThreads(4)
+	public void mpmcConsume(Pipeline pipeline, ThreadBuffers buffers, Blackhole blackhole, Control control)
+		throws InterruptedException {
+		pipeline.consumeAboveDepth(buffers.flyweight, blackhole, control);
+	}
+}
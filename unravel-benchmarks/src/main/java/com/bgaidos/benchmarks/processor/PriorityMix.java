@@ -0,0 +1,48 @@
+package com.bgaidos.benchmarks.processor;
+
+import com.bgaidos.service.processor.model.Priority;
+
+/**
+ * Share of each {@link Priority} in the produced entries, as weights for CRITICAL, HIGH, MEDIUM and LOW.
+ */
+public enum PriorityMix {
+	UNIFORM(25, 25, 25, 25),
+	LOW_HEAVY(2, 8, 20, 70),
+	CRITICAL_HEAVY(70, 20, 8, 2);
+
+	private static final int SEQUENCE_LENGTH = 1024;
+
+	private final int[] weights;
+
+	PriorityMix(int... weights) {
+		this.weights = weights;
+	}
+
+	/**
+	 * @return a fixed, interleaved sequence of SEQUENCE_LENGTH priorities with this mix, indexed with
+	 * {@code i & (length - 1)} so that picking a priority costs nothing during the measurement
+	 */
+	Priority[] sequence() {
+		var priorities = Priority.values();
+		var sequence = new Priority[SEQUENCE_LENGTH];
+		int total = 0;
+		for (int weight : weights) {
+			total += weight;
+		}
+
+		// Deals priorities round robin by weight, so no priority arrives in long runs
+		var credit = new int[weights.length];
+		for (int i = 0; i < sequence.length; i++) {
+			int selected = 0;
+			for (int p = 0; p < weights.length; p++) {
+				credit[p] += weights[p];
+				if (credit[p] > credit[selected]) {
+					selected = p;
+				}
+			}
+			credit[selected] -= total;
+			sequence[i] = priorities[selected];
+		}
+		return sequence;
+	}
+}
@@ -0,0 +1,119 @@
+package com.bgaidos.benchmarks.processor;
+
+import com.bgaidos.config.LogProcessorProperties.Engine;
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link LogProcessor} prefilled to a fixed backlog, shared by the benchmarks through subclasses that narrow
+ * the {@link State} scope.
+ * <p>
+ * Every engine is driven through the same calls the service's own Producer and Consumer use: messages are built in
+ * a reused {@link StringBuilder}, and the COMPACT engine is consumed into a reused {@link CompactLogEntry} while the
+ * object engines hand out {@link com.bgaidos.service.processor.model.LogEntry} objects. Allocation measured with
+ * {@code -prof gc} is therefore what a real producer and consumer would see.
+ */
+@State(Scope.Benchmark)
+public abstract class ProcessorFixture {
+
+	// Headroom above the backlog before producers wait for consumers, well below every bounded engine's capacity
+	static final int SLACK = 1024;
+	static final Duration POLL_TIMEOUT = Duration.ofMillis(1);
+
+	@Param({"HEAP", "MULTI_LEVEL", "PARTITIONED", "RING_BUFFER", "COMPACT", "SOURCE_FAIR"})
+	public Engine engine;
+
+	@Param({"UNIFORM", "LOW_HEAVY", "CRITICAL_HEAVY"})
+	public PriorityMix priorityMix;
+
+	// Entries queued before the measurement starts and kept queued throughout
+	@Param({"0", "10000"})
+	public int depth;
+
+	LogProcessor processor;
+	Priority[] priorities;
+	int priorityMask;
+	final AtomicLong offsets = new AtomicLong();
+
+	@Setup
+	public void setUp() {
+		processor = new LogProcessor(Engines.create(engine));
+		priorities = priorityMix.sequence();
+		priorityMask = priorities.length - 1;
+
+		var message = new StringBuilder();
+		for (int i = 0; i < depth; i++) {
+			produce(message);
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		processor.close();
+	}
+
+	boolean produce(StringBuilder message) {
+		long offset = offsets.getAndIncrement();
+		message.setLength(0);
+		message.append("Log ").append(offset);
+		return processor.produceLog(offset, priorities[(int) offset & priorityMask], message);
+	}
+
+	void consume(CompactLogEntry flyweight, Blackhole blackhole) throws InterruptedException {
+		if (engine == Engine.COMPACT) {
+			processor.consumeLog(flyweight);
+			blackhole.consume(flyweight.offset());
+		} else {
+			blackhole.consume(processor.consumeLog());
+		}
+	}
+
+	/**
+	 * Produces once the backlog is below depth + SLACK, so an unbounded engine can not grow without limit and a
+	 * bounded one never blocks. Gives up when the iteration ends.
+	 */
+	boolean produceWithBackpressure(StringBuilder message, Control control) {
+		while (processor.size() >= depth + SLACK) {
+			if (control.stopMeasurement) {
+				return false;
+			}
+			Thread.onSpinWait();
+		}
+		return produce(message);
+	}
+
+	/**
+	 * Consumes one entry while keeping the backlog at depth, never blocking past the end of the iteration.
+	 */
+	void consumeAboveDepth(CompactLogEntry flyweight, Blackhole blackhole, Control control) throws InterruptedException {
+		while (!control.stopMeasurement) {
+			if (processor.size() > depth) {
+				if (engine == Engine.COMPACT) {
+					if (processor.consumeLog(flyweight, POLL_TIMEOUT)) {
+						blackhole.consume(flyweight.offset());
+						return;
+					}
+				} else {
+					var entry = processor.consumeLog(POLL_TIMEOUT);
+					if (entry != null) {
+						blackhole.consume(entry);
+						return;
+					}
+				}
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.bgaidos.benchmarks.sessions;
+
+import com.bgaidos.service.sessions.embedded.EmbeddedSessionManager;
+import com.bgaidos.service.sessions.embedded.EmbeddedStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a session lookup on the {@link EmbeddedSessionManager}, which extends the session expiration like the
+ * Redis one does, from one thread and from eight threads on the same store. Needs no Redis.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EmbeddedSessionBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Sessions {
+
+		// Logged in users the lookups are spread over
+		@Param({"100000"})
+		public int users;
+
+		EmbeddedStore store;
+		EmbeddedSessionManager sessionManager;
+		String[] userIds;
+
+		@Setup
+		public void setUp() {
+			store = new EmbeddedStore(64, 256L << 20, Duration.ofSeconds(1), Duration.ofSeconds(1),
+				new SimpleMeterRegistry(), InstantSource.system());
+			sessionManager = new EmbeddedSessionManager(store);
+			userIds = new String[users];
+			for (int i = 0; i < users; i++) {
+				userIds[i] = "benchmark-user-" + i;
+				sessionManager.saveSession(userIds[i]);
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			store.close();
+		}
+
+		String randomUser() {
+			return userIds[ThreadLocalRandom.current().nextInt(users)];
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public Object lookup(Sessions sessions) {
+		return sessions.sessionManager.getSessionDetails(sessions.randomUser());
+	}
+
+	@Benchmark
+	@Threads(8)
+	public Object lookupContended(Sessions sessions) {
+		return sessions.sessionManager.getSessionDetails(sessions.randomUser());
+	}
+}
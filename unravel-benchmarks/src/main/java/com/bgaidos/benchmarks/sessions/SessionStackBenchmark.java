@@ -0,0 +1,107 @@
+package com.bgaidos.benchmarks.sessions;
+
+import com.bgaidos.service.sessions.redis.ReactiveRedisSessionManager;
+import com.bgaidos.service.sessions.redis.RedisSessionManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Session lookups per second against a live Redis, blocking stack against reactive stack, at the same concurrency:
+ * {@value #IN_FLIGHT} threads each waiting on one {@link RedisSessionManager#getSessionDetails} at a time, against
+ * one thread keeping {@value #IN_FLIGHT} {@link ReactiveRedisSessionManager#getSessionDetails} in flight. Both share
+ * one Lettuce connection, as the service does, and run without the near cache so every lookup reaches Redis.
+ * <p>
+ * Needs a Redis on {@code redis.host}:{@code redis.port}, localhost:6379 by default, e.g.
+ * {@code java -Dredis.host=redis -jar unravel-benchmarks/target/benchmarks.jar SessionStackBenchmark}.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SessionStackBenchmark {
+
+	static final int IN_FLIGHT = 64;
+
+	@State(Scope.Benchmark)
+	public static class Stacks {
+
+		// Distinct logged in users the lookups are spread over
+		@Param({"1000"})
+		public int users;
+
+		LettuceConnectionFactory connectionFactory;
+		RedisSessionManager blocking;
+		ReactiveRedisSessionManager reactive;
+
+		@Setup
+		public void setUp() {
+			var configuration = new RedisStandaloneConfiguration(System.getProperty("redis.host", "localhost"),
+				Integer.getInteger("redis.port", 6379));
+			connectionFactory = new LettuceConnectionFactory(configuration);
+			connectionFactory.afterPropertiesSet();
+			connectionFactory.start();
+
+			blocking = new RedisSessionManager(new StringRedisTemplate(connectionFactory));
+			reactive = new ReactiveRedisSessionManager(new ReactiveStringRedisTemplate(connectionFactory));
+
+			for (int i = 0; i < users; i++) {
+				blocking.removeSession(user(i));
+				blocking.saveSession(user(i));
+			}
+		}
+
+		@TearDown
+		public void tearDown() {
+			for (int i = 0; i < users; i++) {
+				blocking.removeSession(user(i));
+			}
+			connectionFactory.destroy();
+		}
+
+		String randomUser() {
+			return user(ThreadLocalRandom.current().nextInt(users));
+		}
+
+		private static String user(int i) {
+			return "benchmark-user-" + i;
+		}
+	}
+
+	@Benchmark
+	@Threads(IN_FLIGHT)
+	public void blocking(Stacks stacks, Blackhole blackhole) {
+		blackhole.consume(stacks.blocking.getSessionDetails(stacks.randomUser()));
+	}
+
+	@Benchmark
+	@Threads(1)
+	@OperationsPerInvocation(IN_FLIGHT)
+	public void reactive(Stacks stacks, Blackhole blackhole) {
+		Flux.range(0, IN_FLIGHT)
+			.flatMap(i -> stacks.reactive.getSessionDetails(stacks.randomUser()), IN_FLIGHT)
+			.doOnNext(blackhole::consume)
+			.blockLast();
+	}
+}
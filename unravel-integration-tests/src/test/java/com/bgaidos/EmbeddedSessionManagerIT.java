@@ -0,0 +1,62 @@
+package com.bgaidos;
+
+import com.bgaidos.exceptions.SessionConflictException;
+import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.api.MemoryManager;
+import com.bgaidos.service.sessions.api.SessionManager;
+import com.bgaidos.service.sessions.embedded.EmbeddedMemoryManager;
+import com.bgaidos.service.sessions.embedded.EmbeddedSessionManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = UnravelChallengeApp.class, properties = "session.store=embedded")
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+public class EmbeddedSessionManagerIT {
+
+	@Autowired
+	private SessionManager sessionManager;
+
+	@Autowired
+	private MemoryManager memoryManager;
+
+	@Test
+	@DisplayName("1.0 - Test the embedded managers replace the Redis ones")
+	void testEmbeddedManagers() {
+		assertInstanceOf(EmbeddedSessionManager.class, sessionManager);
+		assertInstanceOf(EmbeddedMemoryManager.class, memoryManager);
+	}
+
+	@Test
+	@DisplayName("1.1 - Test login, lookup and logout")
+	void testSessionLifecycle() {
+		var userId = "user-" + UUID.randomUUID();
+
+		var created = sessionManager.saveSession(userId);
+		assertEquals(created, sessionManager.getSessionDetails(userId));
+		assertThrows(SessionConflictException.class, () -> sessionManager.saveSession(userId));
+
+		sessionManager.removeSession(userId);
+		assertThrows(SessionNotFoundException.class, () -> sessionManager.getSessionDetails(userId));
+	}
+
+	@Test
+	@DisplayName("2.0 - Test session data")
+	void testSessionData() {
+		var sessionId = "SESSION_" + UUID.randomUUID();
+		byte[] data = "Test data content".getBytes();
+
+		memoryManager.addSessionData(sessionId, data);
+		assertArrayEquals(data, memoryManager.getSessionData(sessionId));
+
+		memoryManager.removeSessionData(sessionId);
+		assertThrows(SessionNotFoundException.class, () -> memoryManager.getSessionData(sessionId));
+	}
+}
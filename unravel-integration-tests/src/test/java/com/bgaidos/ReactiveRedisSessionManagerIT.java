@@ -0,0 +1,67 @@
+package com.bgaidos;
+
+import com.bgaidos.exceptions.SessionConflictException;
+import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.api.ReactiveSessionManager;
+import com.bgaidos.service.sessions.api.SessionManager;
+import com.bgaidos.service.sessions.cache.SessionNearCache;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = UnravelChallengeApp.class, properties = "session.reactive.enabled=true")
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+public class ReactiveRedisSessionManagerIT {
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	@Autowired
+	private ReactiveSessionManager reactiveSessionManager;
+
+	@Autowired
+	private SessionManager sessionManager;
+
+	@Autowired
+	private SessionNearCache sessionNearCache;
+
+	@BeforeEach
+	void setUp() {
+		assertNotNull(redisTemplate.getConnectionFactory());
+		redisTemplate.getConnectionFactory().getConnection().flushAll();
+		sessionNearCache.clear();
+	}
+
+	@Test
+	@DisplayName("1.0 - Test login, lookup and logout")
+	void testSessionLifecycle() {
+		var userId = "testUser";
+
+		var created = reactiveSessionManager.saveSession(userId).block();
+		assertNotNull(created);
+		assertEquals(created, reactiveSessionManager.getSessionDetails(userId).block());
+
+		var removed = reactiveSessionManager.removeSession(userId).block();
+		assertNotNull(removed);
+		assertTrue(removed.isRemoved());
+		assertThrows(SessionNotFoundException.class, () -> reactiveSessionManager.getSessionDetails(userId).block());
+	}
+
+	@Test
+	@DisplayName("1.1 - Test both stacks see the same sessions")
+	void testSharedSessions() {
+		var userId = "testUser";
+
+		var created = sessionManager.saveSession(userId);
+
+		assertEquals(created, reactiveSessionManager.getSessionDetails(userId).block());
+		assertThrows(SessionConflictException.class, () -> reactiveSessionManager.saveSession(userId).block());
+	}
+}
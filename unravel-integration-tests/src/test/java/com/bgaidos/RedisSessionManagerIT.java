@@ -1,8 +1,10 @@
 package com.bgaidos;
 
+import com.bgaidos.api.SessionResultDto;
 import com.bgaidos.exceptions.SessionConflictException;
 import com.bgaidos.exceptions.SessionNotFoundException;
 import com.bgaidos.service.sessions.api.SessionManager;
+import com.bgaidos.service.sessions.cache.SessionNearCache;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
@@ -13,6 +15,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.redis.core.StringRedisTemplate;
 
 import java.time.Duration;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -26,10 +29,15 @@ public class RedisSessionManagerIT {
 	@Autowired
 	private SessionManager sessionManager;
 
+	@Autowired
+	private SessionNearCache sessionNearCache;
+
 	@BeforeEach
 	void setUp() {
 		assertNotNull(redisTemplate.getConnectionFactory());
 		redisTemplate.getConnectionFactory().getConnection().flushAll();
+		// Flushing publishes no invalidations
+		sessionNearCache.clear();
 	}
 
 	@Test
@@ -113,5 +121,51 @@ public class RedisSessionManagerIT {
 
 		assertEquals(String.format("No session found for user: %s.", userId), exception.getMessage());
 	}
-}
 
+	@Test
+	@DisplayName("4.0 - Test session removed by another node is not served from the near cache")
+	void testRemoteInvalidation() throws InterruptedException {
+		var userId = "testUser";
+		sessionManager.saveSession(userId);
+		sessionManager.getSessionDetails(userId);
+		var key = String.format("user:session:%s", userId);
+		assertEquals(1, sessionNearCache.size());
+
+		// What removeSession does on another node
+		redisTemplate.delete(key);
+		redisTemplate.convertAndSend(sessionNearCache.channel(), key);
+
+		for (long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+			sessionNearCache.size() > 0 && System.nanoTime() < deadline; ) {
+			Thread.sleep(10);
+		}
+		assertThrows(SessionNotFoundException.class, () -> sessionManager.getSessionDetails(userId));
+	}
+
+	@Test
+	@DisplayName("5.0 - Test bulk login, lookup and logout")
+	void testBulkSessions() {
+		sessionManager.saveSession("existingUser");
+
+		var created = sessionManager.saveSessions(List.of("user1", "existingUser", "user2"));
+
+		assertEquals(SessionResultDto.Status.CREATED, created.get(0).status());
+		assertEquals(SessionResultDto.Status.CONFLICT, created.get(1).status());
+		assertEquals(SessionResultDto.Status.CREATED, created.get(2).status());
+		var ttl = redisTemplate.getExpire("user:session:user1");
+		assertTrue(ttl != null && ttl > 0 && ttl <= Duration.ofHours(1).toSeconds());
+
+		var found = sessionManager.getSessionsDetails(List.of("user1", "unknownUser", "user2"));
+
+		assertEquals(new SessionResultDto("user1", created.get(0).sessionId(), SessionResultDto.Status.FOUND), found.get(0));
+		assertEquals(SessionResultDto.Status.NOT_FOUND, found.get(1).status());
+		assertEquals(created.get(2).sessionId(), found.get(2).sessionId());
+
+		sessionManager.removeSessions(List.of("user1", "user2"));
+
+		assertNull(redisTemplate.opsForValue().get("user:session:user1"));
+		assertNull(redisTemplate.opsForValue().get("user:session:user2"));
+		assertTrue(sessionManager.getSessionsDetails(List.of("user1", "user2")).stream()
+			.allMatch(result -> result.status() == SessionResultDto.Status.NOT_FOUND));
+	}
+}
@@ -0,0 +1,169 @@
+package com.bgaidos;
+
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.delivery.RedisStreamLogProcessor;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.RedisStreamLogQueue;
+import com.bgaidos.service.processor.queue.WeightedFairPolicy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(classes = UnravelChallengeApp.class)
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+public class RedisStreamLogQueueIT {
+
+	private static final Duration MAX_WAIT = Duration.ofSeconds(2);
+
+	@Autowired
+	private StringRedisTemplate redisTemplate;
+
+	private final List<RedisStreamLogProcessor> processors = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		assertNotNull(redisTemplate.getConnectionFactory());
+		redisTemplate.getConnectionFactory().getConnection().flushAll();
+	}
+
+	@AfterEach
+	void tearDown() {
+		processors.forEach(RedisStreamLogProcessor::close);
+	}
+
+	@Test
+	@DisplayName("1.0 - Entries produced on one node are consumed on another with all fields intact")
+	void testSharedBacklog() throws InterruptedException {
+		var producer = node("producer", Duration.ofSeconds(30));
+		var consumer = node("consumer", Duration.ofSeconds(30));
+
+		producer.produceLog(7, Priority.HIGH, "billing", "Payment failed");
+		var entry = consumer.consumeLog(MAX_WAIT);
+
+		assertNotNull(entry);
+		assertEquals(Priority.HIGH, entry.priority());
+		assertEquals("billing", entry.source());
+		assertEquals("Payment failed", entry.message());
+	}
+
+	@Test
+	@DisplayName("1.1 - Offsets are unique across nodes")
+	void testUniqueOffsets() throws InterruptedException {
+		var first = node("first", Duration.ofSeconds(30));
+		var second = node("second", Duration.ofSeconds(30));
+		for (int i = 0; i < 50; i++) {
+			first.produceLog(0, Priority.MEDIUM, "First " + i);
+			second.produceLog(0, Priority.MEDIUM, "Second " + i);
+		}
+
+		var offsets = new HashSet<Long>();
+		for (int i = 0; i < 100; i++) {
+			var entry = first.consumeLog(MAX_WAIT);
+			assertNotNull(entry);
+			offsets.add(entry.offset());
+			first.ack(entry.offset());
+		}
+		assertEquals(100, offsets.size());
+	}
+
+	@Test
+	@DisplayName("2.0 - Refills favour higher priorities by weight")
+	void testWeightedRefill() throws InterruptedException {
+		var producer = node("producer", Duration.ofSeconds(30));
+		for (int i = 0; i < 200; i++) {
+			producer.produceLog(i, Priority.LOW, "Low " + i);
+			producer.produceLog(i, Priority.CRITICAL, "Critical " + i);
+		}
+		awaitPublished(400);
+
+		var consumer = node("consumer", Duration.ofSeconds(30));
+		var batch = consumer.consumeBatch(100, MAX_WAIT);
+
+		long critical = batch.stream().filter(entry -> entry.priority() == Priority.CRITICAL).count();
+		assertTrue(critical > batch.size() / 2, "Expected mostly CRITICAL entries, got %d of %d".formatted(critical, batch.size()));
+	}
+
+	@Test
+	@DisplayName("3.0 - Entries left unacked by a node are reclaimed by another")
+	void testReclaim() throws InterruptedException {
+		var crashed = node("crashed", Duration.ofMillis(200));
+		crashed.produceLog(1, Priority.CRITICAL, "Never acked");
+		var lost = crashed.consumeLog(MAX_WAIT);
+		assertNotNull(lost);
+		// Stops its reclaim task, leaving the entry pending with it
+		crashed.close();
+
+		var survivor = node("survivor", Duration.ofMillis(200));
+		LogEntry reclaimed = null;
+		for (long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+			reclaimed == null && System.nanoTime() < deadline; ) {
+			reclaimed = survivor.consumeLog(Duration.ofMillis(100));
+		}
+
+		assertNotNull(reclaimed);
+		assertEquals(lost.offset(), reclaimed.offset());
+		assertEquals("Never acked", reclaimed.message());
+	}
+
+	@Test
+	@DisplayName("3.1 - Acked entries are not reclaimed, nacked ones are delivered again")
+	void testAckAndNack() throws InterruptedException {
+		var node = node("node", Duration.ofMillis(200));
+		node.produceLog(1, Priority.HIGH, "Acked");
+		node.produceLog(2, Priority.HIGH, "Nacked");
+
+		var first = node.consumeLog(MAX_WAIT);
+		var second = node.consumeLog(MAX_WAIT);
+		var acked = "Acked".equals(first.message()) ? first : second;
+		var nacked = acked == first ? second : first;
+		node.ack(acked.offset());
+		node.nack(nacked);
+
+		var redelivered = node.consumeLog(MAX_WAIT);
+		assertNotNull(redelivered);
+		assertEquals(nacked.offset(), redelivered.offset());
+		node.ack(redelivered.offset());
+
+		// Past the claim idle time nothing is left pending
+		Thread.sleep(600);
+		assertNull(node.consumeLog(Duration.ofMillis(300)));
+	}
+
+	private RedisStreamLogProcessor node(String name, Duration claimIdle) {
+		var queue = new RedisStreamLogQueue(redisTemplate, WeightedFairPolicy.DEFAULT_WEIGHTS,
+			new RedisStreamLogQueue.Options("it:log-stream", "it-group", name, 4, Duration.ofMillis(50), claimIdle,
+				Duration.ofMillis(100), Duration.ofMillis(2), 1024, 10_000));
+		var processor = new RedisStreamLogProcessor(queue, LogProcessorListener.NONE);
+		processors.add(processor);
+		return processor;
+	}
+
+	private void awaitPublished(long entries) throws InterruptedException {
+		for (long deadline = System.nanoTime() + MAX_WAIT.toNanos(); System.nanoTime() < deadline; ) {
+			long published = 0;
+			for (var priority : Priority.values()) {
+				Long length = redisTemplate.opsForStream().size("it:log-stream:" + priority.name());
+				published += length == null ? 0 : length;
+			}
+			if (published >= entries) {
+				return;
+			}
+			Thread.sleep(10);
+		}
+		fail("Entries were not published within %s".formatted(MAX_WAIT));
+	}
+}
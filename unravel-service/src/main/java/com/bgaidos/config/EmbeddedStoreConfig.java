@@ -0,0 +1,26 @@
+package com.bgaidos.config;
+
+import com.bgaidos.service.sessions.embedded.EmbeddedStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.InstantSource;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(EmbeddedStoreProperties.class)
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "embedded")
+public class EmbeddedStoreConfig {
+
+	@Bean
+	public EmbeddedStore embeddedStore(EmbeddedStoreProperties properties, MeterRegistry meterRegistry) {
+		log.info("Embedded session store: {} stripes, max memory: {}, tick: {}, sweep interval: {}",
+			properties.stripes(), properties.maxMemory(), properties.tick(), properties.sweepInterval());
+		return new EmbeddedStore(properties.stripes(), properties.maxMemory().toBytes(), properties.tick(),
+			properties.sweepInterval(), meterRegistry, InstantSource.system());
+	}
+}
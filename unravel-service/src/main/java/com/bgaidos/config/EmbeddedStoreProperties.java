@@ -0,0 +1,22 @@
+package com.bgaidos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * The in-process session store used with {@code session.store=embedded}, see
+ * {@link com.bgaidos.service.sessions.embedded.EmbeddedStore}.
+ */
+@ConfigurationProperties(prefix = "session.embedded")
+public record EmbeddedStoreProperties(
+	@DefaultValue("64") int stripes,
+	// Estimated heap the sessions and session data may take, the entries expiring soonest are evicted beyond it
+	@DefaultValue("256MB") DataSize maxMemory,
+	// Precision of expirations
+	@DefaultValue("1s") Duration tick,
+	@DefaultValue("1s") Duration sweepInterval
+) {
+}
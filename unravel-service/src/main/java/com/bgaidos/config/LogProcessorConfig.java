@@ -0,0 +1,222 @@
+package com.bgaidos.config;
+
+import com.bgaidos.service.processor.LogBatchHandler;
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.compaction.LogCompactor;
+import com.bgaidos.service.processor.delivery.AtLeastOnceLogProcessor;
+import com.bgaidos.service.processor.delivery.RedisStreamLogProcessor;
+import com.bgaidos.service.processor.ingest.NdjsonLogIngester;
+import com.bgaidos.service.processor.metrics.LogProcessorMetrics;
+import com.bgaidos.service.processor.metrics.LogTrafficAggregator;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.BoundedLogQueue;
+import com.bgaidos.service.processor.queue.AgingPolicy;
+import com.bgaidos.service.processor.queue.CompactLogQueue;
+import com.bgaidos.service.processor.queue.DeadlinePolicy;
+import com.bgaidos.service.processor.queue.HeapLogQueue;
+import com.bgaidos.service.processor.queue.LogQueue;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.OverflowPolicy;
+import com.bgaidos.service.processor.queue.PartitionedLogQueue;
+import com.bgaidos.service.processor.queue.RedisStreamLogQueue;
+import com.bgaidos.service.processor.queue.RingBufferLogQueue;
+import com.bgaidos.service.processor.queue.SchedulingPolicy;
+import com.bgaidos.service.processor.queue.SourceFairLogQueue;
+import com.bgaidos.service.processor.queue.SpillingLogQueue;
+import com.bgaidos.service.processor.queue.WeightedFairPolicy;
+import com.bgaidos.service.processor.sink.JdbcLogSink;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import tools.jackson.databind.ObjectMapper;
+
+import javax.sql.DataSource;
+import java.time.InstantSource;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(LogProcessorProperties.class)
+public class LogProcessorConfig {
+
+	// Hikari's default, for a pool that does not tell its size
+	private static final int DEFAULT_POOL_SIZE = 10;
+
+	@Bean
+	public LogProcessor logProcessor(LogProcessorProperties properties, MeterRegistry meterRegistry,
+		RedisConnectionFactory redisConnectionFactory, LogTrafficAggregator trafficAggregator) {
+		// Policies are stateful, so every lane-based queue gets its own
+		var scheduling = properties.scheduling();
+		Supplier<SchedulingPolicy> policies = switch (scheduling.policy()) {
+			case AGING -> AgingPolicy::new;
+			case WEIGHTED_FAIR -> {
+				var weights = withDefaults(WeightedFairPolicy.DEFAULT_WEIGHTS, scheduling.weights());
+				yield () -> new WeightedFairPolicy(weights);
+			}
+			case DEADLINE -> {
+				var deadlines = withDefaults(DeadlinePolicy.DEFAULT_TARGETS, scheduling.deadlines());
+				yield () -> new DeadlinePolicy(deadlines);
+			}
+		};
+
+		LogQueue queue = switch (properties.engine()) {
+			case HEAP -> new HeapLogQueue();
+			case MULTI_LEVEL -> new MultiLevelLogQueue(InstantSource.system(), policies.get());
+			case PARTITIONED -> new PartitionedLogQueue(
+				properties.partitions() > 0 ? properties.partitions() : Runtime.getRuntime().availableProcessors(),
+				properties.routing(),
+				() -> new MultiLevelLogQueue(InstantSource.system(), policies.get())
+			);
+			case RING_BUFFER -> new RingBufferLogQueue(properties.ringCapacity(), properties.waitStrategy());
+			case COMPACT -> new CompactLogQueue(properties.ringCapacity(), properties.arenaBytes(),
+				InstantSource.system(), policies.get());
+			case SOURCE_FAIR -> new SourceFairLogQueue(properties.maxSources(), InstantSource.system(), policies.get());
+			case REDIS_STREAMS -> redisStreamQueue(properties, redisConnectionFactory);
+		};
+
+		if (scheduling.policy() != LogProcessorProperties.Scheduling.Policy.AGING
+			&& (properties.engine() == LogProcessorProperties.Engine.HEAP
+			|| properties.engine() == LogProcessorProperties.Engine.RING_BUFFER)) {
+			log.warn("Scheduling policy {} is not supported by the {} engine and is ignored",
+				scheduling.policy(), properties.engine());
+		}
+
+		if (queue instanceof RedisStreamLogQueue
+			&& (properties.spillDirectory() != null || properties.capacity() > 0)) {
+			// The streams are the buffer, bounded by their maximum length
+			log.warn("Spill-over and capacity are not supported by the {} engine and are ignored", properties.engine());
+		} else if (properties.spillDirectory() != null) {
+			queue = new SpillingLogQueue(queue, properties.spillDirectory(), spillWatermark(properties, queue));
+		}
+
+		if (properties.capacity() > 0 && !(queue instanceof RedisStreamLogQueue)) {
+			queue = new BoundedLogQueue(queue, properties.capacity(), properties.overflowPolicy());
+		}
+
+		var compaction = properties.compaction();
+		if (compaction.enabled() && properties.engine() == LogProcessorProperties.Engine.COMPACT) {
+			// The compact layout has no room for the repeat counts, every summary would reach consumers as one entry
+			throw new IllegalStateException("The %s engine can not be combined with compaction".formatted(properties.engine()));
+		}
+		var compactor = compaction.enabled()
+			? new LogCompactor(compaction.window(), compaction.slots(), InstantSource.system())
+			: null;
+
+		log.info("Log processor engine: {}, scheduling: {}, capacity: {}, compaction: {}", properties.engine(),
+			scheduling.policy(), properties.capacity() > 0 ? properties.capacity() : "unbounded",
+			compaction.enabled() ? compaction.window() : "disabled");
+		var listener = LogProcessorListener.of(
+			new LogProcessorMetrics(meterRegistry, queue, properties.starvationThreshold(), properties.maxSources(),
+				InstantSource.system()),
+			trafficAggregator
+		);
+		var delivery = properties.delivery();
+		if (queue instanceof RedisStreamLogQueue redisQueue) {
+			if (delivery.directory() != null) {
+				throw new IllegalStateException("The %s engine delivers at least once by itself, unset the delivery directory"
+					.formatted(properties.engine()));
+			}
+			return new RedisStreamLogProcessor(redisQueue, listener, compactor);
+		}
+		if (delivery.directory() == null) {
+			return new LogProcessor(queue, listener, compactor);
+		}
+
+		// Entries folded or shed after being accepted would never be acked, stalling the checkpoint
+		if (compaction.enabled()) {
+			throw new IllegalStateException("At-least-once delivery can not be combined with compaction");
+		}
+		if (properties.capacity() > 0 && (properties.overflowPolicy() == OverflowPolicy.DROP_OLDEST
+			|| properties.overflowPolicy() == OverflowPolicy.SAMPLE_LOW)) {
+			throw new IllegalStateException("At-least-once delivery requires the BLOCK or FAIL_FAST overflow policy, got %s"
+				.formatted(properties.overflowPolicy()));
+		}
+		log.info("Log processor delivery: at-least-once, journal in {}, commit interval: {}", delivery.directory(),
+			delivery.commitInterval());
+		return new AtLeastOnceLogProcessor(queue, listener, delivery.directory(), delivery.commitInterval());
+	}
+
+	@Bean
+	public LogTrafficAggregator logTrafficAggregator(LogProcessorProperties properties) {
+		var traffic = properties.traffic();
+		return new LogTrafficAggregator(traffic.secondWindows(), traffic.minuteWindows());
+	}
+
+	@Bean
+	public NdjsonLogIngester logIngester(LogProcessor logProcessor, ObjectMapper objectMapper,
+		LogProcessorProperties properties) {
+		var ingest = properties.ingest();
+		return new NdjsonLogIngester(logProcessor, objectMapper, ingest.batchSize(), ingest.maxBlock());
+	}
+
+	private static RedisStreamLogQueue redisStreamQueue(LogProcessorProperties properties,
+		RedisConnectionFactory connectionFactory) {
+		var streams = properties.streams();
+		var consumer = streams.consumer() == null || streams.consumer().isBlank()
+			? UUID.randomUUID().toString()
+			: streams.consumer();
+		log.info("Log processor streams: {}:*, group {}, consumer {}", streams.keyPrefix(), streams.group(), consumer);
+		return new RedisStreamLogQueue(new StringRedisTemplate(connectionFactory),
+			withDefaults(WeightedFairPolicy.DEFAULT_WEIGHTS, properties.scheduling().weights()),
+			new RedisStreamLogQueue.Options(streams.keyPrefix(), streams.group(), consumer, streams.fetchPerWeight(),
+				streams.maxBlock(), streams.claimIdle(), streams.claimInterval(), streams.publishInterval(),
+				streams.outboxCapacity(), streams.maxLength()));
+	}
+
+	/**
+	 * Clamps the watermark to what the engine can hold, as engines with bounded priority lanes would never reach a
+	 * higher one.
+	 */
+	static int spillWatermark(LogProcessorProperties properties, LogQueue queue) {
+		long lanes = Priority.values().length;
+		long capacity = switch (queue) {
+			case RingBufferLogQueue ringBuffer -> ringBuffer.capacityPerPriority() * lanes;
+			case CompactLogQueue compact -> compact.slotsPerPriority() * lanes;
+			default -> Integer.MAX_VALUE;
+		};
+		if (properties.spillWatermark() > capacity) {
+			log.warn("Spill watermark {} is more than the {} engine holds, using {}", properties.spillWatermark(),
+				properties.engine(), capacity);
+			return (int) capacity;
+		}
+		return properties.spillWatermark();
+	}
+
+	private static <T> Map<Priority, T> withDefaults(Map<Priority, T> defaults, Map<Priority, T> configured) {
+		var merged = new EnumMap<>(defaults);
+		if (configured != null) {
+			merged.putAll(configured);
+		}
+		return merged;
+	}
+
+	@Bean
+	@ConditionalOnProperty(prefix = "log-processor.sink", name = "enabled", havingValue = "true")
+	public JdbcLogSink logSink(DataSource dataSource, LogProcessorProperties properties, MeterRegistry meterRegistry) {
+		var sink = properties.sink();
+		// Each group in flight holds a connection, so leave most of the pool to the rest of the application
+		int poolSize = dataSource instanceof HikariDataSource hikari ? hikari.getMaximumPoolSize() : DEFAULT_POOL_SIZE;
+		int maxInFlight = sink.maxInFlight() > 0 ? Math.min(sink.maxInFlight(), poolSize) : Math.max(poolSize / 4, 1);
+		log.info("Log sink: table {}, flush size: {}, flush interval: {}, max in flight: {}", sink.table(),
+			sink.flushSize(), sink.flushInterval(), maxInFlight);
+		return new JdbcLogSink(dataSource, sink.table(), sink.flushSize(), sink.flushInterval(), maxInFlight,
+			sink.maxAttempts(), sink.retryBackoff(), meterRegistry);
+	}
+
+	@Bean
+	@ConditionalOnMissingBean
+	public LogBatchHandler logBatchHandler() {
+		return batch -> batch.forEach(entry -> log.debug("Consumed: Log {}", entry));
+	}
+}
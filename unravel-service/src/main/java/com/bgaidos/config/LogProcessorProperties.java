@@ -0,0 +1,168 @@
+package com.bgaidos.config;
+
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.OverflowPolicy;
+import com.bgaidos.service.processor.queue.PartitionedLogQueue;
+import com.bgaidos.service.processor.queue.WaitStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "log-processor")
+public record LogProcessorProperties(
+	@DefaultValue("HEAP") Engine engine,
+	// 0 keeps the queue unbounded
+	@DefaultValue("0") int capacity,
+	@DefaultValue("BLOCK") OverflowPolicy overflowPolicy,
+	// 0 uses one partition per available core
+	@DefaultValue("0") int partitions,
+	@DefaultValue("OFFSET") PartitionedLogQueue.Routing routing,
+	// Slots per priority for the RING_BUFFER and COMPACT engines
+	@DefaultValue("16384") int ringCapacity,
+	@DefaultValue("PARK") WaitStrategy waitStrategy,
+	// Message bytes per priority for the COMPACT engine
+	@DefaultValue("1048576") int arenaBytes,
+	// Sources per priority lane for the SOURCE_FAIR engine, and sources with their own meters
+	@DefaultValue("64") int maxSources,
+	// Spill-over to disk is disabled unless a directory is set
+	Path spillDirectory,
+	// Clamped to the ring capacity of all priorities for the RING_BUFFER and COMPACT engines
+	@DefaultValue("100000") int spillWatermark,
+	// LOW entries waiting longer than this are reported as starved
+	@DefaultValue("30s") Duration starvationThreshold,
+	@DefaultValue Traffic traffic,
+	@DefaultValue Scheduling scheduling,
+	@DefaultValue Streams streams,
+	@DefaultValue Compaction compaction,
+	@DefaultValue Ingest ingest,
+	@DefaultValue Delivery delivery,
+	@DefaultValue Sink sink,
+	@DefaultValue Runtime runtime
+) {
+
+	public enum Engine {
+		HEAP,
+		MULTI_LEVEL,
+		PARTITIONED,
+		RING_BUFFER,
+		COMPACT,
+		SOURCE_FAIR,
+		REDIS_STREAMS
+	}
+
+	/**
+	 * Windows kept by the traffic aggregation, see {@link com.bgaidos.service.processor.metrics.LogTrafficAggregator}.
+	 */
+	public record Traffic(
+		@DefaultValue("300") int secondWindows,
+		@DefaultValue("120") int minuteWindows
+	) {
+	}
+
+	/**
+	 * Lane scheduling of the MULTI_LEVEL, PARTITIONED, COMPACT and SOURCE_FAIR engines; HEAP always ages and RING_BUFFER is
+	 * strict priority.
+	 */
+	public record Scheduling(
+		@DefaultValue("AGING") Policy policy,
+		// WEIGHTED_FAIR shares per priority, unset uses 8:4:2:1
+		Map<Priority, Integer> weights,
+		// DEADLINE latency targets per priority, unset uses 100ms, 500ms, 2s and 10s
+		Map<Priority, Duration> deadlines
+	) {
+
+		public enum Policy {
+			AGING,
+			WEIGHTED_FAIR,
+			DEADLINE
+		}
+	}
+
+	/**
+	 * The REDIS_STREAMS engine, see {@link com.bgaidos.service.processor.queue.RedisStreamLogQueue}. Refills are
+	 * shared between priorities by the scheduling weights.
+	 */
+	public record Streams(
+		@DefaultValue("log-processor:stream") String keyPrefix,
+		@DefaultValue("log-processor") String group,
+		// This node's name in the group, unique across the cluster; unset uses a random one
+		String consumer,
+		@DefaultValue("16") int fetchPerWeight,
+		@DefaultValue("100ms") Duration maxBlock,
+		// Entries pending longer than this with one consumer are taken over by another
+		@DefaultValue("30s") Duration claimIdle,
+		@DefaultValue("5s") Duration claimInterval,
+		@DefaultValue("2ms") Duration publishInterval,
+		@DefaultValue("65536") int outboxCapacity,
+		// Entries kept per stream, approximately
+		@DefaultValue("1000000") long maxLength
+	) {
+	}
+
+	/**
+	 * Produce-side folding of identical entries, see {@link com.bgaidos.service.processor.compaction.LogCompactor}.
+	 * Not supported by the COMPACT engine or with at-least-once delivery.
+	 */
+	public record Compaction(
+		@DefaultValue("false") boolean enabled,
+		@DefaultValue("1s") Duration window,
+		// Windows tracked at once, bounding the compactor's memory
+		@DefaultValue("4096") int slots
+	) {
+	}
+
+	/**
+	 * The NDJSON bulk endpoint, see {@link com.bgaidos.service.processor.ingest.NdjsonLogIngester}.
+	 */
+	public record Ingest(
+		// Entries parsed before they are produced
+		@DefaultValue("512") int batchSize,
+		// How long an entry is retried against a fail-fast processor before it is shed
+		@DefaultValue("5s") Duration maxBlock
+	) {
+	}
+
+	/**
+	 * At-least-once delivery, see {@link com.bgaidos.service.processor.delivery.AtLeastOnceLogProcessor}.
+	 */
+	public record Delivery(
+		// Entries are gone once consumed unless a directory for the journal and checkpoint is set
+		Path directory,
+		// How often the acked position is persisted, bounding what is redelivered after a crash
+		@DefaultValue("1s") Duration commitInterval
+	) {
+	}
+
+	/**
+	 * The MySQL sink for consumed entries, see {@link com.bgaidos.service.processor.sink.JdbcLogSink}.
+	 */
+	public record Sink(
+		@DefaultValue("false") boolean enabled,
+		@DefaultValue("logs") String table,
+		// Entries written per transaction
+		@DefaultValue("1000") int flushSize,
+		// How long a partial group waits before it is written anyway
+		@DefaultValue("50ms") Duration flushInterval,
+		// Groups written at once, capped by the connection pool size; 0 uses a quarter of the pool
+		@DefaultValue("0") int maxInFlight,
+		@DefaultValue("3") int maxAttempts,
+		@DefaultValue("100ms") Duration retryBackoff
+	) {
+	}
+
+	public record Runtime(
+		@DefaultValue("true") boolean enabled,
+		@DefaultValue("1") int minConsumers,
+		@DefaultValue("64") int maxConsumers,
+		@DefaultValue("256") int batchSize,
+		@DefaultValue("100ms") Duration pollTimeout,
+		@DefaultValue("1s") Duration scaleInterval,
+		// Backlog, expressed in handler time, that the consumers should be able to clear
+		@DefaultValue("1s") Duration targetDrainTime,
+		@DefaultValue("30s") Duration shutdownTimeout
+	) {
+	}
+}
@@ -2,9 +2,13 @@ package com.bgaidos.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.RedisSerializer;
 
 @Configuration
@@ -26,4 +30,20 @@ public class RedisConfig {
 		return new StringRedisTemplate(connectionFactory);
 	}
 
+	@Bean
+	public ReactiveRedisTemplate<String, byte[]> reactiveByteArrayRedis(ReactiveRedisConnectionFactory connectionFactory) {
+		RedisSerializationContext<String, byte[]> context = RedisSerializationContext
+			.<String, byte[]>newSerializationContext(RedisSerializer.string())
+			.value(RedisSerializer.byteArray())
+			.hashKey(RedisSerializer.string())
+			.hashValue(RedisSerializer.byteArray())
+			.build();
+		return new ReactiveRedisTemplate<>(connectionFactory, context);
+	}
+
+	@Bean
+	public ReactiveStringRedisTemplate reactiveStringRedis(ReactiveRedisConnectionFactory connectionFactory) {
+		return new ReactiveStringRedisTemplate(connectionFactory);
+	}
+
 }
@@ -0,0 +1,41 @@
+package com.bgaidos.config;
+
+import com.bgaidos.service.sessions.cache.SessionInvalidationListener;
+import com.bgaidos.service.sessions.cache.SessionNearCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.time.InstantSource;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SessionCacheProperties.class)
+@ConditionalOnProperty(prefix = "session.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "redis", matchIfMissing = true)
+public class SessionCacheConfig {
+
+	@Bean
+	public SessionNearCache sessionNearCache(SessionCacheProperties properties, MeterRegistry meterRegistry) {
+		log.info("Session near cache: {} entries, max staleness: {}, refresh interval: {}, invalidations on {}",
+			properties.maxEntries(), properties.maxStaleness(), properties.refreshInterval(), properties.channel());
+		return new SessionNearCache(properties.maxEntries(), properties.maxStaleness(), properties.refreshInterval(),
+			properties.channel(), meterRegistry, InstantSource.system());
+	}
+
+	@Bean
+	public RedisMessageListenerContainer sessionInvalidationContainer(RedisConnectionFactory connectionFactory,
+		SessionNearCache sessionNearCache) {
+		var container = new RedisMessageListenerContainer();
+		container.setConnectionFactory(connectionFactory);
+		container.addMessageListener(new SessionInvalidationListener(sessionNearCache),
+			new ChannelTopic(sessionNearCache.channel()));
+		return container;
+	}
+}
@@ -0,0 +1,21 @@
+package com.bgaidos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * The in-process near cache of sessions, see {@link com.bgaidos.service.sessions.cache.SessionNearCache}.
+ */
+@ConfigurationProperties(prefix = "session.cache")
+public record SessionCacheProperties(
+	@DefaultValue("true") boolean enabled,
+	@DefaultValue("100000") int maxEntries,
+	// Entries older than this are read from Redis again, in case an invalidation was missed
+	@DefaultValue("30s") Duration maxStaleness,
+	// How often a cached session's expiration is refreshed in Redis
+	@DefaultValue("1m") Duration refreshInterval,
+	@DefaultValue("session:invalidations") String channel
+) {
+}
@@ -0,0 +1,28 @@
+package com.bgaidos.config;
+
+import com.bgaidos.service.sessions.expiration.SlidingExpiration;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.InstantSource;
+
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(SessionExpirationProperties.class)
+@ConditionalOnProperty(prefix = "session.expiration", name = "adaptive", havingValue = "true", matchIfMissing = true)
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "redis", matchIfMissing = true)
+public class SessionExpirationConfig {
+
+	@Bean
+	public SlidingExpiration slidingExpiration(SessionExpirationProperties properties, MeterRegistry meterRegistry) {
+		var expiration = new SlidingExpiration(properties.refreshFraction(), properties.trackedKeys(), meterRegistry,
+			InstantSource.system());
+		log.info("Adaptive session expiration: refreshed below {} of the time to live, {} keys tracked",
+			properties.refreshFraction(), expiration.trackedKeys());
+		return expiration;
+	}
+}
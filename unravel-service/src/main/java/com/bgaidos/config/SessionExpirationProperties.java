@@ -0,0 +1,18 @@
+package com.bgaidos.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * When session reads extend the session expiration, see
+ * {@link com.bgaidos.service.sessions.expiration.SlidingExpiration}.
+ */
+@ConfigurationProperties(prefix = "session.expiration")
+public record SessionExpirationProperties(
+	// False to extend the expiration on every read
+	@DefaultValue("true") boolean adaptive,
+	// Reads extend the expiration once less than this share of the time to live is left
+	@DefaultValue("0.5") double refreshFraction,
+	@DefaultValue("262144") int trackedKeys
+) {
+}
@@ -0,0 +1,57 @@
+package com.bgaidos.controller;
+
+import com.bgaidos.api.LogIngestDto;
+import com.bgaidos.api.LogTrafficDto;
+import com.bgaidos.service.processor.ingest.NdjsonLogIngester;
+import com.bgaidos.service.processor.metrics.LogTrafficAggregator;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/logs")
+public class LogController {
+
+	private final NdjsonLogIngester logIngester;
+	private final LogTrafficAggregator trafficAggregator;
+
+	/**
+	 * Ingests a streamed body of newline-delimited JSON log entries, see {@link NdjsonLogIngester}.
+	 *
+	 * @param source the source of entries that do not name one
+	 */
+	@PostMapping(value = "/_bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+	public LogIngestDto ingestLogs(InputStream body, @RequestParam(required = false) String source) {
+		return logIngester.ingest(body, source);
+	}
+
+	/**
+	 * Returns the traffic of the last windows, oldest first, ending with the current, still filling one.
+	 *
+	 * @param windows clamped to the windows kept at that resolution
+	 */
+	@GetMapping("/traffic")
+	public List<LogTrafficDto> getTraffic(
+		@RequestParam(defaultValue = "SECOND") LogTrafficAggregator.Resolution resolution,
+		@RequestParam(defaultValue = "60") int windows) {
+		return trafficAggregator.windows(resolution, windows).stream()
+			.map(LogController::toDto)
+			.toList();
+	}
+
+	private static LogTrafficDto toDto(LogTrafficAggregator.Window window) {
+		var priorities = new LinkedHashMap<String, LogTrafficDto.Traffic>();
+		window.traffic().forEach((priority, traffic) -> priorities.put(priority.name(), new LogTrafficDto.Traffic(
+			traffic.produced(), traffic.bytes(), traffic.consumed(), traffic.meanWaitMillis(), traffic.maxWaitMillis())));
+		return new LogTrafficDto(window.start(), window.length().toMillis(), priorities);
+	}
+}
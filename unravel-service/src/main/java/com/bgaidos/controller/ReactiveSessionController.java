@@ -0,0 +1,43 @@
+package com.bgaidos.controller;
+
+import com.bgaidos.api.RemoveDto;
+import com.bgaidos.api.SessionDetailsDto;
+import com.bgaidos.service.sessions.api.ReactiveSessionManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link SessionController} on the {@link ReactiveSessionManager}. Returning a {@link Mono} makes Spring MVC complete
+ * the request asynchronously, so the servlet thread is released while Redis is waited on.
+ */
+@RestController
+@RequiredArgsConstructor
+@RequestMapping("/reactive/sessions")
+@ConditionalOnProperty(prefix = "session.reactive", name = "enabled", havingValue = "true")
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "redis", matchIfMissing = true)
+public class ReactiveSessionController {
+
+	private final ReactiveSessionManager sessionManager;
+
+	@PostMapping("/{userId}")
+	public Mono<SessionDetailsDto> addSession(@PathVariable String userId) {
+		return sessionManager.saveSession(userId);
+	}
+
+	@GetMapping("/{userId}")
+	public Mono<SessionDetailsDto> getSessionDetails(@PathVariable String userId) {
+		return sessionManager.getSessionDetails(userId);
+	}
+
+	@DeleteMapping("/{userId}")
+	public Mono<RemoveDto> removeSession(@PathVariable String userId) {
+		return sessionManager.removeSession(userId);
+	}
+}
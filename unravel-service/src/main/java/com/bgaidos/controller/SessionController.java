@@ -1,22 +1,37 @@
 package com.bgaidos.controller;
 
+import com.bgaidos.api.BulkSessionRequestDto;
 import com.bgaidos.api.RemoveDto;
 import com.bgaidos.api.SessionDetailsDto;
+import com.bgaidos.api.SessionResultDto;
+import com.bgaidos.exceptions.InvalidRequestException;
 import com.bgaidos.service.sessions.api.SessionManager;
-import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+
 @RestController
-@RequiredArgsConstructor
 @RequestMapping("/dummy/sessions")
 public class SessionController {
 
 	private final SessionManager sessionManager;
+	private final int maxBulkUsers;
+
+	/**
+	 * @param maxBulkUsers the most user ids a bulk request may carry, as each one is a command on the shared connection
+	 */
+	public SessionController(SessionManager sessionManager,
+		@Value("${session.bulk.max-users:1000}") int maxBulkUsers) {
+		this.sessionManager = sessionManager;
+		this.maxBulkUsers = maxBulkUsers;
+	}
 
 	@PostMapping("/{userId}")
 	public SessionDetailsDto addSession(@PathVariable String userId) {
@@ -35,4 +50,40 @@ public class SessionController {
 		//TODO: Remove sessionID from response body, add as a cookie or header
 		return sessionManager.removeSession(userId);
 	}
+
+	@PostMapping("/_bulk/create")
+	public List<SessionResultDto> addSessions(@RequestBody BulkSessionRequestDto request) {
+		return sessionManager.saveSessions(userIds(request));
+	}
+
+	@PostMapping("/_bulk/get")
+	public List<SessionResultDto> getSessionsDetails(@RequestBody BulkSessionRequestDto request) {
+		return sessionManager.getSessionsDetails(userIds(request));
+	}
+
+	@PostMapping("/_bulk/remove")
+	public List<SessionResultDto> removeSessions(@RequestBody BulkSessionRequestDto request) {
+		return sessionManager.removeSessions(userIds(request));
+	}
+
+	/**
+	 * @throws InvalidRequestException if the user ids are missing, contain null or are more than allowed
+	 */
+	private List<String> userIds(BulkSessionRequestDto request) {
+		if (request == null || request.userIds() == null) {
+			throw new InvalidRequestException("userIds is required.");
+		}
+
+		var userIds = request.userIds();
+		if (userIds.size() > maxBulkUsers) {
+			throw new InvalidRequestException("At most %d userIds are allowed per request, got %d."
+				.formatted(maxBulkUsers, userIds.size()));
+		}
+		for (var userId : userIds) {
+			if (userId == null) {
+				throw new InvalidRequestException("userIds can not contain null.");
+			}
+		}
+		return userIds;
+	}
 }
@@ -1,11 +1,14 @@
 package com.bgaidos.controller.handler;
 
 import com.bgaidos.controller.handler.model.ExceptionResponse;
+import com.bgaidos.exceptions.InvalidRequestException;
+import com.bgaidos.exceptions.LogIngestException;
 import com.bgaidos.exceptions.SessionConflictException;
 import com.bgaidos.exceptions.SessionNotFoundException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
@@ -33,6 +36,36 @@ public class ControllerExceptionHandler {
 		return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
 	}
 
+	@ExceptionHandler(LogIngestException.class)
+	public ResponseEntity<ExceptionResponse> handleLogIngestException(LogIngestException ex) {
+		var response = new ExceptionResponse(
+			"MALFORMED_LOGS",
+			ex.getMessage(),
+			HttpStatus.BAD_REQUEST.value()
+		);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+	}
+
+	@ExceptionHandler(InvalidRequestException.class)
+	public ResponseEntity<ExceptionResponse> handleInvalidRequestException(InvalidRequestException ex) {
+		var response = new ExceptionResponse(
+			"INVALID_REQUEST",
+			ex.getMessage(),
+			HttpStatus.BAD_REQUEST.value()
+		);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+	}
+
+	@ExceptionHandler(HttpMessageNotReadableException.class)
+	public ResponseEntity<ExceptionResponse> handleHttpMessageNotReadableException(HttpMessageNotReadableException ex) {
+		var response = new ExceptionResponse(
+			"INVALID_REQUEST",
+			"The request body is missing or malformed",
+			HttpStatus.BAD_REQUEST.value()
+		);
+		return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+	}
+
 	@ExceptionHandler(Exception.class)
 	public ResponseEntity<ExceptionResponse> handleGeneralException(Exception ex) {
 		log.error("Unexpected exception occurred", ex);
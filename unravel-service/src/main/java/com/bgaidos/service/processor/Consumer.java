@@ -1,23 +1,66 @@
 package com.bgaidos.service.processor;
 
-import lombok.RequiredArgsConstructor;
+import com.bgaidos.service.processor.model.CompactLogEntry;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Duration;
+
 @Slf4j
-@RequiredArgsConstructor
 class Consumer implements Runnable {
 
+	private static final Duration DEFAULT_MAX_WAIT = Duration.ofMillis(100);
+
 	private final LogProcessor processor;
+	private final int batchSize;
+	private final Duration maxWait;
+	private final LogBatchHandler batchHandler;
+
+	Consumer(LogProcessor processor) {
+		this(processor, 1, DEFAULT_MAX_WAIT, null);
+	}
+
+	/**
+	 * Creates a consumer that hands whole batches of up to batchSize entries to the handler,
+	 * paying one queue lock acquisition per batch instead of one per entry.
+	 */
+	Consumer(LogProcessor processor, int batchSize, Duration maxWait, LogBatchHandler batchHandler) {
+		this.processor = processor;
+		this.batchSize = batchSize;
+		this.maxWait = maxWait;
+		this.batchHandler = batchHandler;
+	}
 
 	@Override
 	public void run() {
 		try {
-			while (true) {
-				var logEntry = processor.consumeLog();
-				log.debug("Consumed: Log {}", logEntry.toString());
+			if (batchHandler == null) {
+				consumeSingle();
+			} else {
+				consumeBatches();
 			}
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 		}
 	}
-}
\ No newline at end of file
+
+	private void consumeSingle() throws InterruptedException {
+		// One flyweight per consumer, overwritten by every consume
+		var logEntry = new CompactLogEntry();
+		while (true) {
+			processor.consumeLog(logEntry);
+			processor.ack(logEntry.offset());
+			log.debug("Consumed: Log {}", logEntry);
+		}
+	}
+
+	private void consumeBatches() throws InterruptedException {
+		while (true) {
+			var batch = processor.consumeBatch(batchSize, maxWait);
+			if (!batch.isEmpty()) {
+				batchHandler.handle(batch);
+				processor.ack(batch);
+				log.debug("Consumed batch of {} logs", batch.size());
+			}
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package com.bgaidos.service.processor;
+
+import com.bgaidos.config.LogProcessorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the {@link LogProcessor} consumers on virtual threads and sizes their number to the backlog.
+ * <p>
+ * Every scale interval the runtime estimates how much handler time the current backlog represents
+ * (queue depth x average handler time per entry) and keeps enough consumers to clear it within the target drain
+ * time, between the configured minimum and maximum. Because consumers are virtual threads, a handler blocked on
+ * I/O only parks its virtual thread, so bursts are absorbed without a large platform thread pool.
+ * <p>
+ * On shutdown consumers keep draining the processor until it is empty or the shutdown timeout expires,
+ * after which they are interrupted.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "log-processor.runtime", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ElasticConsumerRuntime implements SmartLifecycle {
+
+	// Weight of the latest batch in the handler latency average
+	private static final double LATENCY_SMOOTHING = 0.2;
+
+	private final LogProcessor processor;
+	private final LogBatchHandler batchHandler;
+	private final LogProcessorProperties.Runtime properties;
+
+	private final List<Worker> workers = new ArrayList<>();
+	private final AtomicLong handledEntries = new AtomicLong();
+
+	private ExecutorService consumerExecutor;
+	private ScheduledExecutorService scaler;
+	private volatile boolean running;
+	private volatile boolean draining;
+	// Exponentially weighted average of handler nanos per entry
+	private volatile double nanosPerEntry;
+
+	public ElasticConsumerRuntime(LogProcessor processor, LogBatchHandler batchHandler, LogProcessorProperties properties) {
+		this.processor = processor;
+		this.batchHandler = batchHandler;
+		this.properties = properties.runtime();
+	}
+
+	@Override
+	public synchronized void start() {
+		if (running) {
+			return;
+		}
+
+		draining = false;
+		consumerExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("log-consumer-", 0).factory());
+		scaler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("log-consumer-scaler").daemon().factory());
+		running = true;
+
+		resize(properties.minConsumers());
+		long intervalMillis = properties.scaleInterval().toMillis();
+		scaler.scheduleWithFixedDelay(this::scale, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		log.info("Started log consumer runtime with {} consumers", properties.minConsumers());
+	}
+
+	@Override
+	public void stop() {
+		ExecutorService executor;
+		synchronized (this) {
+			if (!running) {
+				return;
+			}
+			running = false;
+			draining = true;
+			scaler.shutdownNow();
+			executor = consumerExecutor;
+		}
+
+		executor.shutdown();
+		try {
+			if (!executor.awaitTermination(properties.shutdownTimeout().toMillis(), TimeUnit.MILLISECONDS)) {
+				log.warn("Log consumers did not drain within {}, {} logs left unprocessed",
+					properties.shutdownTimeout(), processor.size());
+				executor.shutdownNow();
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			workers.clear();
+		}
+		log.info("Stopped log consumer runtime after handling {} logs", handledEntries.get());
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	public synchronized int consumerCount() {
+		return workers.size();
+	}
+
+	public long handledEntries() {
+		return handledEntries.get();
+	}
+
+	/**
+	 * Recomputes the target number of consumers from the backlog and the observed handler latency.
+	 */
+	synchronized void scale() {
+		if (!running) {
+			return;
+		}
+
+		int target = targetConsumers(processor.size(), nanosPerEntry);
+		if (target != workers.size()) {
+			log.debug("Scaling log consumers from {} to {} (depth {}, {} ns per log)",
+				workers.size(), target, processor.size(), (long) nanosPerEntry);
+			resize(target);
+		}
+	}
+
+	int targetConsumers(int depth, double nanosPerEntry) {
+		int current = workers.size();
+		int desired;
+		if (nanosPerEntry <= 0) {
+			// No latency sample yet: add a consumer while a backlog builds up, otherwise keep the minimum
+			desired = depth > properties.batchSize() ? current + 1 : properties.minConsumers();
+		} else {
+			double backlogNanos = depth * nanosPerEntry;
+			desired = (int) Math.ceil(backlogNanos / properties.targetDrainTime().toNanos());
+		}
+
+		// Grow quickly, at most doubling per interval, but shrink one consumer at a time to avoid flapping
+		if (desired > current) {
+			desired = Math.min(desired, Math.max(current * 2, 1));
+		} else if (desired < current) {
+			desired = current - 1;
+		}
+		return Math.clamp(desired, properties.minConsumers(), properties.maxConsumers());
+	}
+
+	private void resize(int target) {
+		while (workers.size() < target) {
+			var worker = new Worker();
+			workers.add(worker);
+			consumerExecutor.execute(worker);
+		}
+		while (workers.size() > target) {
+			workers.removeLast().retire();
+		}
+	}
+
+	private void recordLatency(long nanos, int entries) {
+		double sample = (double) nanos / entries;
+		double average = nanosPerEntry;
+		nanosPerEntry = average == 0 ? sample : average + LATENCY_SMOOTHING * (sample - average);
+	}
+
+	private final class Worker implements Runnable {
+
+		private volatile boolean retired;
+
+		private void retire() {
+			retired = true;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!retired && (running || draining && !processor.isEmpty())) {
+					consumeBatch(properties.pollTimeout());
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void consumeBatch(Duration pollTimeout) throws InterruptedException {
+			var batch = processor.consumeBatch(properties.batchSize(), pollTimeout);
+			if (batch.isEmpty()) {
+				return;
+			}
+
+			long start = System.nanoTime();
+			try {
+				batchHandler.handle(batch);
+				processor.ack(batch);
+			} catch (RuntimeException e) {
+				log.error("Log batch handler failed for {} logs", batch.size(), e);
+				processor.nack(batch);
+			}
+			recordLatency(System.nanoTime() - start, batch.size());
+			handledEntries.addAndGet(batch.size());
+		}
+	}
+}
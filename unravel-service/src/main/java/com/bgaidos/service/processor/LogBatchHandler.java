@@ -0,0 +1,17 @@
+package com.bgaidos.service.processor;
+
+import com.bgaidos.service.processor.model.LogEntry;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface LogBatchHandler {
+
+	/**
+	 * Handles a batch of consumed log entries, ordered as they were taken from the processor. The batch is acked
+	 * when this returns and nacked when it throws, which matters only with at-least-once delivery.
+	 *
+	 * @param batch The consumed entries, never empty.
+	 */
+	void handle(List<LogEntry> batch);
+}
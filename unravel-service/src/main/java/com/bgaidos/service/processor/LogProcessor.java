@@ -1,22 +1,290 @@
 package com.bgaidos.service.processor;
 
+import com.bgaidos.service.processor.compaction.LogCompactor;
+import com.bgaidos.service.processor.model.CompactLogEntry;
 import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.CompactLogQueue;
+import com.bgaidos.service.processor.queue.FlyweightLogQueue;
+import com.bgaidos.service.processor.queue.HeapLogQueue;
+import com.bgaidos.service.processor.queue.LogQueue;
+import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.PriorityBlockingQueue;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
-public class LogProcessor {
+@Slf4j
+public class LogProcessor implements AutoCloseable {
 
-	private final PriorityBlockingQueue<LogEntry> logQueue = new PriorityBlockingQueue<>();
+	private static final long NANOS_PER_MILLI = 1_000_000L;
 
-	public void produceLog(LogEntry log) {
-		logQueue.put(log);
+	private final LogQueue logQueue;
+	private final LogProcessorListener listener;
+	// Set when the engine stores entries in compact form, enabling the allocation-free produce and consume paths
+	private final FlyweightLogQueue compactQueue;
+	private final LogCompactor compactor;
+	// Emits the summaries of closed compaction windows, null without a compactor
+	private final ScheduledExecutorService compactionFlusher;
+	private final Consumer<LogEntry> enqueue = this::enqueue;
+
+	public LogProcessor() {
+		this(new HeapLogQueue());
+	}
+
+	public LogProcessor(LogQueue logQueue) {
+		this(logQueue, LogProcessorListener.NONE);
+	}
+
+	public LogProcessor(LogQueue logQueue, LogProcessorListener listener) {
+		this(logQueue, listener, null);
+	}
+
+	/**
+	 * @param compactor folds repeated entries before they are queued, null to queue every entry. Closed windows are
+	 * flushed into the queue by a daemon thread every half window.
+	 */
+	public LogProcessor(LogQueue logQueue, LogProcessorListener listener, LogCompactor compactor) {
+		this.logQueue = logQueue;
+		this.listener = listener;
+		// Through the decorators, so that capacity and spill-over still apply
+		this.compactQueue = logQueue.unwrap() instanceof CompactLogQueue && logQueue instanceof FlyweightLogQueue flyweight
+			? flyweight
+			: null;
+		this.compactor = compactor;
+		if (compactor == null) {
+			this.compactionFlusher = null;
+		} else {
+			this.compactionFlusher = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name("log-compaction-flusher").daemon().factory());
+			long intervalMillis = Math.max(compactor.window().toMillis() / 2, 1);
+			compactionFlusher.scheduleWithFixedDelay(this::flushCompacted, intervalMillis, intervalMillis,
+				TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @return true if the entry was queued or folded by compaction, false if a bounded queue shed it
+	 */
+	public boolean produceLog(LogEntry log) {
+		if (compactor != null && !compactor.admit(log, enqueue)) {
+			listener.onCompacted(log.priority());
+			return true;
+		}
+		return enqueue(log);
+	}
+
+	private boolean enqueue(LogEntry log) {
+		if (!logQueue.put(log)) {
+			return false;
+		}
+		listener.onProduced(log.priority(), log.source(), log.message());
+		return true;
+	}
+
+	/**
+	 * Produces an entry created now without building a {@link LogEntry}. With a {@link CompactLogQueue} engine, also
+	 * behind the capacity and spill-over decorators, the message is encoded straight into the queue's arena, so a
+	 * producer reusing its {@link StringBuilder} allocates nothing per entry; other engines, and compaction, fall back
+	 * to {@link #produceLog(LogEntry)}.
+	 * <p>
+	 * The creation time has millisecond precision, since reading a finer wall clock allocates an {@link Instant}.
+	 *
+	 * @return true if the entry was queued, false if a bounded queue shed it
+	 */
+	public boolean produceLog(long offset, Priority priority, CharSequence message) {
+		return produceLog(offset, priority, null, message);
+	}
+
+	/**
+	 * Like {@link #produceLog(long, Priority, CharSequence)}, attributing the entry to a source. The compact engine
+	 * does not store sources, so there the source is only reported to the listener.
+	 *
+	 * @param source the producing service or tenant, null if unattributed
+	 * @return true if the entry was queued, false if a bounded queue shed it
+	 */
+	public boolean produceLog(long offset, Priority priority, String source, CharSequence message) {
+		long now = System.currentTimeMillis();
+		if (compactQueue != null && compactor == null) {
+			if (!compactQueue.put(offset, priority, now * NANOS_PER_MILLI, message)) {
+				return false;
+			}
+			listener.onProduced(priority, source, message);
+			return true;
+		}
+
+		return produceLog(LogEntry.builder()
+			.offset(offset)
+			.message(message == null ? null : message.toString())
+			.priority(priority)
+			.creationTime(Instant.ofEpochMilli(now))
+			.source(source)
+			.build());
 	}
 
 	public LogEntry consumeLog() throws InterruptedException {
-		return logQueue.take();
+		return consumed(logQueue.take());
+	}
+
+	/**
+	 * Waits up to maxWait for the next entry.
+	 *
+	 * @return the entry, or null if nothing arrived within maxWait
+	 */
+	public LogEntry consumeLog(Duration maxWait) throws InterruptedException {
+		var entry = logQueue.poll(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+		return entry == null ? null : consumed(entry);
+	}
+
+	/**
+	 * Waits for the next entry and copies it into the caller's reusable flyweight. With a {@link CompactLogQueue}
+	 * engine this allocates nothing per entry; other engines take a {@link LogEntry} and copy it.
+	 */
+	public void consumeLog(CompactLogEntry target) throws InterruptedException {
+		if (compactQueue != null) {
+			compactQueue.take(target);
+			listener.onConsumed(target.priority(), null, Math.floorDiv(target.creationEpochNanos(), NANOS_PER_MILLI));
+		} else {
+			target.set(consumed(logQueue.take()));
+		}
+	}
+
+	/**
+	 * Waits up to maxWait for the next entry and copies it into the caller's reusable flyweight.
+	 *
+	 * @return false if nothing arrived within maxWait, in which case target is left untouched
+	 */
+	public boolean consumeLog(CompactLogEntry target, Duration maxWait) throws InterruptedException {
+		if (compactQueue != null) {
+			if (!compactQueue.poll(target, maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+				return false;
+			}
+			listener.onConsumed(target.priority(), null, Math.floorDiv(target.creationEpochNanos(), NANOS_PER_MILLI));
+			return true;
+		}
+
+		var entry = consumeLog(maxWait);
+		if (entry == null) {
+			return false;
+		}
+		target.set(entry);
+		return true;
+	}
+
+	/**
+	 * Waits up to maxWait for the first entry, then drains whatever else is immediately available,
+	 * up to maxEntries in total. Entries are returned in the order {@link #consumeLog()} would have returned them.
+	 *
+	 * @param maxEntries the maximum batch size
+	 * @param maxWait how long to wait for the first entry
+	 * @return the consumed entries, empty if nothing arrived within maxWait
+	 */
+	public List<LogEntry> consumeBatch(int maxEntries, Duration maxWait) throws InterruptedException {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be positive, got %d".formatted(maxEntries));
+		}
+
+		var first = logQueue.poll(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+		if (first == null) {
+			return List.of();
+		}
+
+		var batch = new ArrayList<LogEntry>();
+		batch.add(first);
+		logQueue.drainTo(batch, maxEntries - 1);
+		for (var entry : batch) {
+			consumed(entry);
+		}
+		return batch;
+	}
+
+	/**
+	 * Acknowledges that a consumed entry has been handled. Entries are gone once consumed unless the processor
+	 * provides at-least-once delivery, so this does nothing here.
+	 *
+	 * @see com.bgaidos.service.processor.delivery.AtLeastOnceLogProcessor
+	 */
+	public void ack(long offset) {
+	}
+
+	public final void ack(List<LogEntry> batch) {
+		for (var entry : batch) {
+			ack(entry.offset());
+		}
+	}
+
+	/**
+	 * Reports that a consumed entry could not be handled. Without at-least-once delivery the entry is dropped,
+	 * so this does nothing here.
+	 */
+	public void nack(LogEntry entry) {
+	}
+
+	public final void nack(List<LogEntry> batch) {
+		for (var entry : batch) {
+			nack(entry);
+		}
+	}
+
+	public int size() {
+		return logQueue.size();
 	}
 
 	public boolean isEmpty() {
 		return logQueue.isEmpty();
 	}
+
+	/**
+	 * @return the number of entries of the given priority currently queued
+	 */
+	public int size(Priority priority) {
+		return logQueue.size(priority);
+	}
+
+	/**
+	 * @return the number of entries of the given priority shed since creation, always 0 for an unbounded queue
+	 */
+	public long shedCount(Priority priority) {
+		return logQueue.shedCount(priority);
+	}
+
+	/**
+	 * Queues the summaries of compaction windows that have closed. Called periodically by the processor itself.
+	 *
+	 * @return the number of summaries queued, always 0 without compaction
+	 */
+	public int flushCompacted() {
+		if (compactor == null) {
+			return 0;
+		}
+		try {
+			return compactor.flushExpired(enqueue);
+		} catch (RuntimeException e) {
+			// A fail-fast queue rejected a summary; keep the periodic flush alive, the remaining windows go next round
+			log.error("Failed to flush compacted log entries", e);
+			return 0;
+		}
+	}
+
+	/**
+	 * Queues the summaries of all open compaction windows, then releases the queue.
+	 */
+	@Override
+	public void close() {
+		if (compactor != null) {
+			compactionFlusher.shutdownNow();
+			compactor.flushAll(enqueue);
+		}
+		logQueue.close();
+	}
+
+	private LogEntry consumed(LogEntry entry) {
+		listener.onConsumed(entry.priority(), entry.source(), entry.creationTime().toEpochMilli());
+		return entry;
+	}
 }
@@ -0,0 +1,86 @@
+package com.bgaidos.service.processor;
+
+import com.bgaidos.service.processor.model.Priority;
+
+/**
+ * Callbacks from a {@link LogProcessor} on the producing and consuming threads. Both the object and the compact
+ * paths report primitives and references they already hold only, so a listener does not add allocation to them;
+ * implementations must be thread-safe and cheap.
+ */
+public interface LogProcessorListener {
+
+	LogProcessorListener NONE = new LogProcessorListener() {
+	};
+
+	/**
+	 * @return a listener forwarding every callback to each of the listeners, in order
+	 */
+	static LogProcessorListener of(LogProcessorListener... listeners) {
+		var targets = listeners.clone();
+		return new LogProcessorListener() {
+
+			@Override
+			public void onProduced(Priority priority, String source) {
+				for (var target : targets) {
+					target.onProduced(priority, source);
+				}
+			}
+
+			@Override
+			public void onProduced(Priority priority, String source, CharSequence message) {
+				for (var target : targets) {
+					target.onProduced(priority, source, message);
+				}
+			}
+
+			@Override
+			public void onCompacted(Priority priority) {
+				for (var target : targets) {
+					target.onCompacted(priority);
+				}
+			}
+
+			@Override
+			public void onConsumed(Priority priority, String source, long creationEpochMilli) {
+				for (var target : targets) {
+					target.onConsumed(priority, source, creationEpochMilli);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Called after an entry was accepted by the queue. Shed entries are not reported here.
+	 *
+	 * @param source the entry's source, null if unattributed
+	 */
+	default void onProduced(Priority priority, String source) {
+	}
+
+	/**
+	 * Like {@link #onProduced(Priority, String)}, also handing over the entry's message for listeners that account
+	 * for volume. This is the callback the processor makes; by default it forwards to the two-argument one.
+	 *
+	 * @param message the entry's message, null if it has none; only valid for the duration of the call, since a
+	 * producer may reuse it
+	 */
+	default void onProduced(Priority priority, String source, CharSequence message) {
+		onProduced(priority, source);
+	}
+
+	/**
+	 * Called instead of {@link #onProduced(Priority, String)} when compaction folded an entry into a window summary.
+	 * The summary itself is reported as produced once its window closes.
+	 */
+	default void onCompacted(Priority priority) {
+	}
+
+	/**
+	 * Called after an entry was handed to a consumer.
+	 *
+	 * @param source the entry's source, null if unattributed
+	 * @param creationEpochMilli the entry's creation time in milliseconds since the epoch
+	 */
+	default void onConsumed(Priority priority, String source, long creationEpochMilli) {
+	}
+}
@@ -1,32 +1,35 @@
 package com.bgaidos.service.processor;
 
-import com.bgaidos.service.processor.model.LogEntry;
 import com.bgaidos.service.processor.model.Priority;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.Instant;
-import java.util.List;
-
 @Slf4j
 @RequiredArgsConstructor
 class Producer implements Runnable {
 
+	private static final Priority[] PRIORITIES = {Priority.LOW, Priority.MEDIUM, Priority.HIGH, Priority.CRITICAL};
+
 	private final LogProcessor processor;
 	private final int logsToProduce;
+	// Null leaves the entries unattributed
+	private final String source;
+
+	Producer(LogProcessor processor, int logsToProduce) {
+		this(processor, logsToProduce, null);
+	}
 
 	@Override
 	public void run() {
-		var priorities = List.of(Priority.LOW, Priority.MEDIUM, Priority.HIGH, Priority.CRITICAL);
+		// Reused for every entry, so the compact engine can encode the message without a String per log line
+		var message = new StringBuilder(32);
 		for (int i = 0; i < logsToProduce; i++) {
-			var logEntry = LogEntry.builder()
-				.offset(i)
-				.message("Log " + i)
-				.priority(priorities.get(i % 4))
-				.creationTime(Instant.now())
-				.build();
-			processor.produceLog(logEntry);
-			log.debug("Produced Log {}", logEntry.toString());
+			message.setLength(0);
+			message.append("Log ").append(i);
+			processor.produceLog(i, PRIORITIES[i % PRIORITIES.length], source, message);
+			if (log.isDebugEnabled()) {
+				log.debug("Produced {}", message);
+			}
 		}
 	}
 }
@@ -0,0 +1,208 @@
+package com.bgaidos.service.processor.compaction;
+
+import com.bgaidos.service.processor.model.LogEntry;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Folds bursts of identical log entries, same message, priority and source, into one summary entry per time window.
+ * <p>
+ * The first entry of a burst passes straight through and opens a window. Identical entries arriving while the window
+ * is open are absorbed; once it closes they are emitted as a single entry with {@link LogEntry#repeats()} and
+ * {@link LogEntry#lastCreationTime()} set, and the offset and creation time of the first absorbed entry. A burst of
+ * any size therefore costs consumers at most two entries per window, and an isolated entry is never delayed.
+ * <p>
+ * Windows live in a fixed, direct-mapped table of slots indexed by a hash of the key, so memory stays bounded no
+ * matter how many distinct messages are produced. A different key hashing to an occupied slot closes that slot's
+ * window early, which only costs compaction, never entries. Slots are guarded by striped locks, so producers of
+ * different messages rarely contend.
+ * <p>
+ * Closed windows are emitted when the next identical entry arrives or by {@link #flushExpired(Consumer)}, which the
+ * owner must call periodically; {@link #flushAll(Consumer)} empties the table on shutdown.
+ */
+public class LogCompactor {
+
+	private static final int STRIPES = 64;
+
+	private final long windowMillis;
+	private final Slot[] slots;
+	private final int slotMask;
+	private final Object[] locks = new Object[STRIPES];
+	private final InstantSource clock;
+	private final Duration window;
+
+	/**
+	 * @param window how long identical entries are folded after the first one
+	 * @param slots windows tracked at once, rounded up to a power of two
+	 */
+	public LogCompactor(Duration window, int slots, InstantSource clock) {
+		if (window.isNegative() || window.isZero()) {
+			throw new IllegalArgumentException("window must be positive, got %s".formatted(window));
+		}
+		if (slots <= 0 || slots > 1 << 30) {
+			throw new IllegalArgumentException("slots must be in (0, 2^30], got %d".formatted(slots));
+		}
+
+		this.window = window;
+		this.windowMillis = window.toMillis();
+		int capacity = Math.max(Integer.highestOneBit(slots - 1) << 1, 1);
+		this.slots = new Slot[capacity];
+		this.slotMask = capacity - 1;
+		for (int i = 0; i < capacity; i++) {
+			this.slots[i] = new Slot();
+		}
+		for (int i = 0; i < STRIPES; i++) {
+			locks[i] = new Object();
+		}
+		this.clock = clock;
+	}
+
+	/**
+	 * Offers a produced entry to the compactor.
+	 *
+	 * @param sink receives the summary of a window closed by this entry, before this method returns
+	 * @return true if the entry must be queued now, false if it was folded into an open window
+	 */
+	public boolean admit(LogEntry entry, Consumer<LogEntry> sink) {
+		int hash = hash(entry);
+		int index = hash & slotMask;
+		var slot = slots[index];
+		long now = clock.millis();
+
+		LogEntry closed;
+		synchronized (locks[index & (STRIPES - 1)]) {
+			if (slot.first != null && now - slot.windowStart < windowMillis && slot.matches(hash, entry)) {
+				slot.absorb(entry);
+				return false;
+			}
+
+			closed = slot.summary();
+			slot.open(hash, entry, now);
+		}
+
+		if (closed != null) {
+			sink.accept(closed);
+		}
+		return true;
+	}
+
+	/**
+	 * Emits the summaries of windows that have closed and frees their slots.
+	 *
+	 * @return the number of summaries emitted
+	 */
+	public int flushExpired(Consumer<LogEntry> sink) {
+		return flush(sink, clock.millis() - windowMillis);
+	}
+
+	/**
+	 * Emits the summaries of all windows, open or not, and empties the table.
+	 *
+	 * @return the number of summaries emitted
+	 */
+	public int flushAll(Consumer<LogEntry> sink) {
+		return flush(sink, Long.MAX_VALUE);
+	}
+
+	private int flush(Consumer<LogEntry> sink, long openedBefore) {
+		int emitted = 0;
+		for (int i = 0; i < slots.length; i++) {
+			var slot = slots[i];
+			LogEntry closed;
+			synchronized (locks[i & (STRIPES - 1)]) {
+				if (slot.first == null || slot.windowStart > openedBefore) {
+					continue;
+				}
+				closed = slot.summary();
+				slot.clear();
+			}
+
+			if (closed != null) {
+				sink.accept(closed);
+				emitted++;
+			}
+		}
+		return emitted;
+	}
+
+	public Duration window() {
+		return window;
+	}
+
+	private static int hash(LogEntry entry) {
+		int hash = Objects.hashCode(entry.message());
+		hash = 31 * hash + entry.priority().ordinal();
+		hash = 31 * hash + Objects.hashCode(entry.source());
+		// Spread the high bits into the index, like HashMap
+		return hash ^ (hash >>> 16);
+	}
+
+	/**
+	 * One window. Guarded by its stripe lock.
+	 */
+	private static final class Slot {
+
+		private int hash;
+		// The entry that opened the window, null while the slot is free
+		private LogEntry first;
+		private long windowStart;
+		// The first absorbed entry, null until one arrives
+		private LogEntry firstAbsorbed;
+		private Instant lastAbsorbed;
+		private long absorbed;
+
+		private boolean matches(int hash, LogEntry entry) {
+			return this.hash == hash
+				&& first.priority() == entry.priority()
+				&& Objects.equals(first.message(), entry.message())
+				&& Objects.equals(first.source(), entry.source());
+		}
+
+		private void absorb(LogEntry entry) {
+			if (firstAbsorbed == null) {
+				firstAbsorbed = entry;
+			}
+			lastAbsorbed = entry.lastCreationTime() != null ? entry.lastCreationTime() : entry.creationTime();
+			absorbed += entry.occurrences();
+		}
+
+		/**
+		 * @return the window's absorbed entries as one entry, or null if none were absorbed
+		 */
+		private LogEntry summary() {
+			if (firstAbsorbed == null) {
+				return null;
+			}
+			if (absorbed == 1) {
+				return firstAbsorbed;
+			}
+
+			return LogEntry.builder()
+				.offset(firstAbsorbed.offset())
+				.message(firstAbsorbed.message())
+				.priority(firstAbsorbed.priority())
+				.creationTime(firstAbsorbed.creationTime())
+				.source(firstAbsorbed.source())
+				.repeats(absorbed - 1)
+				.lastCreationTime(lastAbsorbed)
+				.build();
+		}
+
+		private void open(int hash, LogEntry entry, long now) {
+			this.hash = hash;
+			this.first = entry;
+			this.windowStart = now;
+			this.firstAbsorbed = null;
+			this.lastAbsorbed = null;
+			this.absorbed = 0;
+		}
+
+		private void clear() {
+			open(0, null, 0);
+		}
+	}
+}
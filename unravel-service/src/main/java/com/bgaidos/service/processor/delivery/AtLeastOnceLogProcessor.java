@@ -0,0 +1,318 @@
+package com.bgaidos.service.processor.delivery;
+
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.LogQueue;
+import com.bgaidos.service.processor.storage.SegmentLog;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Log processor with at-least-once delivery: every consumed entry must be {@link #ack(long) acked} once handled,
+ * or {@link #nack(LogEntry) nacked} to have it delivered again.
+ * <p>
+ * Produced entries are appended to a journal, a {@link SegmentLog}, before they are queued. Entries keep the
+ * producer's offset, which is their idempotency key; the journal numbers them by position in append order instead,
+ * so that the committed position is a single journal position: every entry below it has been acked. Acks are
+ * matched to journal positions by offset, entries sharing an offset in produce order. Acks only set a bit in memory;
+ * a daemon thread group-commits the position every commit interval by writing it to a checkpoint file and trimming
+ * the journal behind it, so the hot path never touches the disk for acknowledgements.
+ * <p>
+ * On restart, the entries of the journal from the checkpoint onwards are queued again with their producer offsets,
+ * which consumers can use to drop the duplicates of entries they handled after the last commit. Replay runs on its
+ * own thread, so a bounded queue filling up does not block startup.
+ * <p>
+ * Entries the queue sheds at produce time are acked straight away. A queue that sheds entries it already accepted
+ * would leave them unacked forever and stall the checkpoint, so use an unbounded queue or the BLOCK or FAIL_FAST
+ * overflow policies; compaction, which folds entries away, is not supported either.
+ */
+@Slf4j
+public class AtLeastOnceLogProcessor extends LogProcessor {
+
+	private static final String JOURNAL_DIRECTORY = "journal";
+	private static final String CHECKPOINT_FILE = "checkpoint";
+	private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private final Path checkpointFile;
+	private final SegmentLog journal;
+	private final ReentrantLock journalLock = new ReentrantLock();
+	private final OffsetTracker tracker;
+	// Journal positions of the entries not acked yet, by producer offset, oldest first
+	private final ConcurrentHashMap<Long, ArrayDeque<Long>> positions = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService committer;
+	private final Thread replay;
+
+	// Guarded by journalLock
+	private long nextPosition;
+	// The position of the journal's first unread record; guarded by journalLock
+	private long journalStart;
+	// Guarded by this
+	private long committed;
+
+	public AtLeastOnceLogProcessor(LogQueue logQueue, LogProcessorListener listener, Path directory,
+		Duration commitInterval) {
+		this(logQueue, listener, directory, commitInterval, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * @param directory where the journal and the checkpoint are kept, resumed from if a previous run left them
+	 * @param commitInterval how often the acked position is persisted, bounding how much is redelivered on restart
+	 * @param segmentSize the size of each journal segment, which also bounds the size of a single entry
+	 */
+	public AtLeastOnceLogProcessor(LogQueue logQueue, LogProcessorListener listener, Path directory,
+		Duration commitInterval, int segmentSize) {
+		super(logQueue, listener);
+		if (commitInterval.isNegative() || commitInterval.isZero()) {
+			throw new IllegalArgumentException("commitInterval must be positive, got %s".formatted(commitInterval));
+		}
+
+		this.checkpointFile = directory.resolve(CHECKPOINT_FILE);
+		this.journal = new SegmentLog(directory.resolve(JOURNAL_DIRECTORY), segmentSize);
+		this.committed = readCheckpoint();
+
+		// Records below the checkpoint were acked, but the crash came before the journal was trimmed
+		journal.skip(Math.clamp(committed - journal.readIndex(), 0, journal.size()));
+		this.journalStart = journal.readIndex();
+		this.nextPosition = journalStart + journal.size();
+		this.tracker = new OffsetTracker(journalStart);
+
+		if (!journal.isEmpty()) {
+			log.info("Redelivering {} logs from position {} in {}", journal.size(), journalStart, directory);
+			var entries = journal.unread();
+			long first = journalStart;
+			this.replay = Thread.ofVirtual().name("log-replay").start(() -> replay(entries, first));
+		} else {
+			this.replay = null;
+		}
+
+		this.committer = Executors.newSingleThreadScheduledExecutor(
+			Thread.ofPlatform().name("log-checkpoint-committer").daemon().factory());
+		long intervalMillis = Math.max(commitInterval.toMillis(), 1);
+		committer.scheduleWithFixedDelay(this::commit, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Journals the entry at the next journal position, then queues it with its own offset.
+	 *
+	 * @return true if the entry was queued, false if a bounded queue shed it
+	 */
+	@Override
+	public boolean produceLog(LogEntry entry) {
+		long position;
+		journalLock.lock();
+		try {
+			journal.append(entry);
+			position = nextPosition++;
+		} finally {
+			journalLock.unlock();
+		}
+		return queue(entry, position);
+	}
+
+	/**
+	 * Always builds a {@link LogEntry}, since the entry has to be journaled anyway.
+	 */
+	@Override
+	public boolean produceLog(long offset, Priority priority, String source, CharSequence message) {
+		return produceLog(LogEntry.builder()
+			.offset(offset)
+			.message(message == null ? null : message.toString())
+			.priority(priority)
+			.creationTime(Instant.ofEpochMilli(System.currentTimeMillis()))
+			.source(source)
+			.build());
+	}
+
+	/**
+	 * Marks the oldest unacked entry with the offset as handled. It is persisted with the next commit.
+	 */
+	@Override
+	public void ack(long offset) {
+		var position = new long[] {-1};
+		positions.computeIfPresent(offset, (key, queued) -> {
+			position[0] = queued.poll();
+			return queued.isEmpty() ? null : queued;
+		});
+		if (position[0] >= 0) {
+			tracker.ack(position[0]);
+		}
+	}
+
+	/**
+	 * Queues the entry again, keeping its offset. If the queue sheds or rejects it, it is acked and lost.
+	 */
+	@Override
+	public void nack(LogEntry entry) {
+		try {
+			if (super.produceLog(entry)) {
+				return;
+			}
+			log.warn("Nacked log {} was shed by the queue", entry.offset());
+		} catch (RuntimeException e) {
+			log.warn("Nacked log {} was rejected by the queue", entry.offset(), e);
+		}
+		ack(entry.offset());
+	}
+
+	/**
+	 * Persists the acked position and trims the journal behind it. Called periodically by the processor itself.
+	 *
+	 * @return the committed journal position: every entry below it has been acked
+	 */
+	public synchronized long commit() {
+		long watermark = tracker.advance();
+		if (watermark == committed) {
+			return committed;
+		}
+
+		try {
+			writeCheckpoint(watermark);
+			journalLock.lock();
+			try {
+				journal.skip(watermark - journalStart);
+				journalStart = watermark;
+			} finally {
+				journalLock.unlock();
+			}
+			committed = watermark;
+		} catch (RuntimeException e) {
+			// Keep the periodic commit alive, the next one retries from the same position
+			log.error("Failed to commit log checkpoint {}", watermark, e);
+		}
+		return committed;
+	}
+
+	/**
+	 * @return the journal position the next produced entry gets
+	 */
+	public long nextPosition() {
+		journalLock.lock();
+		try {
+			return nextPosition;
+		} finally {
+			journalLock.unlock();
+		}
+	}
+
+	/**
+	 * Stops replay, commits the acked position a last time and closes the journal and the queue. Unacked entries
+	 * are redelivered on the next start.
+	 */
+	@Override
+	public void close() {
+		if (replay != null) {
+			replay.interrupt();
+		}
+		committer.shutdownNow();
+		try {
+			committer.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		commit();
+		journalLock.lock();
+		try {
+			journal.close();
+		} finally {
+			journalLock.unlock();
+		}
+		super.close();
+	}
+
+	/**
+	 * Queues a journaled entry, acking it straight away if the queue sheds or rejects it.
+	 */
+	private boolean queue(LogEntry entry, long position) {
+		// Tracked before queueing, a consumer may ack the entry before the queue returns
+		positions.compute(entry.offset(), (key, queued) -> {
+			var tracked = queued == null ? new ArrayDeque<Long>(2) : queued;
+			tracked.add(position);
+			return tracked;
+		});
+
+		boolean queued;
+		try {
+			queued = super.produceLog(entry);
+		} catch (RuntimeException e) {
+			untrack(entry.offset(), position);
+			throw e;
+		}
+		if (!queued) {
+			untrack(entry.offset(), position);
+		}
+		return queued;
+	}
+
+	private void untrack(long offset, long position) {
+		positions.computeIfPresent(offset, (key, queued) -> {
+			queued.remove(position);
+			return queued.isEmpty() ? null : queued;
+		});
+		tracker.ack(position);
+	}
+
+	private void replay(Iterator<LogEntry> entries, long firstPosition) {
+		long replayed = 0;
+		while (entries.hasNext() && !Thread.currentThread().isInterrupted()) {
+			queue(entries.next(), firstPosition + replayed);
+			replayed++;
+		}
+		log.info("Redelivered {} logs", replayed);
+	}
+
+	private long readCheckpoint() {
+		if (!Files.exists(checkpointFile)) {
+			return 0;
+		}
+		try {
+			var buffer = ByteBuffer.wrap(Files.readAllBytes(checkpointFile));
+			if (buffer.remaining() != Long.BYTES) {
+				throw new IllegalStateException("Log checkpoint %s is corrupt".formatted(checkpointFile));
+			}
+			return buffer.getLong();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read log checkpoint %s".formatted(checkpointFile), e);
+		}
+	}
+
+	/**
+	 * Replaces the checkpoint file atomically, so a crash leaves either the previous or the new position.
+	 */
+	private void writeCheckpoint(long offset) {
+		var temporary = checkpointFile.resolveSibling(CHECKPOINT_FILE + ".tmp");
+		try (var channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING)) {
+			channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, offset));
+			channel.force(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to write log checkpoint %s".formatted(temporary), e);
+		}
+		try {
+			Files.move(temporary, checkpointFile, ATOMIC_MOVE, REPLACE_EXISTING);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to replace log checkpoint %s".formatted(checkpointFile), e);
+		}
+	}
+}
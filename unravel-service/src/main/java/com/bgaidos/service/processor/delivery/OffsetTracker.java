@@ -0,0 +1,78 @@
+package com.bgaidos.service.processor.delivery;
+
+/**
+ * Tracks acknowledged offsets above a committed watermark, below which every offset has been acknowledged.
+ * <p>
+ * Acknowledgements may arrive in any order. Each one sets a bit in a ring of 64-bit words covering the offsets from
+ * the watermark upwards; {@link #advance()} moves the watermark over the contiguous run of set bits and recycles
+ * the words it passes. The ring doubles when an acknowledgement lands beyond it, so its size follows the spread
+ * between the oldest unacknowledged offset and the newest acknowledged one, not the throughput.
+ * <p>
+ * Thread-safe. An acknowledgement costs one uncontended monitor and a bit set.
+ */
+final class OffsetTracker {
+
+	private static final int INITIAL_WORDS = 64;
+
+	private long[] words = new long[INITIAL_WORDS];
+	private int mask = INITIAL_WORDS - 1;
+	// Every offset below this one is acknowledged
+	private long watermark;
+
+	OffsetTracker(long watermark) {
+		this.watermark = watermark;
+	}
+
+	/**
+	 * Marks the offset as acknowledged. Offsets below the watermark are ignored, so duplicates are harmless.
+	 */
+	synchronized void ack(long offset) {
+		if (offset < watermark) {
+			return;
+		}
+		long word = offset >>> 6;
+		if (word - (watermark >>> 6) >= words.length) {
+			grow(word);
+		}
+		words[(int) word & mask] |= 1L << offset;
+	}
+
+	/**
+	 * Moves the watermark past every contiguously acknowledged offset.
+	 *
+	 * @return the new watermark
+	 */
+	synchronized long advance() {
+		while (true) {
+			int index = (int) (watermark >>> 6) & mask;
+			// Bits from the watermark's position upwards that are not set yet
+			long missing = ~words[index] >>> watermark;
+			if (missing != 0) {
+				watermark += Long.numberOfTrailingZeros(missing);
+				return watermark;
+			}
+			words[index] = 0;
+			watermark = ((watermark >>> 6) + 1) << 6;
+		}
+	}
+
+	synchronized long watermark() {
+		return watermark;
+	}
+
+	private void grow(long word) {
+		long first = watermark >>> 6;
+		int length = words.length;
+		while (word - first >= length) {
+			length <<= 1;
+		}
+
+		var grown = new long[length];
+		int grownMask = length - 1;
+		for (long w = first; w < first + words.length; w++) {
+			grown[(int) w & grownMask] = words[(int) w & mask];
+		}
+		words = grown;
+		mask = grownMask;
+	}
+}
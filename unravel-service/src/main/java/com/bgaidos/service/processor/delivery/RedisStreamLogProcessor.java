@@ -0,0 +1,47 @@
+package com.bgaidos.service.processor.delivery;
+
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.compaction.LogCompactor;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.queue.RedisStreamLogQueue;
+
+/**
+ * Log processor whose backlog is shared by every node of a cluster through a {@link RedisStreamLogQueue}.
+ * <p>
+ * Delivery is at least once: a consumed entry stays pending in the Redis consumer group until it is
+ * {@link #ack(long) acked}, and is taken over by another node if it is not acked within the queue's claim idle time.
+ * Produced entries get offsets reserved in Redis, replacing the producer's, so that offsets identify entries
+ * across the cluster and consumers can use them to drop redelivered duplicates.
+ */
+public class RedisStreamLogProcessor extends LogProcessor {
+
+	private final RedisStreamLogQueue queue;
+
+	public RedisStreamLogProcessor(RedisStreamLogQueue queue, LogProcessorListener listener) {
+		this(queue, listener, null);
+	}
+
+	/**
+	 * @param compactor folds repeated entries before they are published, null to publish every entry
+	 */
+	public RedisStreamLogProcessor(RedisStreamLogQueue queue, LogProcessorListener listener, LogCompactor compactor) {
+		super(queue, listener, compactor);
+		this.queue = queue;
+	}
+
+	@Override
+	public boolean produceLog(LogEntry entry) {
+		return super.produceLog(entry.toBuilder().offset(queue.nextOffset()).build());
+	}
+
+	@Override
+	public void ack(long offset) {
+		queue.ack(offset);
+	}
+
+	@Override
+	public void nack(LogEntry entry) {
+		queue.nack(entry);
+	}
+}
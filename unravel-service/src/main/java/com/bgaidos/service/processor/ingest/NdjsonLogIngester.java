@@ -0,0 +1,214 @@
+package com.bgaidos.service.processor.ingest;
+
+import com.bgaidos.api.LogIngestDto;
+import com.bgaidos.exceptions.LogIngestException;
+import com.bgaidos.exceptions.LogProcessorFullException;
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import lombok.extern.slf4j.Slf4j;
+import tools.jackson.core.JsonParser;
+import tools.jackson.core.JsonToken;
+import tools.jackson.core.exc.InputCoercionException;
+import tools.jackson.core.exc.StreamReadException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feeds a {@link LogProcessor} from a stream of newline-delimited JSON log entries, one object per line:
+ * <pre>
+ * {"priority": "HIGH", "message": "...", "offset": 42, "source": "billing", "creationTime": "2025-01-01T12:00:00Z"}
+ * </pre>
+ * priority and message are required. offset defaults to a sequence of this ingester, source to the request's
+ * default, and creationTime, an ISO-8601 string or epoch milliseconds, to the time of reading. Unknown fields are
+ * ignored.
+ * <p>
+ * The body is read token by token with a single streaming parser, so neither the body nor a JSON tree is ever held
+ * in memory: only up to batchSize parsed entries are, before they are produced. Producing runs on the reading
+ * thread, so a processor that blocks when full stops the body from being read and the backpressure reaches the
+ * client through TCP flow control. A fail-fast processor is retried with exponential backoff for up to maxBlock
+ * per entry, after which the entry counts as shed.
+ * <p>
+ * Lines that are valid JSON but not a valid entry are counted as rejected and skipped. Malformed JSON ends the
+ * ingest with a {@link LogIngestException}, after producing the entries read before it.
+ */
+@Slf4j
+public class NdjsonLogIngester {
+
+	private static final long MIN_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+	private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+	private final LogProcessor processor;
+	private final ObjectMapper mapper;
+	private final int batchSize;
+	private final long maxBlockNanos;
+	private final InstantSource clock;
+	private final AtomicLong offsets = new AtomicLong();
+
+	public NdjsonLogIngester(LogProcessor processor, ObjectMapper mapper, int batchSize, Duration maxBlock) {
+		this(processor, mapper, batchSize, maxBlock, InstantSource.system());
+	}
+
+	public NdjsonLogIngester(LogProcessor processor, ObjectMapper mapper, int batchSize, Duration maxBlock,
+		InstantSource clock) {
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("batchSize must be positive, got %d".formatted(batchSize));
+		}
+
+		this.processor = processor;
+		this.mapper = mapper;
+		this.batchSize = batchSize;
+		this.maxBlockNanos = maxBlock.toNanos();
+		this.clock = clock;
+	}
+
+	/**
+	 * Reads the body to its end, producing its entries in order.
+	 *
+	 * @param defaultSource the source of entries that do not name one, null for none
+	 * @throws LogIngestException if the body is not well-formed JSON
+	 */
+	public LogIngestDto ingest(InputStream body, String defaultSource) {
+		var counts = new Counts();
+		var batch = new ArrayList<LogEntry>(batchSize);
+		try (var parser = mapper.createParser(body)) {
+			for (var token = parser.nextToken(); token != null; token = parser.nextToken()) {
+				var entry = token == JsonToken.START_OBJECT ? readEntry(parser, defaultSource) : null;
+				if (entry == null) {
+					// Skips the rest of a rejected array; a no-op for everything else
+					parser.skipChildren();
+					counts.rejected++;
+					continue;
+				}
+
+				batch.add(entry);
+				if (batch.size() == batchSize) {
+					produce(batch, counts);
+				}
+			}
+		} catch (StreamReadException e) {
+			produce(batch, counts);
+			throw new LogIngestException("Malformed NDJSON at line %d after %d accepted, %d rejected and %d shed entries"
+				.formatted(e.getLocation() == null ? -1 : e.getLocation().getLineNr(),
+					counts.accepted, counts.rejected, counts.shed), e);
+		}
+
+		produce(batch, counts);
+		return new LogIngestDto(counts.accepted, counts.rejected, counts.shed);
+	}
+
+	/**
+	 * Reads the object the parser is positioned at, up to and including its END_OBJECT.
+	 *
+	 * @return the entry, or null if the object is not a valid entry
+	 */
+	private LogEntry readEntry(JsonParser parser, String defaultSource) {
+		long offset = -1;
+		boolean hasOffset = false;
+		String message = null;
+		Priority priority = null;
+		Instant creationTime = null;
+		String source = defaultSource;
+		boolean valid = true;
+
+		for (var name = parser.nextName(); name != null; name = parser.nextName()) {
+			var token = parser.nextToken();
+			try {
+				switch (name) {
+					case "offset" -> {
+						valid &= token == JsonToken.VALUE_NUMBER_INT;
+						if (valid) {
+							offset = parser.getLongValue();
+							hasOffset = true;
+						}
+					}
+					case "message" -> {
+						valid &= token == JsonToken.VALUE_STRING;
+						message = valid ? parser.getString() : null;
+					}
+					case "priority" -> {
+						valid &= token == JsonToken.VALUE_STRING;
+						priority = valid ? Priority.valueOf(parser.getString()) : null;
+					}
+					case "source" -> {
+						valid &= token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NULL;
+						source = valid ? parser.getValueAsString() : null;
+					}
+					case "creationTime" -> {
+						if (token == JsonToken.VALUE_NUMBER_INT) {
+							creationTime = Instant.ofEpochMilli(parser.getLongValue());
+						} else if (token == JsonToken.VALUE_STRING) {
+							creationTime = Instant.parse(parser.getString());
+						} else {
+							valid = false;
+						}
+					}
+					default -> {
+						// Ignored, nested values are skipped below
+					}
+				}
+			} catch (IllegalArgumentException | DateTimeException | InputCoercionException e) {
+				valid = false;
+			}
+			// Skips an object or array value, whether ignored or invalid; a no-op for scalars
+			parser.skipChildren();
+		}
+
+		if (!valid || priority == null || message == null) {
+			return null;
+		}
+		return LogEntry.builder()
+			.offset(hasOffset ? offset : offsets.getAndIncrement())
+			.message(message)
+			.priority(priority)
+			.creationTime(creationTime != null ? creationTime : clock.instant())
+			.source(source)
+			.build();
+	}
+
+	private void produce(List<LogEntry> batch, Counts counts) {
+		for (var entry : batch) {
+			if (produce(entry)) {
+				counts.accepted++;
+			} else {
+				counts.shed++;
+			}
+		}
+		batch.clear();
+	}
+
+	private boolean produce(LogEntry entry) {
+		long deadline = System.nanoTime() + maxBlockNanos;
+		long backoff = MIN_BACKOFF_NANOS;
+		while (true) {
+			try {
+				return processor.produceLog(entry);
+			} catch (LogProcessorFullException e) {
+				if (System.nanoTime() + backoff > deadline || Thread.currentThread().isInterrupted()) {
+					log.debug("Shedding log {} after waiting for room for {} ms", entry.offset(),
+						TimeUnit.NANOSECONDS.toMillis(maxBlockNanos));
+					return false;
+				}
+				LockSupport.parkNanos(backoff);
+				backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+			}
+		}
+	}
+
+	private static final class Counts {
+
+		private long accepted;
+		private long rejected;
+		private long shed;
+	}
+}
@@ -0,0 +1,214 @@
+package com.bgaidos.service.processor.metrics;
+
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.LogQueue;
+import com.bgaidos.service.processor.queue.SourceFairLogQueue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer instrumentation of a {@link com.bgaidos.service.processor.LogProcessor}, tagged by {@link Priority}:
+ * <ul>
+ *     <li>{@code log.processor.queue.depth} - entries currently queued</li>
+ *     <li>{@code log.processor.wait} - time from creation to consumption, with a percentile histogram</li>
+ *     <li>{@code log.processor.produced}, {@code log.processor.consumed}, {@code log.processor.shed}</li>
+ *     <li>{@code log.processor.compacted} - entries folded into a compaction summary instead of being queued</li>
+ * </ul>
+ * plus a LOW starvation detector: {@code log.processor.starved} counts LOW entries consumed after waiting longer
+ * than the threshold, and the {@code log.processor.starving} gauge reads 1 while LOW entries are queued but none
+ * has been consumed for longer than the threshold. The gauge is evaluated when it is read, so its resolution is
+ * the scrape interval.
+ * <p>
+ * Attributed entries are also counted per source, tagged {@code source}: {@code log.processor.source.produced},
+ * {@code log.processor.source.consumed} and {@code log.processor.source.wait}. To bound the tag cardinality only the
+ * first maxSources sources get their own meters; later ones are reported as {@value SourceFairLogQueue#OVERFLOW_SOURCE}.
+ * <p>
+ * Wait time is measured from the entry's creation time, the same point {@link
+ * com.bgaidos.service.processor.model.LogEntry#effectivePriority()} ages from.
+ */
+@Slf4j
+public class LogProcessorMetrics implements LogProcessorListener {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final String PRIORITY_TAG = "priority";
+	private static final String SOURCE_TAG = "source";
+	private static final int DEFAULT_MAX_SOURCES = 64;
+
+	private final LogQueue queue;
+	private final long starvationThresholdMillis;
+	private final InstantSource clock;
+	private final MeterRegistry registry;
+	private final int maxSources;
+
+	private final Counter[] produced = new Counter[PRIORITIES.length];
+	private final Counter[] consumed = new Counter[PRIORITIES.length];
+	private final Counter[] compacted = new Counter[PRIORITIES.length];
+	private final Timer[] waitTimes = new Timer[PRIORITIES.length];
+	private final Counter starved;
+	private final ConcurrentHashMap<String, SourceMeters> sources = new ConcurrentHashMap<>();
+
+	// When LOW entries were last seen queued without progress, 0 while there are none
+	private final AtomicLong lowPendingSince = new AtomicLong();
+	private volatile long lastLowConsumed;
+	private volatile boolean starving;
+
+	public LogProcessorMetrics(MeterRegistry registry, LogQueue queue, Duration starvationThreshold) {
+		this(registry, queue, starvationThreshold, InstantSource.system());
+	}
+
+	public LogProcessorMetrics(MeterRegistry registry, LogQueue queue, Duration starvationThreshold,
+		InstantSource clock) {
+		this(registry, queue, starvationThreshold, DEFAULT_MAX_SOURCES, clock);
+	}
+
+	/**
+	 * @param maxSources sources that get their own meters, see the class documentation
+	 */
+	public LogProcessorMetrics(MeterRegistry registry, LogQueue queue, Duration starvationThreshold, int maxSources,
+		InstantSource clock) {
+		this.queue = queue;
+		this.starvationThresholdMillis = starvationThreshold.toMillis();
+		this.clock = clock;
+		this.registry = registry;
+		this.maxSources = maxSources;
+
+		for (var priority : PRIORITIES) {
+			int i = priority.ordinal();
+			var tag = priority.name();
+
+			Gauge.builder("log.processor.queue.depth", queue, q -> q.size(priority))
+				.description("Log entries currently queued")
+				.tag(PRIORITY_TAG, tag)
+				.register(registry);
+			FunctionCounter.builder("log.processor.shed", queue, q -> q.shedCount(priority))
+				.description("Log entries dropped by the overflow policy")
+				.tag(PRIORITY_TAG, tag)
+				.register(registry);
+			produced[i] = Counter.builder("log.processor.produced")
+				.description("Log entries accepted by the queue")
+				.tag(PRIORITY_TAG, tag)
+				.register(registry);
+			consumed[i] = Counter.builder("log.processor.consumed")
+				.description("Log entries handed to consumers")
+				.tag(PRIORITY_TAG, tag)
+				.register(registry);
+			compacted[i] = Counter.builder("log.processor.compacted")
+				.description("Log entries folded into a compaction summary instead of being queued")
+				.tag(PRIORITY_TAG, tag)
+				.register(registry);
+			waitTimes[i] = Timer.builder("log.processor.wait")
+				.description("Time from log entry creation to consumption")
+				.tag(PRIORITY_TAG, tag)
+				.publishPercentileHistogram()
+				.minimumExpectedValue(Duration.ofMillis(1))
+				.maximumExpectedValue(Duration.ofMinutes(10))
+				.register(registry);
+		}
+
+		starved = Counter.builder("log.processor.starved")
+			.description("LOW log entries consumed after waiting longer than the starvation threshold")
+			.register(registry);
+		Gauge.builder("log.processor.starving", this, metrics -> metrics.isStarving() ? 1 : 0)
+			.description("1 while LOW log entries are queued and none was consumed within the starvation threshold")
+			.register(registry);
+	}
+
+	@Override
+	public void onProduced(Priority priority, String source) {
+		produced[priority.ordinal()].increment();
+		if (source != null) {
+			sourceMeters(source).produced.increment();
+		}
+	}
+
+	@Override
+	public void onCompacted(Priority priority) {
+		compacted[priority.ordinal()].increment();
+	}
+
+	@Override
+	public void onConsumed(Priority priority, String source, long creationEpochMilli) {
+		long now = clock.millis();
+		long waitMillis = Math.max(0, now - creationEpochMilli);
+		consumed[priority.ordinal()].increment();
+		waitTimes[priority.ordinal()].record(waitMillis, TimeUnit.MILLISECONDS);
+		if (source != null) {
+			var meters = sourceMeters(source);
+			meters.consumed.increment();
+			meters.waitTime.record(waitMillis, TimeUnit.MILLISECONDS);
+		}
+
+		if (priority == Priority.LOW) {
+			lastLowConsumed = now;
+			if (waitMillis > starvationThresholdMillis) {
+				starved.increment();
+			}
+		}
+	}
+
+	/**
+	 * @return true if LOW entries have been queued without any of them being consumed for longer than the
+	 * starvation threshold
+	 */
+	public boolean isStarving() {
+		long now = clock.millis();
+		if (queue.size(Priority.LOW) == 0) {
+			lowPendingSince.set(0);
+			return updateStarving(false);
+		}
+
+		lowPendingSince.compareAndSet(0, now);
+		long waitingSince = Math.max(lowPendingSince.get(), lastLowConsumed);
+		return updateStarving(now - waitingSince > starvationThresholdMillis);
+	}
+
+	private boolean updateStarving(boolean starving) {
+		if (starving && !this.starving) {
+			log.warn("LOW log entries have not been consumed for over {} ms, {} are queued",
+				starvationThresholdMillis, queue.size(Priority.LOW));
+		}
+		this.starving = starving;
+		return starving;
+	}
+
+	private SourceMeters sourceMeters(String source) {
+		var meters = sources.get(source);
+		if (meters != null) {
+			return meters;
+		}
+		// Racing first sightings may overshoot the cap by a few, which only costs a few extra meters
+		var tag = sources.size() < maxSources ? source : SourceFairLogQueue.OVERFLOW_SOURCE;
+		return sources.computeIfAbsent(tag, this::registerSource);
+	}
+
+	private SourceMeters registerSource(String source) {
+		return new SourceMeters(
+			Counter.builder("log.processor.source.produced")
+				.description("Log entries accepted by the queue, per source")
+				.tag(SOURCE_TAG, source)
+				.register(registry),
+			Counter.builder("log.processor.source.consumed")
+				.description("Log entries handed to consumers, per source")
+				.tag(SOURCE_TAG, source)
+				.register(registry),
+			Timer.builder("log.processor.source.wait")
+				.description("Time from log entry creation to consumption, per source")
+				.tag(SOURCE_TAG, source)
+				.register(registry)
+		);
+	}
+
+	private record SourceMeters(Counter produced, Counter consumed, Timer waitTime) {
+	}
+}
@@ -0,0 +1,139 @@
+package com.bgaidos.service.processor.metrics;
+
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.model.Utf8;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-second and per-minute traffic of a {@link com.bgaidos.service.processor.LogProcessor}, per {@link Priority},
+ * aggregated as entries pass through: entries produced and their UTF-8 message bytes, entries consumed and the total
+ * and longest time they waited. Produced traffic is counted in the window the entry was produced in, consumed
+ * traffic in the window it was consumed in.
+ * <p>
+ * Each resolution is a {@link WindowRing}, so recording an entry is a handful of atomic adds to a preallocated
+ * array and allocates nothing. The current window is included in queries while it is still filling; older windows
+ * than the ring holds are forgotten.
+ */
+public class LogTrafficAggregator implements LogProcessorListener {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final int PRODUCED = 0;
+	private static final int BYTES = 1;
+	private static final int CONSUMED = 2;
+	private static final int WAIT_SUM = 3;
+	private static final int WAIT_MAX = 4;
+	private static final int FIELDS = 5;
+
+	public enum Resolution {
+		SECOND(Duration.ofSeconds(1)),
+		MINUTE(Duration.ofMinutes(1));
+
+		private final Duration length;
+
+		Resolution(Duration length) {
+			this.length = length;
+		}
+
+		public Duration length() {
+			return length;
+		}
+	}
+
+	private final InstantSource clock;
+	private final WindowRing seconds;
+	private final WindowRing minutes;
+
+	public LogTrafficAggregator(int secondWindows, int minuteWindows) {
+		this(secondWindows, minuteWindows, InstantSource.system());
+	}
+
+	/**
+	 * @param secondWindows per-second windows kept, the current one included
+	 * @param minuteWindows per-minute windows kept, the current one included
+	 */
+	public LogTrafficAggregator(int secondWindows, int minuteWindows, InstantSource clock) {
+		this.clock = clock;
+		this.seconds = new WindowRing(Resolution.SECOND.length.toMillis(), secondWindows, FIELDS * PRIORITIES.length);
+		this.minutes = new WindowRing(Resolution.MINUTE.length.toMillis(), minuteWindows, FIELDS * PRIORITIES.length);
+	}
+
+	@Override
+	public void onProduced(Priority priority, String source, CharSequence message) {
+		long now = clock.millis();
+		int base = priority.ordinal() * FIELDS;
+		long bytes = message == null ? 0 : Utf8.encodedLength(message);
+		seconds.add(now, base + PRODUCED, base + BYTES, bytes);
+		minutes.add(now, base + PRODUCED, base + BYTES, bytes);
+	}
+
+	@Override
+	public void onConsumed(Priority priority, String source, long creationEpochMilli) {
+		long now = clock.millis();
+		long waitMillis = Math.max(0, now - creationEpochMilli);
+		int base = priority.ordinal() * FIELDS;
+		seconds.record(now, base + CONSUMED, base + WAIT_SUM, base + WAIT_MAX, waitMillis);
+		minutes.record(now, base + CONSUMED, base + WAIT_SUM, base + WAIT_MAX, waitMillis);
+	}
+
+	/**
+	 * @return windows kept at a resolution, the current one included
+	 */
+	public int capacity(Resolution resolution) {
+		return ring(resolution).buckets();
+	}
+
+	/**
+	 * @param count windows wanted, clamped to between 1 and {@link #capacity(Resolution)}
+	 * @return the last count windows, oldest first, ending with the current one
+	 */
+	public List<Window> windows(Resolution resolution, int count) {
+		var ring = ring(resolution);
+		int windows = Math.clamp(count, 1, ring.buckets());
+		long current = ring.window(clock.millis());
+		var counters = new long[FIELDS * PRIORITIES.length];
+		var result = new ArrayList<Window>(windows);
+		for (long window = current - windows + 1; window <= current; window++) {
+			if (!ring.read(window, counters, 0)) {
+				Arrays.fill(counters, 0);
+			}
+			var traffic = new EnumMap<Priority, Traffic>(Priority.class);
+			for (var priority : PRIORITIES) {
+				int base = priority.ordinal() * FIELDS;
+				traffic.put(priority, new Traffic(counters[base + PRODUCED], counters[base + BYTES],
+					counters[base + CONSUMED], counters[base + WAIT_SUM], counters[base + WAIT_MAX]));
+			}
+			result.add(new Window(Instant.ofEpochMilli(window * ring.windowMillis()), resolution.length, traffic));
+		}
+		return result;
+	}
+
+	private WindowRing ring(Resolution resolution) {
+		return switch (resolution) {
+			case SECOND -> seconds;
+			case MINUTE -> minutes;
+		};
+	}
+
+	public record Window(Instant start, Duration length, Map<Priority, Traffic> traffic) {
+	}
+
+	/**
+	 * @param bytes UTF-8 bytes of the produced messages
+	 * @param totalWaitMillis time the consumed entries waited, summed
+	 */
+	public record Traffic(long produced, long bytes, long consumed, long totalWaitMillis, long maxWaitMillis) {
+
+		public double meanWaitMillis() {
+			return consumed == 0 ? 0 : (double) totalWaitMillis / consumed;
+		}
+	}
+}
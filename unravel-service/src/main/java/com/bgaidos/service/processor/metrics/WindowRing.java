@@ -0,0 +1,136 @@
+package com.bgaidos.service.processor.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed ring of time buckets, each holding a row of counters, all in one {@link AtomicLongArray} so that
+ * recording touches no object but the array.
+ * <p>
+ * A bucket is tagged with the index of the window it holds, the epoch millisecond divided by the window length.
+ * The first writer to reach a bucket still tagged with an older window claims it with a CAS, zeroes it and tags it;
+ * writers racing it spin for those few stores, once per window, instead of adding to counters about to be cleared.
+ * Writers that arrive after the ring has wrapped past their window drop their update. Readers take no part in this:
+ * they copy a bucket and discard the copy if its tag changed meanwhile, so a snapshot may miss updates still in
+ * flight but never mixes two windows.
+ */
+final class WindowRing {
+
+	// Tag of a bucket being zeroed. Window indexes of real timestamps are positive, so an untouched bucket, tagged
+	// 0, reads as older than any window
+	private static final long RESETTING = -1;
+
+	private final long windowMillis;
+	private final int buckets;
+	private final int fields;
+	private final int stride;
+	private final AtomicLongArray cells;
+
+	/**
+	 * @param buckets windows kept, the current one included
+	 * @param fields counters per window
+	 */
+	WindowRing(long windowMillis, int buckets, int fields) {
+		if (windowMillis <= 0) {
+			throw new IllegalArgumentException("windowMillis must be positive, got %d".formatted(windowMillis));
+		}
+		if (buckets <= 0) {
+			throw new IllegalArgumentException("buckets must be positive, got %d".formatted(buckets));
+		}
+		this.windowMillis = windowMillis;
+		this.buckets = buckets;
+		this.fields = fields;
+		this.stride = fields + 1;
+		this.cells = new AtomicLongArray(Math.multiplyExact(buckets, stride));
+	}
+
+	long windowMillis() {
+		return windowMillis;
+	}
+
+	int buckets() {
+		return buckets;
+	}
+
+	long window(long epochMilli) {
+		return Math.floorDiv(epochMilli, windowMillis);
+	}
+
+	/**
+	 * Adds one to countField and amount to sumField, within one window.
+	 */
+	void add(long epochMilli, int countField, int sumField, long amount) {
+		int base = claim(window(epochMilli));
+		if (base >= 0) {
+			cells.getAndIncrement(base + 1 + countField);
+			cells.getAndAdd(base + 1 + sumField, amount);
+		}
+	}
+
+	/**
+	 * Like {@link #add(long, int, int, long)}, also raising maxField to amount.
+	 */
+	void record(long epochMilli, int countField, int sumField, int maxField, long amount) {
+		int base = claim(window(epochMilli));
+		if (base < 0) {
+			return;
+		}
+		cells.getAndIncrement(base + 1 + countField);
+		cells.getAndAdd(base + 1 + sumField, amount);
+		int max = base + 1 + maxField;
+		for (long current = cells.get(max); current < amount; current = cells.get(max)) {
+			if (cells.compareAndSet(max, current, amount)) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Copies the counters of window into target from offset.
+	 *
+	 * @return false, leaving target untouched, if the ring holds nothing for that window
+	 */
+	boolean read(long window, long[] target, int offset) {
+		int base = base(window);
+		if (cells.get(base) != window) {
+			return false;
+		}
+		// Copied aside first, as a writer may reclaim the bucket for a newer window halfway through
+		var row = new long[fields];
+		for (int i = 0; i < fields; i++) {
+			row[i] = cells.get(base + 1 + i);
+		}
+		if (cells.get(base) != window) {
+			return false;
+		}
+		System.arraycopy(row, 0, target, offset, fields);
+		return true;
+	}
+
+	/**
+	 * @return the index of window's tag, or -1 if the ring has already moved past it
+	 */
+	private int claim(long window) {
+		int base = base(window);
+		for (; ; ) {
+			long current = cells.get(base);
+			if (current == window) {
+				return base;
+			}
+			if (current == RESETTING) {
+				Thread.onSpinWait();
+			} else if (current > window) {
+				return -1;
+			} else if (cells.compareAndSet(base, current, RESETTING)) {
+				for (int i = 1; i < stride; i++) {
+					cells.set(base + i, 0);
+				}
+				cells.set(base, window);
+				return base;
+			}
+		}
+	}
+
+	private int base(long window) {
+		return (int) Math.floorMod(window, (long) buckets) * stride;
+	}
+}
@@ -0,0 +1,126 @@
+package com.bgaidos.service.processor.model;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * Mutable, reusable flyweight over one log entry in its compact form: a primitive offset, the priority, the
+ * creation time as epoch nanos and the UTF-8 message bytes.
+ * <p>
+ * A consumer keeps one instance per thread and passes it to
+ * {@link com.bgaidos.service.processor.LogProcessor#consumeLog(CompactLogEntry)}, which overwrites it in place.
+ * The primitive accessors and {@link #messageBytes()} never allocate; {@link #message()} and
+ * {@link #creationTime()} build a new object on every call and are there for compatibility with {@link LogView}.
+ * Use {@link #toLogEntry()} to keep an entry beyond the next consume. Not thread-safe.
+ */
+public final class CompactLogEntry implements LogView {
+
+	private static final long NANOS_PER_SECOND = 1_000_000_000L;
+	private static final int INITIAL_MESSAGE_CAPACITY = 256;
+
+	private long offset;
+	private Priority priority;
+	private long creationEpochNanos;
+	private byte[] messageBuffer = new byte[INITIAL_MESSAGE_CAPACITY];
+	private ByteBuffer messageView = ByteBuffer.wrap(messageBuffer).asReadOnlyBuffer();
+	private int messageLength = -1;
+
+	/**
+	 * Overwrites the entry's fields and returns the buffer the caller must fill with messageLength bytes of UTF-8.
+	 * The buffer is owned by this entry and only grows, so steady-state reuse does not allocate.
+	 *
+	 * @param messageLength the message length in bytes, -1 for a null message
+	 */
+	public byte[] reset(long offset, Priority priority, long creationEpochNanos, int messageLength) {
+		this.offset = offset;
+		this.priority = priority;
+		this.creationEpochNanos = creationEpochNanos;
+		this.messageLength = messageLength;
+		if (messageLength > messageBuffer.length) {
+			messageBuffer = new byte[Math.max(messageLength, messageBuffer.length * 2)];
+			messageView = ByteBuffer.wrap(messageBuffer).asReadOnlyBuffer();
+		}
+		return messageBuffer;
+	}
+
+	/**
+	 * Copies an immutable entry into this flyweight.
+	 */
+	public CompactLogEntry set(LogEntry entry) {
+		var message = entry.message();
+		var buffer = reset(entry.offset(), entry.priority(), toEpochNanos(entry.creationTime()),
+			message == null ? -1 : Utf8.encodedLength(message));
+		if (message != null) {
+			Utf8.encode(message, buffer, 0, -1);
+		}
+		return this;
+	}
+
+	@Override
+	public long offset() {
+		return offset;
+	}
+
+	@Override
+	public Priority priority() {
+		return priority;
+	}
+
+	public long creationEpochNanos() {
+		return creationEpochNanos;
+	}
+
+	@Override
+	public Instant creationTime() {
+		return Instant.ofEpochSecond(0, creationEpochNanos);
+	}
+
+	/**
+	 * @return the message length in bytes, -1 for a null message
+	 */
+	public int messageLength() {
+		return messageLength;
+	}
+
+	/**
+	 * @return a read-only view of the UTF-8 message bytes, valid until the next reset, or null for a null message
+	 */
+	public ByteBuffer messageBytes() {
+		if (messageLength < 0) {
+			return null;
+		}
+		return messageView.clear().limit(messageLength);
+	}
+
+	@Override
+	public String message() {
+		return messageLength < 0 ? null : new String(messageBuffer, 0, messageLength, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Same as {@link LogEntry#effectivePriority(long)}, without materializing the creation time.
+	 */
+	public long effectivePriority(long nowEpochSecond) {
+		return priority.effectivePriority(Math.floorDiv(creationEpochNanos, NANOS_PER_SECOND), nowEpochSecond);
+	}
+
+	public LogEntry toLogEntry() {
+		return LogEntry.builder()
+			.offset(offset)
+			.message(message())
+			.priority(priority)
+			.creationTime(creationTime())
+			.build();
+	}
+
+	@Override
+	public String toString() {
+		return "CompactLogEntry[offset=%d, message=%s, priority=%s, creationTime=%s]"
+			.formatted(offset, message(), priority, creationTime());
+	}
+
+	public static long toEpochNanos(Instant instant) {
+		return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), NANOS_PER_SECOND), instant.getNano());
+	}
+}
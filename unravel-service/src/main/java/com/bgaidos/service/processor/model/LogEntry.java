@@ -5,13 +5,26 @@ import lombok.Value;
 
 import java.time.Instant;
 
-@Builder
+@Builder(toBuilder = true)
 public record LogEntry(
 	long offset,
 	String message,
 	Priority priority,
-	Instant creationTime
-) implements Comparable<LogEntry> {
+	Instant creationTime,
+	// Producing service or tenant, null if unattributed
+	String source,
+	// Further identical entries folded into this one by compaction, 0 for a single occurrence
+	long repeats,
+	// Creation time of the last folded entry, null if repeats is 0
+	Instant lastCreationTime
+) implements LogView, Comparable<LogEntry> {
+
+	/**
+	 * @return the number of produced entries this entry stands for
+	 */
+	public long occurrences() {
+		return repeats + 1;
+	}
 
 	/**
 	 * Calculates the effective priority of the log entry based on its base priority and waiting time.
@@ -19,8 +32,17 @@ public record LogEntry(
 	 * @return the effective priority value
 	 */
 	public long effectivePriority() {
-		long waitingSeconds = Instant.now().getEpochSecond() - creationTime.getEpochSecond();
-		return priority.priorityLevel + waitingSeconds;
+		return effectivePriority(Instant.now().getEpochSecond());
+	}
+
+	/**
+	 * Calculates the effective priority of the log entry against a clock value read once by the caller.
+	 *
+	 * @param nowEpochSecond the current time in epoch seconds
+	 * @return the effective priority value
+	 */
+	public long effectivePriority(long nowEpochSecond) {
+		return priority.effectivePriority(creationTime.getEpochSecond(), nowEpochSecond);
 	}
 
 	@Override
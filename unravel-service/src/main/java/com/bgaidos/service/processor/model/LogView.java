@@ -0,0 +1,18 @@
+package com.bgaidos.service.processor.model;
+
+import java.time.Instant;
+
+/**
+ * Read access to a log entry, implemented both by the immutable {@link LogEntry} and by the reusable
+ * {@link CompactLogEntry} flyweight, so consumers can be written once against either.
+ */
+public interface LogView {
+
+	long offset();
+
+	String message();
+
+	Priority priority();
+
+	Instant creationTime();
+}
@@ -11,4 +11,12 @@ public enum Priority {
 	Priority(int priorityLevel) {
 		this.priorityLevel = priorityLevel;
 	}
+
+	/**
+	 * Effective priority of an entry of this priority created at creationEpochSecond: the base level plus one
+	 * for every second spent waiting.
+	 */
+	public long effectivePriority(long creationEpochSecond, long nowEpochSecond) {
+		return priorityLevel + nowEpochSecond - creationEpochSecond;
+	}
 }
@@ -0,0 +1,64 @@
+package com.bgaidos.service.processor.model;
+
+/**
+ * Allocation-free UTF-8 encoding of a {@link CharSequence}, so a producer can reuse one {@link StringBuilder}
+ * per thread instead of building a {@link String} per log line. Unpaired surrogates are encoded as {@code '?'},
+ * the same replacement {@link String#getBytes(java.nio.charset.Charset)} uses.
+ */
+public final class Utf8 {
+
+	private Utf8() {
+	}
+
+	public static int encodedLength(CharSequence text) {
+		int length = 0;
+		for (int i = 0, n = text.length(); i < n; i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Encodes text into target starting at position. Every index is masked with mask, which lets a power-of-two
+	 * ring buffer wrap around; pass -1 to write a plain array linearly.
+	 *
+	 * @return the number of bytes written, equal to {@link #encodedLength(CharSequence)}
+	 */
+	public static int encode(CharSequence text, byte[] target, long position, int mask) {
+		long start = position;
+		for (int i = 0, n = text.length(); i < n; i++) {
+			char c = text.charAt(i);
+			if (c < 0x80) {
+				target[(int) position++ & mask] = (byte) c;
+			} else if (c < 0x800) {
+				target[(int) position++ & mask] = (byte) (0xC0 | c >> 6);
+				target[(int) position++ & mask] = (byte) (0x80 | c & 0x3F);
+			} else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(text.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, text.charAt(++i));
+				target[(int) position++ & mask] = (byte) (0xF0 | codePoint >> 18);
+				target[(int) position++ & mask] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+				target[(int) position++ & mask] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+				target[(int) position++ & mask] = (byte) (0x80 | codePoint & 0x3F);
+			} else if (Character.isSurrogate(c)) {
+				target[(int) position++ & mask] = (byte) '?';
+			} else {
+				target[(int) position++ & mask] = (byte) (0xE0 | c >> 12);
+				target[(int) position++ & mask] = (byte) (0x80 | c >> 6 & 0x3F);
+				target[(int) position++ & mask] = (byte) (0x80 | c & 0x3F);
+			}
+		}
+		return (int) (position - start);
+	}
+}
@@ -0,0 +1,15 @@
+package com.bgaidos.service.processor.pipeline;
+
+import com.bgaidos.service.processor.model.LogEntry;
+
+/**
+ * Final step of a {@link LogPipeline}, such as shipping to a sink. Called by one thread at a time per
+ * {@link com.bgaidos.service.processor.model.Priority}, in offset order within that priority.
+ *
+ * @param <T> the output of the last stage
+ */
+@FunctionalInterface
+public interface LogCommitHandler<T> {
+
+	void commit(LogEntry entry, T result) throws Exception;
+}
@@ -0,0 +1,464 @@
+package com.bgaidos.service.processor.pipeline;
+
+import com.bgaidos.exceptions.LogPipelineException;
+import com.bgaidos.service.processor.LogBatchHandler;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Multi-stage consumer: a chain of {@link LogStage}s followed by an ordered {@link LogCommitHandler}.
+ * <p>
+ * Every stage has its own workers and a bounded input buffer. Entries of a batch are handed to the first stage and
+ * flow through the chain independently, so a stage with several workers processes entries in parallel and out of
+ * order. A full buffer blocks the previous stage, and ultimately {@link #handle(List)}, so a slow stage applies
+ * backpressure to the consumers instead of growing without bound.
+ * <p>
+ * {@link #handle(List)} returns once every entry of the batch has been committed or filtered out, and throws a
+ * {@link LogPipelineException} if a stage or the commit handler failed for any of them, so with at-least-once
+ * delivery a batch is acked only after its commit and failed entries are redelivered.
+ * <p>
+ * The commit point restores order: within each {@link Priority}, an entry is committed only once every entry with a
+ * lower offset admitted before it has been committed or filtered out. Priorities do not wait for each other.
+ * <p>
+ * Each stage reports {@code log.pipeline.stage.latency}, {@code log.pipeline.stage.buffer} (its input backlog) and
+ * {@code log.pipeline.stage.failures}, tagged with the stage name; the commit point reports as stage
+ * {@value #COMMIT_STAGE}. A slow stage shows up as high latency with a full buffer in front of it.
+ * <p>
+ * The pipeline is a {@link LogBatchHandler}: declared as a bean, it replaces the default logging handler and is fed
+ * by the {@link com.bgaidos.service.processor.ElasticConsumerRuntime} consumers.
+ */
+@Slf4j
+public final class LogPipeline implements LogBatchHandler, AutoCloseable {
+
+	static final String COMMIT_STAGE = "commit";
+	private static final Duration DEFAULT_CLOSE_TIMEOUT = Duration.ofSeconds(30);
+
+	private final List<Stage> stages;
+	private final LogCommitHandler<Object> commitHandler;
+	private final CommitLane[] commitLanes = new CommitLane[Priority.values().length];
+	private final Timer commitLatency;
+	private final Counter commitFailures;
+	private final ExecutorService workers;
+
+	private final ReentrantLock idleLock = new ReentrantLock();
+	private final Condition idle = idleLock.newCondition();
+	private long inFlight;
+	private long admitted;
+	private volatile boolean closed;
+
+	@SuppressWarnings("unchecked")
+	private LogPipeline(MeterRegistry registry, List<StageSpec> specs, int bufferSize,
+		LogCommitHandler<?> commitHandler) {
+		this.commitHandler = (LogCommitHandler<Object>) commitHandler;
+		this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("log-pipeline-", 0).factory());
+		for (int i = 0; i < commitLanes.length; i++) {
+			commitLanes[i] = new CommitLane();
+		}
+
+		this.stages = new ArrayList<>(specs.size());
+		for (var spec : specs) {
+			stages.add(new Stage(spec, new ArrayBlockingQueue<>(bufferSize), registry));
+		}
+		this.commitLatency = stageTimer(registry, COMMIT_STAGE);
+		this.commitFailures = stageFailures(registry, COMMIT_STAGE);
+		Gauge.builder("log.pipeline.in.flight", this, LogPipeline::inFlight)
+			.description("Log entries admitted to the pipeline and not committed yet")
+			.register(registry);
+
+		for (int i = 0; i < stages.size(); i++) {
+			var stage = stages.get(i);
+			var next = i + 1 < stages.size() ? stages.get(i + 1) : null;
+			for (int w = 0; w < stage.spec.workers(); w++) {
+				workers.execute(() -> runStage(stage, next));
+			}
+		}
+	}
+
+	public static Builder<LogEntry> builder(MeterRegistry registry) {
+		return new Builder<>(registry);
+	}
+
+	/**
+	 * Admits the batch into the first stage, waiting while its buffer is full, then waits until every entry of the
+	 * batch has been committed or filtered out.
+	 *
+	 * @throws IllegalStateException if the pipeline is closed
+	 * @throws LogPipelineException if a stage or the commit handler failed for an entry of the batch
+	 */
+	@Override
+	public void handle(List<LogEntry> batch) {
+		if (closed) {
+			throw new IllegalStateException("Log pipeline is closed");
+		}
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		var tracker = new Batch(batch.size());
+		var first = stages.isEmpty() ? null : stages.getFirst();
+		for (int i = 0; i < batch.size(); i++) {
+			var item = admit(batch.get(i), tracker);
+			if (first == null) {
+				complete(item);
+				continue;
+			}
+
+			try {
+				first.input.put(item);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				// Release what was admitted but never handed over, so the commit point does not wait for it
+				item.value = null;
+				complete(item);
+				for (int j = i + 1; j < batch.size(); j++) {
+					var skipped = admit(batch.get(j), tracker);
+					skipped.value = null;
+					complete(skipped);
+				}
+				throw new LogPipelineException("Interrupted while admitting %d logs".formatted(batch.size()), e);
+			}
+		}
+
+		try {
+			tracker.committed.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LogPipelineException("Interrupted while processing %d logs".formatted(batch.size()), e);
+		} catch (ExecutionException e) {
+			throw new LogPipelineException("Failed to process %d logs".formatted(batch.size()), e.getCause());
+		}
+	}
+
+	/**
+	 * Waits until every admitted entry has been committed or filtered out.
+	 *
+	 * @return false if the timeout elapsed first
+	 */
+	public boolean awaitIdle(Duration timeout) throws InterruptedException {
+		long nanos = timeout.toNanos();
+		idleLock.lock();
+		try {
+			while (inFlight > 0) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = idle.awaitNanos(nanos);
+			}
+			return true;
+		} finally {
+			idleLock.unlock();
+		}
+	}
+
+	public long inFlight() {
+		idleLock.lock();
+		try {
+			return inFlight;
+		} finally {
+			idleLock.unlock();
+		}
+	}
+
+	/**
+	 * Stops admitting entries, lets the ones in flight finish for up to 30 seconds, then stops the workers. Batches
+	 * still in flight after that fail.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		try {
+			if (!awaitIdle(DEFAULT_CLOSE_TIMEOUT)) {
+				log.warn("Log pipeline did not drain within {}, {} logs left in flight", DEFAULT_CLOSE_TIMEOUT, inFlight());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		workers.shutdownNow();
+
+		var abandoned = new LogPipelineException("Log pipeline closed before the logs were committed");
+		for (var lane : commitLanes) {
+			lane.lock.lock();
+			try {
+				Item item;
+				while ((item = lane.pending.poll()) != null) {
+					item.batch.fail(abandoned);
+				}
+			} finally {
+				lane.lock.unlock();
+			}
+		}
+	}
+
+	private Item admit(LogEntry entry, Batch batch) {
+		long sequence;
+		idleLock.lock();
+		try {
+			inFlight++;
+			sequence = admitted++;
+		} finally {
+			idleLock.unlock();
+		}
+
+		var item = new Item(entry, sequence, batch);
+		commitLanes[entry.priority().ordinal()].add(item);
+		return item;
+	}
+
+	private void runStage(Stage stage, Stage next) {
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				var item = stage.input.take();
+				long start = System.nanoTime();
+				try {
+					item.value = stage.spec.stage().process(item.entry, item.value);
+				} catch (Exception e) {
+					log.error("Log pipeline stage {} failed for log {}", stage.spec.name(), item.entry.offset(), e);
+					stage.failures.increment();
+					item.value = null;
+					item.failure = e;
+				}
+				stage.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+				if (item.value == null || next == null) {
+					complete(item);
+				} else {
+					next.input.put(item);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Marks the item as finished and commits every finished item at the head of its priority's lane.
+	 */
+	private void complete(Item item) {
+		item.done = true;
+		var lane = commitLanes[item.entry.priority().ordinal()];
+		List<Item> committed = null;
+		lane.lock.lock();
+		try {
+			Item head;
+			while ((head = lane.pending.peek()) != null && head.done) {
+				lane.pending.poll();
+				if (head.value != null) {
+					commit(head);
+				}
+				if (committed == null) {
+					committed = new ArrayList<>();
+				}
+				committed.add(head);
+			}
+		} finally {
+			lane.lock.unlock();
+		}
+
+		if (committed != null) {
+			finished(committed.size());
+			// Only now, so that a returning handle call sees its entries out of flight
+			for (var done : committed) {
+				done.batch.finished(done.failure);
+			}
+		}
+	}
+
+	private void commit(Item item) {
+		long start = System.nanoTime();
+		try {
+			commitHandler.commit(item.entry, item.value);
+		} catch (Exception e) {
+			log.error("Log pipeline commit failed for log {}", item.entry.offset(), e);
+			commitFailures.increment();
+			item.failure = e;
+		}
+		commitLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	private void finished(int count) {
+		idleLock.lock();
+		try {
+			inFlight -= count;
+			if (inFlight == 0) {
+				idle.signalAll();
+			}
+		} finally {
+			idleLock.unlock();
+		}
+	}
+
+	private static Timer stageTimer(MeterRegistry registry, String name) {
+		return Timer.builder("log.pipeline.stage.latency")
+			.description("Time spent processing one log entry in a pipeline stage")
+			.tag("stage", name)
+			.publishPercentileHistogram()
+			.register(registry);
+	}
+
+	private static Counter stageFailures(MeterRegistry registry, String name) {
+		return Counter.builder("log.pipeline.stage.failures")
+			.description("Log entries dropped because a pipeline stage threw")
+			.tag("stage", name)
+			.register(registry);
+	}
+
+	public static final class Builder<T> {
+
+		private static final int DEFAULT_BUFFER_SIZE = 1024;
+
+		private final MeterRegistry registry;
+		private final List<StageSpec> stages = new ArrayList<>();
+		private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+		private Builder(MeterRegistry registry) {
+			this.registry = registry;
+		}
+
+		/**
+		 * Appends a stage run by the given number of parallel workers.
+		 */
+		@SuppressWarnings("unchecked")
+		public <R> Builder<R> stage(String name, int workers, LogStage<? super T, ? extends R> stage) {
+			if (workers <= 0) {
+				throw new IllegalArgumentException("workers must be positive, got %d".formatted(workers));
+			}
+			if (COMMIT_STAGE.equals(name) || stages.stream().anyMatch(spec -> spec.name().equals(name))) {
+				throw new IllegalArgumentException("Duplicate or reserved stage name %s".formatted(name));
+			}
+
+			stages.add(new StageSpec(name, workers, (LogStage<Object, Object>) stage));
+			return (Builder<R>) this;
+		}
+
+		/**
+		 * Sets the capacity of the hand-off buffer in front of every stage.
+		 */
+		public Builder<T> bufferSize(int bufferSize) {
+			if (bufferSize <= 0) {
+				throw new IllegalArgumentException("bufferSize must be positive, got %d".formatted(bufferSize));
+			}
+			this.bufferSize = bufferSize;
+			return this;
+		}
+
+		public LogPipeline build(LogCommitHandler<? super T> commitHandler) {
+			return new LogPipeline(registry, List.copyOf(stages), bufferSize, commitHandler);
+		}
+	}
+
+	private record StageSpec(String name, int workers, LogStage<Object, Object> stage) {
+	}
+
+	private static final class Stage {
+
+		private final StageSpec spec;
+		private final BlockingQueue<Item> input;
+		private final Timer latency;
+		private final Counter failures;
+
+		private Stage(StageSpec spec, BlockingQueue<Item> input, MeterRegistry registry) {
+			this.spec = spec;
+			this.input = input;
+			this.latency = stageTimer(registry, spec.name());
+			this.failures = stageFailures(registry, spec.name());
+			Gauge.builder("log.pipeline.stage.buffer", input, BlockingQueue::size)
+				.description("Log entries waiting in front of a pipeline stage")
+				.tag("stage", spec.name())
+				.register(registry);
+		}
+	}
+
+	/**
+	 * The entries of one {@link #handle(List)} call, completed once all of them are committed or filtered out.
+	 */
+	private static final class Batch {
+
+		private final AtomicInteger remaining;
+		private final CompletableFuture<Void> committed = new CompletableFuture<>();
+		private volatile Throwable failure;
+
+		private Batch(int size) {
+			this.remaining = new AtomicInteger(size);
+		}
+
+		private void finished(Throwable itemFailure) {
+			if (itemFailure != null && failure == null) {
+				failure = itemFailure;
+			}
+			if (remaining.decrementAndGet() == 0) {
+				if (failure == null) {
+					committed.complete(null);
+				} else {
+					committed.completeExceptionally(failure);
+				}
+			}
+		}
+
+		private void fail(Throwable cause) {
+			committed.completeExceptionally(cause);
+		}
+	}
+
+	/**
+	 * An entry travelling through the pipeline. The value starts as the entry itself and is replaced by every stage;
+	 * null means the entry was filtered out.
+	 */
+	private static final class Item {
+
+		private final LogEntry entry;
+		private final long sequence;
+		private final Batch batch;
+		private Object value;
+		private Exception failure;
+		private volatile boolean done;
+
+		private Item(LogEntry entry, long sequence, Batch batch) {
+			this.entry = entry;
+			this.sequence = sequence;
+			this.batch = batch;
+			this.value = entry;
+		}
+	}
+
+	/**
+	 * Entries of one priority that were admitted and not committed yet, lowest offset first.
+	 */
+	private static final class CommitLane {
+
+		private static final Comparator<Item> OFFSET_ORDER = Comparator.<Item>comparingLong(item -> item.entry.offset())
+			.thenComparingLong(item -> item.sequence);
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final PriorityQueue<Item> pending = new PriorityQueue<>(OFFSET_ORDER);
+
+		private void add(Item item) {
+			lock.lock();
+			try {
+				pending.add(item);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package com.bgaidos.service.processor.pipeline;
+
+import com.bgaidos.service.processor.model.LogEntry;
+
+/**
+ * One step of a {@link LogPipeline}, such as parsing or enrichment. Stages run on several workers at once and must
+ * be stateless, or at least thread-safe.
+ *
+ * @param <I> the output of the previous stage, or {@link LogEntry} for the first one
+ * @param <O> the value handed to the next stage
+ */
+@FunctionalInterface
+public interface LogStage<I, O> {
+
+	/**
+	 * @param entry The log entry being processed, for context.
+	 * @param input The previous stage's output.
+	 * @return The value for the next stage, or null to filter the entry out of the pipeline.
+	 */
+	O process(LogEntry entry, I input) throws Exception;
+}
@@ -0,0 +1,35 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.Priority;
+
+/**
+ * The original rule: the highest {@link com.bgaidos.service.processor.model.LogEntry#effectivePriority()} wins,
+ * that is the base level plus one per second waited, and ties go to the lower offset. A sustained CRITICAL flood can
+ * hold LOW back until it has aged by the 99 levels between them.
+ */
+public class AgingPolicy implements SchedulingPolicy {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	@Override
+	public Priority select(LaneHeads heads, long nowEpochMilli) {
+		long nowSecond = Math.floorDiv(nowEpochMilli, 1000);
+		Priority selected = null;
+		long selectedPriority = Long.MIN_VALUE;
+		for (var priority : PRIORITIES) {
+			if (heads.isEmpty(priority)) {
+				continue;
+			}
+
+			long effectivePriority = priority.effectivePriority(
+				Math.floorDiv(heads.creationEpochMilli(priority), 1000), nowSecond);
+			// Same tie-break as LogEntry.compareTo: equal effective priority is served by offset
+			if (selected == null || effectivePriority > selectedPriority
+				|| (effectivePriority == selectedPriority && heads.offset(priority) < heads.offset(selected))) {
+				selected = priority;
+				selectedPriority = effectivePriority;
+			}
+		}
+		return selected;
+	}
+}
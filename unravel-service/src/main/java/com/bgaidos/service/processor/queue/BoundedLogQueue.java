@@ -0,0 +1,299 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.exceptions.LogProcessorFullException;
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps the number of entries held by the wrapped queue and applies an {@link OverflowPolicy} once it is full.
+ * <p>
+ * Capacity is tracked with a semaphore: producers acquire a permit per entry and consumers release it, so the
+ * wrapped queue never grows past the capacity. When an entry is shed to make room, its permit is handed over to
+ * the incoming entry. Every shed entry, incoming, evicted or rejected by the wrapped queue, is counted per
+ * {@link Priority}.
+ * <p>
+ * The {@link FlyweightLogQueue} methods go through the same admission and are forwarded to the wrapped queue, which
+ * must support them.
+ */
+@Slf4j
+public class BoundedLogQueue implements FlyweightLogQueue {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	// Candidates for eviction, least important first
+	private static final Priority[] SHEDDABLE = {Priority.LOW, Priority.MEDIUM};
+
+	private static final double DEFAULT_SAMPLING_THRESHOLD = 0.75;
+	private static final int DEFAULT_SAMPLE_RATE = 10;
+
+	private final LogQueue delegate;
+	private final int capacity;
+	private final OverflowPolicy policy;
+	private final int samplingThreshold;
+	private final int sampleRate;
+
+	private final Semaphore permits;
+	private final LongAdder[] shedCounts = new LongAdder[PRIORITIES.length];
+	private final AtomicLong sampledLowEntries = new AtomicLong();
+
+	public BoundedLogQueue(LogQueue delegate, int capacity, OverflowPolicy policy) {
+		this(delegate, capacity, policy, (int) (capacity * DEFAULT_SAMPLING_THRESHOLD), DEFAULT_SAMPLE_RATE);
+	}
+
+	/**
+	 * @param samplingThreshold queue depth from which {@link OverflowPolicy#SAMPLE_LOW} starts sampling LOW entries
+	 * @param sampleRate one in sampleRate LOW entries is admitted while sampling
+	 */
+	public BoundedLogQueue(LogQueue delegate, int capacity, OverflowPolicy policy, int samplingThreshold, int sampleRate) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("capacity must be positive, got %d".formatted(capacity));
+		}
+		if (sampleRate <= 0) {
+			throw new IllegalArgumentException("sampleRate must be positive, got %d".formatted(sampleRate));
+		}
+
+		this.delegate = delegate;
+		this.capacity = capacity;
+		this.policy = policy;
+		this.samplingThreshold = samplingThreshold;
+		this.sampleRate = sampleRate;
+		this.permits = new Semaphore(capacity);
+		for (int i = 0; i < shedCounts.length; i++) {
+			shedCounts[i] = new LongAdder();
+		}
+	}
+
+	@Override
+	public boolean put(LogEntry entry) {
+		var admitted = admit(entry.offset(), entry.priority());
+		if (admitted && !delegate.put(entry)) {
+			return reject(entry.offset(), entry.priority());
+		}
+		return admitted;
+	}
+
+	@Override
+	public boolean put(long offset, Priority priority, long creationEpochNanos, CharSequence message) {
+		var admitted = admit(offset, priority);
+		if (admitted && !FlyweightLogQueue.of(delegate).put(offset, priority, creationEpochNanos, message)) {
+			return reject(offset, priority);
+		}
+		return admitted;
+	}
+
+	/**
+	 * Takes a free permit without applying the overflow policy, and gives it back if the wrapped queue has no room
+	 * either.
+	 */
+	@Override
+	public boolean offer(LogEntry entry) {
+		if (!permits.tryAcquire()) {
+			return false;
+		}
+		if (!delegate.offer(entry)) {
+			permits.release();
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public boolean offer(long offset, Priority priority, long creationEpochNanos, CharSequence message) {
+		if (!permits.tryAcquire()) {
+			return false;
+		}
+		if (!FlyweightLogQueue.of(delegate).offer(offset, priority, creationEpochNanos, message)) {
+			permits.release();
+			return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void take(CompactLogEntry target) throws InterruptedException {
+		FlyweightLogQueue.of(delegate).take(target);
+		permits.release();
+	}
+
+	@Override
+	public boolean poll(CompactLogEntry target, long timeout, TimeUnit unit) throws InterruptedException {
+		if (!FlyweightLogQueue.of(delegate).poll(target, timeout, unit)) {
+			return false;
+		}
+		permits.release();
+		return true;
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		var entry = delegate.take();
+		permits.release();
+		return entry;
+	}
+
+	@Override
+	public LogEntry poll() {
+		var entry = delegate.poll();
+		if (entry != null) {
+			permits.release();
+		}
+		return entry;
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		var entry = delegate.poll(timeout, unit);
+		if (entry != null) {
+			permits.release();
+		}
+		return entry;
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		int drained = delegate.drainTo(target, maxEntries);
+		if (drained > 0) {
+			permits.release(drained);
+		}
+		return drained;
+	}
+
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		var entry = delegate.pollOldest(priority);
+		if (entry != null) {
+			permits.release();
+		}
+		return entry;
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public int size(Priority priority) {
+		return delegate.size(priority);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return delegate.isEmpty();
+	}
+
+	@Override
+	public LogQueue unwrap() {
+		return delegate.unwrap();
+	}
+
+	@Override
+	public void close() {
+		delegate.close();
+	}
+
+	public int capacity() {
+		return capacity;
+	}
+
+	@Override
+	public long shedCount(Priority priority) {
+		return shedCounts[priority.ordinal()].sum();
+	}
+
+	private boolean admit(long offset, Priority priority) {
+		return switch (policy) {
+			case BLOCK -> acquire(offset, priority);
+			case FAIL_FAST -> acquireOrFail(offset, priority);
+			case DROP_OLDEST -> acquireByShedding(offset, priority);
+			case SAMPLE_LOW -> isSampledOut(priority) ? shed(offset, priority) : acquireByShedding(offset, priority);
+		};
+	}
+
+	/**
+	 * Rejected by the wrapped queue, e.g. interrupted while writing, so the permit is not taken after all.
+	 */
+	private boolean reject(long offset, Priority priority) {
+		permits.release();
+		return shed(offset, priority);
+	}
+
+	private boolean acquire(long offset, Priority priority) {
+		try {
+			permits.acquire();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return shed(offset, priority);
+		}
+	}
+
+	private boolean acquireOrFail(long offset, Priority priority) {
+		if (permits.tryAcquire()) {
+			return true;
+		}
+
+		shed(offset, priority);
+		throw new LogProcessorFullException("Log processor is full (capacity %d), rejected log %d."
+			.formatted(capacity, offset));
+	}
+
+	private boolean acquireByShedding(long offset, Priority priority) {
+		if (permits.tryAcquire()) {
+			return true;
+		}
+
+		var evicted = evictForIncoming(priority);
+		if (evicted != null) {
+			// The evicted entry's permit is reused by the incoming one
+			shedCounts[evicted.priority().ordinal()].increment();
+			log.debug("Shed Log {} to admit Log {}", evicted.offset(), offset);
+			return true;
+		}
+
+		if (isSheddable(priority)) {
+			return shed(offset, priority);
+		}
+
+		// Nothing left to shed and the entry is too important to drop: wait for a consumer
+		return acquire(offset, priority);
+	}
+
+	private LogEntry evictForIncoming(Priority incoming) {
+		for (var candidate : SHEDDABLE) {
+			// Never evict an entry that is more important than the incoming one
+			if (candidate.ordinal() < incoming.ordinal()) {
+				continue;
+			}
+
+			var evicted = delegate.pollOldest(candidate);
+			if (evicted != null) {
+				return evicted;
+			}
+		}
+		return null;
+	}
+
+	private boolean isSampledOut(Priority priority) {
+		return priority == Priority.LOW
+			&& capacity - permits.availablePermits() >= samplingThreshold
+			&& sampledLowEntries.getAndIncrement() % sampleRate != 0;
+	}
+
+	private static boolean isSheddable(Priority priority) {
+		return priority == Priority.LOW || priority == Priority.MEDIUM;
+	}
+
+	private boolean shed(long offset, Priority priority) {
+		shedCounts[priority.ordinal()].increment();
+		log.debug("Shed Log {}", offset);
+		return false;
+	}
+}
@@ -0,0 +1,422 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.model.Utf8;
+
+import java.time.InstantSource;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Multi-level queue, like {@link MultiLevelLogQueue} and with the same {@link SchedulingPolicy} support, that stores entries in preallocated primitive arrays
+ * instead of as objects.
+ * <p>
+ * Each {@link Priority} lane is a ring of slots holding the offset, the creation time in epoch nanos and the
+ * message length, plus a byte ring (the arena) holding the UTF-8 messages back to back. Because a lane is FIFO, the
+ * head message always starts at the arena's read position, so no per-slot message pointer is needed. Producing
+ * through {@link #put(long, Priority, long, CharSequence)} and consuming into a reused {@link CompactLogEntry}
+ * therefore allocate nothing per entry. The {@link LogQueue} methods are supported for compatibility with the
+ * decorators and the batch consumers, at the cost of materializing a {@link LogEntry} on the way out.
+ * {@link LogEntry#source()} and the compaction repeat fields are not stored, so the queue is not used with compaction.
+ * <p>
+ * The queue is bounded by the slot count and arena size of each lane; producers block while their lane is full.
+ */
+public class CompactLogQueue implements FlyweightLogQueue {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+	private static final int DEFAULT_SLOTS_PER_PRIORITY = 1 << 14;
+	private static final int DEFAULT_ARENA_BYTES_PER_PRIORITY = 1 << 20;
+
+	private final Lane[] lanes = new Lane[PRIORITIES.length];
+	private final InstantSource clock;
+	private final SchedulingPolicy policy;
+	private final SchedulingPolicy.LaneHeads heads = new Heads();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	// Materializes LogEntry objects for the LogQueue methods; only touched with the lock held
+	private final CompactLogEntry scratch = new CompactLogEntry();
+
+	private int size;
+
+	public CompactLogQueue() {
+		this(DEFAULT_SLOTS_PER_PRIORITY, DEFAULT_ARENA_BYTES_PER_PRIORITY, InstantSource.system());
+	}
+
+	/**
+	 * @param slotsPerPriority entries per priority lane, rounded up to a power of two
+	 * @param arenaBytesPerPriority message bytes per priority lane, rounded up to a power of two
+	 */
+	public CompactLogQueue(int slotsPerPriority, int arenaBytesPerPriority, InstantSource clock) {
+		this(slotsPerPriority, arenaBytesPerPriority, clock, new AgingPolicy());
+	}
+
+	/**
+	 * @param policy used by this queue only, see {@link SchedulingPolicy}
+	 */
+	public CompactLogQueue(int slotsPerPriority, int arenaBytesPerPriority, InstantSource clock,
+		SchedulingPolicy policy) {
+		if (slotsPerPriority <= 0 || slotsPerPriority > 1 << 30) {
+			throw new IllegalArgumentException("slotsPerPriority must be in (0, 2^30], got %d".formatted(slotsPerPriority));
+		}
+		if (arenaBytesPerPriority <= 0 || arenaBytesPerPriority > 1 << 30) {
+			throw new IllegalArgumentException("arenaBytesPerPriority must be in (0, 2^30], got %d".formatted(arenaBytesPerPriority));
+		}
+
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new Lane(PRIORITIES[i], powerOfTwo(slotsPerPriority), powerOfTwo(arenaBytesPerPriority));
+		}
+		this.clock = clock;
+		this.policy = policy;
+	}
+
+	/**
+	 * Queues an entry without allocating: the message is encoded straight into the priority's arena.
+	 * Waits while the priority's lane is full.
+	 *
+	 * @param creationEpochNanos the creation time in nanoseconds since the epoch
+	 * @param message the message, null allowed
+	 * @return false only if the producer was interrupted while waiting, in which case the entry is not queued
+	 */
+	@Override
+	public boolean put(long offset, Priority priority, long creationEpochNanos, CharSequence message) {
+		var lane = lanes[priority.ordinal()];
+		int messageLength = messageLength(lane, message);
+
+		lock.lock();
+		try {
+			while (!lane.hasRoom(messageLength)) {
+				notFull.await();
+			}
+			enqueue(lane, offset, creationEpochNanos, message, messageLength);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean put(LogEntry entry) {
+		return put(entry.offset(), entry.priority(), CompactLogEntry.toEpochNanos(entry.creationTime()), entry.message());
+	}
+
+	/**
+	 * Like {@link #put(long, Priority, long, CharSequence)}, but returns false instead of waiting while the
+	 * priority's lane is full.
+	 */
+	@Override
+	public boolean offer(long offset, Priority priority, long creationEpochNanos, CharSequence message) {
+		var lane = lanes[priority.ordinal()];
+		int messageLength = messageLength(lane, message);
+
+		lock.lock();
+		try {
+			if (!lane.hasRoom(messageLength)) {
+				return false;
+			}
+			enqueue(lane, offset, creationEpochNanos, message, messageLength);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean offer(LogEntry entry) {
+		return offer(entry.offset(), entry.priority(), CompactLogEntry.toEpochNanos(entry.creationTime()),
+			entry.message());
+	}
+
+	/**
+	 * Waits for the next entry chosen by the scheduling policy and copies it into target.
+	 */
+	@Override
+	public void take(CompactLogEntry target) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+			dequeue(clock.millis(), target);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Waits up to the timeout for an entry and copies it into target.
+	 *
+	 * @return false if nothing arrived within the timeout, in which case target is left untouched
+	 */
+	@Override
+	public boolean poll(CompactLogEntry target, long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (nanos <= 0) {
+					return false;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			dequeue(clock.millis(), target);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Copies up to targets.length immediately available entries into the given flyweights, in priority order.
+	 *
+	 * @return the number of flyweights filled, starting at index 0
+	 */
+	public int drainTo(CompactLogEntry[] targets) {
+		lock.lock();
+		try {
+			long now = clock.millis();
+			int drained = 0;
+			while (size > 0 && drained < targets.length) {
+				dequeue(now, targets[drained++]);
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+			return dequeue(clock.millis(), scratch).toLogEntry();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry poll() {
+		lock.lock();
+		try {
+			return size == 0 ? null : dequeue(clock.millis(), scratch).toLogEntry();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return dequeue(clock.millis(), scratch).toLogEntry();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		lock.lock();
+		try {
+			long now = clock.millis();
+			int drained = 0;
+			while (size > 0 && drained < maxEntries) {
+				target.add(dequeue(now, scratch).toLogEntry());
+				drained++;
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		lock.lock();
+		try {
+			var lane = lanes[priority.ordinal()];
+			if (lane.count == 0) {
+				return null;
+			}
+			lane.remove(scratch);
+			size--;
+			notFull.signalAll();
+			return scratch.toLogEntry();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size(Priority priority) {
+		lock.lock();
+		try {
+			return lanes[priority.ordinal()].count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public int slotsPerPriority() {
+		return lanes[0].offsets.length;
+	}
+
+	public int arenaBytesPerPriority() {
+		return lanes[0].arena.length;
+	}
+
+	/**
+	 * Must be called with the lock held and room in the lane.
+	 */
+	private void enqueue(Lane lane, long offset, long creationEpochNanos, CharSequence message, int messageLength) {
+		lane.add(offset, creationEpochNanos, message, messageLength);
+		size++;
+		notEmpty.signal();
+	}
+
+	/**
+	 * Moves the head of the lane chosen by the policy into target. Must be called with the lock held and size > 0.
+	 */
+	private CompactLogEntry dequeue(long nowEpochMilli, CompactLogEntry target) {
+		lanes[policy.select(heads, nowEpochMilli).ordinal()].remove(target);
+		size--;
+		// Producers of every lane share the condition, and the freed room only helps the selected lane's
+		notFull.signalAll();
+		return target;
+	}
+
+	/**
+	 * @return the encoded length of the message, -1 for null
+	 * @throws IllegalArgumentException if the message could never fit the lane's arena
+	 */
+	private static int messageLength(Lane lane, CharSequence message) {
+		int messageLength = message == null ? -1 : Utf8.encodedLength(message);
+		if (messageLength > lane.arena.length) {
+			throw new IllegalArgumentException("Message of %d bytes does not fit the %d byte %s arena"
+				.formatted(messageLength, lane.arena.length, lane.priority));
+		}
+		return messageLength;
+	}
+
+	private static int powerOfTwo(int value) {
+		return Math.max(Integer.highestOneBit(value - 1) << 1, 1);
+	}
+
+	/**
+	 * One priority's slots and message arena. Guarded by the queue lock.
+	 */
+	private static final class Lane {
+
+		private final Priority priority;
+		private final long[] offsets;
+		private final long[] creationEpochNanos;
+		private final int[] messageLengths;
+		private final int slotMask;
+		private final byte[] arena;
+		private final int arenaMask;
+
+		private int head;
+		private int count;
+		// Monotonic arena positions, masked on access
+		private long arenaRead;
+		private long arenaWrite;
+
+		private Lane(Priority priority, int slots, int arenaBytes) {
+			this.priority = priority;
+			this.offsets = new long[slots];
+			this.creationEpochNanos = new long[slots];
+			this.messageLengths = new int[slots];
+			this.slotMask = slots - 1;
+			this.arena = new byte[arenaBytes];
+			this.arenaMask = arenaBytes - 1;
+		}
+
+		private boolean hasRoom(int messageLength) {
+			return count < offsets.length && arenaWrite - arenaRead + Math.max(messageLength, 0) <= arena.length;
+		}
+
+		private void add(long offset, long creationNanos, CharSequence message, int messageLength) {
+			int slot = (head + count) & slotMask;
+			offsets[slot] = offset;
+			creationEpochNanos[slot] = creationNanos;
+			messageLengths[slot] = messageLength;
+			if (message != null) {
+				arenaWrite += Utf8.encode(message, arena, arenaWrite, arenaMask);
+			}
+			count++;
+		}
+
+		private long headOffset() {
+			return offsets[head];
+		}
+
+		private long headEpochMilli() {
+			return Math.floorDiv(creationEpochNanos[head], NANOS_PER_MILLI);
+		}
+
+		private void remove(CompactLogEntry target) {
+			int messageLength = messageLengths[head];
+			var buffer = target.reset(offsets[head], priority, creationEpochNanos[head], messageLength);
+			if (messageLength > 0) {
+				// The message may wrap around the end of the arena
+				int start = (int) arenaRead & arenaMask;
+				int firstPart = Math.min(messageLength, arena.length - start);
+				System.arraycopy(arena, start, buffer, 0, firstPart);
+				System.arraycopy(arena, 0, buffer, firstPart, messageLength - firstPart);
+				arenaRead += messageLength;
+			}
+			head = (head + 1) & slotMask;
+			count--;
+		}
+	}
+
+	/**
+	 * Only read by the policy, with the lock held.
+	 */
+	private final class Heads implements SchedulingPolicy.LaneHeads {
+
+		@Override
+		public boolean isEmpty(Priority priority) {
+			return lanes[priority.ordinal()].count == 0;
+		}
+
+		@Override
+		public long offset(Priority priority) {
+			return lanes[priority.ordinal()].headOffset();
+		}
+
+		@Override
+		public long creationEpochMilli(Priority priority) {
+			return lanes[priority.ordinal()].headEpochMilli();
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.Priority;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Earliest deadline first: every entry is due at its creation time plus the latency target of its priority, and the
+ * lane head due first is served, ties going to the lower offset. A class stays within its target as long as the
+ * consumers can keep up with the total load; under overload every class overshoots by a similar amount instead of
+ * LOW absorbing all of it.
+ */
+public class DeadlinePolicy implements SchedulingPolicy {
+
+	public static final Map<Priority, Duration> DEFAULT_TARGETS = Map.of(
+		Priority.CRITICAL, Duration.ofMillis(100),
+		Priority.HIGH, Duration.ofMillis(500),
+		Priority.MEDIUM, Duration.ofSeconds(2),
+		Priority.LOW, Duration.ofSeconds(10)
+	);
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	private final long[] targetMillis = new long[PRIORITIES.length];
+
+	public DeadlinePolicy() {
+		this(DEFAULT_TARGETS);
+	}
+
+	/**
+	 * @param targets the latency target of every priority
+	 */
+	public DeadlinePolicy(Map<Priority, Duration> targets) {
+		for (var priority : PRIORITIES) {
+			var target = targets.get(priority);
+			if (target == null || target.isNegative()) {
+				throw new IllegalArgumentException("Latency target of %s must be set and not negative, got %s"
+					.formatted(priority, target));
+			}
+			targetMillis[priority.ordinal()] = target.toMillis();
+		}
+	}
+
+	@Override
+	public Priority select(LaneHeads heads, long nowEpochMilli) {
+		Priority selected = null;
+		long selectedDeadline = Long.MAX_VALUE;
+		for (var priority : PRIORITIES) {
+			if (heads.isEmpty(priority)) {
+				continue;
+			}
+
+			long deadline = heads.creationEpochMilli(priority) + targetMillis[priority.ordinal()];
+			if (selected == null || deadline < selectedDeadline
+				|| (deadline == selectedDeadline && heads.offset(priority) < heads.offset(selected))) {
+				selected = priority;
+				selectedDeadline = deadline;
+			}
+		}
+		return selected;
+	}
+}
@@ -0,0 +1,59 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link LogQueue} that also takes entries as plain fields and hands them out into a reused {@link CompactLogEntry},
+ * so producers and consumers can skip building a {@link com.bgaidos.service.processor.model.LogEntry}.
+ * <p>
+ * Decorators implement it by forwarding to the queue they wrap; the path only allocates nothing per entry when the
+ * engine at the bottom, see {@link LogQueue#unwrap()}, is a {@link CompactLogQueue}.
+ */
+public interface FlyweightLogQueue extends LogQueue {
+
+	/**
+	 * Queues an entry given as its fields.
+	 *
+	 * @param creationEpochNanos the creation time in nanoseconds since the epoch
+	 * @param message the message, null allowed
+	 * @return true if the entry was accepted, false if it was shed
+	 */
+	boolean put(long offset, Priority priority, long creationEpochNanos, CharSequence message);
+
+	/**
+	 * Queues an entry given as its fields only if its priority has room right now, see {@link #offer(
+	 * com.bgaidos.service.processor.model.LogEntry)}.
+	 *
+	 * @return true if the entry was accepted, false if there was no room for it
+	 */
+	default boolean offer(long offset, Priority priority, long creationEpochNanos, CharSequence message) {
+		return put(offset, priority, creationEpochNanos, message);
+	}
+
+	/**
+	 * Waits for the entry that should be processed next and copies it into target.
+	 */
+	void take(CompactLogEntry target) throws InterruptedException;
+
+	/**
+	 * Waits up to the timeout for an entry and copies it into target.
+	 *
+	 * @return false if nothing arrived within the timeout, in which case target is left untouched
+	 */
+	boolean poll(CompactLogEntry target, long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * @throws UnsupportedOperationException if the decorated queue takes {@link com.bgaidos.service.processor.model.LogEntry}
+	 * objects only
+	 */
+	static FlyweightLogQueue of(LogQueue queue) {
+		if (queue instanceof FlyweightLogQueue flyweight) {
+			return flyweight;
+		}
+		throw new UnsupportedOperationException("%s does not support compact entries"
+			.formatted(queue.getClass().getSimpleName()));
+	}
+}
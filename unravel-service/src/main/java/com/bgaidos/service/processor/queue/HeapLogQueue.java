@@ -0,0 +1,92 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.util.Collection;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Original engine: a single binary heap ordered by {@link LogEntry#compareTo(LogEntry)}.
+ * Every comparison re-reads the clock, so ordering is only exact at the moment an entry is sifted.
+ */
+public class HeapLogQueue implements LogQueue {
+
+	private final PriorityBlockingQueue<LogEntry> logQueue = new PriorityBlockingQueue<>();
+
+	@Override
+	public boolean put(LogEntry entry) {
+		logQueue.put(entry);
+		return true;
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		return logQueue.take();
+	}
+
+	@Override
+	public LogEntry poll() {
+		return logQueue.poll();
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return logQueue.poll(timeout, unit);
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		return logQueue.drainTo(target, maxEntries);
+	}
+
+	/**
+	 * O(n): the heap has no per-priority index, so the whole queue is scanned.
+	 */
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		while (true) {
+			LogEntry oldest = null;
+			for (var entry : logQueue) {
+				if (entry.priority() == priority && (oldest == null || isOlder(entry, oldest))) {
+					oldest = entry;
+				}
+			}
+
+			// A consumer may take the candidate between the scan and the removal, in which case we scan again
+			if (oldest == null || logQueue.remove(oldest)) {
+				return oldest;
+			}
+		}
+	}
+
+	@Override
+	public int size() {
+		return logQueue.size();
+	}
+
+	/**
+	 * O(n), like {@link #pollOldest(Priority)}.
+	 */
+	@Override
+	public int size(Priority priority) {
+		int size = 0;
+		for (var entry : logQueue) {
+			if (entry.priority() == priority) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return logQueue.isEmpty();
+	}
+
+	private static boolean isOlder(LogEntry entry, LogEntry other) {
+		int creationDifference = entry.creationTime().compareTo(other.creationTime());
+		return creationDifference < 0 || (creationDifference == 0 && entry.offset() < other.offset());
+	}
+}
@@ -0,0 +1,113 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage engine behind a {@link com.bgaidos.service.processor.LogProcessor}.
+ * Implementations decide how entries are ordered and how producers and consumers are coordinated.
+ */
+public interface LogQueue extends AutoCloseable {
+
+	/**
+	 * Adds a log entry to the queue.
+	 *
+	 * @param entry The log entry to enqueue.
+	 * @return true if the entry was accepted, false if it was shed.
+	 */
+	boolean put(LogEntry entry);
+
+	/**
+	 * Adds a log entry only if its priority has room right now, never waiting. Engines that never wait in
+	 * {@link #put(LogEntry)} use it as is.
+	 *
+	 * @param entry The log entry to enqueue.
+	 * @return true if the entry was accepted, false if there was no room for it.
+	 */
+	default boolean offer(LogEntry entry) {
+		return put(entry);
+	}
+
+	/**
+	 * Removes the entry that should be processed next, waiting until one becomes available.
+	 *
+	 * @return The next log entry.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	LogEntry take() throws InterruptedException;
+
+	/**
+	 * Removes the entry that should be processed next, without waiting.
+	 *
+	 * @return The next log entry, or null if the queue is empty.
+	 */
+	LogEntry poll();
+
+	/**
+	 * Removes the entry that should be processed next, waiting up to the given time for one to become available.
+	 *
+	 * @param timeout How long to wait before giving up.
+	 * @param unit The unit of the timeout.
+	 * @return The next log entry, or null if the timeout elapsed first.
+	 * @throws InterruptedException if interrupted while waiting.
+	 */
+	LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+	/**
+	 * Removes up to maxEntries immediately available entries, in the same order {@link #take()} would return them.
+	 *
+	 * @param target The collection the entries are added to.
+	 * @param maxEntries The maximum number of entries to remove.
+	 * @return The number of entries transferred.
+	 */
+	int drainTo(Collection<? super LogEntry> target, int maxEntries);
+
+	/**
+	 * Removes the oldest queued entry of the given priority, regardless of the order {@link #take()} would use.
+	 * Used to shed load when a bounded queue overflows.
+	 *
+	 * @param priority The priority lane to shed from.
+	 * @return The removed entry, or null if no entry of that priority is queued.
+	 */
+	LogEntry pollOldest(Priority priority);
+
+	/**
+	 * @return The number of entries currently queued.
+	 */
+	int size();
+
+	/**
+	 * @param priority The priority lane to count.
+	 * @return The number of entries of the given priority currently queued.
+	 */
+	int size(Priority priority);
+
+	default boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @param priority The priority to count.
+	 * @return The number of entries of the given priority shed since creation, always 0 for unbounded engines.
+	 */
+	default long shedCount(Priority priority) {
+		return 0;
+	}
+
+	/**
+	 * @return the engine that stores the entries, below any decorators such as {@link BoundedLogQueue}
+	 */
+	default LogQueue unwrap() {
+		return this;
+	}
+
+	/**
+	 * Releases any resources held by the engine, such as files. In-memory engines have nothing to release.
+	 */
+	@Override
+	default void close() {
+	}
+}
@@ -0,0 +1,98 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free multi-producer/multi-consumer ring buffer with sequence-based slot claiming.
+ * <p>
+ * Every slot carries a sequence number telling whose turn it is: a producer may claim slot {@code pos} when its
+ * sequence equals {@code pos}, and a consumer may claim it when it equals {@code pos + 1}. Claiming is a single CAS
+ * on the producer or consumer cursor, and the slot array is allocated once, so no allocation happens per entry.
+ */
+final class LogRingBuffer {
+
+	private final LogEntry[] slots;
+	private final AtomicLongArray sequences;
+	private final int mask;
+
+	private final Sequence producerCursor = new Sequence(0);
+	private final Sequence consumerCursor = new Sequence(0);
+
+	LogRingBuffer(int capacity) {
+		if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("capacity must be a power of two, got %d".formatted(capacity));
+		}
+
+		this.slots = new LogEntry[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		this.mask = capacity - 1;
+		for (int i = 0; i < capacity; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * @return false if the ring is full
+	 */
+	boolean offer(LogEntry entry) {
+		long position = producerCursor.get();
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.getAcquire(index) - position;
+
+			if (difference == 0) {
+				if (producerCursor.compareAndSet(position, position + 1)) {
+					slots[index] = entry;
+					// Publishes the slot write to the consumer that claims this position
+					sequences.setRelease(index, position + 1);
+					return true;
+				}
+				position = producerCursor.get();
+			} else if (difference < 0) {
+				// The slot still holds the entry from the previous lap
+				return false;
+			} else {
+				position = producerCursor.get();
+			}
+		}
+	}
+
+	/**
+	 * @return the oldest entry, or null if the ring is empty
+	 */
+	LogEntry poll() {
+		long position = consumerCursor.get();
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.getAcquire(index) - (position + 1);
+
+			if (difference == 0) {
+				if (consumerCursor.compareAndSet(position, position + 1)) {
+					var entry = slots[index];
+					slots[index] = null;
+					// Hands the slot back to the producer one lap ahead
+					sequences.setRelease(index, position + mask + 1);
+					return entry;
+				}
+				position = consumerCursor.get();
+			} else if (difference < 0) {
+				return null;
+			} else {
+				position = consumerCursor.get();
+			}
+		}
+	}
+
+	int size() {
+		// Read the consumer first so a concurrent take can only make the result smaller, never negative
+		long consumed = consumerCursor.get();
+		long produced = producerCursor.get();
+		return (int) Math.max(0, Math.min(produced - consumed, slots.length));
+	}
+
+	int capacity() {
+		return slots.length;
+	}
+}
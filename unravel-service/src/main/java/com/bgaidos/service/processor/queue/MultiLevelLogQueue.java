@@ -0,0 +1,191 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.time.InstantSource;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Multi-level queue: one FIFO lane per {@link Priority}, with a {@link SchedulingPolicy} choosing between the lane
+ * heads.
+ * <p>
+ * Entries in a lane share the same base priority, so the lane head is always the one that has waited the longest
+ * and therefore has the highest effective priority of its lane. With the default {@link AgingPolicy}, aging is
+ * applied in whole-second buckets (the same granularity as {@link LogEntry#effectivePriority()}) by comparing the
+ * lane heads against a single clock read per dequeue, which keeps both operations O(1) and the promotion exact at
+ * the moment of dequeue.
+ * <p>
+ * Lanes are FIFO by arrival, so entries are expected to be enqueued in roughly creation order.
+ */
+public class MultiLevelLogQueue implements LogQueue {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	private final ArrayDeque<LogEntry>[] lanes;
+	private final InstantSource clock;
+	private final SchedulingPolicy policy;
+	private final SchedulingPolicy.LaneHeads heads = new Heads();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+
+	private int size;
+
+	public MultiLevelLogQueue() {
+		this(InstantSource.system());
+	}
+
+	public MultiLevelLogQueue(InstantSource clock) {
+		this(clock, new AgingPolicy());
+	}
+
+	/**
+	 * @param policy used by this queue only, see {@link SchedulingPolicy}
+	 */
+	@SuppressWarnings("unchecked")
+	public MultiLevelLogQueue(InstantSource clock, SchedulingPolicy policy) {
+		this.clock = clock;
+		this.policy = policy;
+		this.lanes = new ArrayDeque[PRIORITIES.length];
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new ArrayDeque<>();
+		}
+	}
+
+	@Override
+	public boolean put(LogEntry entry) {
+		lock.lock();
+		try {
+			lanes[entry.priority().ordinal()].addLast(entry);
+			size++;
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+			return dequeue(clock.millis());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry poll() {
+		lock.lock();
+		try {
+			return size == 0 ? null : dequeue(clock.millis());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return dequeue(clock.millis());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		lock.lock();
+		try {
+			// A drain is served against a single clock read, so the batch keeps one consistent priority order
+			long now = clock.millis();
+			int drained = 0;
+			while (size > 0 && drained < maxEntries) {
+				target.add(dequeue(now));
+				drained++;
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		lock.lock();
+		try {
+			var entry = lanes[priority.ordinal()].pollFirst();
+			if (entry != null) {
+				size--;
+			}
+			return entry;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size(Priority priority) {
+		lock.lock();
+		try {
+			return lanes[priority.ordinal()].size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the head of the lane chosen by the policy. Must be called with the lock held and size > 0.
+	 */
+	private LogEntry dequeue(long nowEpochMilli) {
+		size--;
+		return lanes[policy.select(heads, nowEpochMilli).ordinal()].pollFirst();
+	}
+
+	/**
+	 * Only read by the policy, with the lock held.
+	 */
+	private final class Heads implements SchedulingPolicy.LaneHeads {
+
+		@Override
+		public boolean isEmpty(Priority priority) {
+			return lanes[priority.ordinal()].isEmpty();
+		}
+
+		@Override
+		public long offset(Priority priority) {
+			return lanes[priority.ordinal()].peekFirst().offset();
+		}
+
+		@Override
+		public long creationEpochMilli(Priority priority) {
+			return lanes[priority.ordinal()].peekFirst().creationTime().toEpochMilli();
+		}
+	}
+}
@@ -0,0 +1,26 @@
+package com.bgaidos.service.processor.queue;
+
+/**
+ * What a {@link BoundedLogQueue} does with an incoming entry once it is at capacity.
+ * No policy silently drops a CRITICAL entry.
+ */
+public enum OverflowPolicy {
+	/**
+	 * The producer waits until a consumer frees a slot.
+	 */
+	BLOCK,
+	/**
+	 * The entry is rejected with a {@link com.bgaidos.exceptions.LogProcessorFullException}.
+	 */
+	FAIL_FAST,
+	/**
+	 * The oldest LOW entries are shed first, then the oldest MEDIUM ones, but never entries more important
+	 * than the incoming one. If nothing can be shed, LOW/MEDIUM entries are dropped and HIGH/CRITICAL ones wait.
+	 */
+	DROP_OLDEST,
+	/**
+	 * Like {@link #DROP_OLDEST}, but once the queue passes its sampling threshold only one in every N LOW entries
+	 * is admitted, so LOW traffic is thinned before the queue is actually full.
+	 */
+	SAMPLE_LOW
+}
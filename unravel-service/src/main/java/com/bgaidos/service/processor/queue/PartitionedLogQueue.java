@@ -0,0 +1,230 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.util.Collection;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Splits the backlog over N independent partitions, each with its own lock, so producers and consumers on
+ * different cores stop contending on a single queue lock.
+ * <p>
+ * Producers are routed to a partition by entry offset or by producing thread. Each consumer thread gets a home
+ * partition and serves it first; when it is empty the consumer steals from the other partitions in turn.
+ * A shared semaphore counts queued entries, so consumers only park when every partition is empty.
+ * <p>
+ * Fairness guarantee: ordering is exact within a partition (it is whatever the partition engine guarantees,
+ * aging priority order for {@link MultiLevelLogQueue}). Across partitions it is approximate: a consumer serves
+ * at most {@value #STICKINESS} consecutive entries from one partition before moving its home to the next one,
+ * so every non-empty partition is visited by every active consumer within {@value #STICKINESS} x N takes and no
+ * partition can starve, even with fewer consumers than partitions. The routing key is hashed before it is
+ * reduced to a partition index, so keys that follow the priority pattern (offset {@code i} producing priority
+ * {@code i % 4}) still give every partition roughly the same priority mix instead of one priority each. A take
+ * returns the most important entry of the partition it is served from, so a higher-priority entry in another
+ * partition is only passed over once that partition has run out of equally important entries, and then by fewer
+ * than {@value #STICKINESS} entries per consumer visit before the consumer rotates.
+ */
+public class PartitionedLogQueue implements LogQueue {
+
+	public enum Routing {
+		/**
+		 * Partition is chosen from {@link LogEntry#offset()}, spreading each producer's entries over all partitions.
+		 */
+		OFFSET,
+		/**
+		 * Partition is chosen from the producing thread, keeping a producer's entries together.
+		 */
+		THREAD
+	}
+
+	private static final int STICKINESS = 32;
+
+	private final LogQueue[] partitions;
+	private final Routing routing;
+	private final Semaphore available = new Semaphore(0);
+	private final AtomicInteger nextHome = new AtomicInteger();
+	private final ThreadLocal<Cursor> cursors;
+
+	public PartitionedLogQueue() {
+		this(Runtime.getRuntime().availableProcessors(), Routing.OFFSET, MultiLevelLogQueue::new);
+	}
+
+	public PartitionedLogQueue(int partitionCount, Routing routing, Supplier<LogQueue> partitionFactory) {
+		if (partitionCount <= 0) {
+			throw new IllegalArgumentException("partitionCount must be positive, got %d".formatted(partitionCount));
+		}
+
+		this.routing = routing;
+		this.partitions = new LogQueue[partitionCount];
+		for (int i = 0; i < partitionCount; i++) {
+			partitions[i] = partitionFactory.get();
+		}
+		this.cursors = ThreadLocal.withInitial(() -> new Cursor(Math.floorMod(nextHome.getAndIncrement(), partitionCount)));
+	}
+
+	@Override
+	public boolean put(LogEntry entry) {
+		var accepted = partitions[route(entry)].put(entry);
+		if (accepted) {
+			available.release();
+		}
+		return accepted;
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		available.acquire();
+		return pollReserved();
+	}
+
+	@Override
+	public LogEntry poll() {
+		return available.tryAcquire() ? pollReserved() : null;
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return available.tryAcquire(timeout, unit) ? pollReserved() : null;
+	}
+
+	/**
+	 * Drains the home partition first and then steals from the others, so the batch is in priority order
+	 * per partition rather than globally.
+	 */
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		int reserved = 0;
+		while (reserved < maxEntries && available.tryAcquire()) {
+			reserved++;
+		}
+		if (reserved == 0) {
+			return 0;
+		}
+
+		var cursor = cursors.get();
+		int drained = 0;
+		// Every reserved permit is backed by a queued entry, so this terminates
+		for (int i = cursor.partition; drained < reserved; i = (i + 1) % partitions.length) {
+			drained += partitions[i].drainTo(target, reserved - drained);
+		}
+		cursor.served(drained, partitions.length);
+		return drained;
+	}
+
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		if (!available.tryAcquire()) {
+			return null;
+		}
+
+		int start = cursors.get().partition;
+		for (int i = 0; i < partitions.length; i++) {
+			var entry = partitions[(start + i) % partitions.length].pollOldest(priority);
+			if (entry != null) {
+				return entry;
+			}
+		}
+
+		available.release();
+		return null;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (var partition : partitions) {
+			size += partition.size();
+		}
+		return size;
+	}
+
+	@Override
+	public int size(Priority priority) {
+		int size = 0;
+		for (var partition : partitions) {
+			size += partition.size(priority);
+		}
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return available.availablePermits() == 0;
+	}
+
+	@Override
+	public void close() {
+		for (var partition : partitions) {
+			partition.close();
+		}
+	}
+
+	public int partitionCount() {
+		return partitions.length;
+	}
+
+	/**
+	 * Takes the entry backed by an already acquired permit: home partition first, then steal from the others.
+	 */
+	private LogEntry pollReserved() {
+		var cursor = cursors.get();
+		while (true) {
+			for (int i = 0; i < partitions.length; i++) {
+				int partition = (cursor.partition + i) % partitions.length;
+				var entry = partitions[partition].poll();
+				if (entry != null) {
+					cursor.served(1, partitions.length);
+					return entry;
+				}
+			}
+			// Other consumers raced us through the partitions; an entry is still guaranteed to exist
+			Thread.onSpinWait();
+		}
+	}
+
+	private int route(LogEntry entry) {
+		long key = switch (routing) {
+			case OFFSET -> entry.offset();
+			case THREAD -> Thread.currentThread().threadId();
+		};
+		return (int) Math.floorMod(mix(key), (long) partitions.length);
+	}
+
+	/**
+	 * MurmurHash3 64-bit finalizer, so sequential or strided keys spread over partitions independently of their
+	 * residue modulo the partition count.
+	 */
+	private static long mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return key;
+	}
+
+	/**
+	 * Per consumer thread home partition, rotated every {@value #STICKINESS} takes.
+	 */
+	private static final class Cursor {
+
+		private int partition;
+		private int served;
+
+		private Cursor(int partition) {
+			this.partition = partition;
+		}
+
+		private void served(int entries, int partitionCount) {
+			served += entries;
+			if (served >= STICKINESS) {
+				served = 0;
+				partition = (partition + 1) % partitionCount;
+			}
+		}
+	}
+}
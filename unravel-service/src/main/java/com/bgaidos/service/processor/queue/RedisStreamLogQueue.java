@@ -0,0 +1,571 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Queue shared by every node of a cluster, stored in Redis Streams: one stream per {@link Priority}, read through a
+ * consumer group so that each entry is delivered to one consumer of one node.
+ * <p>
+ * Producing only hands the entry to a local outbox; a publisher thread sends the outbox to Redis every publish
+ * interval as one pipeline of {@code XADD}s, trimming each stream to about maxLength entries. Entries still in the
+ * outbox when a node crashes are lost.
+ * <p>
+ * Consumers take entries from a local {@link MultiLevelLogQueue} that one of them refills when it runs dry: one
+ * pipelined round of {@code XREADGROUP}s reads up to weight x fetchPerWeight entries from every stream, so the
+ * backlog is shared between priorities by the configured weights, and if nothing was there a single blocking
+ * {@code XREADGROUP} waits on all streams at once. An entry read stays pending in the group until it is
+ * {@link #ack(long) acked}, which is batched into the next publish pipeline as an {@code XACK}.
+ * <p>
+ * Entries a crashed or stuck node left pending longer than claimIdle are moved to this node by {@code XAUTOCLAIM}
+ * every claim interval, so they are redelivered rather than lost. Entries this node still holds are claimed along
+ * with the others but not delivered again. Acks are matched to deliveries by offset, so offsets must be unique across
+ * the cluster, which {@link #nextOffset()} provides; a second copy of an entry held here is acked straight away.
+ * <p>
+ * {@link #size(Priority)} is the entries buffered locally plus the group's lag on the stream, as last measured by
+ * the claim task.
+ */
+@Slf4j
+public class RedisStreamLogQueue implements LogQueue {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final long NANOS_PER_MILLI = 1_000_000L;
+	private static final int PUBLISH_BATCH = 1024;
+	private static final int OFFSET_BLOCK = 1024;
+	// How long a consumer waits for another one to finish a refill before checking again
+	private static final long FOLLOWER_WAIT_NANOS = 10 * NANOS_PER_MILLI;
+	// The client has no command for XAUTOCLAIM, so it goes through a script
+	static final RedisScript<List> RECLAIM = new DefaultRedisScript<>(
+		"return redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5])", List.class);
+	static final RedisScript<Long> LAG = new DefaultRedisScript<>("""
+		for _, group in ipairs(redis.call('XINFO', 'GROUPS', KEYS[1])) do
+			local fields = {}
+			for i = 1, #group, 2 do
+				fields[group[i]] = group[i + 1]
+			end
+			if fields['name'] == ARGV[1] then
+				return fields['lag'] or -1
+			end
+		end
+		return -1""", Long.class);
+
+	private static final byte[] OFFSET = bytes("offset");
+	private static final byte[] SOURCE = bytes("source");
+	private static final byte[] MESSAGE = bytes("message");
+	private static final byte[] CREATED = bytes("created");
+	private static final byte[] REPEATS = bytes("repeats");
+	private static final byte[] LAST_CREATED = bytes("lastCreated");
+
+	private final StringRedisTemplate redis;
+	private final Options options;
+	private final String[] keys = new String[PRIORITIES.length];
+	private final byte[][] rawKeys = new byte[PRIORITIES.length][];
+	private final Map<String, Priority> priorityByKey = new HashMap<>();
+	private final int[] fetchCounts = new int[PRIORITIES.length];
+	private final Consumer consumer;
+	private final XAddOptions addOptions;
+	private final String offsetKey;
+
+	private final MultiLevelLogQueue local = new MultiLevelLogQueue();
+	private final ReentrantLock fetchLock = new ReentrantLock();
+	private final LinkedBlockingQueue<LogEntry> outbox;
+	private final LinkedBlockingQueue<Delivery> acks = new LinkedBlockingQueue<>();
+	// Entries handed out and not acked yet, by offset
+	private final ConcurrentHashMap<Long, Delivery> delivered = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService background;
+	private final String[] claimCursors = new String[PRIORITIES.length];
+	private final long[] lag = new long[PRIORITIES.length];
+
+	private final ReentrantLock offsetLock = new ReentrantLock();
+	// Guarded by offsetLock, the block of offsets reserved for this node
+	private long nextOffset;
+	private long offsetLimit;
+
+	// Only touched by the publisher, entries and acks a failed pipeline left to send
+	private List<LogEntry> unpublished = new ArrayList<>();
+	private List<Delivery> unacked = new ArrayList<>();
+
+	/**
+	 * @param weights share of each priority in a refill, as for {@link WeightedFairPolicy}
+	 */
+	public RedisStreamLogQueue(StringRedisTemplate redis, Map<Priority, Integer> weights, Options options) {
+		this.redis = redis;
+		this.options = options;
+		for (var priority : PRIORITIES) {
+			int i = priority.ordinal();
+			keys[i] = "%s:%s".formatted(options.keyPrefix(), priority.name());
+			rawKeys[i] = bytes(keys[i]);
+			priorityByKey.put(keys[i], priority);
+			int weight = weights.getOrDefault(priority, 1);
+			if (weight < 1) {
+				throw new IllegalArgumentException("Weight of %s must be at least 1, got %d".formatted(priority, weight));
+			}
+			fetchCounts[i] = weight * options.fetchPerWeight();
+			claimCursors[i] = "0-0";
+		}
+		this.consumer = Consumer.from(options.group(), options.consumer());
+		this.addOptions = XAddOptions.maxlen(options.maxLength()).approximateTrimming(true);
+		this.offsetKey = options.keyPrefix() + ":offsets";
+		this.outbox = new LinkedBlockingQueue<>(options.outboxCapacity());
+
+		createGroups();
+
+		this.background = Executors.newScheduledThreadPool(2,
+			Thread.ofPlatform().name("log-stream-", 0).daemon().factory());
+		long publishNanos = Math.max(options.publishInterval().toNanos(), 1);
+		background.scheduleWithFixedDelay(this::publish, publishNanos, publishNanos, TimeUnit.NANOSECONDS);
+		long claimMillis = Math.max(options.claimInterval().toMillis(), 1);
+		background.scheduleWithFixedDelay(this::reclaim, 0, claimMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Hands the entry to the outbox, waiting while the outbox is full.
+	 *
+	 * @return false only if the producer was interrupted while waiting, in which case the entry is not queued
+	 */
+	@Override
+	public boolean put(LogEntry entry) {
+		try {
+			outbox.put(entry);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		while (true) {
+			var entry = poll(options.maxBlock().toNanos(), TimeUnit.NANOSECONDS);
+			if (entry != null) {
+				return entry;
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+		}
+	}
+
+	@Override
+	public LogEntry poll() {
+		var entry = local.poll();
+		if (entry == null && fetchLock.tryLock()) {
+			try {
+				if (local.isEmpty()) {
+					fetch(0);
+				}
+			} finally {
+				fetchLock.unlock();
+			}
+			entry = local.poll();
+		}
+		return entry;
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (true) {
+			var entry = local.poll();
+			if (entry != null) {
+				return entry;
+			}
+
+			long remaining = deadline - System.nanoTime();
+			if (fetchLock.tryLock()) {
+				try {
+					if (local.isEmpty()) {
+						fetch(Math.min(remaining, options.maxBlock().toNanos()));
+					}
+				} finally {
+					fetchLock.unlock();
+				}
+			} else {
+				// Another consumer is refilling, wait for what it brings
+				entry = local.poll(Math.min(Math.max(remaining, 0), FOLLOWER_WAIT_NANOS), TimeUnit.NANOSECONDS);
+				if (entry != null) {
+					return entry;
+				}
+			}
+
+			if (deadline - System.nanoTime() <= 0) {
+				return local.poll();
+			}
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		return local.drainTo(target, maxEntries);
+	}
+
+	/**
+	 * Sheds the oldest locally buffered entry of the priority, acking it so that it is not redelivered.
+	 */
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		var entry = local.pollOldest(priority);
+		if (entry != null) {
+			ack(entry.offset());
+		}
+		return entry;
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (var priority : PRIORITIES) {
+			size += size(priority);
+		}
+		return size;
+	}
+
+	@Override
+	public int size(Priority priority) {
+		long backlog;
+		synchronized (lag) {
+			backlog = lag[priority.ordinal()];
+		}
+		return (int) Math.min(local.size(priority) + backlog, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Removes a delivered entry from the group's pending list with the next publish.
+	 */
+	public void ack(long offset) {
+		var delivery = delivered.remove(offset);
+		if (delivery != null) {
+			acks.add(delivery);
+		}
+	}
+
+	/**
+	 * Publishes the entry again, for any consumer of the group, and acks the delivery it came from.
+	 */
+	public void nack(LogEntry entry) {
+		var delivery = delivered.remove(entry.offset());
+		if (!put(entry)) {
+			// Interrupted, leave the delivery pending so that it is reclaimed
+			if (delivery != null) {
+				delivered.put(entry.offset(), delivery);
+			}
+			return;
+		}
+		if (delivery != null) {
+			acks.add(delivery);
+		}
+	}
+
+	/**
+	 * @return an offset no other node or call gets, taken from blocks reserved in Redis
+	 */
+	public long nextOffset() {
+		offsetLock.lock();
+		try {
+			if (nextOffset == offsetLimit) {
+				Long limit = redis.opsForValue().increment(offsetKey, OFFSET_BLOCK);
+				if (limit == null) {
+					throw new IllegalStateException("Failed to reserve log offsets in %s".formatted(offsetKey));
+				}
+				offsetLimit = limit;
+				nextOffset = limit - OFFSET_BLOCK;
+			}
+			return nextOffset++;
+		} finally {
+			offsetLock.unlock();
+		}
+	}
+
+	/**
+	 * Stops the background tasks and publishes the outbox and the acks a last time. Entries buffered locally stay
+	 * pending in the group, to be reclaimed by another node.
+	 */
+	@Override
+	public void close() {
+		background.shutdownNow();
+		try {
+			background.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		publish();
+		log.info("Closed log stream consumer {} with {} entries left pending", consumer.getName(), local.size());
+	}
+
+	private void createGroups() {
+		for (var key : rawKeys) {
+			try {
+				redis.execute((RedisCallback<String>) connection ->
+					connection.streamCommands().xGroupCreate(key, options.group(), ReadOffset.from("0"), true));
+			} catch (DataAccessException e) {
+				var cause = e.getMostSpecificCause().getMessage();
+				if (cause == null || !cause.contains("BUSYGROUP")) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Refills the local queue. Must be called with the fetch lock held.
+	 *
+	 * @param blockNanos how long to wait on the streams if the weighted round finds nothing
+	 */
+	@SuppressWarnings("unchecked")
+	private void fetch(long blockNanos) {
+		try {
+			int fetched = 0;
+			var results = redis.executePipelined((RedisCallback<Object>) connection -> {
+				var streams = connection.streamCommands();
+				for (int i = 0; i < PRIORITIES.length; i++) {
+					streams.xReadGroup(consumer, StreamReadOptions.empty().count(fetchCounts[i]),
+						StreamOffset.create(rawKeys[i], ReadOffset.lastConsumed()));
+				}
+				return null;
+			}, null);
+			for (var result : results) {
+				fetched += deliver(result);
+			}
+
+			if (fetched == 0 && blockNanos >= NANOS_PER_MILLI) {
+				var offsets = new StreamOffset[PRIORITIES.length];
+				for (int i = 0; i < PRIORITIES.length; i++) {
+					offsets[i] = StreamOffset.create(rawKeys[i], ReadOffset.lastConsumed());
+				}
+				var blocking = StreamReadOptions.empty()
+					.count(options.fetchPerWeight())
+					.block(Duration.ofNanos(blockNanos));
+				deliver(redis.execute((RedisCallback<List<ByteRecord>>) connection ->
+					connection.streamCommands().xReadGroup(consumer, blocking, offsets)));
+			}
+		} catch (DataAccessException e) {
+			log.error("Failed to read log entries from Redis", e);
+			sleepQuietly(blockNanos);
+		}
+	}
+
+	private int deliver(Object records) {
+		if (!(records instanceof List<?> list)) {
+			return 0;
+		}
+		int delivered = 0;
+		for (var item : list) {
+			if (item instanceof ByteRecord record
+				&& deliver(priorityByKey.get(string(record.getStream())), record.getId(), record.getValue())) {
+				delivered++;
+			}
+		}
+		return delivered;
+	}
+
+	/**
+	 * Buffers the entry locally unless this node already holds an entry with its offset.
+	 *
+	 * @return true if the entry was buffered
+	 */
+	private boolean deliver(Priority priority, RecordId id, Map<byte[], byte[]> fields) {
+		var entry = decode(priority, fields);
+		var delivery = new Delivery(priority, id);
+		var held = delivered.putIfAbsent(entry.offset(), delivery);
+		if (held == null) {
+			local.put(entry);
+			return true;
+		}
+		if (!held.id().equals(id)) {
+			// Another copy of the entry, published twice after a failed pipeline
+			acks.add(delivery);
+		}
+		return false;
+	}
+
+	/**
+	 * Sends the outbox and the pending acks. Called periodically by the publisher thread.
+	 */
+	void publish() {
+		try {
+			if (unpublished.isEmpty()) {
+				outbox.drainTo(unpublished, PUBLISH_BATCH);
+			}
+			if (unacked.isEmpty()) {
+				acks.drainTo(unacked, PUBLISH_BATCH);
+			}
+			while (!unpublished.isEmpty() || !unacked.isEmpty()) {
+				var batch = unpublished;
+				var ackBatch = unacked;
+				redis.executePipelined((RedisCallback<Object>) connection -> {
+					var streams = connection.streamCommands();
+					for (var entry : batch) {
+						streams.xAdd(MapRecord.create(rawKeys[entry.priority().ordinal()], encode(entry)), addOptions);
+					}
+					for (var delivery : ackBatch) {
+						streams.xAck(rawKeys[delivery.priority().ordinal()], options.group(), delivery.id());
+					}
+					return null;
+				}, null);
+
+				unpublished = new ArrayList<>();
+				outbox.drainTo(unpublished, PUBLISH_BATCH);
+				unacked = new ArrayList<>();
+				acks.drainTo(unacked, PUBLISH_BATCH);
+			}
+		} catch (RuntimeException e) {
+			// Both are sent again with the next publish, the entries may then be stored twice
+			log.error("Failed to publish {} log entries and {} acks to Redis", unpublished.size(), unacked.size(), e);
+		}
+	}
+
+	/**
+	 * Takes over entries left pending too long by any consumer and refreshes the lag. Called periodically.
+	 */
+	@SuppressWarnings("unchecked")
+	void reclaim() {
+		try {
+			for (var priority : PRIORITIES) {
+				int i = priority.ordinal();
+				var reply = redis.execute(RECLAIM, List.of(keys[i]), options.group(), consumer.getName(),
+					String.valueOf(options.claimIdle().toMillis()), claimCursors[i],
+					String.valueOf(fetchCounts[i]));
+				if (reply != null && reply.size() >= 2) {
+					claimCursors[i] = (String) reply.get(0);
+					int claimed = 0;
+					for (var item : (List<Object>) reply.get(1)) {
+						// Entries deleted by trimming while pending come back empty
+						if (item instanceof List<?> record && record.size() == 2 && record.get(1) instanceof List<?> values
+							&& deliver(priority, RecordId.of((String) record.get(0)), fields((List<Object>) values))) {
+							claimed++;
+						}
+					}
+					if (claimed > 0) {
+						log.info("Reclaimed {} {} log entries left pending in {}", claimed, priority, keys[i]);
+					}
+				}
+
+				Long backlog = redis.execute(LAG, List.of(keys[i]), options.group());
+				synchronized (lag) {
+					lag[i] = backlog == null ? 0 : Math.max(backlog, 0);
+				}
+			}
+		} catch (RuntimeException e) {
+			log.error("Failed to reclaim pending log entries", e);
+		}
+	}
+
+	private static Map<byte[], byte[]> encode(LogEntry entry) {
+		var fields = new LinkedHashMap<byte[], byte[]>();
+		fields.put(OFFSET, bytes(Long.toString(entry.offset())));
+		if (entry.source() != null) {
+			fields.put(SOURCE, bytes(entry.source()));
+		}
+		if (entry.message() != null) {
+			fields.put(MESSAGE, bytes(entry.message()));
+		}
+		fields.put(CREATED, bytes(entry.creationTime().toString()));
+		if (entry.repeats() > 0) {
+			fields.put(REPEATS, bytes(Long.toString(entry.repeats())));
+			fields.put(LAST_CREATED, bytes(entry.lastCreationTime().toString()));
+		}
+		return fields;
+	}
+
+	private static LogEntry decode(Priority priority, Map<byte[], byte[]> fields) {
+		var values = new HashMap<String, String>();
+		fields.forEach((field, value) -> values.put(string(field), string(value)));
+		var lastCreated = values.get(string(LAST_CREATED));
+		return LogEntry.builder()
+			.offset(Long.parseLong(values.get(string(OFFSET))))
+			.priority(priority)
+			.source(values.get(string(SOURCE)))
+			.message(values.get(string(MESSAGE)))
+			.creationTime(Instant.parse(values.get(string(CREATED))))
+			.repeats(Long.parseLong(values.getOrDefault(string(REPEATS), "0")))
+			.lastCreationTime(lastCreated == null ? null : Instant.parse(lastCreated))
+			.build();
+	}
+
+	private static Map<byte[], byte[]> fields(List<Object> flat) {
+		var fields = new LinkedHashMap<byte[], byte[]>();
+		for (int i = 0; i + 1 < flat.size(); i += 2) {
+			fields.put(bytes((String) flat.get(i)), bytes((String) flat.get(i + 1)));
+		}
+		return fields;
+	}
+
+	private static void sleepQuietly(long nanos) {
+		try {
+			TimeUnit.NANOSECONDS.sleep(nanos);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static String string(byte[] value) {
+		return new String(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Where a delivered entry sits in the group's pending list.
+	 */
+	private record Delivery(Priority priority, RecordId id) {
+	}
+
+	/**
+	 * @param keyPrefix streams are named prefix:PRIORITY
+	 * @param group the consumer group shared by all nodes
+	 * @param consumer this node's name within the group, unique across the cluster
+	 * @param fetchPerWeight entries read per weight unit in a refill
+	 * @param maxBlock the longest a refill waits on the streams
+	 * @param claimIdle how long an entry may stay pending with one consumer before another takes it over
+	 * @param claimInterval how often pending entries are reclaimed
+	 * @param publishInterval how often the outbox and acks are sent
+	 * @param outboxCapacity entries buffered before producers wait
+	 * @param maxLength entries kept per stream, approximately; older ones are trimmed even if unread
+	 */
+	public record Options(
+		String keyPrefix,
+		String group,
+		String consumer,
+		int fetchPerWeight,
+		Duration maxBlock,
+		Duration claimIdle,
+		Duration claimInterval,
+		Duration publishInterval,
+		int outboxCapacity,
+		long maxLength
+	) {
+	}
+}
@@ -0,0 +1,144 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lock-free engine: one preallocated {@link LogRingBuffer} per {@link Priority}.
+ * <p>
+ * Priority is strict and coarse: consumers always drain the most important non-empty ring first, and there is no
+ * aging, so a sustained CRITICAL flood delays LOW entries indefinitely. Use it where throughput matters more than
+ * fine-grained ordering. Producers wait on a full ring and consumers on empty rings using the configured
+ * {@link WaitStrategy} instead of a lock and condition.
+ */
+public class RingBufferLogQueue implements LogQueue {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final int DEFAULT_CAPACITY_PER_PRIORITY = 1 << 14;
+
+	private final LogRingBuffer[] rings = new LogRingBuffer[PRIORITIES.length];
+	private final WaitStrategy waitStrategy;
+
+	public RingBufferLogQueue() {
+		this(DEFAULT_CAPACITY_PER_PRIORITY, WaitStrategy.PARK);
+	}
+
+	/**
+	 * @param capacityPerPriority slots per priority ring, rounded up to a power of two
+	 */
+	public RingBufferLogQueue(int capacityPerPriority, WaitStrategy waitStrategy) {
+		if (capacityPerPriority <= 0 || capacityPerPriority > 1 << 30) {
+			throw new IllegalArgumentException("capacityPerPriority must be in (0, 2^30], got %d".formatted(capacityPerPriority));
+		}
+
+		int capacity = Integer.highestOneBit(capacityPerPriority - 1) << 1;
+		for (int i = 0; i < rings.length; i++) {
+			rings[i] = new LogRingBuffer(Math.max(capacity, 1));
+		}
+		this.waitStrategy = waitStrategy;
+	}
+
+	/**
+	 * Waits with the {@link WaitStrategy} while the priority's ring is full.
+	 *
+	 * @return false only if the producer was interrupted while waiting, in which case the entry is not queued
+	 */
+	@Override
+	public boolean put(LogEntry entry) {
+		var ring = rings[entry.priority().ordinal()];
+		for (int attempt = 0; !ring.offer(entry); attempt++) {
+			if (Thread.currentThread().isInterrupted()) {
+				return false;
+			}
+			waitStrategy.idle(attempt);
+		}
+		return true;
+	}
+
+	@Override
+	public boolean offer(LogEntry entry) {
+		return rings[entry.priority().ordinal()].offer(entry);
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		for (int attempt = 0; ; attempt++) {
+			var entry = poll();
+			if (entry != null) {
+				return entry;
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			waitStrategy.idle(attempt);
+		}
+	}
+
+	@Override
+	public LogEntry poll() {
+		for (var ring : rings) {
+			var entry = ring.poll();
+			if (entry != null) {
+				return entry;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (int attempt = 0; ; attempt++) {
+			var entry = poll();
+			if (entry != null) {
+				return entry;
+			}
+			if (Thread.interrupted()) {
+				throw new InterruptedException();
+			}
+			if (System.nanoTime() - deadline >= 0) {
+				return null;
+			}
+			waitStrategy.idle(attempt);
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		int drained = 0;
+		for (var ring : rings) {
+			LogEntry entry;
+			while (drained < maxEntries && (entry = ring.poll()) != null) {
+				target.add(entry);
+				drained++;
+			}
+		}
+		return drained;
+	}
+
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		return rings[priority.ordinal()].poll();
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (var ring : rings) {
+			size += ring.size();
+		}
+		return size;
+	}
+
+	@Override
+	public int size(Priority priority) {
+		return rings[priority.ordinal()].size();
+	}
+
+	public int capacityPerPriority() {
+		return rings[0].capacity();
+	}
+}
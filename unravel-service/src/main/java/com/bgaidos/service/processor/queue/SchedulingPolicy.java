@@ -0,0 +1,41 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.Priority;
+
+/**
+ * Decides which {@link Priority} lane a lane-based engine ({@link MultiLevelLogQueue}, {@link CompactLogQueue} and
+ * the partitions of {@link PartitionedLogQueue}) serves next. Lanes are FIFO, so a policy only ever chooses between
+ * lane heads.
+ * <p>
+ * The engine calls {@link #select(LaneHeads, long)} exactly once per dequeued entry, with its lock held, so a policy
+ * may keep state without synchronization but must not be shared between engine instances.
+ */
+public interface SchedulingPolicy {
+
+	/**
+	 * Chooses the lane to dequeue from. Called only while at least one lane is non-empty.
+	 *
+	 * @param heads The current lane heads.
+	 * @param nowEpochMilli The engine's clock, read once per dequeue or drain.
+	 * @return A priority whose lane is non-empty.
+	 */
+	Priority select(LaneHeads heads, long nowEpochMilli);
+
+	/**
+	 * Read-only view of the head of every lane.
+	 */
+	interface LaneHeads {
+
+		boolean isEmpty(Priority priority);
+
+		/**
+		 * Only valid for a non-empty lane.
+		 */
+		long offset(Priority priority);
+
+		/**
+		 * Only valid for a non-empty lane.
+		 */
+		long creationEpochMilli(Priority priority);
+	}
+}
@@ -0,0 +1,46 @@
+package com.bgaidos.service.processor.queue;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * A cache-line padded counter, so the producer and consumer cursors of a ring buffer never share a cache line.
+ */
+class Sequence extends SequenceValue {
+
+	@SuppressWarnings("unused")
+	private long p9, p10, p11, p12, p13, p14, p15;
+
+	private static final VarHandle VALUE;
+
+	static {
+		try {
+			VALUE = MethodHandles.lookup().findVarHandle(SequenceValue.class, "value", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	Sequence(long initialValue) {
+		VALUE.setRelease(this, initialValue);
+	}
+
+	long get() {
+		return (long) VALUE.getVolatile(this);
+	}
+
+	boolean compareAndSet(long expected, long next) {
+		return VALUE.compareAndSet(this, expected, next);
+	}
+}
+
+class SequencePadding {
+
+	@SuppressWarnings("unused")
+	private long p1, p2, p3, p4, p5, p6, p7;
+}
+
+class SequenceValue extends SequencePadding {
+
+	protected volatile long value;
+}
@@ -0,0 +1,323 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.time.InstantSource;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Multi-level queue, like {@link MultiLevelLogQueue}, that isolates sources from each other within a priority.
+ * <p>
+ * Each {@link Priority} lane keeps one FIFO sub-queue per {@link LogEntry#source()} and serves its active sources
+ * round robin, one entry per turn, so a source flooding a lane delays the other sources of that lane by at most one
+ * entry per turn instead of by its whole backlog. The {@link SchedulingPolicy} chooses between lanes by looking at
+ * the entry each lane would serve next. Unattributed entries share one sub-queue.
+ * <p>
+ * A lane holds at most maxSources sub-queues, the {@value #OVERFLOW_SOURCE} one included; entries of further sources
+ * share that one until one of the others drains, and a source keeps sharing it while it still has entries there so
+ * its entries stay in order. A sub-queue is dropped as soon as it is empty, so the cap bounds concurrently active
+ * sources, not sources ever seen.
+ * <p>
+ * {@link #pollOldest(Priority)} sheds the oldest entry of the lane's largest sub-queue rather than of the whole
+ * lane, so overflow is paid for by the source causing it.
+ */
+public class SourceFairLogQueue implements LogQueue {
+
+	/**
+	 * The sub-queue, and metric tag, shared by sources beyond the cap.
+	 */
+	public static final String OVERFLOW_SOURCE = "_other";
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final int DEFAULT_MAX_SOURCES = 64;
+
+	private final Lane[] lanes = new Lane[PRIORITIES.length];
+	private final InstantSource clock;
+	private final SchedulingPolicy policy;
+	private final SchedulingPolicy.LaneHeads heads = new Heads();
+	private final int maxSources;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+
+	private int size;
+
+	public SourceFairLogQueue() {
+		this(DEFAULT_MAX_SOURCES, InstantSource.system(), new AgingPolicy());
+	}
+
+	/**
+	 * @param maxSources sub-queues per lane, the overflow sub-queue included
+	 * @param policy used by this queue only, see {@link SchedulingPolicy}
+	 */
+	public SourceFairLogQueue(int maxSources, InstantSource clock, SchedulingPolicy policy) {
+		if (maxSources <= 0) {
+			throw new IllegalArgumentException("maxSources must be positive, got %d".formatted(maxSources));
+		}
+
+		this.maxSources = maxSources;
+		this.clock = clock;
+		this.policy = policy;
+		for (int i = 0; i < lanes.length; i++) {
+			lanes[i] = new Lane();
+		}
+	}
+
+	@Override
+	public boolean put(LogEntry entry) {
+		lock.lock();
+		try {
+			lanes[entry.priority().ordinal()].add(entry, maxSources);
+			size++;
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				notEmpty.await();
+			}
+			return dequeue(clock.millis());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry poll() {
+		lock.lock();
+		try {
+			return size == 0 ? null : dequeue(clock.millis());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		long nanos = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (size == 0) {
+				if (nanos <= 0) {
+					return null;
+				}
+				nanos = notEmpty.awaitNanos(nanos);
+			}
+			return dequeue(clock.millis());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		lock.lock();
+		try {
+			long now = clock.millis();
+			int drained = 0;
+			while (size > 0 && drained < maxEntries) {
+				target.add(dequeue(now));
+				drained++;
+			}
+			return drained;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		lock.lock();
+		try {
+			var entry = lanes[priority.ordinal()].removeFromLargest();
+			if (entry != null) {
+				size--;
+			}
+			return entry;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.lock();
+		try {
+			return size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public int size(Priority priority) {
+		lock.lock();
+		try {
+			return lanes[priority.ordinal()].size;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @param source the source to count, null for unattributed entries
+	 * @return the entries of the source queued across all priorities, 0 for a source beyond the cap
+	 */
+	public int size(String source) {
+		lock.lock();
+		try {
+			int count = 0;
+			for (var lane : lanes) {
+				var sourceQueue = lane.bySource.get(source);
+				count += sourceQueue == null ? 0 : sourceQueue.entries.size();
+			}
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the sub-queues currently holding entries, across all priorities
+	 */
+	public int activeSources() {
+		lock.lock();
+		try {
+			int count = 0;
+			for (var lane : lanes) {
+				count += lane.bySource.size();
+			}
+			return count;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the next entry of the lane chosen by the policy. Must be called with the lock held and size > 0.
+	 */
+	private LogEntry dequeue(long nowEpochMilli) {
+		size--;
+		return lanes[policy.select(heads, nowEpochMilli).ordinal()].remove();
+	}
+
+	/**
+	 * One priority's sub-queues. Guarded by the queue lock.
+	 */
+	private static final class Lane {
+
+		// Keyed by source, the null key holding unattributed entries
+		private final Map<String, SourceQueue> bySource = new HashMap<>();
+		// Active sub-queues in service order, the head being served next
+		private final ArrayDeque<SourceQueue> turns = new ArrayDeque<>();
+		// Entries per source waiting in the overflow sub-queue
+		private final Map<String, Integer> overflowed = new HashMap<>();
+		private int size;
+
+		private void add(LogEntry entry, int maxSources) {
+			var source = entry.source();
+			var sourceQueue = bySource.get(source);
+			if (sourceQueue == null) {
+				var overflow = bySource.get(OVERFLOW_SOURCE);
+				int ownQueues = bySource.size() - (overflow == null ? 0 : 1);
+				// One slot stays reserved for the overflow sub-queue
+				if (ownQueues >= maxSources - 1 || overflowed.containsKey(source)) {
+					overflowed.merge(source, 1, Integer::sum);
+					source = OVERFLOW_SOURCE;
+					sourceQueue = overflow;
+				}
+				if (sourceQueue == null) {
+					sourceQueue = new SourceQueue(source);
+					bySource.put(source, sourceQueue);
+					turns.addLast(sourceQueue);
+				}
+			}
+			sourceQueue.entries.addLast(entry);
+			size++;
+		}
+
+		private LogEntry head() {
+			return turns.peekFirst().entries.peekFirst();
+		}
+
+		private LogEntry remove() {
+			var sourceQueue = turns.pollFirst();
+			var entry = sourceQueue.entries.pollFirst();
+			if (sourceQueue.entries.isEmpty()) {
+				bySource.remove(sourceQueue.source);
+			} else {
+				turns.addLast(sourceQueue);
+			}
+			removed(sourceQueue, entry);
+			return entry;
+		}
+
+		private LogEntry removeFromLargest() {
+			SourceQueue largest = null;
+			for (var sourceQueue : turns) {
+				if (largest == null || sourceQueue.entries.size() > largest.entries.size()) {
+					largest = sourceQueue;
+				}
+			}
+			if (largest == null) {
+				return null;
+			}
+
+			var entry = largest.entries.pollFirst();
+			if (largest.entries.isEmpty()) {
+				bySource.remove(largest.source);
+				turns.remove(largest);
+			}
+			removed(largest, entry);
+			return entry;
+		}
+
+		private void removed(SourceQueue sourceQueue, LogEntry entry) {
+			if (OVERFLOW_SOURCE.equals(sourceQueue.source)) {
+				overflowed.computeIfPresent(entry.source(), (source, count) -> count == 1 ? null : count - 1);
+			}
+			size--;
+		}
+	}
+
+	private record SourceQueue(String source, ArrayDeque<LogEntry> entries) {
+
+		private SourceQueue(String source) {
+			this(source, new ArrayDeque<>());
+		}
+	}
+
+	/**
+	 * Only read by the policy, with the lock held.
+	 */
+	private final class Heads implements SchedulingPolicy.LaneHeads {
+
+		@Override
+		public boolean isEmpty(Priority priority) {
+			return lanes[priority.ordinal()].size == 0;
+		}
+
+		@Override
+		public long offset(Priority priority) {
+			return lanes[priority.ordinal()].head().offset();
+		}
+
+		@Override
+		public long creationEpochMilli(Priority priority) {
+			return lanes[priority.ordinal()].head().creationTime().toEpochMilli();
+		}
+	}
+}
@@ -0,0 +1,518 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.storage.SegmentLog;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps at most a watermark of entries in the wrapped in-memory queue and spills the rest to disk,
+ * one {@link SegmentLog} per {@link Priority} lane.
+ * <p>
+ * Once a lane has entries on disk, new entries of that priority are appended behind them, so each lane stays FIFO.
+ * Entries are only ever {@link LogQueue#offer(LogEntry) offered} to the wrapped queue, so an engine whose priority
+ * lanes are bounded, like {@link RingBufferLogQueue} and {@link CompactLogQueue}, spills a full lane instead of
+ * blocking the producer. Whenever the in-memory queue drops below half the watermark, spilled entries are read back,
+ * most important lane first, until it is full again or their lane has no room. Heap use is therefore bounded by the
+ * watermark regardless of the backlog.
+ * <p>
+ * Spilled entries survive a restart: opening the queue on the same directory recovers every entry that was not
+ * consumed yet. Entries read back into memory stay on disk until they are taken from this queue, so a crash
+ * between the two recovers them again and they may be delivered twice. Entries that were never spilled are not
+ * persisted. A read back entry is recognized by identity when it is taken; a {@link FlyweightLogQueue} engine
+ * stores copies instead, so there it is recognized by its position in its FIFO priority lane. A spilled entry the
+ * wrapped queue rejects with an exception, such as a message larger than the compact arena, is logged and dropped.
+ * <p>
+ * Producers skip the spill lock while nothing is on disk, so concurrent producers can overshoot the watermark by
+ * at most one entry each before the first of them spills.
+ * <p>
+ * The {@link FlyweightLogQueue} methods are forwarded to the wrapped queue, which must support them; an entry that
+ * has to be spilled is built as a {@link LogEntry} to be written to disk.
+ */
+@Slf4j
+public class SpillingLogQueue implements FlyweightLogQueue {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	private final LogQueue delegate;
+	private final int highWatermark;
+	private final int lowWatermark;
+	// The engine stores copies, so refilled entries are tracked by their position in their lane
+	private final boolean copies;
+	private final SegmentLog[] lanes = new SegmentLog[PRIORITIES.length];
+	private final Refills[] refills = new Refills[PRIORITIES.length];
+	// Fetched from disk and waiting for room in their lane; still counted as spilled
+	private final LogEntry[] stalled = new LogEntry[PRIORITIES.length];
+	// Puts to the wrapped queue per priority, counted before and after they succeed, when it stores copies
+	private final AtomicLong[] putsStarted = new AtomicLong[PRIORITIES.length];
+	private final AtomicLong[] putsDone = new AtomicLong[PRIORITIES.length];
+	private final ReentrantLock spillLock = new ReentrantLock();
+	private final AtomicLong spilled = new AtomicLong();
+	// Entries read back into memory and not released from their lane yet
+	private final AtomicLong refilled = new AtomicLong();
+
+	public SpillingLogQueue(LogQueue delegate, Path directory, int highWatermark) {
+		this(delegate, directory, highWatermark, DEFAULT_SEGMENT_SIZE);
+	}
+
+	public SpillingLogQueue(LogQueue delegate, Path directory, int highWatermark, int segmentSize) {
+		if (highWatermark <= 0) {
+			throw new IllegalArgumentException("highWatermark must be positive, got %d".formatted(highWatermark));
+		}
+
+		this.delegate = delegate;
+		this.highWatermark = highWatermark;
+		this.lowWatermark = Math.max(1, highWatermark / 2);
+		this.copies = delegate instanceof FlyweightLogQueue;
+		long recovered = 0;
+		for (var priority : PRIORITIES) {
+			int lane = priority.ordinal();
+			lanes[lane] = new SegmentLog(directory.resolve(priority.name()), segmentSize);
+			refills[lane] = new Refills();
+			putsStarted[lane] = new AtomicLong();
+			putsDone[lane] = new AtomicLong();
+			recovered += lanes[lane].size();
+		}
+		spilled.set(recovered);
+		refill();
+	}
+
+	@Override
+	public boolean put(LogEntry entry) {
+		// Fast path: nothing on disk and room in memory, no need to coordinate with the spill lock
+		if (spilled.get() == 0 && delegate.size() < highWatermark && offerToMemory(entry)) {
+			return true;
+		}
+
+		spillLock.lock();
+		try {
+			if (onDisk(entry.priority()) == 0 && delegate.size() < highWatermark && offerToMemory(entry)) {
+				return true;
+			}
+
+			lanes[entry.priority().ordinal()].append(entry);
+			spilled.incrementAndGet();
+			refillLocked();
+			return true;
+		} finally {
+			spillLock.unlock();
+		}
+	}
+
+	@Override
+	public boolean put(long offset, Priority priority, long creationEpochNanos, CharSequence message) {
+		if (spilled.get() == 0 && delegate.size() < highWatermark
+			&& offerToMemory(offset, priority, creationEpochNanos, message)) {
+			return true;
+		}
+
+		return put(LogEntry.builder()
+			.offset(offset)
+			.message(message == null ? null : message.toString())
+			.priority(priority)
+			.creationTime(Instant.ofEpochSecond(0, creationEpochNanos))
+			.build());
+	}
+
+	@Override
+	public void take(CompactLogEntry target) throws InterruptedException {
+		FlyweightLogQueue.of(delegate).take(target);
+		releaseCopies();
+		refill();
+	}
+
+	@Override
+	public boolean poll(CompactLogEntry target, long timeout, TimeUnit unit) throws InterruptedException {
+		boolean polled = FlyweightLogQueue.of(delegate).poll(target, timeout, unit);
+		if (polled) {
+			releaseCopies();
+		}
+		refill();
+		return polled;
+	}
+
+	@Override
+	public LogEntry take() throws InterruptedException {
+		var entry = delegate.take();
+		consumed(entry);
+		refill();
+		return entry;
+	}
+
+	@Override
+	public LogEntry poll() {
+		var entry = delegate.poll();
+		consumed(entry);
+		refill();
+		return entry;
+	}
+
+	@Override
+	public LogEntry poll(long timeout, TimeUnit unit) throws InterruptedException {
+		var entry = delegate.poll(timeout, unit);
+		consumed(entry);
+		refill();
+		return entry;
+	}
+
+	@Override
+	public int drainTo(Collection<? super LogEntry> target, int maxEntries) {
+		int drained = drainFromMemory(target, maxEntries);
+		refill();
+		if (drained < maxEntries) {
+			drained += drainFromMemory(target, maxEntries - drained);
+			refill();
+		}
+		return drained;
+	}
+
+	/**
+	 * In-memory entries of a priority are always older than its spilled ones, so memory is tried first.
+	 */
+	@Override
+	public LogEntry pollOldest(Priority priority) {
+		var entry = delegate.pollOldest(priority);
+		if (entry != null) {
+			consumed(entry);
+			refill();
+			return entry;
+		}
+
+		spillLock.lock();
+		try {
+			int lane = priority.ordinal();
+			entry = stalled[lane] != null ? stalled[lane] : lanes[lane].fetch();
+			if (entry != null) {
+				stalled[lane] = null;
+				spilled.decrementAndGet();
+				// Shed straight from disk, released as soon as everything refilled before it is consumed
+				refills[lane].addConsumed();
+				refilled.incrementAndGet();
+				release(priority);
+			}
+			return entry;
+		} finally {
+			spillLock.unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		return (int) Math.min(Integer.MAX_VALUE, delegate.size() + spilled.get());
+	}
+
+	@Override
+	public int size(Priority priority) {
+		long onDisk;
+		spillLock.lock();
+		try {
+			onDisk = onDisk(priority);
+		} finally {
+			spillLock.unlock();
+		}
+		return (int) Math.min(Integer.MAX_VALUE, delegate.size(priority) + onDisk);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return spilled.get() == 0 && delegate.isEmpty();
+	}
+
+	/**
+	 * @return the number of entries currently on disk
+	 */
+	public long spilledCount() {
+		return spilled.get();
+	}
+
+	@Override
+	public LogQueue unwrap() {
+		return delegate.unwrap();
+	}
+
+	@Override
+	public void close() {
+		spillLock.lock();
+		try {
+			for (var lane : lanes) {
+				lane.close();
+			}
+		} finally {
+			spillLock.unlock();
+		}
+		delegate.close();
+	}
+
+	private void refill() {
+		if (spilled.get() > 0 && delegate.size() < lowWatermark) {
+			spillLock.lock();
+			try {
+				refillLocked();
+			} finally {
+				spillLock.unlock();
+			}
+		}
+	}
+
+	private void refillLocked() {
+		if (delegate.size() >= lowWatermark) {
+			return;
+		}
+
+		int room = highWatermark - delegate.size();
+		for (var priority : PRIORITIES) {
+			int lane = priority.ordinal();
+			while (room > 0) {
+				var entry = stalled[lane] != null ? stalled[lane] : lanes[lane].fetch();
+				if (entry == null) {
+					break;
+				}
+				stalled[lane] = null;
+				boolean queued;
+				try {
+					queued = refill(entry);
+				} catch (RuntimeException e) {
+					log.error("Dropping spilled log {} that the in-memory queue does not accept", entry.offset(), e);
+					spilled.decrementAndGet();
+					continue;
+				}
+				if (!queued) {
+					// The lane is full, its next entry waits for the next refill
+					stalled[lane] = entry;
+					break;
+				}
+				spilled.decrementAndGet();
+				room--;
+			}
+		}
+	}
+
+	/**
+	 * Offers an entry read back from disk to the wrapped queue and tracks it until it is consumed.
+	 *
+	 * @return false if its lane had no room, in which case the entry is not tracked
+	 * @throws RuntimeException if the wrapped queue rejects the entry, which then counts as consumed
+	 */
+	private boolean refill(LogEntry entry) {
+		var priority = entry.priority();
+		var tracked = refills[priority.ordinal()];
+		// Tracked before the offer, so a consumer can not take the entry before it is known
+		var refill = tracked.add(copies ? null : entry);
+		refilled.incrementAndGet();
+
+		boolean queued;
+		try {
+			queued = offerToMemory(entry);
+		} catch (RuntimeException e) {
+			// So the lane's cursor moves past it
+			tracked.unconsumed.remove(entry);
+			refill.consumed = true;
+			release(priority);
+			throw e;
+		}
+
+		if (!queued) {
+			tracked.removeLast(entry);
+			refilled.decrementAndGet();
+			return false;
+		}
+		if (copies) {
+			// Every put that is ahead of this one in the lane has started by now
+			refill.position = putsStarted[priority.ordinal()].get();
+		}
+		return true;
+	}
+
+	private boolean offerToMemory(LogEntry entry) {
+		if (!copies) {
+			return delegate.offer(entry);
+		}
+
+		int lane = entry.priority().ordinal();
+		putsStarted[lane].incrementAndGet();
+		boolean queued = false;
+		try {
+			queued = delegate.offer(entry);
+		} finally {
+			counted(lane, queued);
+		}
+		return queued;
+	}
+
+	private boolean offerToMemory(long offset, Priority priority, long creationEpochNanos, CharSequence message) {
+		int lane = priority.ordinal();
+		putsStarted[lane].incrementAndGet();
+		boolean queued = false;
+		try {
+			queued = FlyweightLogQueue.of(delegate).offer(offset, priority, creationEpochNanos, message);
+		} finally {
+			counted(lane, queued);
+		}
+		return queued;
+	}
+
+	private void counted(int lane, boolean queued) {
+		if (queued) {
+			putsDone[lane].incrementAndGet();
+		} else {
+			// Never reached the lane, so it is not ahead of anything
+			putsStarted[lane].decrementAndGet();
+		}
+	}
+
+	/**
+	 * Must be called with the spill lock held.
+	 */
+	private long onDisk(Priority priority) {
+		int lane = priority.ordinal();
+		return lanes[lane].size() + (stalled[lane] == null ? 0 : 1);
+	}
+
+	private int drainFromMemory(Collection<? super LogEntry> target, int maxEntries) {
+		if (copies || refilled.get() == 0) {
+			int drained = delegate.drainTo(target, maxEntries);
+			releaseCopies();
+			return drained;
+		}
+
+		var drained = new ArrayList<LogEntry>(Math.min(maxEntries, highWatermark));
+		int count = delegate.drainTo(drained, maxEntries);
+		for (var entry : drained) {
+			consumed(entry);
+		}
+		target.addAll(drained);
+		return count;
+	}
+
+	/**
+	 * Releases a refilled entry from its lane once it and every entry refilled before it have been consumed, so the
+	 * cursor on disk never moves past an entry that is still only in memory.
+	 */
+	private void consumed(LogEntry entry) {
+		// Nothing was read back from disk, which keeps the lock off the in-memory path
+		if (entry == null || refilled.get() == 0) {
+			return;
+		}
+		if (copies) {
+			releaseCopies();
+			return;
+		}
+
+		spillLock.lock();
+		try {
+			var refill = refills[entry.priority().ordinal()].unconsumed.remove(entry);
+			if (refill != null) {
+				refill.consumed = true;
+				release(entry.priority());
+			}
+		} finally {
+			spillLock.unlock();
+		}
+	}
+
+	/**
+	 * Releases the refilled entries that have left their lane of a wrapped queue that stores copies.
+	 */
+	private void releaseCopies() {
+		if (!copies || refilled.get() == 0) {
+			return;
+		}
+
+		spillLock.lock();
+		try {
+			for (var priority : PRIORITIES) {
+				if (!refills[priority.ordinal()].fetched.isEmpty()) {
+					release(priority);
+				}
+			}
+		} finally {
+			spillLock.unlock();
+		}
+	}
+
+	/**
+	 * Must be called with the spill lock held.
+	 */
+	private void release(Priority priority) {
+		int lane = priority.ordinal();
+		long taken = Long.MIN_VALUE;
+		if (copies) {
+			// A lower bound of the entries taken from the lane, as the counter is read before the size
+			long done = putsDone[lane].get();
+			taken = done - delegate.size(priority);
+		}
+
+		int released = refills[lane].removeConsumed(taken);
+		if (released > 0) {
+			lanes[lane].release(released);
+			refilled.addAndGet(-released);
+		}
+	}
+
+	/**
+	 * The entries of a lane that were read back into memory, in the order they were fetched from disk. Guarded by
+	 * the spill lock.
+	 */
+	private static final class Refills {
+
+		private final ArrayDeque<Refill> fetched = new ArrayDeque<>();
+		// Keyed by identity, as offsets are not unique
+		private final Map<LogEntry, Refill> unconsumed = new IdentityHashMap<>();
+
+		/**
+		 * @param entry the entry to recognize when it is taken, null if it is tracked by position
+		 */
+		Refill add(LogEntry entry) {
+			var refill = new Refill();
+			fetched.add(refill);
+			if (entry != null) {
+				unconsumed.put(entry, refill);
+			}
+			return refill;
+		}
+
+		void addConsumed() {
+			var refill = new Refill();
+			refill.consumed = true;
+			fetched.add(refill);
+		}
+
+		void removeLast(LogEntry entry) {
+			fetched.removeLast();
+			unconsumed.remove(entry);
+		}
+
+		/**
+		 * @param taken how many entries have certainly been taken from a lane tracked by position
+		 * @return the number of consumed entries removed from the head
+		 */
+		int removeConsumed(long taken) {
+			int removed = 0;
+			while (!fetched.isEmpty() && (fetched.peek().consumed || fetched.peek().position <= taken)) {
+				fetched.poll();
+				removed++;
+			}
+			return removed;
+		}
+	}
+
+	private static final class Refill {
+
+		private boolean consumed;
+		// The number of entries that must leave the lane before this one has, when tracked by position
+		private long position = Long.MAX_VALUE;
+	}
+}
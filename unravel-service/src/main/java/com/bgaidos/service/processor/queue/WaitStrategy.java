@@ -0,0 +1,61 @@
+package com.bgaidos.service.processor.queue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * How a thread waits on a lock-free queue that is empty (consumers) or full (producers).
+ * Trades CPU burn for wake-up latency.
+ */
+public enum WaitStrategy {
+	/**
+	 * Spins on the CPU. Lowest latency, burns one core per waiting thread.
+	 */
+	BUSY_SPIN {
+		@Override
+		public void idle(int attempt) {
+			Thread.onSpinWait();
+		}
+	},
+	/**
+	 * Spins briefly, then yields the CPU to other runnable threads.
+	 */
+	YIELD {
+		@Override
+		public void idle(int attempt) {
+			if (attempt < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else {
+				Thread.yield();
+			}
+		}
+	},
+	/**
+	 * Spins, yields, then parks with a back-off capped at {@value #MAX_PARK_MICROS} microseconds.
+	 * Idle threads cost almost nothing, at the price of up to that much extra latency.
+	 */
+	PARK {
+		@Override
+		public void idle(int attempt) {
+			if (attempt < SPIN_TRIES) {
+				Thread.onSpinWait();
+			} else if (attempt < SPIN_TRIES + YIELD_TRIES) {
+				Thread.yield();
+			} else {
+				int parkRound = Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 10);
+				LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(Math.min(1L << parkRound, MAX_PARK_MICROS)));
+			}
+		}
+	};
+
+	private static final int SPIN_TRIES = 100;
+	private static final int YIELD_TRIES = 100;
+	private static final long MAX_PARK_MICROS = 1_000;
+
+	/**
+	 * Waits once before the caller retries.
+	 *
+	 * @param attempt How many consecutive times the caller has already waited, starting at 0.
+	 */
+	public abstract void idle(int attempt);
+}
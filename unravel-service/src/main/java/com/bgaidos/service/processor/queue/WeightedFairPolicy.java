@@ -0,0 +1,73 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.Priority;
+
+import java.util.Map;
+
+/**
+ * Deficit round robin over the priority lanes. Each visit to a lane grants it its weight in credit, and every entry
+ * served costs one credit, so under saturation the lanes get throughput in proportion to their weights (8:4:2:1 for
+ * CRITICAL:HIGH:MEDIUM:LOW by default) and no lane waits more than one round. An empty lane loses its credit, so an
+ * idle class can not save up a burst.
+ */
+public class WeightedFairPolicy implements SchedulingPolicy {
+
+	public static final Map<Priority, Integer> DEFAULT_WEIGHTS = Map.of(
+		Priority.CRITICAL, 8,
+		Priority.HIGH, 4,
+		Priority.MEDIUM, 2,
+		Priority.LOW, 1
+	);
+
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	private final int[] weights = new int[PRIORITIES.length];
+	private final int[] deficits = new int[PRIORITIES.length];
+	private int current;
+	private boolean freshVisit = true;
+
+	public WeightedFairPolicy() {
+		this(DEFAULT_WEIGHTS);
+	}
+
+	/**
+	 * @param weights the weight of every priority, each at least 1
+	 */
+	public WeightedFairPolicy(Map<Priority, Integer> weights) {
+		for (var priority : PRIORITIES) {
+			var weight = weights.get(priority);
+			if (weight == null || weight < 1) {
+				throw new IllegalArgumentException("Weight of %s must be at least 1, got %s".formatted(priority, weight));
+			}
+			this.weights[priority.ordinal()] = weight;
+		}
+	}
+
+	@Override
+	public Priority select(LaneHeads heads, long nowEpochMilli) {
+		// Terminates within one round: some lane is non-empty and every weight grants at least one credit
+		while (true) {
+			var priority = PRIORITIES[current];
+			if (heads.isEmpty(priority)) {
+				deficits[current] = 0;
+				nextLane();
+				continue;
+			}
+
+			if (freshVisit) {
+				deficits[current] += weights[current];
+				freshVisit = false;
+			}
+			if (deficits[current] > 0) {
+				deficits[current]--;
+				return priority;
+			}
+			nextLane();
+		}
+	}
+
+	private void nextLane() {
+		current = (current + 1) % PRIORITIES.length;
+		freshVisit = true;
+	}
+}
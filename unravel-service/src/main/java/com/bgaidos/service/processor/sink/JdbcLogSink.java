@@ -0,0 +1,340 @@
+package com.bgaidos.service.processor.sink;
+
+import com.bgaidos.exceptions.LogSinkException;
+import com.bgaidos.service.processor.LogBatchHandler;
+import com.bgaidos.service.processor.model.LogEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * Batch handler that persists consumed log entries to a MySQL table, group-committing the batches of concurrent
+ * consumers.
+ * <p>
+ * Batches handed to the sink join the current group, which is written once it holds flushSize entries, by the
+ * consumer that filled it, or after the flush interval, by a daemon thread. Each group is one transaction of
+ * multi-row {@code INSERT} statements, the form {@code rewriteBatchedStatements} makes the driver send, built here
+ * so that it does not depend on the connection URL. {@link #handle(List)} returns once the group holding the batch
+ * is committed and throws a {@link LogSinkException} if it could not be, so with at-least-once delivery an entry is
+ * only acked once it is stored.
+ * <p>
+ * At most maxInFlight groups are written at once, each holding one pooled connection, so the sink never takes more
+ * than its share of the connection pool however many consumers feed it. Transient failures, such as lost connections,
+ * deadlocks and lock wait timeouts, are retried with exponential backoff; a retried group may be stored twice if a
+ * commit succeeded but its acknowledgement was lost.
+ * <p>
+ * The table is created on the first write if it does not exist. Meters: {@code log.sink.rows},
+ * {@code log.sink.flush} (time to write a group), {@code log.sink.retries} and {@code log.sink.failures}.
+ */
+@Slf4j
+public class JdbcLogSink implements LogBatchHandler, AutoCloseable {
+
+	private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+	private static final String COLUMNS = "log_offset, priority, source, message, created_at, repeats, last_created_at";
+	private static final int COLUMN_COUNT = 7;
+	// MySQL caps the placeholders of a prepared statement at 65535
+	static final int MAX_ROWS_PER_STATEMENT = 65_535 / COLUMN_COUNT;
+
+	private final DataSource dataSource;
+	private final String table;
+	private final int flushSize;
+	private final int maxAttempts;
+	private final Duration retryBackoff;
+	private final int rowsPerStatement;
+	private final String fullStatement;
+	private final Semaphore inFlight;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final ScheduledExecutorService flusher;
+	private final Counter rows;
+	private final Timer flushTime;
+	private final Counter retries;
+	private final Counter failures;
+
+	// Guarded by lock
+	private Group current = new Group();
+	private volatile boolean tableReady;
+	private volatile boolean closed;
+
+	/**
+	 * @param table created on the first write if missing
+	 * @param flushSize entries that make a group be written straight away
+	 * @param flushInterval how long a group waits for more entries before it is written anyway
+	 * @param maxInFlight groups written at once, each holding a pooled connection
+	 * @param maxAttempts attempts per group, including the first, when failures are transient
+	 * @param retryBackoff the wait before the first retry, doubled for every further one
+	 */
+	public JdbcLogSink(DataSource dataSource, String table, int flushSize, Duration flushInterval, int maxInFlight,
+		int maxAttempts, Duration retryBackoff, MeterRegistry registry) {
+		if (!IDENTIFIER.matcher(table).matches()) {
+			throw new IllegalArgumentException("Invalid table name %s".formatted(table));
+		}
+		if (flushSize <= 0) {
+			throw new IllegalArgumentException("flushSize must be positive, got %d".formatted(flushSize));
+		}
+		if (maxInFlight <= 0) {
+			throw new IllegalArgumentException("maxInFlight must be positive, got %d".formatted(maxInFlight));
+		}
+		if (maxAttempts <= 0) {
+			throw new IllegalArgumentException("maxAttempts must be positive, got %d".formatted(maxAttempts));
+		}
+
+		this.dataSource = dataSource;
+		this.table = table;
+		this.flushSize = flushSize;
+		this.maxAttempts = maxAttempts;
+		this.retryBackoff = retryBackoff;
+		this.rowsPerStatement = Math.min(flushSize, MAX_ROWS_PER_STATEMENT);
+		this.fullStatement = insertStatement(rowsPerStatement);
+		this.inFlight = new Semaphore(maxInFlight);
+
+		this.rows = Counter.builder("log.sink.rows")
+			.description("Log entries stored by the sink")
+			.register(registry);
+		this.flushTime = Timer.builder("log.sink.flush")
+			.description("Time to write one group of log entries, retries included")
+			.publishPercentileHistogram()
+			.register(registry);
+		this.retries = Counter.builder("log.sink.retries")
+			.description("Group writes retried after a transient failure")
+			.register(registry);
+		this.failures = Counter.builder("log.sink.failures")
+			.description("Groups of log entries that could not be stored")
+			.register(registry);
+
+		this.flusher = Executors.newSingleThreadScheduledExecutor(
+			Thread.ofPlatform().name("log-sink-flusher").daemon().factory());
+		long intervalMillis = Math.max(flushInterval.toMillis(), 1);
+		flusher.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Adds the batch to the current group and waits until that group is committed.
+	 *
+	 * @throws LogSinkException if the group could not be stored
+	 */
+	@Override
+	public void handle(List<LogEntry> batch) {
+		if (batch.isEmpty()) {
+			return;
+		}
+
+		Group group;
+		boolean full;
+		lock.lock();
+		try {
+			group = current;
+			group.entries.addAll(batch);
+			// Once closed nothing flushes periodically any more
+			full = group.entries.size() >= flushSize || closed;
+			if (full) {
+				current = new Group();
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		if (full) {
+			write(group);
+		}
+		try {
+			group.written.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LogSinkException("Interrupted while storing %d logs".formatted(batch.size()), e);
+		} catch (ExecutionException e) {
+			throw new LogSinkException("Failed to store %d logs".formatted(batch.size()), e.getCause());
+		}
+	}
+
+	/**
+	 * Writes the current group, whatever its size. Called periodically by the sink itself.
+	 */
+	public void flush() {
+		Group group;
+		lock.lock();
+		try {
+			if (current.entries.isEmpty()) {
+				return;
+			}
+			group = current;
+			current = new Group();
+		} finally {
+			lock.unlock();
+		}
+		write(group);
+	}
+
+	/**
+	 * Stops the periodic flush and writes the entries still waiting.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		flusher.shutdownNow();
+		flush();
+	}
+
+	private void write(Group group) {
+		try {
+			inFlight.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			group.written.completeExceptionally(e);
+			return;
+		}
+
+		long start = System.nanoTime();
+		try {
+			writeWithRetries(group.entries);
+			rows.increment(group.entries.size());
+			group.written.complete(null);
+		} catch (SQLException | RuntimeException e) {
+			failures.increment();
+			log.error("Failed to store {} logs in {}", group.entries.size(), table, e);
+			group.written.completeExceptionally(e);
+		} finally {
+			inFlight.release();
+			flushTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void writeWithRetries(List<LogEntry> entries) throws SQLException {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				insert(entries);
+				return;
+			} catch (SQLException e) {
+				if (attempt >= maxAttempts || !isTransient(e)) {
+					throw e;
+				}
+				retries.increment();
+				var backoff = retryBackoff.multipliedBy(1L << (attempt - 1));
+				log.warn("Storing {} logs failed transiently, retrying in {}: {}", entries.size(), backoff, e.getMessage());
+				try {
+					Thread.sleep(backoff);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+
+	private void insert(List<LogEntry> entries) throws SQLException {
+		try (var connection = dataSource.getConnection()) {
+			if (!tableReady) {
+				createTable(connection);
+			}
+
+			connection.setAutoCommit(false);
+			try {
+				for (int from = 0; from < entries.size(); from += rowsPerStatement) {
+					int to = Math.min(from + rowsPerStatement, entries.size());
+					var sql = to - from == rowsPerStatement ? fullStatement : insertStatement(to - from);
+					try (var statement = connection.prepareStatement(sql)) {
+						bind(statement, entries.subList(from, to));
+						statement.executeUpdate();
+					}
+				}
+				connection.commit();
+			} catch (SQLException | RuntimeException e) {
+				try {
+					connection.rollback();
+				} catch (SQLException rollbackFailure) {
+					e.addSuppressed(rollbackFailure);
+				}
+				throw e;
+			}
+		}
+	}
+
+	private void createTable(Connection connection) throws SQLException {
+		try (var statement = connection.createStatement()) {
+			statement.execute("""
+				CREATE TABLE IF NOT EXISTS %s (
+					id BIGINT AUTO_INCREMENT PRIMARY KEY,
+					log_offset BIGINT NOT NULL,
+					priority VARCHAR(8) NOT NULL,
+					source VARCHAR(255) NULL,
+					message TEXT NULL,
+					created_at DATETIME(6) NOT NULL,
+					repeats BIGINT NOT NULL,
+					last_created_at DATETIME(6) NULL,
+					INDEX idx_%s_created_at (created_at)
+				)""".formatted(table, table));
+		}
+		tableReady = true;
+	}
+
+	private String insertStatement(int rowCount) {
+		var sql = new StringBuilder(64 + rowCount * (COLUMN_COUNT * 3 + 2))
+			.append("INSERT INTO ").append(table).append(" (").append(COLUMNS).append(") VALUES ");
+		var row = "(?" + ", ?".repeat(COLUMN_COUNT - 1) + ")";
+		for (int i = 0; i < rowCount; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(row);
+		}
+		return sql.toString();
+	}
+
+	private static void bind(PreparedStatement statement, List<LogEntry> entries) throws SQLException {
+		int index = 1;
+		for (var entry : entries) {
+			statement.setLong(index++, entry.offset());
+			statement.setString(index++, entry.priority().name());
+			statement.setString(index++, entry.source());
+			statement.setString(index++, entry.message());
+			statement.setTimestamp(index++, Timestamp.from(entry.creationTime()));
+			statement.setLong(index++, entry.repeats());
+			if (entry.lastCreationTime() == null) {
+				statement.setNull(index++, Types.TIMESTAMP);
+			} else {
+				statement.setTimestamp(index++, Timestamp.from(entry.lastCreationTime()));
+			}
+		}
+	}
+
+	/**
+	 * Lost connections (SQL state class 08), transaction rollbacks such as deadlocks (class 40) and lock wait
+	 * timeouts (MySQL error 1205) are worth retrying; anything else would fail the same way again.
+	 */
+	private static boolean isTransient(SQLException e) {
+		var state = e.getSQLState();
+		return e instanceof SQLTransientException
+			|| e instanceof SQLRecoverableException
+			|| state != null && (state.startsWith("08") || state.startsWith("40"))
+			|| e.getErrorCode() == 1205;
+	}
+
+	/**
+	 * Entries written in one transaction, and the outcome their producers wait for.
+	 */
+	private static final class Group {
+
+		private final List<LogEntry> entries = new ArrayList<>();
+		private final CompletableFuture<Void> written = new CompletableFuture<>();
+	}
+}
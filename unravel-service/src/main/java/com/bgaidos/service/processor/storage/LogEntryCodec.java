@@ -0,0 +1,150 @@
+package com.bgaidos.service.processor.storage;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary layout of a {@link LogEntry} on disk:
+ * <pre>
+ * int   payload length
+ * int   CRC32C of the payload
+ * long  offset
+ * long  creation time, epoch seconds
+ * int   creation time, nanos
+ * byte  priority ordinal
+ * long  repeats
+ * long  last creation time, epoch seconds, 0 without repeats
+ * int   last creation time, nanos, 0 without repeats
+ * int   source length in bytes, -1 for null
+ * byte[] UTF-8 source
+ * int   message length in bytes, -1 for null
+ * byte[] UTF-8 message
+ * </pre>
+ * A zero payload length marks the end of the written data, since segment files are zero-filled when mapped.
+ */
+final class LogEntryCodec {
+
+	static final int HEADER_BYTES = Integer.BYTES * 2;
+	private static final int FIXED_PAYLOAD_BYTES = Long.BYTES * 4 + Integer.BYTES * 4 + Byte.BYTES;
+	private static final Priority[] PRIORITIES = Priority.values();
+
+	private LogEntryCodec() {
+	}
+
+	static byte[] encode(String value) {
+		return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	static int recordSize(byte[] source, byte[] message) {
+		return HEADER_BYTES + payloadSize(source, message);
+	}
+
+	/**
+	 * Writes the record at the buffer's position and advances it.
+	 */
+	static void write(ByteBuffer buffer, LogEntry entry, byte[] source, byte[] message) {
+		int start = buffer.position();
+		int payloadSize = payloadSize(source, message);
+
+		buffer.position(start + HEADER_BYTES);
+		buffer.putLong(entry.offset());
+		buffer.putLong(entry.creationTime().getEpochSecond());
+		buffer.putInt(entry.creationTime().getNano());
+		buffer.put((byte) entry.priority().ordinal());
+		buffer.putLong(entry.repeats());
+		var last = entry.lastCreationTime();
+		buffer.putLong(last == null ? 0 : last.getEpochSecond());
+		buffer.putInt(last == null ? 0 : last.getNano());
+		putBytes(buffer, source);
+		putBytes(buffer, message);
+
+		int end = buffer.position();
+		buffer.putInt(start + Integer.BYTES, checksum(buffer, start + HEADER_BYTES, payloadSize));
+		// The length goes last, so a record only becomes visible once it is complete
+		buffer.putInt(start, payloadSize);
+		buffer.position(end);
+	}
+
+	/**
+	 * @return true if a complete, uncorrupted record starts at the buffer's position
+	 */
+	static boolean hasRecord(ByteBuffer buffer) {
+		int start = buffer.position();
+		if (buffer.limit() - start < HEADER_BYTES) {
+			return false;
+		}
+
+		int payloadSize = buffer.getInt(start);
+		if (payloadSize < FIXED_PAYLOAD_BYTES || payloadSize > buffer.limit() - start - HEADER_BYTES) {
+			return false;
+		}
+		return buffer.getInt(start + Integer.BYTES) == checksum(buffer, start + HEADER_BYTES, payloadSize);
+	}
+
+	/**
+	 * Reads the record at the buffer's position, which must have been checked with {@link #hasRecord(ByteBuffer)}.
+	 */
+	static LogEntry read(ByteBuffer buffer) {
+		buffer.position(buffer.position() + HEADER_BYTES);
+		long offset = buffer.getLong();
+		long epochSecond = buffer.getLong();
+		int nanos = buffer.getInt();
+		var priority = PRIORITIES[buffer.get()];
+		long repeats = buffer.getLong();
+		long lastEpochSecond = buffer.getLong();
+		int lastNanos = buffer.getInt();
+		var source = getString(buffer);
+		var message = getString(buffer);
+
+		return LogEntry.builder()
+			.offset(offset)
+			.message(message)
+			.priority(priority)
+			.creationTime(Instant.ofEpochSecond(epochSecond, nanos))
+			.source(source)
+			.repeats(repeats)
+			.lastCreationTime(repeats == 0 ? null : Instant.ofEpochSecond(lastEpochSecond, lastNanos))
+			.build();
+	}
+
+	/**
+	 * Advances the buffer past the record at its position without decoding it.
+	 */
+	static void skip(ByteBuffer buffer) {
+		buffer.position(buffer.position() + HEADER_BYTES + buffer.getInt(buffer.position()));
+	}
+
+	private static int payloadSize(byte[] source, byte[] message) {
+		return FIXED_PAYLOAD_BYTES + (source == null ? 0 : source.length) + (message == null ? 0 : message.length);
+	}
+
+	private static void putBytes(ByteBuffer buffer, byte[] bytes) {
+		if (bytes == null) {
+			buffer.putInt(-1);
+		} else {
+			buffer.putInt(bytes.length);
+			buffer.put(bytes);
+		}
+	}
+
+	private static String getString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+		if (length < 0) {
+			return null;
+		}
+		var bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int checksum(ByteBuffer buffer, int from, int length) {
+		var crc = new CRC32C();
+		crc.update(buffer.slice(from, length));
+		return (int) crc.getValue();
+	}
+}
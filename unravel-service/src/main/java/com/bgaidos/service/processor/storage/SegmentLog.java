@@ -0,0 +1,356 @@
+package com.bgaidos.service.processor.storage;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append-only FIFO log of {@link LogEntry} records stored in fixed-size, memory-mapped segment files.
+ * <p>
+ * Records are appended to the newest segment and read back from the oldest one; a segment file is deleted once
+ * it has been fully read. The read position is kept in a small memory-mapped cursor file, so after a restart the
+ * log resumes with the first record that was not read yet. The cursor also counts the records read so far, which
+ * numbers every record by its position in the log independently of its contents. Only the segments being written,
+ * read and fetched are mapped at any time, so heap and address space use do not grow with the backlog.
+ * <p>
+ * Records can also be {@link #fetch() fetched} ahead of the read position and {@link #release(long) released} once
+ * the caller is done with them, so that fetched records are recovered after a restart until they are released.
+ * <p>
+ * Not thread-safe: callers must serialize access.
+ */
+@Slf4j
+public final class SegmentLog implements AutoCloseable {
+
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final String CURSOR_FILE = "cursor";
+	private static final int CURSOR_BYTES = Long.BYTES * 3;
+
+	private final Path directory;
+	private final int segmentSize;
+	private final MappedByteBuffer cursor;
+
+	private long writeSegment;
+	private MappedByteBuffer writeBuffer;
+	private long readSegment;
+	private MappedByteBuffer readBuffer;
+	// Ahead of the read position by the fetched records
+	private long fetchSegment;
+	private ByteBuffer fetchBuffer;
+	private long fetched;
+	private long pending;
+	private long readIndex;
+
+	/**
+	 * Opens the log in the given directory, recovering any segments left by a previous run.
+	 *
+	 * @param segmentSize the size of each segment file, which also bounds the size of a single record
+	 */
+	public SegmentLog(Path directory, int segmentSize) {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		try {
+			Files.createDirectories(directory);
+			this.cursor = map(directory.resolve(CURSOR_FILE), CURSOR_BYTES);
+			recover();
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to open segment log in %s".formatted(directory), e);
+		}
+	}
+
+	public void append(LogEntry entry) {
+		var source = LogEntryCodec.encode(entry.source());
+		var message = LogEntryCodec.encode(entry.message());
+		int recordSize = LogEntryCodec.recordSize(source, message);
+		if (recordSize > segmentSize) {
+			throw new IllegalArgumentException("Log %d needs %d bytes, more than the segment size %d"
+				.formatted(entry.offset(), recordSize, segmentSize));
+		}
+
+		if (writeBuffer.remaining() < recordSize) {
+			writeBuffer = mapSegment(++writeSegment);
+		}
+		LogEntryCodec.write(writeBuffer, entry, source, message);
+		pending++;
+	}
+
+	/**
+	 * @return the oldest unread entry, or null if everything has been read
+	 * @throws IllegalStateException if records are fetched and not released
+	 */
+	public LogEntry read() {
+		requireNothingFetched();
+		if (pending == 0) {
+			return null;
+		}
+
+		while (!LogEntryCodec.hasRecord(readBuffer)) {
+			if (readSegment >= writeSegment) {
+				// pending says there is a record, so the write segment can not be exhausted
+				throw new IllegalStateException("Segment log %s lost track of %d records".formatted(directory, pending));
+			}
+			advanceReadSegment();
+		}
+
+		var entry = LogEntryCodec.read(readBuffer);
+		pending--;
+		readIndex++;
+		saveCursor();
+		resetFetch();
+		return entry;
+	}
+
+	/**
+	 * Moves the read position past the next count records without decoding them.
+	 *
+	 * @throws IllegalStateException if records are fetched and not released
+	 */
+	public void skip(long count) {
+		requireNothingFetched();
+		if (count < 0 || count > pending) {
+			throw new IllegalArgumentException("Can not skip %d of %d records".formatted(count, pending));
+		}
+
+		advanceRead(count);
+		resetFetch();
+	}
+
+	/**
+	 * Reads the oldest record not fetched yet without moving the read position, so it is recovered after a restart
+	 * until it is released.
+	 *
+	 * @return the entry, or null if every record has been fetched
+	 */
+	public LogEntry fetch() {
+		if (fetched == pending) {
+			return null;
+		}
+
+		while (!LogEntryCodec.hasRecord(fetchBuffer)) {
+			if (fetchSegment >= writeSegment) {
+				throw new IllegalStateException("Segment log %s lost track of %d records".formatted(directory, pending - fetched));
+			}
+			fetchBuffer = mapSegment(++fetchSegment);
+		}
+		fetched++;
+		return LogEntryCodec.read(fetchBuffer);
+	}
+
+	/**
+	 * Moves the read position past the count oldest fetched records, which are then gone for good.
+	 */
+	public void release(long count) {
+		if (count < 0 || count > fetched) {
+			throw new IllegalArgumentException("Can not release %d of %d fetched records".formatted(count, fetched));
+		}
+
+		advanceRead(count);
+		fetched -= count;
+	}
+
+	/**
+	 * @return the number of records fetched and not released yet
+	 */
+	public long fetchedCount() {
+		return fetched;
+	}
+
+	/**
+	 * Iterates over the records not read yet, without moving the read position. The iterator covers the records
+	 * appended before this call and maps the segments it needs itself, so it may be used from another thread while
+	 * the log keeps being appended to, as long as the records it has not returned yet are not skipped or read.
+	 */
+	public Iterator<LogEntry> unread() {
+		long total = pending;
+		long lastSegment = writeSegment;
+		long firstSegment = readSegment;
+		var firstBuffer = readBuffer.duplicate();
+		return new Iterator<>() {
+
+			private long remaining = total;
+			private long segment = firstSegment;
+			private ByteBuffer buffer = firstBuffer;
+
+			@Override
+			public boolean hasNext() {
+				return remaining > 0;
+			}
+
+			@Override
+			public LogEntry next() {
+				if (remaining == 0) {
+					throw new NoSuchElementException();
+				}
+				while (!LogEntryCodec.hasRecord(buffer)) {
+					if (segment >= lastSegment) {
+						throw new IllegalStateException("Segment log %s lost track of %d records".formatted(directory, remaining));
+					}
+					buffer = mapSegment(++segment);
+				}
+				remaining--;
+				return LogEntryCodec.read(buffer);
+			}
+		};
+	}
+
+	/**
+	 * @return the number of appended records not read or fetched yet
+	 */
+	public long size() {
+		return pending - fetched;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @return the number of records read or skipped since the log was created, which is the position of the oldest
+	 * unread record; the record appended next gets position {@code readIndex() + size()}
+	 */
+	public long readIndex() {
+		return readIndex;
+	}
+
+	@Override
+	public void close() {
+		writeBuffer.force();
+		cursor.force();
+	}
+
+	private void recover() throws IOException {
+		var segments = listSegments();
+		long cursorSegment = cursor.getLong(0);
+		int cursorPosition = (int) cursor.getLong(Long.BYTES);
+		readIndex = cursor.getLong(Long.BYTES * 2);
+
+		if (segments.isEmpty()) {
+			readSegment = writeSegment = cursorSegment;
+			writeBuffer = mapSegment(writeSegment);
+			readBuffer = mapSegment(readSegment);
+			readBuffer.position(0);
+			saveCursor();
+			resetFetch();
+			return;
+		}
+
+		readSegment = Math.max(cursorSegment, segments.getFirst());
+		if (readSegment != cursorSegment) {
+			cursorPosition = 0;
+		}
+		writeSegment = Math.max(readSegment, segments.getLast());
+		for (long segment : segments) {
+			if (segment < readSegment) {
+				Files.deleteIfExists(segmentPath(segment));
+			}
+		}
+
+		readBuffer = mapSegment(readSegment);
+		readBuffer.position(cursorPosition);
+
+		// Count what is left to read and find where the last complete record of the write segment ends
+		pending = 0;
+		var scan = readBuffer.duplicate();
+		for (long segment = readSegment; ; segment++) {
+			while (LogEntryCodec.hasRecord(scan)) {
+				LogEntryCodec.skip(scan);
+				pending++;
+			}
+			if (segment >= writeSegment) {
+				break;
+			}
+			scan = mapSegment(segment + 1);
+		}
+		writeBuffer = readSegment == writeSegment ? mapSegment(writeSegment) : scan;
+		writeBuffer.position(scan.position());
+
+		saveCursor();
+		resetFetch();
+		if (pending > 0) {
+			log.info("Recovered {} spilled logs from {}", pending, directory);
+		}
+	}
+
+	private void advanceRead(long count) {
+		for (long i = 0; i < count; i++) {
+			while (!LogEntryCodec.hasRecord(readBuffer)) {
+				advanceReadSegment();
+			}
+			LogEntryCodec.skip(readBuffer);
+		}
+		pending -= count;
+		readIndex += count;
+		saveCursor();
+	}
+
+	private void resetFetch() {
+		fetchSegment = readSegment;
+		fetchBuffer = readBuffer.duplicate();
+	}
+
+	private void requireNothingFetched() {
+		if (fetched > 0) {
+			throw new IllegalStateException("Segment log %s has %d fetched records not released".formatted(directory, fetched));
+		}
+	}
+
+	private void advanceReadSegment() {
+		try {
+			Files.deleteIfExists(segmentPath(readSegment));
+		} catch (IOException e) {
+			log.warn("Failed to delete consumed segment {}", segmentPath(readSegment), e);
+		}
+		readBuffer = mapSegment(++readSegment);
+		readBuffer.position(0);
+	}
+
+	private void saveCursor() {
+		cursor.putLong(0, readSegment);
+		cursor.putLong(Long.BYTES, readBuffer.position());
+		cursor.putLong(Long.BYTES * 2, readIndex);
+	}
+
+	private List<Long> listSegments() throws IOException {
+		var segments = new ArrayList<Long>();
+		try (var files = Files.list(directory)) {
+			files.map(file -> file.getFileName().toString())
+				.filter(name -> name.endsWith(SEGMENT_SUFFIX))
+				.forEach(name -> segments.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+		}
+		segments.sort(null);
+		return segments;
+	}
+
+	private Path segmentPath(long segment) {
+		return directory.resolve("%020d%s".formatted(segment, SEGMENT_SUFFIX));
+	}
+
+	private MappedByteBuffer mapSegment(long segment) {
+		try {
+			return map(segmentPath(segment), segmentSize);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to map segment %d in %s".formatted(segment, directory), e);
+		}
+	}
+
+	private static MappedByteBuffer map(Path file, int size) throws IOException {
+		try (var channel = FileChannel.open(file, CREATE, READ, WRITE)) {
+			// Mapping past the end of the file extends it with zeros
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package com.bgaidos.service.sessions.api;
+
+import com.bgaidos.exceptions.SessionNotFoundException;
+import reactor.core.publisher.Mono;
+
+/**
+ * The non-blocking counterpart of {@link MemoryManager}.
+ */
+public interface ReactiveMemoryManager {
+
+	/**
+	 * Adds session data to the memory store.
+	 *
+	 * @param sessionId The unique identifier for the session.
+	 * @param data The session data to be stored as a byte array.
+	 */
+	Mono<Void> addSessionData(String sessionId, byte[] data);
+
+	/**
+	 * Removes session data from the memory store.
+	 *
+	 * @param sessionId The unique identifier for the session to be removed.
+	 */
+	Mono<Void> removeSessionData(String sessionId);
+
+	/**
+	 * Retrieves session data from the memory store.
+	 *
+	 * @param sessionId The unique identifier for the session to be retrieved.
+	 * @return The session data, or a {@link SessionNotFoundException} error if not found.
+	 */
+	Mono<byte[]> getSessionData(String sessionId);
+}
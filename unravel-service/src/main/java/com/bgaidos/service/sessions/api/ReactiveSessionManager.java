@@ -0,0 +1,38 @@
+package com.bgaidos.service.sessions.api;
+
+import com.bgaidos.api.RemoveDto;
+import com.bgaidos.api.SessionDetailsDto;
+import com.bgaidos.exceptions.SessionConflictException;
+import com.bgaidos.exceptions.SessionNotFoundException;
+import reactor.core.publisher.Mono;
+
+/**
+ * The non-blocking counterpart of {@link SessionManager}: the same operations, completing once Redis replied
+ * instead of holding the calling thread. Failures are signalled as errors of the returned {@link Mono}.
+ */
+public interface ReactiveSessionManager {
+
+	/**
+	 * Creates a new session for the given user ID.
+	 *
+	 * @param userId The ID of the user to create a session for.
+	 * @return The new session, or a {@link SessionConflictException} error if the user already has one.
+	 */
+	Mono<SessionDetailsDto> saveSession(String userId);
+
+	/**
+	 * Terminates the session for the given user ID.
+	 *
+	 * @param userId The ID of the user to terminate the session for.
+	 * @return The result of the logout operation.
+	 */
+	Mono<RemoveDto> removeSession(String userId);
+
+	/**
+	 * Retrieves the session details for the given user ID, and refreshes the session expiration.
+	 *
+	 * @param userId The ID of the user to retrieve session details for.
+	 * @return The session, or a {@link SessionNotFoundException} error if there is none.
+	 */
+	Mono<SessionDetailsDto> getSessionDetails(String userId);
+}
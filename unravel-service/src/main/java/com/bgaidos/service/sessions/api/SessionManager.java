@@ -2,9 +2,13 @@ package com.bgaidos.service.sessions.api;
 
 import com.bgaidos.api.RemoveDto;
 import com.bgaidos.api.SessionDetailsDto;
+import com.bgaidos.api.SessionResultDto;
 import com.bgaidos.exceptions.SessionConflictException;
 import com.bgaidos.exceptions.SessionNotFoundException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface SessionManager {
 
 	/**
@@ -33,4 +37,59 @@ public interface SessionManager {
 	 * @throws SessionNotFoundException if no session is found for the given user ID.
 	 */
 	SessionDetailsDto getSessionDetails(String userId) throws SessionNotFoundException;
+
+	/**
+	 * Creates a session for each of the given user IDs, like {@link #saveSession(String)}.
+	 *
+	 * @param userIds The IDs of the users to create sessions for.
+	 * @return One result per user ID, in order: CREATED with the new session ID, or CONFLICT if the user already
+	 * has a session.
+	 */
+	default List<SessionResultDto> saveSessions(List<String> userIds) {
+		var results = new ArrayList<SessionResultDto>(userIds.size());
+		for (var userId : userIds) {
+			try {
+				var session = saveSession(userId);
+				results.add(new SessionResultDto(userId, session.sessionId(), SessionResultDto.Status.CREATED));
+			} catch (SessionConflictException e) {
+				results.add(new SessionResultDto(userId, null, SessionResultDto.Status.CONFLICT));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Terminates the sessions of the given user IDs, like {@link #removeSession(String)}.
+	 *
+	 * @param userIds The IDs of the users to terminate the sessions for.
+	 * @return One REMOVED result per user ID, in order.
+	 */
+	default List<SessionResultDto> removeSessions(List<String> userIds) {
+		var results = new ArrayList<SessionResultDto>(userIds.size());
+		for (var userId : userIds) {
+			removeSession(userId);
+			results.add(new SessionResultDto(userId, null, SessionResultDto.Status.REMOVED));
+		}
+		return results;
+	}
+
+	/**
+	 * Retrieves the session details of the given user IDs, and refreshes their expiration, like
+	 * {@link #getSessionDetails(String)}.
+	 *
+	 * @param userIds The IDs of the users to retrieve session details for.
+	 * @return One result per user ID, in order: FOUND with the session ID, or NOT_FOUND.
+	 */
+	default List<SessionResultDto> getSessionsDetails(List<String> userIds) {
+		var results = new ArrayList<SessionResultDto>(userIds.size());
+		for (var userId : userIds) {
+			try {
+				var session = getSessionDetails(userId);
+				results.add(new SessionResultDto(userId, session.sessionId(), SessionResultDto.Status.FOUND));
+			} catch (SessionNotFoundException e) {
+				results.add(new SessionResultDto(userId, null, SessionResultDto.Status.NOT_FOUND));
+			}
+		}
+		return results;
+	}
 }
@@ -0,0 +1,33 @@
+package com.bgaidos.service.sessions.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Drops the session keys other nodes publish on the invalidation channel from the local {@link SessionNearCache}.
+ * Invalidations published while the node was not subscribed are lost, so the whole cache is dropped whenever the
+ * subscription is established.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SessionInvalidationListener implements MessageListener, SubscriptionListener {
+
+	private final SessionNearCache nearCache;
+
+	@Override
+	public void onMessage(Message message, byte[] pattern) {
+		nearCache.invalidate(new String(message.getBody(), StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public void onChannelSubscribed(byte[] channel, long count) {
+		log.info("Subscribed to session invalidations on {}, dropping {} cached sessions",
+			new String(channel, StandardCharsets.UTF_8), nearCache.size());
+		nearCache.clear();
+	}
+}
@@ -0,0 +1,175 @@
+package com.bgaidos.service.sessions.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded in-process cache of session ids by session key, in front of Redis.
+ * <p>
+ * Nodes removing a session publish its key on the invalidation channel, see {@link SessionInvalidationListener}, so
+ * every node drops it from its cache as soon as the message arrives. Should a message be lost, for instance while
+ * the subscription is reconnecting, an entry is still dropped once it is older than maxStaleness.
+ * <p>
+ * A lookup that missed may race an invalidation of the same key: it reads the session from Redis just before the
+ * removal and caches it just after the invalidation went by. To rule that out, invalidations bump a version per key
+ * stripe, lookups take the version before reading Redis with {@link #version(String)}, and {@link #put} only keeps
+ * an entry if no invalidation of its stripe happened since.
+ * <p>
+ * Once maxEntries is reached, every insertion evicts an arbitrary other entry. Meters: {@code session.cache.hits},
+ * {@code session.cache.misses}, {@code session.cache.invalidations}, {@code session.cache.evictions} and the
+ * {@code session.cache.size} gauge.
+ */
+public class SessionNearCache {
+
+	private static final int STRIPES = 1024;
+
+	private final int maxEntries;
+	private final long maxStalenessMillis;
+	private final long refreshIntervalMillis;
+	private final String channel;
+	private final InstantSource clock;
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+	private final Counter hits;
+	private final Counter misses;
+	private final Counter invalidations;
+	private final Counter evictions;
+
+	/**
+	 * @param maxStaleness how long an entry is served without hearing from Redis
+	 * @param refreshInterval how often a hit refreshes the session expiration in Redis
+	 * @param channel the pub/sub channel invalidations are published on
+	 */
+	public SessionNearCache(int maxEntries, Duration maxStaleness, Duration refreshInterval, String channel,
+		MeterRegistry registry, InstantSource clock) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("maxEntries must be positive, got %d".formatted(maxEntries));
+		}
+		this.maxEntries = maxEntries;
+		this.maxStalenessMillis = maxStaleness.toMillis();
+		this.refreshIntervalMillis = refreshInterval.toMillis();
+		this.channel = channel;
+		this.clock = clock;
+
+		this.hits = Counter.builder("session.cache.hits")
+			.description("Session lookups served from the near cache")
+			.register(registry);
+		this.misses = Counter.builder("session.cache.misses")
+			.description("Session lookups that went to Redis")
+			.register(registry);
+		this.invalidations = Counter.builder("session.cache.invalidations")
+			.description("Session keys invalidated, locally or by another node")
+			.register(registry);
+		this.evictions = Counter.builder("session.cache.evictions")
+			.description("Sessions evicted to keep the near cache within its size")
+			.register(registry);
+		Gauge.builder("session.cache.size", entries, ConcurrentHashMap::size)
+			.description("Sessions held by the near cache")
+			.register(registry);
+	}
+
+	public String channel() {
+		return channel;
+	}
+
+	/**
+	 * @return the cached session id, or null on a miss
+	 */
+	public String get(String key) {
+		var entry = entries.get(key);
+		if (entry != null && clock.millis() - entry.cachedAt <= maxStalenessMillis) {
+			hits.increment();
+			return entry.sessionId;
+		}
+		if (entry != null) {
+			entries.remove(key, entry);
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * @return true if the session expiration was last refreshed in Redis over refreshInterval ago, in which case
+	 * the caller should refresh it and report back with {@link #refreshed(String)}
+	 */
+	public boolean needsRefresh(String key) {
+		var entry = entries.get(key);
+		return entry == null || clock.millis() - entry.refreshedAt >= refreshIntervalMillis;
+	}
+
+	public void refreshed(String key) {
+		long now = clock.millis();
+		entries.computeIfPresent(key, (k, entry) -> new Entry(entry.sessionId, entry.cachedAt, now));
+	}
+
+	/**
+	 * @return the version to pass to {@link #put} for a lookup about to read Redis
+	 */
+	public long version(String key) {
+		return versions.get(stripe(key));
+	}
+
+	/**
+	 * Caches a session id read from, or just written to, Redis, unless key was invalidated since version was taken.
+	 */
+	public void put(String key, String sessionId, long version) {
+		int stripe = stripe(key);
+		if (versions.get(stripe) != version) {
+			return;
+		}
+		long now = clock.millis();
+		var entry = new Entry(sessionId, now, now);
+		entries.put(key, entry);
+		// An invalidation that slipped in between the check and the put must not be overwritten
+		if (versions.get(stripe) != version) {
+			entries.remove(key, entry);
+			return;
+		}
+		if (entries.size() > maxEntries) {
+			evictOtherThan(key);
+		}
+	}
+
+	public void invalidate(String key) {
+		versions.getAndIncrement(stripe(key));
+		entries.remove(key);
+		invalidations.increment();
+	}
+
+	/**
+	 * Drops every entry, for when invalidations may have been missed.
+	 */
+	public void clear() {
+		for (int i = 0; i < STRIPES; i++) {
+			versions.getAndIncrement(i);
+		}
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private void evictOtherThan(String key) {
+		for (var iterator = entries.keySet().iterator(); iterator.hasNext() && entries.size() > maxEntries; ) {
+			if (!iterator.next().equals(key)) {
+				iterator.remove();
+				evictions.increment();
+			}
+		}
+	}
+
+	private static int stripe(String key) {
+		int hash = key.hashCode();
+		return (hash ^ hash >>> 16) & STRIPES - 1;
+	}
+
+	private record Entry(String sessionId, long cachedAt, long refreshedAt) {
+	}
+}
@@ -0,0 +1,39 @@
+package com.bgaidos.service.sessions.embedded;
+
+import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.api.MemoryManager;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import static com.bgaidos.service.sessions.redis.RedisMemoryManager.SESSION_DURATION;
+
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "embedded")
+public class EmbeddedMemoryManager implements MemoryManager {
+
+	private final EmbeddedStore store;
+
+	@Override
+	public void addSessionData(@NonNull String sessionId, byte[] data) {
+		store.put(sessionId, data, SESSION_DURATION);
+	}
+
+	@Override
+	public void removeSessionData(@NonNull String sessionId) {
+		store.remove(sessionId);
+	}
+
+	@Override
+	public byte[] getSessionData(@NonNull String sessionId) {
+		var data = (byte[]) store.getAndExpire(sessionId, SESSION_DURATION);
+
+		if (data == null) {
+			throw new SessionNotFoundException("No session data found for session ID: %s.".formatted(sessionId));
+		}
+
+		return data;
+	}
+}
@@ -0,0 +1,61 @@
+package com.bgaidos.service.sessions.embedded;
+
+import com.bgaidos.api.RemoveDto;
+import com.bgaidos.api.SessionDetailsDto;
+import com.bgaidos.exceptions.SessionConflictException;
+import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.api.SessionManager;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+
+import static com.bgaidos.service.sessions.redis.RedisSessionManager.KEY_PREFIX;
+import static com.bgaidos.service.sessions.redis.RedisSessionManager.SESSION_DURATION;
+import static com.bgaidos.service.sessions.redis.RedisSessionManager.SESSION_PREFIX;
+
+/**
+ * Sessions in the {@link EmbeddedStore} of this node, with the keys and expiration of
+ * {@link com.bgaidos.service.sessions.redis.RedisSessionManager}, for single node deployments and tests without
+ * Redis.
+ */
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "embedded")
+public class EmbeddedSessionManager implements SessionManager {
+
+	// Concatenated rather than formatted, formatting would take longer than the lookup itself
+	private static final String KEY = KEY_PREFIX.formatted("");
+
+	private final EmbeddedStore store;
+
+	@Override
+	public SessionDetailsDto saveSession(@NonNull String userId) {
+		var sessionId = SESSION_PREFIX.formatted(UUID.randomUUID());
+
+		if (store.putIfAbsent(KEY + userId, sessionId, SESSION_DURATION) != null) {
+			throw new SessionConflictException("User %s is already logged in.".formatted(userId));
+		}
+
+		return new SessionDetailsDto(userId, sessionId);
+	}
+
+	@Override
+	public RemoveDto removeSession(@NonNull String userId) {
+		store.remove(KEY + userId);
+		return new RemoveDto(true);
+	}
+
+	@Override
+	public SessionDetailsDto getSessionDetails(@NonNull String userId) {
+		var sessionId = (String) store.getAndExpire(KEY + userId, SESSION_DURATION);
+
+		if (sessionId == null) {
+			throw new SessionNotFoundException("No session found for user: %s.".formatted(userId));
+		}
+
+		return new SessionDetailsDto(userId, sessionId);
+	}
+}
@@ -0,0 +1,342 @@
+package com.bgaidos.service.sessions.embedded;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * In-process key value store with per-key time to live, for running the session managers without Redis. Values are
+ * session ids or session data, the two share one keyspace the way they share one Redis.
+ * <p>
+ * Keys are spread over stripes, each a {@link HashMap} and a {@link TimingWheel} behind its own lock, so operations
+ * on different stripes never contend and every operation is O(1). The stored entries are the wheel's nodes, and
+ * each operation first advances its stripe's wheel to the current time; a sweeper does the same for stripes nobody
+ * touches, so expired entries free their memory either way. The wheel rounds deadlines up to its tick, entries
+ * past their deadline are never returned though.
+ * <p>
+ * Reads extend the deadline of their entry without moving it in the wheel, which would touch the cache lines of
+ * both its neighbours and its new slot on every read. Instead, an entry coming due on a deadline it has since moved
+ * past is scheduled again at that point, at most once per time to live.
+ * <p>
+ * Memory is bounded by maxBytes, split evenly over the stripes and counted with an estimate of each entry's heap
+ * footprint. A stripe out of budget evicts the entries due to expire soonest, which, every read extending the time
+ * to live, are roughly the least recently used. Meters: {@code session.store.expirations}, {@code session.store.evictions}
+ * and the {@code session.store.entries} and {@code session.store.bytes} gauges.
+ */
+public class EmbeddedStore implements AutoCloseable {
+
+	// Entry, its HashMap node and the key String headers, measured on a 64-bit JVM with compressed oops
+	private static final long ENTRY_OVERHEAD = 48 + 32 + 40;
+	private static final long STRING_OVERHEAD = 40;
+	private static final long ARRAY_OVERHEAD = 16;
+	private static final int LEVELS = 4;
+	// Entries polled for eviction that were read since they were scheduled get this many chances to be rescheduled
+	private static final int EVICTION_RESCHEDULES = 8;
+
+	private final Stripe[] stripes;
+	private final int stripeMask;
+	private final long stripeBudget;
+	private final InstantSource clock;
+	private final ScheduledExecutorService sweeper;
+	private final Counter expirations;
+	private final Counter evictions;
+
+	/**
+	 * @param stripes lock stripes, rounded up to a power of two
+	 * @param maxBytes memory the entries may take, estimated
+	 * @param tick precision of expirations
+	 * @param sweepInterval how often stripes are swept of expired entries, zero to only expire on access
+	 */
+	public EmbeddedStore(int stripes, long maxBytes, Duration tick, Duration sweepInterval, MeterRegistry registry,
+		InstantSource clock) {
+		if (stripes <= 0 || stripes > 1 << 16) {
+			throw new IllegalArgumentException("stripes must be in [1, 65536], got %d".formatted(stripes));
+		}
+		int count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+		if (maxBytes < count) {
+			throw new IllegalArgumentException("maxBytes must be at least %d, got %d".formatted(count, maxBytes));
+		}
+		this.stripes = new Stripe[count];
+		this.stripeMask = count - 1;
+		this.stripeBudget = maxBytes / count;
+		this.clock = clock;
+		long now = clock.millis();
+		for (int i = 0; i < count; i++) {
+			this.stripes[i] = new Stripe(new TimingWheel(tick.toMillis(), LEVELS, now));
+		}
+
+		this.expirations = Counter.builder("session.store.expirations")
+			.description("Entries of the embedded store removed as their time to live ran out")
+			.register(registry);
+		this.evictions = Counter.builder("session.store.evictions")
+			.description("Entries of the embedded store evicted to keep it within its memory budget")
+			.register(registry);
+		Gauge.builder("session.store.entries", this, EmbeddedStore::size)
+			.description("Entries held by the embedded store")
+			.register(registry);
+		Gauge.builder("session.store.bytes", this, EmbeddedStore::usedBytes)
+			.description("Estimated heap taken by the entries of the embedded store")
+			.baseUnit("bytes")
+			.register(registry);
+
+		if (sweepInterval.isPositive()) {
+			this.sweeper = Executors.newSingleThreadScheduledExecutor(
+				Thread.ofPlatform().name("embedded-store-sweeper").daemon().factory());
+			long intervalMillis = Math.max(sweepInterval.toMillis(), 1);
+			sweeper.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+		} else {
+			this.sweeper = null;
+		}
+	}
+
+	/**
+	 * Reads key and extends its time to live to ttl, like {@code GETEX}.
+	 *
+	 * @return the value, or null if key is not stored
+	 */
+	public Object getAndExpire(String key, Duration ttl) {
+		var stripe = stripe(key);
+		long now = clock.millis();
+		stripe.lock.lock();
+		try {
+			var entry = live(stripe, key, now);
+			if (entry == null) {
+				return null;
+			}
+			// Rescheduled lazily, once the wheel reaches the old deadline
+			entry.deadline = now + ttl.toMillis();
+			return entry.value;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Stores value under key with a time to live of ttl unless key is stored already, like {@code SET NX}.
+	 *
+	 * @return the value already stored, or null if value was stored
+	 */
+	public Object putIfAbsent(String key, Object value, Duration ttl) {
+		var stripe = stripe(key);
+		long now = clock.millis();
+		stripe.lock.lock();
+		try {
+			var entry = live(stripe, key, now);
+			if (entry != null) {
+				return entry.value;
+			}
+			insert(stripe, key, value, now + ttl.toMillis());
+			return null;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Stores value under key with a time to live of ttl, replacing whatever key held, like {@code SET}.
+	 */
+	public void put(String key, Object value, Duration ttl) {
+		var stripe = stripe(key);
+		long now = clock.millis();
+		stripe.lock.lock();
+		try {
+			var entry = live(stripe, key, now);
+			if (entry != null) {
+				remove(stripe, entry);
+			}
+			insert(stripe, key, value, now + ttl.toMillis());
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * @return true if key was stored
+	 */
+	public boolean remove(String key) {
+		var stripe = stripe(key);
+		long now = clock.millis();
+		stripe.lock.lock();
+		try {
+			var entry = live(stripe, key, now);
+			if (entry == null) {
+				return false;
+			}
+			remove(stripe, entry);
+			return true;
+		} finally {
+			stripe.lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes the expired entries of every stripe.
+	 */
+	public void sweep() {
+		long now = clock.millis();
+		for (var stripe : stripes) {
+			stripe.lock.lock();
+			try {
+				stripe.advance(now);
+			} finally {
+				stripe.lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * @return the entries stored, read without locking so possibly slightly off under concurrent updates
+	 */
+	public long size() {
+		long size = 0;
+		for (var stripe : stripes) {
+			size += stripe.size;
+		}
+		return size;
+	}
+
+	/**
+	 * @return the estimated heap taken by the entries, read without locking like {@link #size()}
+	 */
+	public long usedBytes() {
+		long bytes = 0;
+		for (var stripe : stripes) {
+			bytes += stripe.bytes;
+		}
+		return bytes;
+	}
+
+	public long maxBytes() {
+		return stripeBudget * stripes.length;
+	}
+
+	@Override
+	public void close() {
+		if (sweeper != null) {
+			sweeper.shutdownNow();
+		}
+	}
+
+	/**
+	 * Advances the stripe's wheel and looks key up, dropping it if it is past its deadline but not yet past the tick
+	 * the wheel expires it on.
+	 */
+	private Entry live(Stripe stripe, String key, long now) {
+		stripe.advance(now);
+		var entry = stripe.entries.get(key);
+		if (entry != null && entry.deadline <= now) {
+			remove(stripe, entry);
+			expirations.increment();
+			return null;
+		}
+		return entry;
+	}
+
+	private void insert(Stripe stripe, String key, Object value, long deadline) {
+		long weight = weigh(key, value);
+		if (weight > stripeBudget) {
+			throw new IllegalArgumentException("Value of %d bytes for %s exceeds the %d bytes budget of a store stripe"
+				.formatted(weight, key, stripeBudget));
+		}
+		int reschedules = 0;
+		while (stripe.bytes + weight > stripeBudget) {
+			var evicted = (Entry) stripe.wheel.pollEarliest();
+			if (evicted.deadline > stripe.wheel.scheduledMillis(evicted) && reschedules++ < EVICTION_RESCHEDULES) {
+				stripe.wheel.schedule(evicted, evicted.deadline);
+				continue;
+			}
+			stripe.entries.remove(evicted.key);
+			stripe.bytes -= evicted.weight;
+			stripe.size--;
+			evictions.increment();
+		}
+		var entry = new Entry(key, value, weight, deadline);
+		stripe.entries.put(key, entry);
+		stripe.wheel.schedule(entry, deadline);
+		stripe.bytes += weight;
+		stripe.size++;
+	}
+
+	private static void remove(Stripe stripe, Entry entry) {
+		stripe.entries.remove(entry.key);
+		stripe.wheel.cancel(entry);
+		stripe.bytes -= entry.weight;
+		stripe.size--;
+	}
+
+	private Stripe stripe(String key) {
+		int hash = key.hashCode();
+		return stripes[(hash ^ hash >>> 16) & stripeMask];
+	}
+
+	/**
+	 * Estimates the heap an entry takes, assuming Latin-1 keys and session ids as the compact String layout stores them.
+	 */
+	static long weigh(String key, Object value) {
+		long valueBytes = switch (value) {
+			case byte[] bytes -> ARRAY_OVERHEAD + bytes.length;
+			case String string -> STRING_OVERHEAD + string.length();
+			default -> throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName());
+		};
+		return ENTRY_OVERHEAD + key.length() + valueBytes;
+	}
+
+	private final class Stripe {
+
+		final ReentrantLock lock = new ReentrantLock();
+		final HashMap<String, Entry> entries = new HashMap<>();
+		final TimingWheel wheel;
+		// Bound once, so advancing the wheel allocates no lambda
+		final Consumer<TimingWheel.Node> onDue = this::due;
+		// Written under the lock, read without it by the gauges
+		volatile long bytes;
+		volatile int size;
+		long now;
+
+		Stripe(TimingWheel wheel) {
+			this.wheel = wheel;
+		}
+
+		void advance(long now) {
+			this.now = now;
+			wheel.advance(now, onDue);
+		}
+
+		private void due(TimingWheel.Node node) {
+			var entry = (Entry) node;
+			if (entry.deadline > now) {
+				// Read since it was scheduled
+				wheel.schedule(entry, entry.deadline);
+				return;
+			}
+			entries.remove(entry.key);
+			bytes -= entry.weight;
+			size--;
+			expirations.increment();
+		}
+	}
+
+	private static final class Entry extends TimingWheel.Node {
+
+		final String key;
+		final Object value;
+		final long weight;
+		long deadline;
+
+		Entry(String key, Object value, long weight, long deadline) {
+			this.key = key;
+			this.value = value;
+			this.weight = weight;
+			this.deadline = deadline;
+		}
+	}
+}
@@ -0,0 +1,173 @@
+package com.bgaidos.service.sessions.embedded;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of intrusive nodes: the nodes are the stored entries themselves, linked into the slot
+ * lists through their own prev and next fields, so scheduling needs no timer object per entry.
+ * <p>
+ * Time moves in ticks. Each level has {@value #SLOTS} slots, a slot of level L spanning {@code SLOTS^L} ticks, so
+ * four levels of one second ticks reach 194 days ahead. A node goes to the lowest level whose span covers its
+ * deadline and moves down a level each time the wheel reaches the start of its slot, until it expires from level 0
+ * on its tick. Scheduling, rescheduling and cancelling are O(1); advancing is O(1) per tick plus the nodes
+ * cascading down or expiring.
+ * <p>
+ * Not thread-safe, the owner serializes access.
+ */
+final class TimingWheel {
+
+	static final int SLOT_BITS = 6;
+	static final int SLOTS = 1 << SLOT_BITS;
+	private static final int SLOT_MASK = SLOTS - 1;
+
+	private final long tickMillis;
+	private final int levels;
+	// Sentinels of the circular slot lists, level by level
+	private final Node[] slots;
+	private long currentTick;
+	private int size;
+
+	/**
+	 * @param startMillis the time the wheel starts at, deadlines before it expire on the first tick
+	 */
+	TimingWheel(long tickMillis, int levels, long startMillis) {
+		if (tickMillis <= 0 || levels <= 0 || levels * SLOT_BITS >= Long.SIZE - 1) {
+			throw new IllegalArgumentException("Invalid wheel of %d levels of %dms ticks".formatted(levels, tickMillis));
+		}
+		this.tickMillis = tickMillis;
+		this.levels = levels;
+		this.slots = new Node[levels * SLOTS];
+		for (int i = 0; i < slots.length; i++) {
+			var sentinel = new Node();
+			sentinel.prev = sentinel;
+			sentinel.next = sentinel;
+			slots[i] = sentinel;
+		}
+		this.currentTick = startMillis / tickMillis;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Schedules node, or moves it if it is scheduled already, to expire on the first tick at or after deadlineMillis.
+	 */
+	void schedule(Node node, long deadlineMillis) {
+		if (node.next != null) {
+			unlink(node);
+		} else {
+			size++;
+		}
+		node.expireTick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+		place(node);
+	}
+
+	/**
+	 * @return the time node is scheduled to expire at, rounded up to its tick
+	 */
+	long scheduledMillis(Node node) {
+		return node.expireTick * tickMillis;
+	}
+
+	void cancel(Node node) {
+		if (node.next != null) {
+			unlink(node);
+			size--;
+		}
+	}
+
+	/**
+	 * Moves the wheel forward to nowMillis, unscheduling every node that expired on the way and handing it to expired,
+	 * which may schedule it again.
+	 */
+	void advance(long nowMillis, Consumer<Node> expired) {
+		long targetTick = nowMillis / tickMillis;
+		if (size == 0) {
+			currentTick = Math.max(currentTick, targetTick);
+			return;
+		}
+		while (currentTick < targetTick) {
+			currentTick++;
+			// Higher levels first, their nodes may cascade all the way down to the slot expiring now
+			for (int level = levels - 1; level > 0; level--) {
+				if ((currentTick & (1L << level * SLOT_BITS) - 1) == 0) {
+					cascade(level);
+				}
+			}
+			var sentinel = slots[(int) currentTick & SLOT_MASK];
+			while (sentinel.next != sentinel) {
+				var node = sentinel.next;
+				unlink(node);
+				size--;
+				expired.accept(node);
+			}
+			if (size == 0) {
+				currentTick = targetTick;
+			}
+		}
+	}
+
+	/**
+	 * Unschedules one of the nodes due to expire soonest, to the precision of the slot it is in.
+	 *
+	 * @return the node, or null if none is scheduled
+	 */
+	Node pollEarliest() {
+		if (size == 0) {
+			return null;
+		}
+		for (int level = 0; level < levels; level++) {
+			int start = (int) (currentTick >>> level * SLOT_BITS);
+			for (int i = 0; i < SLOTS; i++) {
+				var sentinel = slots[level * SLOTS + (start + i & SLOT_MASK)];
+				if (sentinel.next != sentinel) {
+					var node = sentinel.next;
+					unlink(node);
+					size--;
+					return node;
+				}
+			}
+		}
+		return null;
+	}
+
+	private void cascade(int level) {
+		var sentinel = slots[level * SLOTS + ((int) (currentTick >>> level * SLOT_BITS) & SLOT_MASK)];
+		var node = sentinel.next;
+		sentinel.prev = sentinel;
+		sentinel.next = sentinel;
+		while (node != sentinel) {
+			var next = node.next;
+			place(node);
+			node = next;
+		}
+	}
+
+	private void place(Node node) {
+		long delta = node.expireTick - currentTick;
+		int level = 0;
+		while (level < levels - 1 && delta >= 1L << (level + 1) * SLOT_BITS) {
+			level++;
+		}
+		var sentinel = slots[level * SLOTS + ((int) (node.expireTick >>> level * SLOT_BITS) & SLOT_MASK)];
+		node.prev = sentinel.prev;
+		node.next = sentinel;
+		sentinel.prev.next = node;
+		sentinel.prev = node;
+	}
+
+	private static void unlink(Node node) {
+		node.prev.next = node.next;
+		node.next.prev = node.prev;
+		node.prev = null;
+		node.next = null;
+	}
+
+	static class Node {
+		long expireTick;
+		Node prev;
+		// Null while not scheduled
+		Node next;
+	}
+}
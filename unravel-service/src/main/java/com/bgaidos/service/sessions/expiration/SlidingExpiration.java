@@ -0,0 +1,122 @@
+package com.bgaidos.service.sessions.expiration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.time.InstantSource;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides when a read of a key with a sliding expiration has to extend it in Redis: only once the lifetime left,
+ * as this node last set it, drops below refreshFraction of the time to live. Reads in between are plain reads, so a
+ * user polling every second costs a handful of writes an hour instead of one per request.
+ * <p>
+ * The price is precision: a key is kept at least refreshFraction of its time to live past its last read, rather
+ * than the whole of it, and never longer than the whole of it. Refreshes by other nodes are not seen, which only
+ * makes this node refresh sooner than needed.
+ * <p>
+ * When each key was last refreshed is kept in a fixed array of longs, one slot per key hash: a 32-bit fingerprint
+ * of the key in the high half, the second of the refresh in the low half. Keys sharing a slot push each other out,
+ * and a key whose slot was taken is simply refreshed on its next read, so the array bounds memory at 8 bytes per
+ * slot without ever extending a key too late. Meters: {@code session.expiration.refreshes} and
+ * {@code session.expiration.skipped}.
+ */
+public class SlidingExpiration {
+
+	private final double refreshFraction;
+	private final int mask;
+	private final long originSecond;
+	private final InstantSource clock;
+	private final AtomicLongArray slots;
+	private final Counter refreshes;
+	private final Counter skipped;
+
+	/**
+	 * @param refreshFraction share of the time to live below which a read extends it, 1 to extend on every read
+	 * @param trackedKeys slots of the tracking array, rounded up to a power of two
+	 */
+	public SlidingExpiration(double refreshFraction, int trackedKeys, MeterRegistry registry, InstantSource clock) {
+		if (!(refreshFraction > 0 && refreshFraction <= 1)) {
+			throw new IllegalArgumentException("refreshFraction must be in (0, 1], got %s".formatted(refreshFraction));
+		}
+		if (trackedKeys <= 0 || trackedKeys > 1 << 30) {
+			throw new IllegalArgumentException("trackedKeys must be in [1, 2^30], got %d".formatted(trackedKeys));
+		}
+		this.refreshFraction = refreshFraction;
+		this.mask = (trackedKeys == 1 ? 1 : Integer.highestOneBit(trackedKeys - 1) << 1) - 1;
+		this.originSecond = clock.millis() / 1000;
+		this.clock = clock;
+		this.slots = new AtomicLongArray(mask + 1);
+
+		this.refreshes = Counter.builder("session.expiration.refreshes")
+			.description("Reads that extended the expiration of their key")
+			.register(registry);
+		this.skipped = Counter.builder("session.expiration.skipped")
+			.description("Reads that left the expiration of their key as it was")
+			.register(registry);
+	}
+
+	public int trackedKeys() {
+		return slots.length();
+	}
+
+	/**
+	 * @return true if a read of key should extend its expiration to ttl, in which case the caller reports back with
+	 * {@link #refreshed(String)} once it did
+	 */
+	public boolean needsRefresh(String key, Duration ttl) {
+		long hash = hash(key);
+		long slot = slots.get(index(hash));
+		boolean due = (int) (slot >>> 32) != fingerprint(hash)
+			|| clock.millis() - (originSecond + (slot & 0xFFFFFFFFL)) * 1000 >= ttl.toMillis() * (1 - refreshFraction);
+		(due ? refreshes : skipped).increment();
+		return due;
+	}
+
+	/**
+	 * Records that key was just given its full time to live, by a write or a refreshing read.
+	 */
+	public void refreshed(String key) {
+		long hash = hash(key);
+		// Rounded down, so the refresh looks older than it is and the next one is, if anything, early
+		long second = clock.millis() / 1000 - originSecond;
+		slots.set(index(hash), (long) fingerprint(hash) << 32 | second & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Forgets key, for when it was deleted or found missing.
+	 */
+	public void forget(String key) {
+		long hash = hash(key);
+		int index = index(hash);
+		long slot = slots.get(index);
+		if ((int) (slot >>> 32) == fingerprint(hash)) {
+			slots.compareAndSet(index, slot, 0);
+		}
+	}
+
+	private int index(long hash) {
+		return (int) hash & mask;
+	}
+
+	private static int fingerprint(long hash) {
+		int fingerprint = (int) (hash >>> 32);
+		// Zero marks an empty slot
+		return fingerprint == 0 ? 1 : fingerprint;
+	}
+
+	/**
+	 * 64-bit FNV-1a over the chars of key, finished with the MurmurHash3 mix so index and fingerprint bits are
+	 * independent.
+	 */
+	private static long hash(String key) {
+		long hash = 0xCBF29CE484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+		}
+		hash = (hash ^ hash >>> 33) * 0xFF51AFD7ED558CCDL;
+		hash = (hash ^ hash >>> 33) * 0xC4CEB9FE1A85EC53L;
+		return hash ^ hash >>> 33;
+	}
+}
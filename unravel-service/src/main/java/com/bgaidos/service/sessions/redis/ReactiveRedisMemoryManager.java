@@ -0,0 +1,81 @@
+package com.bgaidos.service.sessions.redis;
+
+import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.api.ReactiveMemoryManager;
+import com.bgaidos.service.sessions.expiration.SlidingExpiration;
+import lombok.NonNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import static com.bgaidos.service.sessions.redis.RedisMemoryManager.SESSION_DURATION;
+
+@Service
+@ConditionalOnProperty(prefix = "session.reactive", name = "enabled", havingValue = "true")
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "redis", matchIfMissing = true)
+public class ReactiveRedisMemoryManager implements ReactiveMemoryManager {
+
+	private final ReactiveRedisTemplate<String, byte[]> byteArrayRedisTemplate;
+	// Null to extend the expiration on every read
+	private final SlidingExpiration expiration;
+
+	public ReactiveRedisMemoryManager(ReactiveRedisTemplate<String, byte[]> byteArrayRedisTemplate) {
+		this(byteArrayRedisTemplate, (SlidingExpiration) null);
+	}
+
+	@Autowired
+	public ReactiveRedisMemoryManager(
+		@Qualifier("reactiveByteArrayRedis") ReactiveRedisTemplate<String, byte[]> byteArrayRedisTemplate,
+		ObjectProvider<SlidingExpiration> expiration) {
+		this(byteArrayRedisTemplate, expiration.getIfAvailable());
+	}
+
+	/**
+	 * @param expiration decides which reads extend the expiration, null for all of them
+	 */
+	public ReactiveRedisMemoryManager(ReactiveRedisTemplate<String, byte[]> byteArrayRedisTemplate,
+		SlidingExpiration expiration) {
+		this.byteArrayRedisTemplate = byteArrayRedisTemplate;
+		this.expiration = expiration;
+	}
+
+	@Override
+	public Mono<Void> addSessionData(@NonNull String sessionId, byte[] data) {
+		var added = byteArrayRedisTemplate.opsForValue()
+			.set(sessionId, data, SESSION_DURATION);
+		if (expiration != null) {
+			added = added.doOnNext(set -> expiration.refreshed(sessionId));
+		}
+		return added.then();
+	}
+
+	@Override
+	public Mono<Void> removeSessionData(@NonNull String sessionId) {
+		var removed = byteArrayRedisTemplate.delete(sessionId);
+		if (expiration != null) {
+			removed = removed.doOnNext(count -> expiration.forget(sessionId));
+		}
+		return removed.then();
+	}
+
+	@Override
+	public Mono<byte[]> getSessionData(@NonNull String sessionId) {
+		return Mono.defer(() -> {
+			if (expiration != null && !expiration.needsRefresh(sessionId, SESSION_DURATION)) {
+				return byteArrayRedisTemplate.opsForValue().get(sessionId);
+			}
+			//Refreshes the expiration in the same round trip
+			var data = byteArrayRedisTemplate.opsForValue().getAndExpire(sessionId, SESSION_DURATION);
+			return expiration == null ? data : data.doOnNext(read -> expiration.refreshed(sessionId));
+		}).switchIfEmpty(Mono.error(() -> {
+			if (expiration != null) {
+				expiration.forget(sessionId);
+			}
+			return new SessionNotFoundException("No session data found for session ID: %s.".formatted(sessionId));
+		}));
+	}
+}
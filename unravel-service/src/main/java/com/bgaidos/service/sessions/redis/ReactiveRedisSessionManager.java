@@ -0,0 +1,158 @@
+package com.bgaidos.service.sessions.redis;
+
+import com.bgaidos.api.RemoveDto;
+import com.bgaidos.api.SessionDetailsDto;
+import com.bgaidos.exceptions.SessionConflictException;
+import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.api.ReactiveSessionManager;
+import com.bgaidos.service.sessions.cache.SessionNearCache;
+import com.bgaidos.service.sessions.expiration.SlidingExpiration;
+import lombok.NonNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.UUID;
+
+import static com.bgaidos.service.sessions.redis.RedisSessionManager.CREATE_SESSION;
+import static com.bgaidos.service.sessions.redis.RedisSessionManager.KEY_PREFIX;
+import static com.bgaidos.service.sessions.redis.RedisSessionManager.SESSION_DURATION;
+import static com.bgaidos.service.sessions.redis.RedisSessionManager.SESSION_PREFIX;
+
+/**
+ * {@link RedisSessionManager} on the reactive Lettuce API: the same keys, commands and near cache, one round trip
+ * per operation, without a thread waiting on any of them. The create script is preloaded by
+ * {@link RedisSessionManager}, which always runs alongside.
+ */
+@Service
+@ConditionalOnProperty(prefix = "session.reactive", name = "enabled", havingValue = "true")
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "redis", matchIfMissing = true)
+public class ReactiveRedisSessionManager implements ReactiveSessionManager {
+
+	private final ReactiveStringRedisTemplate redisSession;
+	// Null when the near cache is disabled
+	private final SessionNearCache nearCache;
+	// Null to extend the expiration on every lookup
+	private final SlidingExpiration expiration;
+
+	public ReactiveRedisSessionManager(ReactiveStringRedisTemplate redisSession) {
+		this(redisSession, (SessionNearCache) null, null);
+	}
+
+	@Autowired
+	public ReactiveRedisSessionManager(@Qualifier("reactiveStringRedis") ReactiveStringRedisTemplate redisSession,
+		ObjectProvider<SessionNearCache> nearCache, ObjectProvider<SlidingExpiration> expiration) {
+		this(redisSession, nearCache.getIfAvailable(), expiration.getIfAvailable());
+	}
+
+	public ReactiveRedisSessionManager(ReactiveStringRedisTemplate redisSession, SessionNearCache nearCache) {
+		this(redisSession, nearCache, null);
+	}
+
+	/**
+	 * @param nearCache serves hot lookups in process, null to always read Redis
+	 * @param expiration decides which lookups extend the expiration, null for all of them
+	 */
+	public ReactiveRedisSessionManager(ReactiveStringRedisTemplate redisSession, SessionNearCache nearCache,
+		SlidingExpiration expiration) {
+		this.redisSession = redisSession;
+		this.nearCache = nearCache;
+		this.expiration = expiration;
+	}
+
+	@Override
+	public Mono<SessionDetailsDto> saveSession(@NonNull String userId) {
+		var userSession = KEY_PREFIX.formatted(userId);
+		return Mono.defer(() -> {
+			var sessionId = SESSION_PREFIX.formatted(UUID.randomUUID());
+			long version = nearCache == null ? 0 : nearCache.version(userSession);
+			return redisSession.execute(CREATE_SESSION, List.of(userSession),
+					List.of(sessionId, String.valueOf(SESSION_DURATION.toMillis())))
+				.next()
+				.flatMap(currentSession -> {
+					if (!sessionId.equals(currentSession)) {
+						return Mono.error(new SessionConflictException("User %s is already logged in.".formatted(userId)));
+					}
+					if (nearCache != null) {
+						nearCache.put(userSession, sessionId, version);
+					}
+					if (expiration != null) {
+						expiration.refreshed(userSession);
+					}
+					return Mono.just(new SessionDetailsDto(userId, sessionId));
+				});
+		});
+	}
+
+	@Override
+	public Mono<RemoveDto> removeSession(@NonNull String userId) {
+		var userSession = KEY_PREFIX.formatted(userId);
+		Mono<?> removed = nearCache == null
+			? redisSession.delete(userSession)
+			// Other nodes drop it from their caches too, see SessionInvalidationListener. Both commands are subscribed
+			// at once, so they share the connection's flush and a logout stays one round trip
+			: Mono.when(redisSession.delete(userSession), redisSession.convertAndSend(nearCache.channel(), userSession));
+		return removed
+			.doOnSuccess(ignored -> {
+				if (nearCache != null) {
+					nearCache.invalidate(userSession);
+				}
+				if (expiration != null) {
+					expiration.forget(userSession);
+				}
+			})
+			.thenReturn(new RemoveDto(true));
+	}
+
+	@Override
+	public Mono<SessionDetailsDto> getSessionDetails(@NonNull String userId) {
+		var userSession = KEY_PREFIX.formatted(userId);
+		return Mono.defer(() -> {
+			var cached = nearCache == null ? null : nearCache.get(userSession);
+			if (cached != null && !nearCache.needsRefresh(userSession)) {
+				return Mono.just(new SessionDetailsDto(userId, cached));
+			}
+			boolean refresh = expiration == null || expiration.needsRefresh(userSession, SESSION_DURATION);
+			if (cached != null && !refresh) {
+				// Staleness still bounds how long a cached session is served without reading Redis
+				nearCache.refreshed(userSession);
+				return Mono.just(new SessionDetailsDto(userId, cached));
+			}
+
+			// A hit due for an expiration refresh reads the session again with the same GETEX a miss does
+			long version = nearCache == null ? 0 : nearCache.version(userSession);
+			return read(userSession, refresh)
+				.map(sessionId -> {
+					if (nearCache != null) {
+						nearCache.put(userSession, sessionId, version);
+					}
+					return new SessionDetailsDto(userId, sessionId);
+				})
+				.switchIfEmpty(Mono.defer(() -> {
+					if (cached != null) {
+						nearCache.invalidate(userSession);
+					}
+					if (expiration != null) {
+						expiration.forget(userSession);
+					}
+					return Mono.error(new SessionNotFoundException("No session found for user: %s.".formatted(userId)));
+				}));
+		});
+	}
+
+	/**
+	 * Reads the session, extending its expiration in the same round trip if refresh is set.
+	 */
+	private Mono<String> read(String userSession, boolean refresh) {
+		if (!refresh) {
+			return redisSession.opsForValue().get(userSession);
+		}
+		var sessionId = redisSession.opsForValue().getAndExpire(userSession, SESSION_DURATION);
+		return expiration == null ? sessionId : sessionId.doOnNext(read -> expiration.refreshed(userSession));
+	}
+}
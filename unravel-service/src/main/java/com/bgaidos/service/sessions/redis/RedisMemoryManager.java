@@ -2,42 +2,79 @@ package com.bgaidos.service.sessions.redis;
 
 import com.bgaidos.exceptions.SessionNotFoundException;
 import com.bgaidos.service.sessions.api.MemoryManager;
+import com.bgaidos.service.sessions.expiration.SlidingExpiration;
 import lombok.NonNull;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
 
 @Service
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "redis", matchIfMissing = true)
 public class RedisMemoryManager implements MemoryManager {
 
 	private final RedisTemplate<String, byte[]> byteArrayRedisTemplate;
+	// Null to extend the expiration on every read
+	private final SlidingExpiration expiration;
 
-	private static final Duration SESSION_DURATION = Duration.ofMinutes(30);
+	public static final Duration SESSION_DURATION = Duration.ofMinutes(30);
 
-	public RedisMemoryManager(@Qualifier("byteArrayRedis") RedisTemplate<String, byte[]> byteArrayRedisTemplate) {
+	public RedisMemoryManager(RedisTemplate<String, byte[]> byteArrayRedisTemplate) {
+		this(byteArrayRedisTemplate, (SlidingExpiration) null);
+	}
+
+	@Autowired
+	public RedisMemoryManager(@Qualifier("byteArrayRedis") RedisTemplate<String, byte[]> byteArrayRedisTemplate,
+		ObjectProvider<SlidingExpiration> expiration) {
+		this(byteArrayRedisTemplate, expiration.getIfAvailable());
+	}
+
+	/**
+	 * @param expiration decides which reads extend the expiration, null for all of them
+	 */
+	public RedisMemoryManager(RedisTemplate<String, byte[]> byteArrayRedisTemplate, SlidingExpiration expiration) {
 		this.byteArrayRedisTemplate = byteArrayRedisTemplate;
+		this.expiration = expiration;
 	}
 
 	@Override
 	public void addSessionData(@NonNull String sessionId, byte[] data) {
 		byteArrayRedisTemplate.opsForValue()
 			.set(sessionId, data, SESSION_DURATION);
+		if (expiration != null) {
+			expiration.refreshed(sessionId);
+		}
 	}
 
 	@Override
 	public void removeSessionData(@NonNull String sessionId) {
 		byteArrayRedisTemplate.delete(sessionId);
+		if (expiration != null) {
+			expiration.forget(sessionId);
+		}
 	}
 
 	@Override
 	public byte[] getSessionData(@NonNull String sessionId) {
-		byte[] data = byteArrayRedisTemplate.opsForValue().get(sessionId);
-
-		if (data != null) {
-			byteArrayRedisTemplate.expire(sessionId, SESSION_DURATION); //Refresh expiration
+		byte[] data;
+		if (expiration != null && !expiration.needsRefresh(sessionId, SESSION_DURATION)) {
+			data = byteArrayRedisTemplate.opsForValue().get(sessionId);
 		} else {
+			//Refreshes the expiration in the same round trip
+			data = byteArrayRedisTemplate.opsForValue().getAndExpire(sessionId, SESSION_DURATION);
+			if (expiration != null && data != null) {
+				expiration.refreshed(sessionId);
+			}
+		}
+
+		if (data == null) {
+			if (expiration != null) {
+				expiration.forget(sessionId);
+			}
 			throw new SessionNotFoundException("No session data found for session ID: %s.".formatted(sessionId));
 		}
 
@@ -2,41 +2,126 @@ package com.bgaidos.service.sessions.redis;
 
 import com.bgaidos.api.RemoveDto;
 import com.bgaidos.api.SessionDetailsDto;
+import com.bgaidos.api.SessionResultDto;
 import com.bgaidos.exceptions.SessionNotFoundException;
 import com.bgaidos.exceptions.SessionConflictException;
 import com.bgaidos.service.sessions.api.SessionManager;
+import com.bgaidos.service.sessions.cache.SessionNearCache;
+import com.bgaidos.service.sessions.expiration.SlidingExpiration;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands.SetOption;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * Sessions in Redis, every operation one round trip: lookups read the key and, when {@link SlidingExpiration} says
+ * it is due, extend its expiration in the same {@code GETEX}; logins create the key or return the session already in
+ * it with {@link #CREATE_SESSION}. The bulk operations pipeline the commands of all their users, so they also take
+ * one round trip however many users they cover.
+ */
+@Slf4j
 @Service
+@ConditionalOnProperty(prefix = "session", name = "store", havingValue = "redis", matchIfMissing = true)
 public class RedisSessionManager implements SessionManager {
 
+	/**
+	 * Sets KEYS[1] to ARGV[1] with a time to live of ARGV[2] milliseconds unless it exists, and returns the session
+	 * the key holds afterwards: ARGV[1] if it was created, the existing session otherwise.
+	 */
+	static final RedisScript<String> CREATE_SESSION = new DefaultRedisScript<>("""
+		if redis.call('SET', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+			return ARGV[1]
+		end
+		return redis.call('GET', KEYS[1])
+		""", String.class);
+
 	private final StringRedisTemplate redisSession;
+	// Null when the near cache is disabled
+	private final SessionNearCache nearCache;
+	// Null to extend the expiration on every lookup
+	private final SlidingExpiration expiration;
 
 	public static final String KEY_PREFIX = "user:session:%s";
 	public static final String SESSION_PREFIX = "SESSION_%s";
 	public static final Duration SESSION_DURATION = Duration.ofHours(1);
 
-	public RedisSessionManager(@Qualifier("stringRedis") StringRedisTemplate redisSession) {
+	public RedisSessionManager(StringRedisTemplate redisSession) {
+		this(redisSession, (SessionNearCache) null, null);
+	}
+
+	@Autowired
+	public RedisSessionManager(@Qualifier("stringRedis") StringRedisTemplate redisSession,
+		ObjectProvider<SessionNearCache> nearCache, ObjectProvider<SlidingExpiration> expiration) {
+		this(redisSession, nearCache.getIfAvailable(), expiration.getIfAvailable());
+	}
+
+	public RedisSessionManager(StringRedisTemplate redisSession, SessionNearCache nearCache) {
+		this(redisSession, nearCache, null);
+	}
+
+	/**
+	 * @param nearCache serves hot lookups in process, null to always read Redis
+	 * @param expiration decides which lookups extend the expiration, null for all of them
+	 */
+	public RedisSessionManager(StringRedisTemplate redisSession, SessionNearCache nearCache,
+		SlidingExpiration expiration) {
 		this.redisSession = redisSession;
+		this.nearCache = nearCache;
+		this.expiration = expiration;
+	}
+
+	/**
+	 * Loads the scripts into the Redis script cache, so that even the first calls find them by SHA. Redis loses its
+	 * script cache on restart, in which case the scripts are sent again on their next use.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public void preloadScripts() {
+		try {
+			var sha = redisSession.execute((RedisCallback<String>) connection -> connection.scriptingCommands()
+				.scriptLoad(CREATE_SESSION.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+			log.info("Loaded session scripts, create session: {}", sha);
+		} catch (DataAccessException e) {
+			log.warn("Failed to preload session scripts, they are loaded on first use: {}", e.getMessage());
+		}
 	}
 
 	@Override
 	public SessionDetailsDto saveSession(@NonNull String userId) {
 		var userSession = KEY_PREFIX.formatted(userId);
 		var sessionId = SESSION_PREFIX.formatted(UUID.randomUUID());
+		long version = nearCache == null ? 0 : nearCache.version(userSession);
 
-		var isSuccess = redisSession.opsForValue()
-			.setIfAbsent(userSession, sessionId, SESSION_DURATION);
+		var currentSession = redisSession.execute(CREATE_SESSION, List.of(userSession), sessionId,
+			String.valueOf(SESSION_DURATION.toMillis()));
 
-		if (!isSuccess) {
+		if (!sessionId.equals(currentSession)) {
 			throw new SessionConflictException("User %s is already logged in.".formatted(userId));
 		}
+		if (nearCache != null) {
+			nearCache.put(userSession, sessionId, version);
+		}
+		if (expiration != null) {
+			expiration.refreshed(userSession);
+		}
 
 		return new SessionDetailsDto(userId, sessionId);
 	}
@@ -44,22 +129,240 @@ public class RedisSessionManager implements SessionManager {
 	@Override
 	public RemoveDto removeSession(@NonNull String userId) {
 		var userSession = KEY_PREFIX.formatted(userId);
-		redisSession.delete(userSession);
+		if (nearCache == null) {
+			redisSession.delete(userSession);
+		} else {
+			// Other nodes drop it from their caches too, see SessionInvalidationListener. Pipelined with the delete,
+			// so a logout stays one round trip
+			redisSession.executePipelined((RedisCallback<Object>) connection -> {
+				var strings = (StringRedisConnection) connection;
+				strings.del(userSession);
+				strings.publish(nearCache.channel(), userSession);
+				return null;
+			});
+			nearCache.invalidate(userSession);
+		}
+		if (expiration != null) {
+			expiration.forget(userSession);
+		}
 		return new RemoveDto(true);
 	}
 
 	@Override
 	public SessionDetailsDto getSessionDetails(@NonNull String userId) {
 		var userSession = KEY_PREFIX.formatted(userId);
-		var sessionId = redisSession.opsForValue().get(userSession);
+		if (nearCache != null) {
+			var cached = nearCache.get(userSession);
+			if (cached != null && (!nearCache.needsRefresh(userSession) || refreshCached(userSession))) {
+				return new SessionDetailsDto(userId, cached);
+			}
+		}
+
+		long version = nearCache == null ? 0 : nearCache.version(userSession);
+		var sessionId = read(userSession);
 
 		if (sessionId == null) {
 			throw new SessionNotFoundException("No session found for user: %s.".formatted(userId));
 		}
-
-		//Refreshes the session expiration
-		redisSession.expire(userSession, SESSION_DURATION);
+		if (nearCache != null) {
+			nearCache.put(userSession, sessionId, version);
+		}
 
 		return new SessionDetailsDto(userId, sessionId);
 	}
+
+	@Override
+	public List<SessionResultDto> saveSessions(@NonNull List<String> userIds) {
+		var keys = keys(userIds);
+		if (keys.length == 0) {
+			return List.of();
+		}
+		var sessionIds = new String[keys.length];
+		var versions = new long[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			sessionIds[i] = SESSION_PREFIX.formatted(UUID.randomUUID());
+			versions[i] = nearCache == null ? 0 : nearCache.version(keys[i]);
+		}
+
+		var sessionExpiration = Expiration.from(SESSION_DURATION);
+		var created = redisSession.executePipelined((RedisCallback<Object>) connection -> {
+			var strings = (StringRedisConnection) connection;
+			for (int i = 0; i < keys.length; i++) {
+				strings.set(keys[i], sessionIds[i], sessionExpiration, SetOption.ifAbsent());
+			}
+			return null;
+		});
+
+		var results = new ArrayList<SessionResultDto>(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			var userId = userIds.get(i);
+			if (Boolean.TRUE.equals(created.get(i))) {
+				if (nearCache != null) {
+					nearCache.put(keys[i], sessionIds[i], versions[i]);
+				}
+				if (expiration != null) {
+					expiration.refreshed(keys[i]);
+				}
+				results.add(new SessionResultDto(userId, sessionIds[i], SessionResultDto.Status.CREATED));
+			} else {
+				results.add(new SessionResultDto(userId, null, SessionResultDto.Status.CONFLICT));
+			}
+		}
+		return results;
+	}
+
+	@Override
+	public List<SessionResultDto> removeSessions(@NonNull List<String> userIds) {
+		var keys = keys(userIds);
+		if (keys.length > 0) {
+			redisSession.executePipelined((RedisCallback<Object>) connection -> {
+				var strings = (StringRedisConnection) connection;
+				for (var key : keys) {
+					strings.del(key);
+					if (nearCache != null) {
+						strings.publish(nearCache.channel(), key);
+					}
+				}
+				return null;
+			});
+		}
+
+		var results = new ArrayList<SessionResultDto>(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			if (nearCache != null) {
+				nearCache.invalidate(keys[i]);
+			}
+			if (expiration != null) {
+				expiration.forget(keys[i]);
+			}
+			results.add(new SessionResultDto(userIds.get(i), null, SessionResultDto.Status.REMOVED));
+		}
+		return results;
+	}
+
+	/**
+	 * Serves what it can from the near cache and reads the rest with one pipeline, of {@code GETEX} for the keys due
+	 * an expiration refresh and {@code GET} for the others, like {@link #getSessionDetails(String)} does. Cached
+	 * sessions due for a refresh are read again along with the misses.
+	 */
+	@Override
+	public List<SessionResultDto> getSessionsDetails(@NonNull List<String> userIds) {
+		var keys = keys(userIds);
+		var sessionIds = new String[keys.length];
+		var versions = new long[keys.length];
+		var cachedBefore = new boolean[keys.length];
+		var misses = new ArrayList<Integer>();
+		for (int i = 0; i < keys.length; i++) {
+			if (nearCache != null) {
+				var cached = nearCache.get(keys[i]);
+				if (cached != null && !nearCache.needsRefresh(keys[i])) {
+					sessionIds[i] = cached;
+					continue;
+				}
+				cachedBefore[i] = cached != null;
+				versions[i] = nearCache.version(keys[i]);
+			}
+			misses.add(i);
+		}
+
+		if (!misses.isEmpty()) {
+			var refresh = new boolean[keys.length];
+			for (int i : misses) {
+				refresh[i] = expiration == null || expiration.needsRefresh(keys[i], SESSION_DURATION);
+			}
+			var sessionExpiration = Expiration.from(SESSION_DURATION);
+			var read = redisSession.executePipelined((RedisCallback<Object>) connection -> {
+				var strings = (StringRedisConnection) connection;
+				for (int i : misses) {
+					if (refresh[i]) {
+						strings.getEx(keys[i], sessionExpiration);
+					} else {
+						strings.get(keys[i]);
+					}
+				}
+				return null;
+			});
+			for (int m = 0; m < misses.size(); m++) {
+				int i = misses.get(m);
+				sessionIds[i] = (String) read.get(m);
+				if (expiration != null && refresh[i]) {
+					refreshedOrGone(keys[i], sessionIds[i]);
+				}
+				if (nearCache != null && sessionIds[i] != null) {
+					nearCache.put(keys[i], sessionIds[i], versions[i]);
+				} else if (nearCache != null && cachedBefore[i]) {
+					// Gone from Redis while it was cached
+					nearCache.invalidate(keys[i]);
+				}
+			}
+		}
+
+		var results = new ArrayList<SessionResultDto>(keys.length);
+		for (int i = 0; i < keys.length; i++) {
+			results.add(sessionIds[i] == null
+				? new SessionResultDto(userIds.get(i), null, SessionResultDto.Status.NOT_FOUND)
+				: new SessionResultDto(userIds.get(i), sessionIds[i], SessionResultDto.Status.FOUND));
+		}
+		return results;
+	}
+
+	private static String[] keys(List<String> userIds) {
+		var keys = new String[userIds.size()];
+		for (int i = 0; i < keys.length; i++) {
+			var userId = userIds.get(i);
+			if (userId == null) {
+				throw new NullPointerException("userIds[%d] is null".formatted(i));
+			}
+			keys[i] = KEY_PREFIX.formatted(userId);
+		}
+		return keys;
+	}
+
+	/**
+	 * Reads the session, extending its expiration in the same round trip if it is due.
+	 */
+	private String read(String userSession) {
+		if (expiration != null && !expiration.needsRefresh(userSession, SESSION_DURATION)) {
+			return redisSession.opsForValue().get(userSession);
+		}
+		var sessionId = redisSession.opsForValue().getAndExpire(userSession, SESSION_DURATION);
+		if (expiration != null) {
+			refreshedOrGone(userSession, sessionId);
+		}
+		return sessionId;
+	}
+
+	private void refreshedOrGone(String userSession, String sessionId) {
+		if (sessionId != null) {
+			expiration.refreshed(userSession);
+		} else {
+			expiration.forget(userSession);
+		}
+	}
+
+	/**
+	 * Cache hits skip Redis, so the session expiration is refreshed there once per refresh interval instead of on
+	 * every lookup, and only then if it is due.
+	 *
+	 * @return false if the session is gone from Redis, in which case it is dropped from the cache
+	 */
+	private boolean refreshCached(String userSession) {
+		if (expiration != null && !expiration.needsRefresh(userSession, SESSION_DURATION)) {
+			// Staleness still bounds how long a cached session is served without reading Redis
+			nearCache.refreshed(userSession);
+			return true;
+		}
+		if (Boolean.TRUE.equals(redisSession.expire(userSession, SESSION_DURATION))) {
+			nearCache.refreshed(userSession);
+			if (expiration != null) {
+				expiration.refreshed(userSession);
+			}
+			return true;
+		}
+		nearCache.invalidate(userSession);
+		if (expiration != null) {
+			expiration.forget(userSession);
+		}
+		return false;
+	}
 }
@@ -0,0 +1,89 @@
+package com.bgaidos.config;
+
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.metrics.LogTrafficAggregator;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.RingBufferLogQueue;
+import com.bgaidos.service.processor.queue.WaitStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class LogProcessorConfigTest {
+
+	private final LogProcessorConfig config = new LogProcessorConfig();
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	@DisplayName("1.0 - The compact engine is rejected with compaction")
+	void testCompactEngineWithCompaction() {
+		var properties = bind(Map.of(
+			"log-processor.engine", "COMPACT",
+			"log-processor.compaction.enabled", "true"
+		));
+
+		var failure = assertThrows(IllegalStateException.class, () -> logProcessor(properties));
+		assertTrue(failure.getMessage().contains("COMPACT"));
+	}
+
+	@Test
+	@DisplayName("1.1 - At-least-once delivery is rejected with compaction")
+	void testDeliveryWithCompaction() {
+		var properties = bind(Map.of(
+			"log-processor.engine", "MULTI_LEVEL",
+			"log-processor.compaction.enabled", "true",
+			"log-processor.delivery.directory", directory.toString()
+		));
+
+		assertThrows(IllegalStateException.class, () -> logProcessor(properties));
+	}
+
+	@Test
+	@DisplayName("2.0 - The compact engine and compaction each start on their own")
+	void testCompactEngineOrCompaction() {
+		var compactEngine = logProcessor(bind(Map.of("log-processor.engine", "COMPACT")));
+		compactEngine.close();
+
+		var compaction = logProcessor(bind(Map.of(
+			"log-processor.engine", "MULTI_LEVEL",
+			"log-processor.compaction.enabled", "true"
+		)));
+		compaction.close();
+	}
+
+	@Test
+	@DisplayName("3.0 - The spill watermark is clamped to what an engine with bounded lanes holds")
+	void testSpillWatermarkClamped() {
+		var properties = bind(Map.of(
+			"log-processor.engine", "RING_BUFFER",
+			"log-processor.ring-capacity", "1024",
+			"log-processor.spill-directory", directory.toString(),
+			"log-processor.spill-watermark", "100000"
+		));
+
+		assertEquals(4096, LogProcessorConfig.spillWatermark(properties, new RingBufferLogQueue(1024, WaitStrategy.PARK)));
+		assertEquals(100000, LogProcessorConfig.spillWatermark(properties, new MultiLevelLogQueue()));
+	}
+
+	private LogProcessor logProcessor(LogProcessorProperties properties) {
+		return config.logProcessor(properties, new SimpleMeterRegistry(), null, new LogTrafficAggregator(60, 60));
+	}
+
+	private static LogProcessorProperties bind(Map<String, String> values) {
+		return new Binder(new MapConfigurationPropertySource(values))
+			.bindOrCreate("log-processor", LogProcessorProperties.class);
+	}
+}
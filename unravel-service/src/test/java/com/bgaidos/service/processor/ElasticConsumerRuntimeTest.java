@@ -0,0 +1,137 @@
+package com.bgaidos.service.processor;
+
+import com.bgaidos.config.LogProcessorProperties;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.OverflowPolicy;
+import com.bgaidos.service.processor.queue.PartitionedLogQueue;
+import com.bgaidos.service.processor.queue.WaitStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class ElasticConsumerRuntimeTest {
+
+	private final LogProcessor logProcessor = new LogProcessor(new MultiLevelLogQueue());
+	private final AtomicInteger handled = new AtomicInteger();
+	private ElasticConsumerRuntime runtime;
+
+	@AfterEach
+	void tearDown() {
+		if (runtime != null) {
+			runtime.stop();
+		}
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("1.0 - Consumers handle every produced log")
+	void testHandlesAllLogs() {
+		runtime = new ElasticConsumerRuntime(logProcessor, batch -> handled.addAndGet(batch.size()), properties(1, 4));
+		runtime.start();
+
+		produce(1_000);
+
+		await().atMost(5, TimeUnit.SECONDS).until(() -> handled.get() == 1_000);
+		assertTrue(runtime.isRunning());
+		assertEquals(1_000, runtime.handledEntries());
+	}
+
+	@Test
+	@Timeout(15)
+	@DisplayName("2.0 - Consumers scale up with a slow handler and back down once idle")
+	void testScalesWithBacklog() {
+		LogBatchHandler slowHandler = batch -> {
+			sleep(Duration.ofMillis(20));
+			handled.addAndGet(batch.size());
+		};
+		runtime = new ElasticConsumerRuntime(logProcessor, slowHandler, properties(1, 8));
+		runtime.start();
+
+		produce(2_000);
+
+		await().atMost(5, TimeUnit.SECONDS).until(() -> runtime.consumerCount() > 1);
+		await().atMost(10, TimeUnit.SECONDS).until(() -> handled.get() == 2_000);
+		await().atMost(5, TimeUnit.SECONDS).until(() -> runtime.consumerCount() == 1);
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("3.0 - Stop drains the backlog before returning")
+	void testStopDrainsBacklog() {
+		runtime = new ElasticConsumerRuntime(logProcessor, batch -> {
+			sleep(Duration.ofMillis(5));
+			handled.addAndGet(batch.size());
+		}, properties(2, 2));
+		runtime.start();
+		produce(500);
+
+		runtime.stop();
+
+		assertFalse(runtime.isRunning());
+		assertTrue(logProcessor.isEmpty());
+		assertEquals(500, handled.get());
+	}
+
+	@Test
+	@DisplayName("4.0 - Target consumers follow backlog time and stay within bounds")
+	void testTargetConsumers() {
+		runtime = new ElasticConsumerRuntime(logProcessor, batch -> { }, properties(1, 8));
+		runtime.start();
+
+		// 10k logs x 1 ms = 10 s of work against a 100 ms drain target, capped by doubling from 1
+		assertEquals(2, runtime.targetConsumers(10_000, 1_000_000));
+		// Nothing queued: stay at the minimum
+		assertEquals(1, runtime.targetConsumers(0, 1_000_000));
+		// No latency sample yet but a backlog: grow by one
+		assertEquals(2, runtime.targetConsumers(1_000, 0));
+	}
+
+	private void produce(int count) {
+		for (int i = 0; i < count; i++) {
+			logProcessor.produceLog(LogEntry.builder()
+				.offset(i)
+				.message("Log " + i)
+				.priority(Priority.values()[i % Priority.values().length])
+				.creationTime(Instant.now())
+				.build());
+		}
+	}
+
+	private static LogProcessorProperties properties(int minConsumers, int maxConsumers) {
+		var runtime = new LogProcessorProperties.Runtime(true, minConsumers, maxConsumers, 16,
+			Duration.ofMillis(20), Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofSeconds(5));
+		return new LogProcessorProperties(LogProcessorProperties.Engine.MULTI_LEVEL, 0, OverflowPolicy.BLOCK, 0,
+			PartitionedLogQueue.Routing.OFFSET, 16, WaitStrategy.PARK, 1024, 64, null, 0, Duration.ofSeconds(30),
+			new LogProcessorProperties.Traffic(300, 120),
+			new LogProcessorProperties.Scheduling(LogProcessorProperties.Scheduling.Policy.AGING, null, null),
+			new LogProcessorProperties.Streams("log-processor:stream", "log-processor", null, 16,
+				Duration.ofMillis(100), Duration.ofSeconds(30), Duration.ofSeconds(5), Duration.ofMillis(2), 65536, 1_000_000),
+			new LogProcessorProperties.Compaction(false, Duration.ofSeconds(1), 4096),
+			new LogProcessorProperties.Ingest(512, Duration.ofSeconds(5)),
+			new LogProcessorProperties.Delivery(null, Duration.ofSeconds(1)),
+			new LogProcessorProperties.Sink(false, "logs", 1000, Duration.ofMillis(50), 0, 3, Duration.ofMillis(100)),
+			runtime);
+	}
+
+	private static void sleep(Duration duration) {
+		try {
+			Thread.sleep(duration);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
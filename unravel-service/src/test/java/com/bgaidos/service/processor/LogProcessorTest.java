@@ -1,16 +1,29 @@
 package com.bgaidos.service.processor;
 
+import com.bgaidos.exceptions.LogProcessorFullException;
+import com.bgaidos.service.processor.model.CompactLogEntry;
 import com.bgaidos.service.processor.model.LogEntry;
 import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.BoundedLogQueue;
+import com.bgaidos.service.processor.queue.CompactLogQueue;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.OverflowPolicy;
+import com.bgaidos.service.processor.queue.PartitionedLogQueue;
+import com.bgaidos.service.processor.queue.RingBufferLogQueue;
+import com.bgaidos.service.processor.queue.WaitStrategy;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.Timeout;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.InstantSource;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
@@ -96,6 +109,152 @@ public class LogProcessorTest {
         }
     }
 
+    @Test
+    @DisplayName("2.2 - Priority Functionality Test with multi-level queue")
+    public void testPriorityFunctionalityMultiLevelQueue() throws InterruptedException, ExecutionException {
+        var logProcessor = new LogProcessor(new MultiLevelLogQueue());
+        var producer = new Producer(logProcessor, 10);
+
+        var executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(producer).get();
+
+            var consumedLogs = new ArrayList<LogEntry>();
+            for (int i = 0; i < 10; i++) {
+                consumedLogs.add(logProcessor.consumeLog());
+            }
+
+            assertEquals(Priority.CRITICAL, consumedLogs.getFirst().priority());
+            assertEquals(Priority.LOW, consumedLogs.getLast().priority());
+            assertTrue(logProcessor.isEmpty());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("2.3 - Producer And Consumer With Ring Buffer Queue Test")
+    public void testProducerAndConsumerRingBufferQueue() throws InterruptedException, ExecutionException {
+        var logProcessor = new LogProcessor(new RingBufferLogQueue(1024, WaitStrategy.YIELD));
+        var executorService = Executors.newFixedThreadPool(2);
+        try {
+            executorService.submit(new Consumer(logProcessor));
+            // 10k entries do not fit in the rings, so the producer only finishes if the consumer keeps up
+            executorService.submit(new Producer(logProcessor, 10_000)).get();
+
+            await().atMost(5, TimeUnit.SECONDS)
+                .until(logProcessor::isEmpty);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @Timeout(10)
+    @DisplayName("2.4 - Producer And Consumer With Compact Queue Test")
+    public void testProducerAndConsumerCompactQueue() throws InterruptedException, ExecutionException {
+        var logProcessor = new LogProcessor(new CompactLogQueue(256, 4096, InstantSource.system()));
+        var executorService = Executors.newFixedThreadPool(2);
+        try {
+            executorService.submit(new Consumer(logProcessor));
+            // 10k entries do not fit in the lanes, so the producer only finishes if the consumer keeps up
+            executorService.submit(new Producer(logProcessor, 10_000)).get();
+
+            await().atMost(5, TimeUnit.SECONDS)
+                .until(logProcessor::isEmpty);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("2.5 - Compact Flyweight Exposes The LogEntry Fields Test")
+    public void testCompactFlyweight() throws InterruptedException {
+        var logProcessor = new LogProcessor(new CompactLogQueue());
+        var logEntry = LogEntry.builder()
+                .offset(7)
+                .message("Test log")
+                .priority(Priority.HIGH)
+                .creationTime(Instant.now())
+                .build();
+
+        logProcessor.produceLog(logEntry);
+        logProcessor.produceLog(8, Priority.LOW, new StringBuilder("Built log"));
+
+        var flyweight = new CompactLogEntry();
+        logProcessor.consumeLog(flyweight);
+        assertEquals(logEntry, flyweight.toLogEntry());
+
+        logProcessor.consumeLog(flyweight);
+        assertEquals(8, flyweight.offset());
+        assertEquals(Priority.LOW, flyweight.priority());
+        assertEquals("Built log", flyweight.message());
+    }
+
+    @Test
+    @DisplayName("2.6 - Producer Priorities Stay Ordered Across Partitions Test")
+    public void testProducerPrioritiesAcrossPartitions() throws InterruptedException, ExecutionException {
+        // The producer gives offset i priority i % 4, so routing on the raw offset would put one priority per partition
+        var logProcessor = new LogProcessor(
+                new PartitionedLogQueue(4, PartitionedLogQueue.Routing.OFFSET, MultiLevelLogQueue::new));
+        var executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(new Producer(logProcessor, 4_000)).get();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        var consumedLogs = new ArrayList<Priority>();
+        while (!logProcessor.isEmpty()) {
+            consumedLogs.add(logProcessor.consumeLog().priority());
+        }
+
+        assertEquals(4_000, consumedLogs.size());
+        // A full rotation over the four partitions serves only critical entries
+        assertTrue(consumedLogs.subList(0, 128).stream().allMatch(Priority.CRITICAL::equals));
+        int lastCritical = consumedLogs.lastIndexOf(Priority.CRITICAL);
+        int firstLow = consumedLogs.indexOf(Priority.LOW);
+        assertTrue(firstLow > lastCritical, "Low entry consumed at %d before the last critical at %d"
+                .formatted(firstLow, lastCritical));
+        // Critical entries are only passed over once their own partition ran out of them
+        assertTrue(lastCritical < 1_000 + 128, "Last critical entry consumed at %d".formatted(lastCritical));
+    }
+
+    @Test
+    @DisplayName("2.7 - Bounded Compact Engine Keeps The Flyweight Path Test")
+    public void testBoundedCompactFlyweight() throws InterruptedException {
+        var materialized = new AtomicInteger();
+        var engine = new CompactLogQueue() {
+            @Override
+            public boolean put(LogEntry entry) {
+                materialized.incrementAndGet();
+                return super.put(entry);
+            }
+
+            @Override
+            public LogEntry take() throws InterruptedException {
+                materialized.incrementAndGet();
+                return super.take();
+            }
+        };
+        var logProcessor = new LogProcessor(new BoundedLogQueue(engine, 2, OverflowPolicy.FAIL_FAST));
+
+        logProcessor.produceLog(1, Priority.LOW, new StringBuilder("First"));
+        logProcessor.produceLog(2, Priority.HIGH, new StringBuilder("Second"));
+        assertThrows(LogProcessorFullException.class,
+                () -> logProcessor.produceLog(3, Priority.HIGH, new StringBuilder("Third")));
+
+        var flyweight = new CompactLogEntry();
+        logProcessor.consumeLog(flyweight);
+        assertEquals(2, flyweight.offset());
+        // The consumed entry gave its slot back
+        assertTrue(logProcessor.produceLog(3, Priority.HIGH, new StringBuilder("Third")));
+        assertTrue(logProcessor.consumeLog(flyweight, Duration.ofSeconds(1)));
+        assertEquals("Third", flyweight.message());
+
+        assertEquals(0, materialized.get());
+    }
 
     @Test
     @DisplayName("3.0 - Consumer Functionality Test")
@@ -212,4 +371,72 @@ public class LogProcessorTest {
             future.cancel(true);
         }
     }
+
+    @Test
+    @DisplayName("6.0 - Consume Batch Keeps Priority Order Test")
+    public void testConsumeBatchKeepsPriorityOrder() throws InterruptedException {
+        var logProcessor = new LogProcessor();
+        var now = Instant.now();
+        for (int i = 0; i < 8; i++) {
+            logProcessor.produceLog(LogEntry.builder()
+                    .offset(i)
+                    .message("Test log " + i)
+                    .priority(Priority.values()[i % Priority.values().length])
+                    .creationTime(now)
+                    .build());
+        }
+
+        var firstBatch = logProcessor.consumeBatch(5, Duration.ofMillis(100));
+        var secondBatch = logProcessor.consumeBatch(5, Duration.ofMillis(100));
+
+        assertEquals(5, firstBatch.size());
+        assertEquals(3, secondBatch.size());
+        assertEquals(Priority.CRITICAL, firstBatch.getFirst().priority());
+        assertEquals(Priority.CRITICAL, firstBatch.get(1).priority());
+        assertEquals(Priority.LOW, secondBatch.getLast().priority());
+        assertTrue(logProcessor.isEmpty());
+    }
+
+    @Test
+    @Timeout(5)
+    @DisplayName("6.1 - Consume Batch Timeout Test")
+    public void testConsumeBatchTimeout() throws InterruptedException {
+        var logProcessor = new LogProcessor(new MultiLevelLogQueue());
+
+        var batch = logProcessor.consumeBatch(10, Duration.ofMillis(50));
+
+        assertTrue(batch.isEmpty());
+        assertNull(logProcessor.consumeLog(Duration.ofMillis(10)));
+        assertThrows(IllegalArgumentException.class, () -> logProcessor.consumeBatch(0, Duration.ZERO));
+    }
+
+    @Test
+    @DisplayName("6.2 - Batching Consumer Functionality Test")
+    public void testBatchingConsumerFunctionality() {
+        var logProcessor = new LogProcessor(new MultiLevelLogQueue());
+        var handled = new CopyOnWriteArrayList<List<LogEntry>>();
+        var consumer = new Consumer(logProcessor, 100, Duration.ofMillis(50), handled::add);
+
+        for (int i = 0; i < 250; i++) {
+            logProcessor.produceLog(LogEntry.builder()
+                    .offset(i)
+                    .message("Test log " + i)
+                    .priority(Priority.LOW)
+                    .creationTime(Instant.now())
+                    .build());
+        }
+
+        var executorService = Executors.newSingleThreadExecutor();
+        try {
+            executorService.submit(consumer);
+
+            await().atMost(2, TimeUnit.SECONDS)
+                .until(() -> handled.stream().mapToInt(List::size).sum() == 250);
+
+            assertTrue(handled.stream().allMatch(batch -> batch.size() <= 100));
+            assertEquals(0, handled.getFirst().getFirst().offset());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
 }
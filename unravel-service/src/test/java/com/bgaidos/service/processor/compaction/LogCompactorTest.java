@@ -0,0 +1,152 @@
+package com.bgaidos.service.processor.compaction;
+
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class LogCompactorTest {
+
+	private static final Instant START = Instant.parse("2025-01-01T12:00:00Z");
+
+	private final AtomicLong now = new AtomicLong(START.toEpochMilli());
+	private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+	private final List<LogEntry> emitted = new ArrayList<>();
+
+	@Test
+	@DisplayName("1.0 - The first entry passes, repeats in the window fold into one summary")
+	void testFoldRepeats() {
+		var compactor = new LogCompactor(Duration.ofSeconds(1), 64, clock);
+
+		assertTrue(compactor.admit(entry(1, "disk full", Priority.HIGH, "db"), emitted::add));
+		for (int i = 2; i <= 5; i++) {
+			now.addAndGet(100);
+			assertFalse(compactor.admit(entry(i, "disk full", Priority.HIGH, "db"), emitted::add));
+		}
+		assertEquals(0, compactor.flushExpired(emitted::add));
+
+		now.addAndGet(600);
+		assertEquals(1, compactor.flushExpired(emitted::add));
+
+		var summary = emitted.getFirst();
+		assertEquals(2, summary.offset());
+		assertEquals(4, summary.occurrences());
+		assertEquals(START.plusMillis(100), summary.creationTime());
+		assertEquals(START.plusMillis(400), summary.lastCreationTime());
+		assertEquals("db", summary.source());
+	}
+
+	@Test
+	@DisplayName("1.1 - Priority and source are part of the key")
+	void testKey() {
+		var compactor = new LogCompactor(Duration.ofSeconds(1), 64, clock);
+
+		assertTrue(compactor.admit(entry(1, "timeout", Priority.HIGH, "a"), emitted::add));
+		assertTrue(compactor.admit(entry(2, "timeout", Priority.LOW, "a"), emitted::add));
+		assertTrue(compactor.admit(entry(3, "timeout", Priority.HIGH, "b"), emitted::add));
+		assertTrue(compactor.admit(entry(4, "timeout", Priority.HIGH, null), emitted::add));
+		assertFalse(compactor.admit(entry(5, "timeout", Priority.HIGH, "a"), emitted::add));
+	}
+
+	@Test
+	@DisplayName("1.2 - A single repeat is emitted unchanged")
+	void testSingleRepeat() {
+		var compactor = new LogCompactor(Duration.ofSeconds(1), 64, clock);
+		var repeat = entry(2, "retrying", Priority.LOW, null);
+
+		compactor.admit(entry(1, "retrying", Priority.LOW, null), emitted::add);
+		compactor.admit(repeat, emitted::add);
+		compactor.flushAll(emitted::add);
+
+		assertEquals(List.of(repeat), emitted);
+	}
+
+	@Test
+	@DisplayName("2.0 - An entry after the window closes emits the summary first and opens a new window")
+	void testWindowRollover() {
+		var compactor = new LogCompactor(Duration.ofSeconds(1), 64, clock);
+		compactor.admit(entry(1, "spam", Priority.MEDIUM, null), emitted::add);
+		compactor.admit(entry(2, "spam", Priority.MEDIUM, null), emitted::add);
+		compactor.admit(entry(3, "spam", Priority.MEDIUM, null), emitted::add);
+
+		now.addAndGet(1000);
+		assertTrue(compactor.admit(entry(4, "spam", Priority.MEDIUM, null), emitted::add));
+
+		assertEquals(1, emitted.size());
+		assertEquals(2, emitted.getFirst().occurrences());
+		assertFalse(compactor.admit(entry(5, "spam", Priority.MEDIUM, null), emitted::add));
+	}
+
+	@Test
+	@DisplayName("3.0 - Distinct messages beyond the table size are never lost")
+	void testBoundedTable() {
+		var compactor = new LogCompactor(Duration.ofSeconds(1), 4, clock);
+		int passed = 0;
+		for (int round = 0; round < 3; round++) {
+			for (int i = 0; i < 100; i++) {
+				if (compactor.admit(entry(round * 100 + i, "message " + i, Priority.LOW, null), emitted::add)) {
+					passed++;
+				}
+			}
+		}
+		compactor.flushAll(emitted::add);
+
+		long occurrences = passed + emitted.stream().mapToLong(LogEntry::occurrences).sum();
+		assertEquals(300, occurrences);
+	}
+
+	@Test
+	@DisplayName("4.0 - The processor queues folded bursts as summaries and reports compacted entries")
+	void testProcessor() throws InterruptedException {
+		var compacted = new AtomicInteger();
+		var listener = new LogProcessorListener() {
+			@Override
+			public void onCompacted(Priority priority) {
+				compacted.incrementAndGet();
+			}
+		};
+		var processor = new LogProcessor(new MultiLevelLogQueue(clock), listener,
+			new LogCompactor(Duration.ofMinutes(1), 64, clock));
+
+		for (int i = 0; i < 1000; i++) {
+			processor.produceLog(entry(i, "connection refused", Priority.CRITICAL, "api"));
+		}
+		processor.produceLog(entry(1000, "started", Priority.LOW, "api"));
+
+		assertEquals(2, processor.size());
+		assertEquals(999, compacted.get());
+
+		processor.close();
+		assertEquals(3, processor.size());
+		assertEquals(0, processor.consumeLog().repeats());
+		var summary = processor.consumeLog();
+		assertEquals(999, summary.occurrences());
+		assertEquals("started", processor.consumeLog().message());
+	}
+
+	private LogEntry entry(long offset, String message, Priority priority, String source) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message(message)
+			.priority(priority)
+			.creationTime(clock.instant())
+			.source(source)
+			.build();
+	}
+}
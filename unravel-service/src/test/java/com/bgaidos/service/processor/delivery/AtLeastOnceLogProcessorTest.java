@@ -0,0 +1,223 @@
+package com.bgaidos.service.processor.delivery;
+
+import com.bgaidos.exceptions.LogPipelineException;
+import com.bgaidos.exceptions.LogProcessorFullException;
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.pipeline.LogPipeline;
+import com.bgaidos.service.processor.queue.BoundedLogQueue;
+import com.bgaidos.service.processor.queue.LogQueue;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class AtLeastOnceLogProcessorTest {
+
+	// Long enough that only the tests commit
+	private static final Duration COMMIT_INTERVAL = Duration.ofHours(1);
+	private static final Duration MAX_WAIT = Duration.ofSeconds(1);
+
+	@TempDir
+	private Path directory;
+
+	private AtLeastOnceLogProcessor processor;
+
+	@AfterEach
+	void tearDown() {
+		if (processor != null) {
+			processor.close();
+		}
+	}
+
+	@Test
+	@DisplayName("1.0 - Entries keep their offsets and commits advance over contiguous acks only")
+	void testCommitAdvancesOverContiguousAcks() throws InterruptedException {
+		processor = open(new MultiLevelLogQueue());
+		for (int i = 0; i < 4; i++) {
+			processor.produceLog(100 + i, Priority.HIGH, "Log " + i);
+		}
+		var consumed = consume(4);
+		assertEquals(List.of(100L, 101L, 102L, 103L), consumed.stream().map(LogEntry::offset).toList());
+
+		processor.ack(100);
+		processor.ack(102);
+		assertEquals(1, processor.commit());
+
+		processor.ack(101);
+		processor.ack(103);
+		assertEquals(4, processor.commit());
+		assertEquals(4, processor.nextPosition());
+	}
+
+	@Test
+	@DisplayName("1.2 - Retried entries keep their shared offset and are acked one at a time")
+	void testDuplicateOffsets() throws InterruptedException {
+		processor = open(new MultiLevelLogQueue());
+		processor.produceLog(42, Priority.MEDIUM, "Order placed");
+		processor.produceLog(42, Priority.MEDIUM, "Order placed");
+
+		var consumed = consume(2);
+		assertEquals(List.of(42L, 42L), consumed.stream().map(LogEntry::offset).toList());
+
+		processor.ack(42);
+		assertEquals(1, processor.commit());
+		processor.ack(42);
+		assertEquals(2, processor.commit());
+		// Nothing left with that offset, ignored
+		processor.ack(42);
+		assertEquals(2, processor.commit());
+	}
+
+	@Test
+	@DisplayName("1.1 - Out of order acks far apart are tracked")
+	void testTrackerGrows() {
+		var tracker = new OffsetTracker(10);
+		for (long offset = 20_009; offset >= 10; offset--) {
+			tracker.ack(offset);
+			if (offset == 11) {
+				assertEquals(10, tracker.advance());
+			}
+		}
+		// Already committed, ignored
+		tracker.ack(3);
+
+		assertEquals(20_010, tracker.advance());
+	}
+
+	@Test
+	@DisplayName("2.0 - Unacked entries are redelivered with their producer offsets after reopening")
+	void testRedeliveryAfterReopen() throws InterruptedException {
+		processor = open(new MultiLevelLogQueue());
+		for (int i = 0; i < 5; i++) {
+			processor.produceLog(10 + i, Priority.MEDIUM, "Log " + i);
+		}
+		consume(5);
+		processor.ack(10);
+		processor.ack(11);
+		processor.ack(13);
+		processor.close();
+
+		processor = open(new MultiLevelLogQueue());
+		var redelivered = consume(3);
+
+		// 13 was acked, but above the committed position, so it comes again
+		assertEquals(List.of(12L, 13L, 14L), redelivered.stream().map(LogEntry::offset).toList());
+		assertEquals("Log 2", redelivered.getFirst().message());
+		assertNull(processor.consumeLog(Duration.ofMillis(50)));
+		assertEquals(5, processor.nextPosition());
+
+		processor.ack(redelivered);
+		assertEquals(5, processor.commit());
+	}
+
+	@Test
+	@DisplayName("2.1 - Nothing is redelivered once everything was acked")
+	void testNoRedeliveryWhenAcked() throws InterruptedException {
+		processor = open(new MultiLevelLogQueue());
+		for (int i = 0; i < 3; i++) {
+			processor.produceLog(i, Priority.LOW, "Log " + i);
+		}
+		processor.ack(consume(3));
+		processor.close();
+
+		processor = open(new MultiLevelLogQueue());
+
+		assertNull(processor.consumeLog(Duration.ofMillis(50)));
+		assertEquals(3, processor.nextPosition());
+		processor.produceLog(0, Priority.LOW, "Next");
+		assertEquals(0, processor.consumeLog(MAX_WAIT).offset());
+		processor.ack(0);
+		assertEquals(4, processor.commit());
+	}
+
+	@Test
+	@DisplayName("3.0 - A nacked entry is delivered again with the same offset")
+	void testNack() throws InterruptedException {
+		processor = open(new MultiLevelLogQueue());
+		processor.produceLog(7, Priority.CRITICAL, "Payment failed");
+
+		var first = processor.consumeLog(MAX_WAIT);
+		processor.nack(first);
+		assertEquals(0, processor.commit());
+
+		var second = processor.consumeLog(MAX_WAIT);
+		assertEquals(first, second);
+		processor.ack(second.offset());
+		assertEquals(1, processor.commit());
+	}
+
+	@Test
+	@DisplayName("4.0 - Entries rejected at produce time do not hold back the commit")
+	void testRejectedEntriesAreAcked() throws InterruptedException {
+		processor = open(new BoundedLogQueue(new MultiLevelLogQueue(), 1, OverflowPolicy.FAIL_FAST));
+		processor.produceLog(0, Priority.HIGH, "Accepted");
+		assertThrows(LogProcessorFullException.class, () -> processor.produceLog(1, Priority.HIGH, "Rejected"));
+
+		processor.ack(processor.consumeLog(MAX_WAIT).offset());
+
+		assertEquals(2, processor.commit());
+	}
+
+	@Test
+	@DisplayName("5.0 - A pipeline batch is acked after its commit and redelivered when a stage fails")
+	void testPipelineDelivery() throws InterruptedException {
+		processor = open(new MultiLevelLogQueue());
+		var failOnce = new AtomicBoolean(true);
+		var committed = new CopyOnWriteArrayList<String>();
+		try (var pipeline = LogPipeline.builder(new SimpleMeterRegistry())
+			.stage("parse", 2, (entry, input) -> {
+				if (entry.message().equals("Log 1") && failOnce.getAndSet(false)) {
+					throw new IllegalStateException("Broken log");
+				}
+				return input;
+			})
+			.build((entry, result) -> committed.add(entry.message()))) {
+
+			for (int i = 0; i < 3; i++) {
+				processor.produceLog(i, Priority.HIGH, "Log " + i);
+			}
+
+			var first = consume(3);
+			assertThrows(LogPipelineException.class, () -> pipeline.handle(first));
+			processor.nack(first);
+			assertEquals(0, processor.commit());
+
+			var second = consume(3);
+			pipeline.handle(second);
+			processor.ack(second);
+			assertEquals(3, processor.commit());
+			assertTrue(committed.containsAll(List.of("Log 0", "Log 1", "Log 2")));
+		}
+	}
+
+	private AtLeastOnceLogProcessor open(LogQueue queue) {
+		return new AtLeastOnceLogProcessor(queue, LogProcessorListener.NONE, directory, COMMIT_INTERVAL, 4096);
+	}
+
+	private List<LogEntry> consume(int count) throws InterruptedException {
+		var entries = new ArrayList<LogEntry>();
+		for (int i = 0; i < count; i++) {
+			var entry = processor.consumeLog(MAX_WAIT);
+			assertNotNull(entry);
+			entries.add(entry);
+		}
+		return entries;
+	}
+}
@@ -0,0 +1,160 @@
+package com.bgaidos.service.processor.ingest;
+
+import com.bgaidos.api.LogIngestDto;
+import com.bgaidos.exceptions.LogIngestException;
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.BoundedLogQueue;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.OverflowPolicy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class NdjsonLogIngesterTest {
+
+	private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+	private static final JsonMapper MAPPER = JsonMapper.builder().build();
+
+	@Test
+	@DisplayName("1.0 - Entries are parsed with defaults for the optional fields")
+	void testIngest() throws InterruptedException {
+		var processor = new LogProcessor(new MultiLevelLogQueue(Clock.fixed(NOW, ZoneOffset.UTC)));
+		var ingester = ingester(processor, 2, Duration.ZERO);
+
+		var report = ingester.ingest(body("""
+			{"priority": "HIGH", "message": "first", "offset": 7, "source": "billing", "creationTime": "2025-01-01T11:59:00Z"}
+			{"priority": "HIGH", "message": "second", "creationTime": 1735732800000, "extra": {"nested": [1, 2]}}
+
+			{"message": "third", "priority": "HIGH", "source": null}
+			"""), "agent");
+
+		assertEquals(new LogIngestDto(3, 0, 0), report);
+		var first = processor.consumeLog();
+		assertEquals(7, first.offset());
+		assertEquals("billing", first.source());
+		assertEquals(Instant.parse("2025-01-01T11:59:00Z"), first.creationTime());
+		var second = processor.consumeLog();
+		assertEquals("second", second.message());
+		assertEquals("agent", second.source());
+		assertEquals(NOW, second.creationTime());
+		assertNull(processor.consumeLog().source());
+	}
+
+	@Test
+	@DisplayName("1.1 - Invalid entries are rejected without ending the stream")
+	void testRejected() {
+		var processor = new LogProcessor(new MultiLevelLogQueue());
+		var ingester = ingester(processor, 16, Duration.ZERO);
+
+		var report = ingester.ingest(body("""
+			{"priority": "URGENT", "message": "unknown priority"}
+			{"priority": "LOW"}
+			{"priority": "LOW", "message": 42}
+			{"priority": "LOW", "message": {"text": "nested"}}
+			{"priority": "LOW", "message": "bad time", "creationTime": "yesterday"}
+			{"priority": "LOW", "message": "bad offset", "offset": 1.5}
+			[{"priority": "LOW", "message": "in an array"}]
+			"just a string"
+			{"priority": "LOW", "message": "valid"}
+			"""), null);
+
+		assertEquals(new LogIngestDto(1, 8, 0), report);
+		assertEquals(1, processor.size());
+	}
+
+	@Test
+	@DisplayName("2.0 - Malformed JSON ends the ingest after producing the entries before it")
+	void testMalformed() {
+		var processor = new LogProcessor(new MultiLevelLogQueue());
+		var ingester = ingester(processor, 16, Duration.ZERO);
+
+		var exception = assertThrows(LogIngestException.class, () -> ingester.ingest(body("""
+			{"priority": "LOW", "message": "one"}
+			{"priority": "LOW", "message": "two"}
+			{"priority": "LOW", "message": "three
+			"""), null));
+
+		assertTrue(exception.getMessage().contains("after 2 accepted"), exception.getMessage());
+		assertEquals(2, processor.size());
+	}
+
+	@Test
+	@DisplayName("3.0 - Entries a full fail-fast processor has no room for are shed after the retry budget")
+	void testShed() {
+		var processor = new LogProcessor(new BoundedLogQueue(new MultiLevelLogQueue(), 2, OverflowPolicy.FAIL_FAST));
+		var ingester = ingester(processor, 16, Duration.ofMillis(5));
+
+		var report = ingester.ingest(lines(5), null);
+
+		assertEquals(new LogIngestDto(2, 0, 3), report);
+	}
+
+	@Test
+	@DisplayName("3.1 - A blocking processor stalls the ingest until consumers make room")
+	@Timeout(10)
+	void testBackpressure() throws Exception {
+		var processor = new LogProcessor(new BoundedLogQueue(new MultiLevelLogQueue(), 2, OverflowPolicy.BLOCK));
+		var ingester = ingester(processor, 1, Duration.ZERO);
+
+		try (var executor = Executors.newSingleThreadExecutor()) {
+			var report = executor.submit(() -> ingester.ingest(lines(6), null));
+			TimeUnit.MILLISECONDS.sleep(100);
+			assertFalse(report.isDone());
+			assertEquals(2, processor.size());
+
+			for (int i = 0; i < 6; i++) {
+				processor.consumeLog();
+			}
+			assertEquals(new LogIngestDto(6, 0, 0), report.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	@Test
+	@DisplayName("3.2 - A fail-fast processor is retried while consumers make room")
+	@Timeout(10)
+	void testFailFastRetry() throws Exception {
+		var processor = new LogProcessor(new BoundedLogQueue(new MultiLevelLogQueue(), 2, OverflowPolicy.FAIL_FAST));
+		var ingester = ingester(processor, 4, Duration.ofSeconds(5));
+
+		try (var executor = Executors.newSingleThreadExecutor()) {
+			var report = executor.submit(() -> ingester.ingest(lines(20), null));
+			for (int i = 0; i < 20; i++) {
+				processor.consumeLog();
+			}
+			assertEquals(new LogIngestDto(20, 0, 0), report.get(5, TimeUnit.SECONDS));
+		}
+	}
+
+	private static NdjsonLogIngester ingester(LogProcessor processor, int batchSize, Duration maxBlock) {
+		return new NdjsonLogIngester(processor, MAPPER, batchSize, maxBlock, Clock.fixed(NOW, ZoneOffset.UTC));
+	}
+
+	private static InputStream lines(int count) {
+		var body = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			body.append("{\"priority\": \"%s\", \"message\": \"Log %d\", \"offset\": %d}\n".formatted(Priority.MEDIUM, i, i));
+		}
+		return body(body.toString());
+	}
+
+	private static InputStream body(String ndjson) {
+		return new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,137 @@
+package com.bgaidos.service.processor.metrics;
+
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.BoundedLogQueue;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import com.bgaidos.service.processor.queue.OverflowPolicy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class LogProcessorMetricsTest {
+
+	private static final Instant START = Instant.parse("2025-01-01T12:00:00Z");
+
+	private final AtomicLong now = new AtomicLong(START.toEpochMilli());
+	private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("1.0 - Depth, produced, consumed and wait time are recorded per priority")
+	void testQueueMetrics() throws InterruptedException {
+		var queue = new MultiLevelLogQueue(clock);
+		var processor = new LogProcessor(queue, new LogProcessorMetrics(registry, queue, Duration.ofSeconds(30), clock));
+
+		processor.produceLog(entry(1, Priority.HIGH));
+		processor.produceLog(entry(2, Priority.HIGH));
+		processor.produceLog(entry(3, Priority.LOW));
+
+		assertEquals(2, gauge("log.processor.queue.depth", Priority.HIGH));
+		assertEquals(1, gauge("log.processor.queue.depth", Priority.LOW));
+		assertEquals(2, registry.get("log.processor.produced").tag("priority", "HIGH").counter().count());
+
+		now.addAndGet(250);
+		processor.consumeLog();
+
+		assertEquals(1, gauge("log.processor.queue.depth", Priority.HIGH));
+		assertEquals(1, registry.get("log.processor.consumed").tag("priority", "HIGH").counter().count());
+		var wait = registry.get("log.processor.wait").tag("priority", "HIGH").timer();
+		assertEquals(1, wait.count());
+		assertEquals(250, wait.totalTime(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	@DisplayName("2.0 - Entries shed by a bounded queue are counted")
+	void testShedCount() {
+		var queue = new BoundedLogQueue(new MultiLevelLogQueue(clock), 1, OverflowPolicy.DROP_OLDEST);
+		var processor = new LogProcessor(queue, new LogProcessorMetrics(registry, queue, Duration.ofSeconds(30), clock));
+
+		processor.produceLog(entry(1, Priority.LOW));
+		// Evicts the first entry to make room
+		processor.produceLog(entry(2, Priority.LOW));
+
+		assertEquals(1, registry.get("log.processor.shed").tag("priority", "LOW").functionCounter().count());
+		assertEquals(2, registry.get("log.processor.produced").tag("priority", "LOW").counter().count());
+		assertEquals(1, gauge("log.processor.queue.depth", Priority.LOW));
+	}
+
+	@Test
+	@DisplayName("3.0 - LOW entries waiting past the threshold are flagged")
+	void testStarvationDetector() throws InterruptedException {
+		var queue = new MultiLevelLogQueue(clock);
+		var processor = new LogProcessor(queue, new LogProcessorMetrics(registry, queue, Duration.ofSeconds(30), clock));
+
+		processor.produceLog(entry(1, Priority.LOW));
+		processor.produceLog(entry(2, Priority.LOW));
+		assertEquals(0, registry.get("log.processor.starving").gauge().value());
+
+		now.addAndGet(Duration.ofSeconds(31).toMillis());
+		assertEquals(1, registry.get("log.processor.starving").gauge().value());
+
+		processor.consumeLog();
+		assertEquals(1, registry.get("log.processor.starved").counter().count());
+		// Progress was made, so the remaining entry is not starving yet
+		assertEquals(0, registry.get("log.processor.starving").gauge().value());
+
+		processor.consumeLog();
+		assertEquals(0, registry.get("log.processor.starving").gauge().value());
+		assertEquals(2, registry.get("log.processor.starved").counter().count());
+	}
+
+	@Test
+	@DisplayName("4.0 - Attributed entries are counted per source, up to the source cap")
+	void testSourceMetrics() throws InterruptedException {
+		var queue = new MultiLevelLogQueue(clock);
+		var processor = new LogProcessor(queue,
+			new LogProcessorMetrics(registry, queue, Duration.ofSeconds(30), 2, clock));
+
+		processor.produceLog(entry(1, Priority.HIGH, "billing"));
+		processor.produceLog(entry(2, Priority.LOW, "billing"));
+		processor.produceLog(entry(3, Priority.HIGH, "search"));
+		processor.produceLog(entry(4, Priority.HIGH, "audit"));
+		processor.produceLog(entry(5, Priority.HIGH, null));
+
+		assertEquals(2, registry.get("log.processor.source.produced").tag("source", "billing").counter().count());
+		assertEquals(1, registry.get("log.processor.source.produced").tag("source", "search").counter().count());
+		assertEquals(1, registry.get("log.processor.source.produced").tag("source", "_other").counter().count());
+		assertEquals(3, registry.find("log.processor.source.produced").counters().size());
+
+		now.addAndGet(100);
+		processor.consumeLog();
+
+		assertEquals(1, registry.get("log.processor.source.consumed").tag("source", "billing").counter().count());
+		var wait = registry.get("log.processor.source.wait").tag("source", "billing").timer();
+		assertEquals(100, wait.totalTime(TimeUnit.MILLISECONDS));
+	}
+
+	private double gauge(String name, Priority priority) {
+		return registry.get(name).tag("priority", priority.name()).gauge().value();
+	}
+
+	private LogEntry entry(long offset, Priority priority) {
+		return entry(offset, priority, null);
+	}
+
+	private LogEntry entry(long offset, Priority priority, String source) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(clock.instant())
+			.source(source)
+			.build();
+	}
+}
@@ -0,0 +1,127 @@
+package com.bgaidos.service.processor.metrics;
+
+import com.bgaidos.service.processor.LogProcessor;
+import com.bgaidos.service.processor.LogProcessorListener;
+import com.bgaidos.service.processor.model.Priority;
+import com.bgaidos.service.processor.queue.MultiLevelLogQueue;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class LogTrafficAggregatorTest {
+
+	private static final Instant START = Instant.parse("2025-01-01T12:00:00Z");
+
+	private final AtomicLong now = new AtomicLong(START.toEpochMilli());
+	private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+
+	@Test
+	@DisplayName("1.0 - Produced entries, bytes, consumed entries and wait are aggregated per priority")
+	void testAggregation() {
+		var aggregator = new LogTrafficAggregator(10, 5, clock);
+
+		aggregator.onProduced(Priority.CRITICAL, "billing", "Payment failed");
+		aggregator.onProduced(Priority.CRITICAL, null, "Café");
+		aggregator.onProduced(Priority.LOW, null, null);
+		now.addAndGet(300);
+		aggregator.onConsumed(Priority.CRITICAL, "billing", START.toEpochMilli());
+		aggregator.onConsumed(Priority.CRITICAL, null, START.toEpochMilli() + 200);
+
+		var second = aggregator.windows(LogTrafficAggregator.Resolution.SECOND, 1).getFirst();
+		assertEquals(START, second.start());
+		assertEquals(Duration.ofSeconds(1), second.length());
+		var critical = second.traffic().get(Priority.CRITICAL);
+		assertEquals(new LogTrafficAggregator.Traffic(2, 14 + 5, 2, 400, 300), critical);
+		assertEquals(200, critical.meanWaitMillis());
+		assertEquals(1, second.traffic().get(Priority.LOW).produced());
+		assertEquals(0, second.traffic().get(Priority.HIGH).produced());
+
+		var minute = aggregator.windows(LogTrafficAggregator.Resolution.MINUTE, 1).getFirst();
+		assertEquals(critical, minute.traffic().get(Priority.CRITICAL));
+	}
+
+	@Test
+	@DisplayName("1.1 - Windows roll over with the clock and are forgotten once the ring wraps")
+	void testRollover() {
+		var aggregator = new LogTrafficAggregator(3, 2, clock);
+
+		aggregator.onProduced(Priority.HIGH, null, "First");
+		now.addAndGet(1_000);
+		aggregator.onProduced(Priority.HIGH, null, "Second");
+		aggregator.onProduced(Priority.HIGH, null, "Second");
+
+		var windows = aggregator.windows(LogTrafficAggregator.Resolution.SECOND, 10);
+		assertEquals(3, windows.size());
+		assertEquals(START.plusSeconds(1), windows.getLast().start());
+		assertEquals(0, windows.get(0).traffic().get(Priority.HIGH).produced());
+		assertEquals(1, windows.get(1).traffic().get(Priority.HIGH).produced());
+		assertEquals(2, windows.get(2).traffic().get(Priority.HIGH).produced());
+		assertEquals(3, aggregator.windows(LogTrafficAggregator.Resolution.MINUTE, 1).getFirst()
+			.traffic().get(Priority.HIGH).produced());
+
+		// The bucket of the first second is reused, so its entry is gone
+		now.addAndGet(2_000);
+		aggregator.onProduced(Priority.HIGH, null, "Fourth");
+		windows = aggregator.windows(LogTrafficAggregator.Resolution.SECOND, 3);
+		assertEquals(START.plusSeconds(3), windows.getLast().start());
+		assertEquals(2, windows.get(0).traffic().get(Priority.HIGH).produced());
+		assertEquals(0, windows.get(1).traffic().get(Priority.HIGH).produced());
+		assertEquals(1, windows.get(2).traffic().get(Priority.HIGH).produced());
+
+		// Late updates for a window the ring has moved past are dropped
+		aggregator.onConsumed(Priority.HIGH, null, START.toEpochMilli());
+		assertEquals(1, aggregator.windows(LogTrafficAggregator.Resolution.SECOND, 1).getFirst()
+			.traffic().get(Priority.HIGH).consumed());
+	}
+
+	@Test
+	@DisplayName("2.0 - Concurrent producers are all counted")
+	void testConcurrentProducers() {
+		var aggregator = new LogTrafficAggregator(10, 5, clock);
+
+		try (var executor = Executors.newFixedThreadPool(8)) {
+			for (int thread = 0; thread < 8; thread++) {
+				executor.submit(() -> {
+					for (int i = 0; i < 10_000; i++) {
+						aggregator.onProduced(Priority.MEDIUM, null, "x");
+					}
+				});
+			}
+		}
+
+		var medium = aggregator.windows(LogTrafficAggregator.Resolution.SECOND, 1).getFirst()
+			.traffic().get(Priority.MEDIUM);
+		assertEquals(80_000, medium.produced());
+		assertEquals(80_000, medium.bytes());
+	}
+
+	@Test
+	@DisplayName("3.0 - The processor reports messages to every listener it is given")
+	void testProcessorListeners() throws InterruptedException {
+		var queue = new MultiLevelLogQueue(clock);
+		var registry = new SimpleMeterRegistry();
+		var aggregator = new LogTrafficAggregator(10, 5, clock);
+		var processor = new LogProcessor(queue, LogProcessorListener.of(
+			new LogProcessorMetrics(registry, queue, Duration.ofSeconds(30), clock), aggregator));
+
+		processor.produceLog(1, Priority.HIGH, "billing", new StringBuilder("Payment failed"));
+		processor.consumeLog();
+
+		var high = aggregator.windows(LogTrafficAggregator.Resolution.SECOND, 1).getFirst().traffic().get(Priority.HIGH);
+		assertEquals(1, high.produced());
+		assertEquals(14, high.bytes());
+		assertEquals(1, high.consumed());
+		assertEquals(1, registry.get("log.processor.produced").tag("priority", "HIGH").counter().count());
+	}
+}
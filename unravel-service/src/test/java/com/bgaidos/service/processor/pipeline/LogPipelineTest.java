@@ -0,0 +1,173 @@
+package com.bgaidos.service.processor.pipeline;
+
+import com.bgaidos.exceptions.LogPipelineException;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class LogPipelineTest {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@Timeout(5)
+	@DisplayName("1.0 - Stages transform entries and the batch is committed when handle returns")
+	void testStagesTransform() {
+		var committed = new CopyOnWriteArrayList<Integer>();
+		try (var pipeline = LogPipeline.builder(registry)
+			.stage("parse", 2, (entry, input) -> input.message())
+			.stage("measure", 2, (entry, message) -> message.length())
+			.build((entry, length) -> committed.add(length))) {
+
+			pipeline.handle(List.of(entry(1, "a", Priority.LOW), entry(2, "abc", Priority.LOW)));
+
+			// The batch is committed by the time handle returns
+			assertEquals(List.of(1, 3), committed);
+			assertEquals(0, pipeline.inFlight());
+		}
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("1.1 - Filtered and failed entries are not committed, do not block later ones and fail the batch")
+	void testFilterAndFailure() {
+		var committed = new CopyOnWriteArrayList<Long>();
+		try (var pipeline = LogPipeline.builder(registry)
+			.stage("filter", 1, (entry, input) -> entry.offset() == 2 ? null : input)
+			.stage("explode", 1, (entry, input) -> {
+				if (entry.offset() == 3) {
+					throw new IllegalStateException("Broken log");
+				}
+				return input;
+			})
+			.build((entry, result) -> committed.add(entry.offset()))) {
+
+			var batch = List.of(entry(1, "a", Priority.HIGH), entry(2, "b", Priority.HIGH),
+				entry(3, "c", Priority.HIGH), entry(4, "d", Priority.HIGH));
+			var failure = assertThrows(LogPipelineException.class, () -> pipeline.handle(batch));
+
+			assertInstanceOf(IllegalStateException.class, failure.getCause());
+			assertEquals(0, pipeline.inFlight());
+			assertEquals(List.of(1L, 4L), committed);
+			assertEquals(1, registry.get("log.pipeline.stage.failures").tag("stage", "explode").counter().count());
+		}
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("2.0 - Parallel stages commit in offset order within each priority")
+	void testOrderedCommit() throws InterruptedException {
+		Map<Priority, List<Long>> committed = new ConcurrentHashMap<>();
+		try (var pipeline = LogPipeline.builder(registry)
+			.stage("jitter", 8, (entry, input) -> {
+				Thread.sleep(ThreadLocalRandom.current().nextInt(3));
+				return input;
+			})
+			.build((entry, result) -> committed
+				.computeIfAbsent(entry.priority(), priority -> Collections.synchronizedList(new ArrayList<>()))
+				.add(entry.offset()))) {
+
+			var batch = new ArrayList<LogEntry>();
+			for (int i = 0; i < 400; i++) {
+				batch.add(entry(i, "Log " + i, Priority.values()[i % 4]));
+			}
+			pipeline.handle(batch);
+
+			assertTrue(pipeline.awaitIdle(Duration.ofSeconds(5)));
+			for (var priority : Priority.values()) {
+				var offsets = committed.get(priority);
+				assertEquals(100, offsets.size());
+				assertEquals(offsets.stream().sorted().toList(), offsets, "%s committed out of order".formatted(priority));
+			}
+		}
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("3.0 - A full hand-off buffer blocks the caller")
+	void testBackpressure() throws Exception {
+		var release = new CountDownLatch(1);
+		var executorService = Executors.newSingleThreadExecutor();
+		try (var pipeline = LogPipeline.builder(registry)
+			.bufferSize(1)
+			.stage("slow", 1, (entry, input) -> {
+				release.await();
+				return input;
+			})
+			.build((entry, result) -> {
+			})) {
+
+			// One entry in the worker, one in the buffer, the third has nowhere to go
+			var handled = executorService.submit(() -> pipeline.handle(List.of(
+				entry(1, "a", Priority.LOW), entry(2, "b", Priority.LOW), entry(3, "c", Priority.LOW))));
+			assertThrows(TimeoutException.class, () -> handled.get(200, TimeUnit.MILLISECONDS));
+
+			release.countDown();
+			handled.get(1, TimeUnit.SECONDS);
+			assertTrue(pipeline.awaitIdle(Duration.ofSeconds(1)));
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("4.0 - Every stage and the commit point report their own latency")
+	void testStageMetrics() throws InterruptedException {
+		try (var pipeline = LogPipeline.builder(registry)
+			.stage("parse", 1, (entry, input) -> input)
+			.stage("enrich", 1, (entry, input) -> input)
+			.build((entry, result) -> {
+			})) {
+
+			pipeline.handle(List.of(entry(1, "a", Priority.MEDIUM)));
+			assertTrue(pipeline.awaitIdle(Duration.ofSeconds(2)));
+		}
+
+		for (var stage : List.of("parse", "enrich", "commit")) {
+			assertEquals(1, registry.get("log.pipeline.stage.latency").tag("stage", stage).timer().count(), stage);
+		}
+		assertNotNull(registry.get("log.pipeline.stage.buffer").tag("stage", "parse").gauge());
+	}
+
+	@Test
+	@DisplayName("5.0 - A closed pipeline rejects new batches")
+	void testClosed() {
+		var pipeline = LogPipeline.builder(registry).build((entry, result) -> {
+		});
+		pipeline.close();
+
+		assertThrows(IllegalStateException.class, () -> pipeline.handle(List.of(entry(1, "a", Priority.LOW))));
+	}
+
+	private static LogEntry entry(long offset, String message, Priority priority) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message(message)
+			.priority(priority)
+			.creationTime(Instant.now())
+			.build();
+	}
+}
@@ -0,0 +1,183 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.exceptions.LogProcessorFullException;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class BoundedLogQueueTest {
+
+	@Test
+	@Timeout(5)
+	@DisplayName("1.0 - BLOCK policy makes the producer wait for a free slot")
+	void testBlockPolicy() throws Exception {
+		var queue = new BoundedLogQueue(new MultiLevelLogQueue(), 2, OverflowPolicy.BLOCK);
+		queue.put(entry(1, Priority.LOW));
+		queue.put(entry(2, Priority.LOW));
+
+		var executorService = Executors.newSingleThreadExecutor();
+		try {
+			var producerFuture = executorService.submit(() -> queue.put(entry(3, Priority.CRITICAL)));
+			TimeUnit.MILLISECONDS.sleep(100);
+			assertFalse(producerFuture.isDone());
+
+			assertEquals(1, queue.take().offset());
+
+			assertTrue(producerFuture.get(2, TimeUnit.SECONDS));
+			assertEquals(2, queue.size());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("2.0 - FAIL_FAST policy rejects entries once full")
+	void testFailFastPolicy() {
+		var queue = new BoundedLogQueue(new MultiLevelLogQueue(), 1, OverflowPolicy.FAIL_FAST);
+		assertTrue(queue.put(entry(1, Priority.HIGH)));
+
+		var exception = assertThrows(LogProcessorFullException.class, () -> queue.put(entry(2, Priority.HIGH)));
+
+		assertEquals("Log processor is full (capacity 1), rejected log 2.", exception.getMessage());
+		assertEquals(1, queue.shedCount(Priority.HIGH));
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	@DisplayName("3.0 - DROP_OLDEST policy sheds LOW before MEDIUM and never more important entries")
+	void testDropOldestPolicy() throws InterruptedException {
+		var queue = new BoundedLogQueue(new MultiLevelLogQueue(), 3, OverflowPolicy.DROP_OLDEST);
+		queue.put(entry(1, Priority.LOW));
+		queue.put(entry(2, Priority.MEDIUM));
+		queue.put(entry(3, Priority.LOW));
+
+		assertTrue(queue.put(entry(4, Priority.CRITICAL)));  // evicts LOW 1
+		assertTrue(queue.put(entry(5, Priority.MEDIUM)));    // evicts LOW 3
+		assertFalse(queue.put(entry(6, Priority.LOW)));      // only MEDIUM+ left, incoming LOW is shed
+		assertTrue(queue.put(entry(7, Priority.HIGH)));      // evicts MEDIUM 2
+
+		assertEquals(3, queue.size());
+		assertEquals(3, queue.shedCount(Priority.LOW));
+		assertEquals(1, queue.shedCount(Priority.MEDIUM));
+		assertEquals(0, queue.shedCount(Priority.CRITICAL));
+
+		var remaining = new ArrayList<LogEntry>();
+		queue.drainTo(remaining, 10);
+		assertEquals(List.of(4L, 7L, 5L), remaining.stream().map(LogEntry::offset).toList());
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("3.1 - DROP_OLDEST policy makes CRITICAL wait rather than drop it")
+	void testDropOldestPolicyNeverDropsCritical() throws Exception {
+		var queue = new BoundedLogQueue(new MultiLevelLogQueue(), 1, OverflowPolicy.DROP_OLDEST);
+		queue.put(entry(1, Priority.HIGH));
+
+		var executorService = Executors.newSingleThreadExecutor();
+		try {
+			var producerFuture = executorService.submit(() -> queue.put(entry(2, Priority.CRITICAL)));
+			TimeUnit.MILLISECONDS.sleep(100);
+			assertFalse(producerFuture.isDone());
+
+			queue.take();
+
+			assertTrue(producerFuture.get(2, TimeUnit.SECONDS));
+			assertEquals(2, queue.take().offset());
+			assertEquals(0, queue.shedCount(Priority.CRITICAL));
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("4.0 - SAMPLE_LOW policy admits one in N LOW entries past the sampling threshold")
+	void testSampleLowPolicy() {
+		var queue = new BoundedLogQueue(new MultiLevelLogQueue(), 100, OverflowPolicy.SAMPLE_LOW, 2, 10);
+		queue.put(entry(1, Priority.HIGH));
+		queue.put(entry(2, Priority.HIGH));
+
+		for (int i = 0; i < 20; i++) {
+			queue.put(entry(100 + i, Priority.LOW));
+		}
+		queue.put(entry(3, Priority.MEDIUM));
+
+		assertEquals(5, queue.size());
+		assertEquals(18, queue.shedCount(Priority.LOW));
+		assertEquals(0, queue.shedCount(Priority.MEDIUM));
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("5.0 - Depth never exceeds capacity with concurrent producers")
+	void testCapacityHoldsUnderConcurrency() throws Exception {
+		var queue = new BoundedLogQueue(new HeapLogQueue(), 50, OverflowPolicy.DROP_OLDEST);
+		var executorService = Executors.newFixedThreadPool(4);
+		try {
+			var futures = new ArrayList<Future<?>>();
+			for (int p = 0; p < 4; p++) {
+				final int producerId = p;
+				futures.add(executorService.submit(() -> {
+					for (int i = 0; i < 1_000; i++) {
+						queue.put(entry(producerId * 10_000L + i, Priority.values()[i % 2 + 2]));
+						assertTrue(queue.size() <= 50);
+					}
+				}));
+			}
+			for (var future : futures) {
+				future.get();
+			}
+
+			assertEquals(50, queue.size());
+			long shed = 0;
+			for (var priority : Priority.values()) {
+				shed += queue.shedCount(priority);
+			}
+			assertEquals(4_000 - 50, shed);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("6.0 - Entries the wrapped queue rejects are shed and give their slot back")
+	void testDelegateRejection() {
+		var rejecting = new AtomicBoolean(true);
+		var queue = new BoundedLogQueue(new HeapLogQueue() {
+			@Override
+			public boolean put(LogEntry entry) {
+				return !rejecting.get() && super.put(entry);
+			}
+		}, 1, OverflowPolicy.FAIL_FAST);
+
+		assertFalse(queue.put(entry(1, Priority.HIGH)));
+		assertEquals(1, queue.shedCount(Priority.HIGH));
+
+		rejecting.set(false);
+		assertTrue(queue.put(entry(2, Priority.HIGH)));
+		assertEquals(1, queue.size());
+	}
+
+	private static LogEntry entry(long offset, Priority priority) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(Instant.now())
+			.build();
+	}
+}
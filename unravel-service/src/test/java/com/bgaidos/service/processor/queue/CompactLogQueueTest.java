@@ -0,0 +1,154 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.lang.management.ManagementFactory;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class CompactLogQueueTest {
+
+	private static final Priority[] PRIORITIES = Priority.values();
+	private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+	private final CompactLogQueue queue = new CompactLogQueue(8, 64, Clock.fixed(NOW, ZoneOffset.UTC));
+
+	@Test
+	@DisplayName("1.0 - Entries round-trip with all fields intact")
+	void testRoundTrip() throws InterruptedException {
+		var first = entry(1, "Hello", Priority.HIGH, NOW.minusNanos(123_456_789));
+		var second = entry(2, null, Priority.HIGH, NOW);
+		var third = entry(3, "Zürich 🚀 ok", Priority.HIGH, NOW);
+
+		queue.put(first);
+		queue.put(second);
+		queue.put(third);
+
+		assertEquals(first, queue.take());
+		assertEquals(second, queue.take());
+		assertEquals(third, queue.take());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@DisplayName("1.1 - Higher priority lanes are served first and aging promotes old entries")
+	void testPriorityAndAging() throws InterruptedException {
+		// 1 + 200 seconds of waiting beats CRITICAL (100)
+		queue.put(entry(1, "old low", Priority.LOW, NOW.minusSeconds(200)));
+		queue.put(entry(2, "low", Priority.LOW, NOW));
+		queue.put(entry(3, "critical", Priority.CRITICAL, NOW));
+		queue.put(entry(4, "medium", Priority.MEDIUM, NOW));
+
+		var target = new CompactLogEntry();
+		var order = new ArrayList<Long>();
+		for (int i = 0; i < 4; i++) {
+			queue.take(target);
+			order.add(target.offset());
+		}
+
+		assertEquals(List.of(1L, 3L, 4L, 2L), order);
+	}
+
+	@Test
+	@DisplayName("2.0 - Messages wrapping around the arena are read back intact")
+	void testArenaWrapAround() throws InterruptedException {
+		var target = new CompactLogEntry();
+		for (int i = 0; i < 50; i++) {
+			var message = "message-%02d".formatted(i);
+			assertTrue(queue.put(i, Priority.MEDIUM, i, message));
+			queue.take(target);
+
+			assertEquals(i, target.offset());
+			assertEquals(i, target.creationEpochNanos());
+			assertEquals(message, target.message());
+		}
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("3.0 - Producers wait while a lane is full")
+	void testBlocksWhenFull() throws Exception {
+		for (int i = 0; i < 8; i++) {
+			queue.put(i, Priority.LOW, 0, "x");
+		}
+
+		var executorService = Executors.newSingleThreadExecutor();
+		try {
+			var blocked = executorService.submit(() -> queue.put(8, Priority.LOW, 0, "x"));
+			assertThrows(TimeoutException.class, () -> blocked.get(200, TimeUnit.MILLISECONDS));
+
+			// Other lanes are unaffected
+			assertTrue(queue.put(100, Priority.HIGH, 0, "x"));
+
+			queue.pollOldest(Priority.LOW);
+			assertTrue(blocked.get(1, TimeUnit.SECONDS));
+			assertEquals(9, queue.size());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("3.1 - Messages larger than the arena are rejected")
+	void testMessageTooLarge() {
+		assertThrows(IllegalArgumentException.class, () -> queue.put(1, Priority.LOW, 0, "x".repeat(65)));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@DisplayName("4.0 - Steady-state produce and consume does not allocate per entry")
+	void testAllocationFree() throws InterruptedException {
+		var threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		var compactQueue = new CompactLogQueue(1024, 1 << 16, Clock.fixed(NOW, ZoneOffset.UTC));
+		var message = new StringBuilder(32);
+		var target = new CompactLogEntry();
+		int entries = 200_000;
+
+		// Warm-up grows the flyweight buffer and lets the JIT settle
+		runProduceConsume(compactQueue, message, target, entries);
+		long before = threadBean.getCurrentThreadAllocatedBytes();
+		runProduceConsume(compactQueue, message, target, entries);
+		long allocated = threadBean.getCurrentThreadAllocatedBytes() - before;
+
+		assertTrue(allocated < entries / 4, "Allocated %d bytes for %d entries".formatted(allocated, entries));
+	}
+
+	private static void runProduceConsume(CompactLogQueue queue, StringBuilder message, CompactLogEntry target,
+		int entries) throws InterruptedException {
+		for (int i = 0; i < entries; i++) {
+			message.setLength(0);
+			message.append("Log ").append(i);
+			queue.put(i, PRIORITIES[i & 3], i, message);
+			if ((i & 63) == 63) {
+				while (!queue.isEmpty()) {
+					queue.take(target);
+				}
+			}
+		}
+	}
+
+	private static LogEntry entry(long offset, String message, Priority priority, Instant creationTime) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message(message)
+			.priority(priority)
+			.creationTime(creationTime)
+			.build();
+	}
+}
@@ -0,0 +1,127 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class MultiLevelLogQueueTest {
+
+	private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+	private final MultiLevelLogQueue queue = new MultiLevelLogQueue(Clock.fixed(NOW, ZoneOffset.UTC));
+
+	@Test
+	@DisplayName("1.0 - Higher priority lanes are served first")
+	void testPriorityOrder() throws InterruptedException {
+		queue.put(entry(1, Priority.LOW, NOW));
+		queue.put(entry(2, Priority.MEDIUM, NOW));
+		queue.put(entry(3, Priority.CRITICAL, NOW));
+		queue.put(entry(4, Priority.HIGH, NOW));
+
+		assertEquals(Priority.CRITICAL, queue.take().priority());
+		assertEquals(Priority.HIGH, queue.take().priority());
+		assertEquals(Priority.MEDIUM, queue.take().priority());
+		assertEquals(Priority.LOW, queue.take().priority());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@DisplayName("1.1 - Entries of the same priority are served in FIFO order")
+	void testFifoWithinLane() throws InterruptedException {
+		for (int i = 0; i < 5; i++) {
+			queue.put(entry(i, Priority.MEDIUM, NOW));
+		}
+
+		for (int i = 0; i < 5; i++) {
+			assertEquals(i, queue.take().offset());
+		}
+	}
+
+	@Test
+	@DisplayName("2.0 - Old LOW entries are promoted above fresh CRITICAL entries")
+	void testAgingPromotion() throws InterruptedException {
+		queue.put(entry(1, Priority.CRITICAL, NOW));
+		// 1 + 100 seconds of waiting beats CRITICAL (100)
+		queue.put(entry(2, Priority.LOW, NOW.minusSeconds(100)));
+
+		assertEquals(2, queue.take().offset());
+		assertEquals(1, queue.take().offset());
+	}
+
+	@Test
+	@DisplayName("2.1 - Equal effective priority is served by offset, like LogEntry.compareTo")
+	void testEqualEffectivePriorityTieBreak() throws InterruptedException {
+		// HIGH (30) waiting 20s == MEDIUM (10) waiting 40s
+		queue.put(entry(7, Priority.HIGH, NOW.minusSeconds(20)));
+		queue.put(entry(3, Priority.MEDIUM, NOW.minusSeconds(40)));
+
+		assertEquals(3, queue.take().offset());
+		assertEquals(7, queue.take().offset());
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("3.0 - Take blocks until an entry is produced")
+	void testTakeBlocksUntilProduced() throws Exception {
+		var executorService = Executors.newSingleThreadExecutor();
+		try {
+			var future = executorService.submit(queue::take);
+			TimeUnit.MILLISECONDS.sleep(100);
+			assertFalse(future.isDone());
+
+			queue.put(entry(42, Priority.LOW, NOW));
+
+			assertEquals(42, future.get(2, TimeUnit.SECONDS).offset());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("3.1 - Poll returns null when nothing arrives in time")
+	void testPollTimeout() throws InterruptedException {
+		assertNull(queue.poll(20, TimeUnit.MILLISECONDS));
+
+		queue.put(entry(1, Priority.HIGH, NOW));
+
+		assertEquals(1, queue.poll(20, TimeUnit.MILLISECONDS).offset());
+	}
+
+	@Test
+	@DisplayName("4.0 - Drain keeps priority order and respects the limit")
+	void testDrainTo() {
+		queue.put(entry(1, Priority.LOW, NOW));
+		queue.put(entry(2, Priority.CRITICAL, NOW));
+		queue.put(entry(3, Priority.MEDIUM, NOW));
+
+		var drained = new ArrayList<LogEntry>();
+		assertEquals(2, queue.drainTo(drained, 2));
+
+		assertEquals(List.of(2L, 3L), drained.stream().map(LogEntry::offset).toList());
+		assertEquals(1, queue.size());
+	}
+
+	private static LogEntry entry(long offset, Priority priority, Instant creationTime) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(creationTime)
+			.build();
+	}
+}
@@ -0,0 +1,151 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class PartitionedLogQueueTest {
+
+	@Test
+	@DisplayName("1.0 - A single partition keeps exact priority order")
+	void testSinglePartitionPriorityOrder() throws InterruptedException {
+		var queue = new PartitionedLogQueue(1, PartitionedLogQueue.Routing.OFFSET, MultiLevelLogQueue::new);
+		queue.put(entry(1, Priority.LOW));
+		queue.put(entry(2, Priority.CRITICAL));
+		queue.put(entry(3, Priority.MEDIUM));
+
+		assertEquals(2, queue.take().offset());
+		assertEquals(3, queue.take().offset());
+		assertEquals(1, queue.take().offset());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@DisplayName("2.0 - A consumer steals from other partitions when its home partition is empty")
+	void testWorkStealing() {
+		var queue = new PartitionedLogQueue(4, PartitionedLogQueue.Routing.OFFSET, MultiLevelLogQueue::new);
+		// Whichever partitions the entries land in, the single consumer reaches all of them
+		queue.put(entry(4, Priority.LOW));
+		queue.put(entry(8, Priority.LOW));
+		queue.put(entry(12, Priority.LOW));
+		queue.put(entry(7, Priority.HIGH));
+
+		var consumed = new ArrayList<Long>();
+		LogEntry entry;
+		while ((entry = queue.poll()) != null) {
+			consumed.add(entry.offset());
+		}
+
+		assertEquals(4, consumed.size());
+		assertTrue(consumed.containsAll(List.of(4L, 7L, 8L, 12L)));
+		assertNull(queue.poll());
+	}
+
+	@Test
+	@DisplayName("2.1 - Drain collects entries from every partition")
+	void testDrainToAcrossPartitions() {
+		var queue = new PartitionedLogQueue(3, PartitionedLogQueue.Routing.THREAD, MultiLevelLogQueue::new);
+		for (int i = 0; i < 10; i++) {
+			queue.put(entry(i, Priority.MEDIUM));
+		}
+
+		var drained = new ArrayList<LogEntry>();
+		assertEquals(6, queue.drainTo(drained, 6));
+		assertEquals(4, queue.drainTo(drained, 100));
+		assertEquals(10, drained.stream().map(LogEntry::offset).distinct().count());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@DisplayName("2.2 - pollOldest finds the priority in any partition")
+	void testPollOldestAcrossPartitions() {
+		var queue = new PartitionedLogQueue(4, PartitionedLogQueue.Routing.OFFSET, MultiLevelLogQueue::new);
+		queue.put(entry(1, Priority.HIGH));
+		queue.put(entry(2, Priority.LOW));
+
+		assertEquals(2, queue.pollOldest(Priority.LOW).offset());
+		assertNull(queue.pollOldest(Priority.LOW));
+		assertEquals(1, queue.size());
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("3.0 - Multiple producers and consumers consume every entry exactly once")
+	void testMultipleProducersAndConsumers() throws Exception {
+		var queue = new PartitionedLogQueue();
+		int producers = 4;
+		int entriesPerProducer = 5_000;
+		var latch = new CountDownLatch(producers * entriesPerProducer);
+
+		var executorService = Executors.newFixedThreadPool(producers + 3);
+		try {
+			var consumers = new ArrayList<Future<List<Long>>>();
+			for (int c = 0; c < 3; c++) {
+				consumers.add(executorService.submit(() -> consume(queue, latch)));
+			}
+
+			var futures = new ArrayList<Future<?>>();
+			for (int p = 0; p < producers; p++) {
+				final long base = p * 1_000_000L;
+				futures.add(executorService.submit(() -> {
+					for (int i = 0; i < entriesPerProducer; i++) {
+						queue.put(entry(base + i, Priority.values()[i % Priority.values().length]));
+					}
+				}));
+			}
+			for (var future : futures) {
+				future.get();
+			}
+
+			assertTrue(latch.await(5, TimeUnit.SECONDS), "Not all logs were consumed within the timeout period");
+			// Checked here, an assertion failing in a consumer thread would only end that thread
+			var consumed = new HashSet<Long>();
+			for (var consumer : consumers) {
+				for (var offset : consumer.get()) {
+					assertTrue(consumed.add(offset), "Log %d consumed twice".formatted(offset));
+				}
+			}
+			assertEquals(producers * entriesPerProducer, consumed.size());
+			assertTrue(queue.isEmpty());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static List<Long> consume(LogQueue queue, CountDownLatch latch) throws InterruptedException {
+		var consumed = new ArrayList<Long>();
+		while (latch.getCount() > 0) {
+			var entry = queue.poll(10, TimeUnit.MILLISECONDS);
+			if (entry != null) {
+				consumed.add(entry.offset());
+				latch.countDown();
+			}
+		}
+		return consumed;
+	}
+
+	private static LogEntry entry(long offset, Priority priority) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(Instant.now())
+			.build();
+	}
+}
@@ -0,0 +1,248 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class RedisStreamLogQueueTest {
+
+	private static final String GROUP = "log-processor";
+	private static final String CONSUMER = "node-1";
+	private static final Instant CREATED = Instant.parse("2026-01-01T10:00:00Z");
+
+	@Mock(strictness = Mock.Strictness.LENIENT)
+	private StringRedisTemplate redis;
+
+	private RedisStreamLogQueue queue;
+
+	@BeforeEach
+	void setUp() {
+		// Long intervals, so that the tests run the background tasks themselves
+		queue = new RedisStreamLogQueue(redis, WeightedFairPolicy.DEFAULT_WEIGHTS, new RedisStreamLogQueue.Options(
+			"logs", GROUP, CONSUMER, 2, Duration.ZERO, Duration.ofSeconds(30), Duration.ofHours(1), Duration.ofHours(1),
+			16, 1_000));
+		// The claim task runs once at startup, wait for it to finish before stubbing
+		verify(redis, timeout(1_000)).execute(eq(RedisStreamLogQueue.LAG), eq(List.of("logs:LOW")), eq(GROUP));
+	}
+
+	@AfterEach
+	void tearDown() {
+		queue.close();
+	}
+
+	@Test
+	@DisplayName("1.0 - A refill decodes the pipelined XREADGROUP replies of every stream")
+	void testRefillDecodesRecords() {
+		var compacted = entry(8, Priority.LOW).toBuilder()
+			.source("billing")
+			.repeats(3)
+			.lastCreationTime(CREATED.plusSeconds(2))
+			.build();
+		when(redis.executePipelined(any(RedisCallback.class), isNull()))
+			.thenReturn(List.of(List.of(record("logs:CRITICAL", "1-0", entry(7, Priority.CRITICAL))), List.of(),
+				List.of(), List.of(record("logs:LOW", "1-1", compacted))))
+			.thenReturn(List.of(List.of(), List.of(), List.of(), List.of()));
+
+		assertEquals(entry(7, Priority.CRITICAL), queue.poll());
+		assertEquals(compacted, queue.poll());
+		assertNull(queue.poll());
+	}
+
+	@Test
+	@DisplayName("2.0 - Acks are sent as XACK of the delivered record with the next publish")
+	void testAckMapsToDelivery() {
+		when(redis.executePipelined(any(RedisCallback.class), isNull()))
+			.thenReturn(List.of(List.of(), List.of(record("logs:HIGH", "5-0", entry(3, Priority.HIGH))), List.of(),
+				List.of()));
+		assertEquals(3, queue.poll().offset());
+
+		queue.ack(3);
+		// Already acked, nothing to send
+		queue.ack(3);
+		var streams = publish();
+
+		verify(streams).xAck(aryEq(bytes("logs:HIGH")), eq(GROUP), eq(RecordId.of("5-0")));
+	}
+
+	@Test
+	@DisplayName("2.1 - Acks a failed publish could not send are sent with the next one")
+	void testAckRetriedAfterFailedPublish() {
+		when(redis.executePipelined(any(RedisCallback.class), isNull()))
+			.thenReturn(List.of(List.of(), List.of(record("logs:HIGH", "5-0", entry(3, Priority.HIGH))), List.of(),
+				List.of()));
+		assertEquals(3, queue.poll().offset());
+		queue.ack(3);
+
+		doThrow(new RedisConnectionFailureException("Connection reset"))
+			.when(redis).executePipelined(any(RedisCallback.class), isNull());
+		queue.publish();
+		var streams = publish();
+
+		verify(streams).xAck(aryEq(bytes("logs:HIGH")), eq(GROUP), eq(RecordId.of("5-0")));
+	}
+
+	@Test
+	@DisplayName("3.0 - Reclaim decodes XAUTOCLAIM replies and skips entries this node still holds")
+	void testReclaimSkipsHeldEntries() {
+		when(redis.executePipelined(any(RedisCallback.class), isNull()))
+			.thenReturn(List.of(List.of(), List.of(record("logs:HIGH", "1-0", entry(1, Priority.HIGH)),
+				record("logs:HIGH", "2-0", entry(2, Priority.HIGH))), List.of(), List.of()))
+			.thenReturn(List.of(List.of(), List.of(), List.of(), List.of()));
+		// 1 is being handled, 2 still buffered, 3 was left by a crashed node and 4 trimmed while pending
+		assertEquals(1, queue.poll().offset());
+		when(redis.execute(eq(RedisStreamLogQueue.RECLAIM), eq(List.of("logs:HIGH")), eq(GROUP), eq(CONSUMER),
+			eq("30000"), eq("0-0"), eq("8")))
+			.thenReturn(List.of("9-0", List.of(claimed("1-0", 1), claimed("2-0", 2), claimed("3-0", 3),
+				Arrays.asList("4-0", null)), List.of()));
+
+		queue.reclaim();
+
+		var consumed = new ArrayList<Long>();
+		LogEntry entry;
+		while ((entry = queue.poll()) != null) {
+			consumed.add(entry.offset());
+		}
+		assertEquals(List.of(2L, 3L), consumed);
+
+		// Every delivery still acks its own record, and the next claim continues from the returned cursor
+		queue.ack(1);
+		queue.ack(3);
+		var streams = publish();
+		verify(streams).xAck(aryEq(bytes("logs:HIGH")), eq(GROUP), eq(RecordId.of("1-0")));
+		verify(streams).xAck(aryEq(bytes("logs:HIGH")), eq(GROUP), eq(RecordId.of("3-0")));
+		queue.reclaim();
+		verify(redis).execute(eq(RedisStreamLogQueue.RECLAIM), eq(List.of("logs:HIGH")), eq(GROUP), eq(CONSUMER),
+			eq("30000"), eq("9-0"), eq("8"));
+	}
+
+	@Test
+	@DisplayName("3.1 - A second copy of a held entry is acked instead of delivered")
+	void testDuplicateCopyIsAcked() {
+		when(redis.executePipelined(any(RedisCallback.class), isNull()))
+			.thenReturn(List.of(List.of(), List.of(), List.of(record("logs:MEDIUM", "1-0", entry(4, Priority.MEDIUM)),
+				record("logs:MEDIUM", "2-0", entry(4, Priority.MEDIUM))), List.of()))
+			.thenReturn(List.of(List.of(), List.of(), List.of(), List.of()));
+
+		assertEquals(4, queue.poll().offset());
+		assertNull(queue.poll());
+
+		var streams = publish();
+		verify(streams).xAck(aryEq(bytes("logs:MEDIUM")), eq(GROUP), eq(RecordId.of("2-0")));
+		verify(streams, never()).xAck(aryEq(bytes("logs:MEDIUM")), eq(GROUP), eq(RecordId.of("1-0")));
+	}
+
+	@Test
+	@DisplayName("4.0 - The lag measured by the script counts towards the size")
+	void testLagCountsTowardsSize() {
+		when(redis.execute(eq(RedisStreamLogQueue.LAG), eq(List.of("logs:HIGH")), eq(GROUP))).thenReturn(7L);
+		// Redis before 7 does not report the lag
+		when(redis.execute(eq(RedisStreamLogQueue.LAG), eq(List.of("logs:LOW")), eq(GROUP))).thenReturn(-1L);
+
+		queue.reclaim();
+
+		assertEquals(7, queue.size(Priority.HIGH));
+		assertEquals(0, queue.size(Priority.LOW));
+		assertEquals(7, queue.size());
+	}
+
+	/**
+	 * Runs the publish pipeline against a mocked connection and returns its stream commands.
+	 */
+	@SuppressWarnings("unchecked")
+	private RedisStreamCommands publish() {
+		var callback = ArgumentCaptor.forClass(RedisCallback.class);
+		doReturn(List.of()).when(redis).executePipelined(callback.capture(), isNull());
+		queue.publish();
+
+		var connection = mock(RedisConnection.class);
+		var streams = mock(RedisStreamCommands.class);
+		when(connection.streamCommands()).thenReturn(streams);
+		callback.getValue().doInRedis(connection);
+		return streams;
+	}
+
+	private static ByteRecord record(String stream, String id, LogEntry entry) {
+		var fields = new LinkedHashMap<byte[], byte[]>();
+		fields(entry).forEach((field, value) -> fields.put(bytes(field), bytes(value)));
+		return StreamRecords.rawBytes(fields).withStreamKey(bytes(stream)).withId(RecordId.of(id));
+	}
+
+	private static List<Object> claimed(String id, long offset) {
+		var flat = new ArrayList<Object>();
+		fields(entry(offset, Priority.HIGH)).forEach((field, value) -> {
+			flat.add(field);
+			flat.add(value);
+		});
+		return List.of(id, flat);
+	}
+
+	private static Map<String, String> fields(LogEntry entry) {
+		var fields = new LinkedHashMap<String, String>();
+		fields.put("offset", Long.toString(entry.offset()));
+		if (entry.source() != null) {
+			fields.put("source", entry.source());
+		}
+		fields.put("message", entry.message());
+		fields.put("created", entry.creationTime().toString());
+		if (entry.repeats() > 0) {
+			fields.put("repeats", Long.toString(entry.repeats()));
+			fields.put("lastCreated", entry.lastCreationTime().toString());
+		}
+		return fields;
+	}
+
+	private static LogEntry entry(long offset, Priority priority) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(CREATED)
+			.build();
+	}
+
+	private static byte[] bytes(String value) {
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+}
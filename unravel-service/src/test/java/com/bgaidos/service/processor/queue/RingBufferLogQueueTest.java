@@ -0,0 +1,136 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class RingBufferLogQueueTest {
+
+	@Test
+	@DisplayName("1.0 - Capacity is rounded up to a power of two")
+	void testCapacityRounding() {
+		assertEquals(8, new RingBufferLogQueue(5, WaitStrategy.BUSY_SPIN).capacityPerPriority());
+		assertEquals(16, new RingBufferLogQueue(16, WaitStrategy.BUSY_SPIN).capacityPerPriority());
+		assertThrows(IllegalArgumentException.class, () -> new RingBufferLogQueue(0, WaitStrategy.PARK));
+	}
+
+	@Test
+	@DisplayName("2.0 - Rings are served in strict priority order, FIFO within a priority")
+	void testStrictPriorityOrder() {
+		var queue = new RingBufferLogQueue(8, WaitStrategy.YIELD);
+		queue.put(entry(1, Priority.LOW));
+		queue.put(entry(2, Priority.HIGH));
+		queue.put(entry(3, Priority.CRITICAL));
+		queue.put(entry(4, Priority.HIGH));
+
+		var drained = new ArrayList<LogEntry>();
+		assertEquals(4, queue.drainTo(drained, 10));
+
+		assertEquals(List.of(3L, 2L, 4L, 1L), drained.stream().map(LogEntry::offset).toList());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("3.0 - A full ring makes the producer wait until a slot is freed")
+	void testFullRingBackpressure() throws Exception {
+		var queue = new RingBufferLogQueue(2, WaitStrategy.PARK);
+		queue.put(entry(1, Priority.MEDIUM));
+		queue.put(entry(2, Priority.MEDIUM));
+
+		var executorService = Executors.newSingleThreadExecutor();
+		try {
+			var producerFuture = executorService.submit(() -> queue.put(entry(3, Priority.MEDIUM)));
+			TimeUnit.MILLISECONDS.sleep(100);
+			assertFalse(producerFuture.isDone());
+
+			assertEquals(1, queue.take().offset());
+
+			assertTrue(producerFuture.get(2, TimeUnit.SECONDS));
+			assertEquals(2, queue.size());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@Timeout(5)
+	@DisplayName("3.1 - Poll with a timeout returns null on an empty queue")
+	void testPollTimeout() throws InterruptedException {
+		for (var waitStrategy : WaitStrategy.values()) {
+			var queue = new RingBufferLogQueue(4, waitStrategy);
+			assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+			assertNull(queue.poll());
+		}
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("4.0 - Multiple producers and consumers consume every entry exactly once")
+	void testMultipleProducersAndConsumers() throws Exception {
+		var queue = new RingBufferLogQueue(256, WaitStrategy.YIELD);
+		int producers = 4;
+		int entriesPerProducer = 20_000;
+		var consumed = ConcurrentHashMap.<Long>newKeySet();
+		var latch = new CountDownLatch(producers * entriesPerProducer);
+
+		var executorService = Executors.newFixedThreadPool(producers + 2);
+		try {
+			for (int c = 0; c < 2; c++) {
+				executorService.submit(() -> {
+					try {
+						while (!Thread.currentThread().isInterrupted()) {
+							consumed.add(queue.take().offset());
+							latch.countDown();
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+
+			var futures = new ArrayList<Future<?>>();
+			for (int p = 0; p < producers; p++) {
+				final long base = p * 1_000_000L;
+				futures.add(executorService.submit(() -> {
+					for (int i = 0; i < entriesPerProducer; i++) {
+						queue.put(entry(base + i, Priority.values()[i % Priority.values().length]));
+					}
+				}));
+			}
+			for (var future : futures) {
+				future.get();
+			}
+
+			assertTrue(latch.await(5, TimeUnit.SECONDS), "Not all logs were consumed within the timeout period");
+			assertEquals(producers * entriesPerProducer, consumed.size());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static LogEntry entry(long offset, Priority priority) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(Instant.now())
+			.build();
+	}
+}
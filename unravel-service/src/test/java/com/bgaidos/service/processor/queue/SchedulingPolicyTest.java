@@ -0,0 +1,143 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class SchedulingPolicyTest {
+
+	private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+	private static final Clock CLOCK = Clock.fixed(NOW, ZoneOffset.UTC);
+
+	@Test
+	@DisplayName("1.0 - Aging policy serves by effective priority, then offset")
+	void testAging() {
+		var queue = new MultiLevelLogQueue(CLOCK, new AgingPolicy());
+		// 1 + 200 seconds of waiting beats CRITICAL (100)
+		queue.put(entry(1, Priority.LOW, NOW.minusSeconds(200)));
+		queue.put(entry(2, Priority.LOW, NOW));
+		queue.put(entry(3, Priority.CRITICAL, NOW));
+		queue.put(entry(4, Priority.MEDIUM, NOW));
+
+		assertEquals(List.of(1L, 3L, 4L, 2L), drainOffsets(queue, 4));
+	}
+
+	@Test
+	@DisplayName("2.0 - Weighted fair policy shares a saturated queue 8:4:2:1")
+	void testWeightedShares() {
+		var queue = new MultiLevelLogQueue(CLOCK, new WeightedFairPolicy());
+		fillAllLanes(queue, 60);
+
+		var served = new EnumMap<Priority, Integer>(Priority.class);
+		var batch = new ArrayList<LogEntry>();
+		// Four full rounds of 15
+		queue.drainTo(batch, 60);
+		batch.forEach(entry -> served.merge(entry.priority(), 1, Integer::sum));
+
+		assertEquals(Map.of(Priority.CRITICAL, 32, Priority.HIGH, 16, Priority.MEDIUM, 8, Priority.LOW, 4), served);
+	}
+
+	@Test
+	@DisplayName("2.1 - Weighted fair policy serves LOW within one round even under a CRITICAL flood")
+	void testWeightedNoStarvation() {
+		var queue = new MultiLevelLogQueue(CLOCK, new WeightedFairPolicy());
+		for (int i = 0; i < 100; i++) {
+			queue.put(entry(i, Priority.CRITICAL, NOW));
+		}
+		queue.put(entry(1000, Priority.LOW, NOW));
+
+		// CRITICAL gets its 8 credits, then the empty HIGH and MEDIUM lanes are skipped
+		assertEquals(1000L, drainOffsets(queue, 9).get(8));
+	}
+
+	@Test
+	@DisplayName("2.2 - Weighted fair policy rejects missing and non-positive weights")
+	void testWeightedValidation() {
+		var zero = new EnumMap<>(WeightedFairPolicy.DEFAULT_WEIGHTS);
+		zero.put(Priority.LOW, 0);
+		var missing = new EnumMap<>(WeightedFairPolicy.DEFAULT_WEIGHTS);
+		missing.remove(Priority.HIGH);
+
+		assertThrows(IllegalArgumentException.class, () -> new WeightedFairPolicy(zero));
+		assertThrows(IllegalArgumentException.class, () -> new WeightedFairPolicy(missing));
+	}
+
+	@Test
+	@DisplayName("3.0 - Deadline policy serves the entry closest to its latency target first")
+	void testDeadline() {
+		var queue = new MultiLevelLogQueue(CLOCK, new DeadlinePolicy());
+		// Due at NOW + 100ms
+		queue.put(entry(1, Priority.CRITICAL, NOW));
+		// Due at NOW + 50ms
+		queue.put(entry(2, Priority.HIGH, NOW.minusMillis(450)));
+		// Due at NOW - 1s, already late
+		queue.put(entry(3, Priority.LOW, NOW.minusSeconds(11)));
+		// Due at NOW + 2s
+		queue.put(entry(4, Priority.MEDIUM, NOW));
+
+		assertEquals(List.of(3L, 2L, 1L, 4L), drainOffsets(queue, 4));
+	}
+
+	@Test
+	@DisplayName("3.1 - Deadline policy breaks ties by offset and drives the compact engine too")
+	void testDeadlineCompact() throws InterruptedException {
+		var targets = Map.of(
+			Priority.CRITICAL, Duration.ZERO,
+			Priority.HIGH, Duration.ZERO,
+			Priority.MEDIUM, Duration.ZERO,
+			Priority.LOW, Duration.ZERO
+		);
+		var queue = new CompactLogQueue(8, 64, CLOCK, new DeadlinePolicy(targets));
+		queue.put(entry(2, Priority.CRITICAL, NOW));
+		queue.put(entry(1, Priority.LOW, NOW));
+		queue.put(entry(3, Priority.MEDIUM, NOW.minusMillis(1)));
+
+		var target = new CompactLogEntry();
+		var order = new ArrayList<Long>();
+		for (int i = 0; i < 3; i++) {
+			queue.take(target);
+			order.add(target.offset());
+		}
+		assertEquals(List.of(3L, 1L, 2L), order);
+	}
+
+	private static void fillAllLanes(LogQueue queue, int perLane) {
+		long offset = 0;
+		for (int i = 0; i < perLane; i++) {
+			for (var priority : Priority.values()) {
+				queue.put(entry(offset++, priority, NOW));
+			}
+		}
+	}
+
+	private static List<Long> drainOffsets(LogQueue queue, int count) {
+		var batch = new ArrayList<LogEntry>();
+		queue.drainTo(batch, count);
+		return batch.stream().map(LogEntry::offset).toList();
+	}
+
+	private static LogEntry entry(long offset, Priority priority, Instant creationTime) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(creationTime)
+			.build();
+	}
+}
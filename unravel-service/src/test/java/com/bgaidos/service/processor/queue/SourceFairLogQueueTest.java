@@ -0,0 +1,141 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class SourceFairLogQueueTest {
+
+	private static final Instant NOW = Instant.parse("2025-01-01T12:00:00Z");
+
+	private final SourceFairLogQueue queue = new SourceFairLogQueue(3, Clock.fixed(NOW, ZoneOffset.UTC), new AgingPolicy());
+
+	@Test
+	@DisplayName("1.0 - Higher priority lanes are served first")
+	void testPriorityOrder() throws InterruptedException {
+		queue.put(entry(1, Priority.LOW, "a"));
+		queue.put(entry(2, Priority.CRITICAL, "b"));
+		queue.put(entry(3, Priority.MEDIUM, "a"));
+
+		assertEquals(Priority.CRITICAL, queue.take().priority());
+		assertEquals(Priority.MEDIUM, queue.take().priority());
+		assertEquals(Priority.LOW, queue.take().priority());
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@DisplayName("2.0 - Sources of a lane are served round robin, each in FIFO order")
+	void testRoundRobin() {
+		// A noisy source queues its whole burst before the quiet ones arrive
+		for (int i = 0; i < 5; i++) {
+			queue.put(entry(i, Priority.HIGH, "noisy"));
+		}
+		queue.put(entry(10, Priority.HIGH, "quiet"));
+		queue.put(entry(20, Priority.HIGH, null));
+		queue.put(entry(11, Priority.HIGH, "quiet"));
+
+		assertEquals(List.of(0L, 10L, 20L, 1L, 11L, 2L, 3L, 4L), drainOffsets(8));
+		assertEquals(0, queue.activeSources());
+	}
+
+	@Test
+	@DisplayName("3.0 - Sources beyond the cap share the overflow sub-queue")
+	void testSourceCap() {
+		queue.put(entry(1, Priority.HIGH, "a"));
+		queue.put(entry(2, Priority.HIGH, "b"));
+		queue.put(entry(3, Priority.HIGH, "c"));
+		queue.put(entry(4, Priority.HIGH, "d"));
+		queue.put(entry(5, Priority.HIGH, "e"));
+		queue.put(entry(7, Priority.HIGH, "a"));
+		// A different lane has its own cap
+		queue.put(entry(6, Priority.LOW, "d"));
+
+		// The overflow sub-queue counts towards the cap
+		assertEquals(4, queue.activeSources());
+		assertEquals(3, queue.size(SourceFairLogQueue.OVERFLOW_SOURCE));
+		assertEquals(1, queue.size("d"));
+
+		// c, d and e share one turn, so a gets its second turn before d
+		assertEquals(List.of(1L, 2L, 3L, 7L, 4L, 5L, 6L), drainOffsets(7));
+	}
+
+	@Test
+	@DisplayName("3.1 - A source keeps the overflow sub-queue while it has entries there")
+	void testOverflowKeepsSourceOrder() throws InterruptedException {
+		queue.put(entry(1, Priority.HIGH, "a"));
+		queue.put(entry(2, Priority.HIGH, "b"));
+		queue.put(entry(3, Priority.HIGH, "d"));
+		queue.put(entry(4, Priority.HIGH, "c"));
+		// Frees a slot while c still waits in the overflow sub-queue
+		assertEquals(1, queue.take().offset());
+		queue.put(entry(5, Priority.HIGH, "c"));
+
+		assertEquals(3, queue.size(SourceFairLogQueue.OVERFLOW_SOURCE));
+		assertEquals(List.of(2L, 3L, 4L, 5L), drainOffsets(4));
+
+		// Once drained, c gets a sub-queue of its own again
+		queue.put(entry(6, Priority.HIGH, "c"));
+		assertEquals(1, queue.size("c"));
+	}
+
+	@Test
+	@DisplayName("3.2 - Shedding takes the oldest entry of the largest source")
+	void testShedLargestSource() {
+		queue.put(entry(1, Priority.LOW, "quiet"));
+		queue.put(entry(2, Priority.LOW, "noisy"));
+		queue.put(entry(3, Priority.LOW, "noisy"));
+
+		assertEquals(2, queue.pollOldest(Priority.LOW).offset());
+		assertEquals(1, queue.size("noisy"));
+		// Equal sizes shed from the source served next
+		assertEquals(1, queue.pollOldest(Priority.LOW).offset());
+		assertEquals(3, queue.pollOldest(Priority.LOW).offset());
+		assertNull(queue.pollOldest(Priority.LOW));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	@DisplayName("4.0 - Take blocks until an entry is produced")
+	@Timeout(5)
+	void testTakeBlocks() throws Exception {
+		try (var executor = Executors.newSingleThreadExecutor()) {
+			var taken = executor.submit(queue::take);
+			TimeUnit.MILLISECONDS.sleep(50);
+			assertFalse(taken.isDone());
+
+			queue.put(entry(1, Priority.LOW, "a"));
+			assertEquals(1, taken.get(1, TimeUnit.SECONDS).offset());
+		}
+	}
+
+	private List<Long> drainOffsets(int count) {
+		var batch = new ArrayList<LogEntry>();
+		queue.drainTo(batch, count);
+		return batch.stream().map(LogEntry::offset).toList();
+	}
+
+	private static LogEntry entry(long offset, Priority priority, String source) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(NOW)
+			.source(source)
+			.build();
+	}
+}
@@ -0,0 +1,289 @@
+package com.bgaidos.service.processor.queue;
+
+import com.bgaidos.service.processor.model.CompactLogEntry;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class SpillingLogQueueTest {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	@DisplayName("1.0 - Entries past the watermark are spilled and memory stays bounded")
+	void testSpillsPastWatermark() throws InterruptedException {
+		var memory = new MultiLevelLogQueue();
+		try (var queue = new SpillingLogQueue(memory, directory, 10, 4096)) {
+			for (int i = 0; i < 100; i++) {
+				queue.put(entry(i, Priority.LOW));
+			}
+
+			assertEquals(10, memory.size());
+			assertEquals(90, queue.spilledCount());
+			assertEquals(100, queue.size());
+
+			for (int i = 0; i < 100; i++) {
+				assertEquals(i, queue.take().offset());
+				assertTrue(memory.size() <= 10);
+			}
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("1.1 - Spilled entries come back most important lane first")
+	void testRefillInPriorityOrder() throws InterruptedException {
+		try (var queue = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 2, 4096)) {
+			queue.put(entry(1, Priority.LOW));
+			queue.put(entry(2, Priority.LOW));
+			queue.put(entry(3, Priority.LOW));
+			queue.put(entry(4, Priority.CRITICAL));
+			queue.put(entry(5, Priority.MEDIUM));
+
+			var consumed = new ArrayList<Long>();
+			while (!queue.isEmpty()) {
+				consumed.add(queue.take().offset());
+			}
+
+			// 1 and 2 were in memory; 4 is read back first, then 5, then 3
+			assertEquals(5, consumed.size());
+			assertTrue(consumed.indexOf(4L) < consumed.indexOf(3L));
+			assertTrue(consumed.indexOf(5L) < consumed.indexOf(3L));
+		}
+	}
+
+	@Test
+	@DisplayName("2.0 - Spilled entries are recovered after a restart")
+	void testRecoveryAfterRestart() throws InterruptedException {
+		try (var queue = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 5, 4096)) {
+			for (int i = 0; i < 20; i++) {
+				queue.put(entry(i, Priority.HIGH));
+			}
+		}
+
+		try (var restarted = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 5, 4096)) {
+			// The 5 in-memory entries were lost with the process, the 15 spilled ones are back
+			assertEquals(15, restarted.size());
+			for (int i = 5; i < 20; i++) {
+				assertEquals(i, restarted.take().offset());
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("2.1 - Entries read back into memory are recovered until they are consumed")
+	void testRefilledEntriesRecoveredUntilConsumed() throws InterruptedException {
+		try (var queue = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 4, 4096)) {
+			for (int i = 0; i < 12; i++) {
+				queue.put(entry(i, Priority.HIGH));
+			}
+			// Taking 0 to 2 drops memory below half the watermark, which reads 4 to 6 back from disk
+			for (int i = 0; i < 3; i++) {
+				assertEquals(i, queue.take().offset());
+			}
+			assertEquals(5, queue.spilledCount());
+			// Taking 5 reads 7 to 9 back as well, so 6 to 9 are only in memory when the process stops
+			assertEquals(3, queue.take().offset());
+			assertEquals(4, queue.take().offset());
+			assertEquals(5, queue.take().offset());
+		}
+
+		try (var restarted = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 4, 4096)) {
+			var recovered = new ArrayList<Long>();
+			while (!restarted.isEmpty()) {
+				recovered.add(restarted.take().offset());
+			}
+			assertEquals(List.of(6L, 7L, 8L, 9L, 10L, 11L), recovered);
+		}
+
+		try (var drained = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 4, 4096)) {
+			assertTrue(drained.isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("2.2 - A refilled entry stays on disk when an in-memory entry with its offset is consumed")
+	void testRefillsTrackedByIdentity() throws InterruptedException {
+		var now = Instant.now();
+		try (var queue = new SpillingLogQueue(new HeapLogQueue(), directory, 3, 4096)) {
+			for (int i = 1; i <= 5; i++) {
+				queue.put(entry(i, Priority.LOW, now));
+			}
+			assertEquals(1, queue.take().offset());
+			assertEquals(2, queue.take().offset());
+			// Reads 4 and 5 back from disk
+			assertEquals(3, queue.take().offset());
+			assertEquals(0, queue.spilledCount());
+
+			// A second producer reuses offset 4, and its older entry is served first
+			queue.put(entry(4, Priority.LOW, now.minusSeconds(3600)));
+			assertEquals(now.minusSeconds(3600), queue.take().creationTime());
+		}
+
+		try (var restarted = new SpillingLogQueue(new HeapLogQueue(), directory, 3, 4096)) {
+			assertEquals(2, restarted.size());
+			assertEquals(4, restarted.take().offset());
+			assertEquals(5, restarted.take().offset());
+		}
+	}
+
+	@Test
+	@DisplayName("2.3 - Entries read back into a compact engine are recovered until they are consumed")
+	void testCompactRefillsRecoveredUntilConsumed() throws InterruptedException {
+		var target = new CompactLogEntry();
+		try (var queue = new SpillingLogQueue(new CompactLogQueue(), directory, 4, 4096)) {
+			for (int i = 0; i < 12; i++) {
+				queue.put(i, Priority.HIGH, i, "Log " + i);
+			}
+			// Taking 2 reads 4 to 6 back, taking 5 reads 7 to 9 back, so 6 to 9 are only in memory
+			for (int i = 0; i < 6; i++) {
+				queue.take(target);
+				assertEquals(i, target.offset());
+			}
+		}
+
+		try (var restarted = new SpillingLogQueue(new CompactLogQueue(), directory, 4, 4096)) {
+			var recovered = new ArrayList<Long>();
+			while (!restarted.isEmpty()) {
+				restarted.take(target);
+				recovered.add(target.offset());
+			}
+			assertEquals(List.of(6L, 7L, 8L, 9L, 10L, 11L), recovered);
+		}
+
+		try (var drained = new SpillingLogQueue(new CompactLogQueue(), directory, 4, 4096)) {
+			assertTrue(drained.isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("2.4 - A spilled entry the engine rejects is dropped without holding back its lane")
+	void testRejectedRefillDropped() throws InterruptedException {
+		var target = new CompactLogEntry();
+		try (var queue = new SpillingLogQueue(new CompactLogQueue(16, 64, InstantSource.system()), directory, 1, 4096)) {
+			queue.put(entry(1, Priority.HIGH));
+			// Behind 1 on disk, where its size is not checked
+			queue.put(entry(2, Priority.HIGH).toBuilder().message("x".repeat(100)).build());
+			queue.put(entry(3, Priority.HIGH));
+
+			queue.take(target);
+			assertEquals(1, target.offset());
+			queue.take(target);
+			assertEquals(3, target.offset());
+			assertTrue(queue.isEmpty());
+		}
+
+		try (var restarted = new SpillingLogQueue(new CompactLogQueue(), directory, 1, 4096)) {
+			assertTrue(restarted.isEmpty());
+		}
+	}
+
+	@Test
+	@DisplayName("3.0 - pollOldest sheds from memory before disk")
+	void testPollOldest() {
+		try (var queue = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 1, 4096)) {
+			queue.put(entry(1, Priority.LOW));
+			queue.put(entry(2, Priority.LOW));
+
+			assertEquals(1, queue.pollOldest(Priority.LOW).offset());
+			assertEquals(2, queue.pollOldest(Priority.LOW).offset());
+			assertNull(queue.pollOldest(Priority.LOW));
+		}
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("4.0 - Concurrent producers and consumers see every entry exactly once")
+	void testConcurrentSpilling() throws Exception {
+		int producers = 3;
+		int entriesPerProducer = 3_000;
+		var consumed = ConcurrentHashMap.<Long>newKeySet();
+		var latch = new CountDownLatch(producers * entriesPerProducer);
+
+		var executorService = Executors.newFixedThreadPool(producers + 2);
+		try (var queue = new SpillingLogQueue(new MultiLevelLogQueue(), directory, 100, 64 * 1024)) {
+			for (int c = 0; c < 2; c++) {
+				executorService.submit(() -> {
+					try {
+						while (!Thread.currentThread().isInterrupted()) {
+							consumed.add(queue.take().offset());
+							latch.countDown();
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+
+			var futures = new ArrayList<Future<?>>();
+			for (int p = 0; p < producers; p++) {
+				final long base = p * 1_000_000L;
+				futures.add(executorService.submit(() -> {
+					for (int i = 0; i < entriesPerProducer; i++) {
+						queue.put(entry(base + i, Priority.values()[i % Priority.values().length]));
+					}
+				}));
+			}
+			for (var future : futures) {
+				future.get();
+			}
+
+			assertTrue(latch.await(5, TimeUnit.SECONDS), "Not all logs were consumed within the timeout period");
+			assertEquals(producers * entriesPerProducer, consumed.size());
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	@Test
+	@Timeout(10)
+	@DisplayName("5.0 - A full lane of a bounded engine spills instead of blocking the producer")
+	void testFullLaneSpills() throws InterruptedException {
+		try (var queue = new SpillingLogQueue(new RingBufferLogQueue(4, WaitStrategy.PARK), directory, 100, 4096)) {
+			for (int i = 0; i < 10; i++) {
+				queue.put(entry(i, Priority.LOW));
+			}
+			queue.put(entry(10, Priority.HIGH));
+
+			assertEquals(6, queue.spilledCount());
+			assertEquals(10, queue.take().offset());
+			for (int i = 0; i < 10; i++) {
+				assertEquals(i, queue.take().offset());
+			}
+			assertTrue(queue.isEmpty());
+		}
+	}
+
+	private static LogEntry entry(long offset, Priority priority) {
+		return entry(offset, priority, Instant.now());
+	}
+
+	private static LogEntry entry(long offset, Priority priority, Instant creationTime) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message("Log " + offset)
+			.priority(priority)
+			.creationTime(creationTime)
+			.build();
+	}
+}
@@ -0,0 +1,192 @@
+package com.bgaidos.service.processor.sink;
+
+import com.bgaidos.exceptions.LogSinkException;
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class JdbcLogSinkTest {
+
+	private static final Duration LONG_INTERVAL = Duration.ofHours(1);
+
+	@Mock
+	private DataSource dataSource;
+	@Mock
+	private Connection connection;
+	@Mock
+	private PreparedStatement insert;
+	@Mock
+	private Statement ddl;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private JdbcLogSink sink;
+
+	@BeforeEach
+	void setUp() throws SQLException {
+		when(dataSource.getConnection()).thenReturn(connection);
+		when(connection.createStatement()).thenReturn(ddl);
+		when(connection.prepareStatement(anyString())).thenReturn(insert);
+	}
+
+	@AfterEach
+	void tearDown() {
+		if (sink != null) {
+			sink.close();
+		}
+	}
+
+	@Test
+	@DisplayName("1.0 - A full group is written as one multi-row insert in one transaction")
+	void testFullGroup() throws SQLException {
+		sink = sink(4, LONG_INTERVAL, 1, 1);
+
+		sink.handle(entries(0, 4));
+
+		verify(connection).prepareStatement(argThat(sql -> sql.startsWith("INSERT INTO logs") && rows(sql) == 4));
+		verify(insert).executeUpdate();
+		verify(connection).commit();
+		verify(ddl).execute(argThat(sql -> sql.contains("CREATE TABLE IF NOT EXISTS logs")));
+		assertEquals(4, registry.get("log.sink.rows").counter().count());
+	}
+
+	@Test
+	@DisplayName("1.1 - A partial group is written once the flush interval passes")
+	void testFlushInterval() throws SQLException {
+		sink = sink(1000, Duration.ofMillis(20), 1, 1);
+
+		sink.handle(entries(0, 3));
+
+		verify(connection).prepareStatement(argThat(sql -> rows(sql) == 3));
+		verify(connection).commit();
+	}
+
+	@Test
+	@DisplayName("1.2 - Groups larger than the placeholder limit are split into several statements")
+	void testStatementSplit() throws SQLException {
+		int size = JdbcLogSink.MAX_ROWS_PER_STATEMENT + 10;
+		sink = sink(size, LONG_INTERVAL, 1, 1);
+
+		sink.handle(entries(0, size));
+
+		verify(connection).prepareStatement(argThat(sql -> rows(sql) == JdbcLogSink.MAX_ROWS_PER_STATEMENT));
+		verify(connection).prepareStatement(argThat(sql -> rows(sql) == 10));
+		verify(insert, times(2)).executeUpdate();
+		verify(connection).commit();
+	}
+
+	@Test
+	@DisplayName("2.0 - Transient failures are rolled back and retried")
+	void testTransientRetry() throws SQLException {
+		when(insert.executeUpdate())
+			.thenThrow(new SQLTransientConnectionException("Connection reset"))
+			.thenReturn(2);
+		sink = sink(2, LONG_INTERVAL, 1, 3);
+
+		sink.handle(entries(0, 2));
+
+		verify(connection).rollback();
+		verify(connection).commit();
+		assertEquals(1, registry.get("log.sink.retries").counter().count());
+		assertEquals(2, registry.get("log.sink.rows").counter().count());
+	}
+
+	@Test
+	@DisplayName("2.1 - Permanent failures are not retried and fail the batch")
+	void testPermanentFailure() throws SQLException {
+		when(insert.executeUpdate()).thenThrow(new SQLSyntaxErrorException("Unknown column"));
+		sink = sink(2, LONG_INTERVAL, 1, 3);
+
+		var exception = assertThrows(LogSinkException.class, () -> sink.handle(entries(0, 2)));
+
+		assertInstanceOf(SQLSyntaxErrorException.class, exception.getCause());
+		verify(insert, times(1)).executeUpdate();
+		verify(connection, never()).commit();
+		assertEquals(1, registry.get("log.sink.failures").counter().count());
+	}
+
+	@Test
+	@DisplayName("3.0 - No more groups than maxInFlight are written at once")
+	void testInFlightBound() throws Exception {
+		var writing = new AtomicInteger();
+		var maxWriting = new AtomicInteger();
+		var release = new CountDownLatch(1);
+		when(insert.executeUpdate()).thenAnswer(invocation -> {
+			maxWriting.accumulateAndGet(writing.incrementAndGet(), Math::max);
+			release.await(5, TimeUnit.SECONDS);
+			writing.decrementAndGet();
+			return 1;
+		});
+		sink = sink(1, LONG_INTERVAL, 2, 1);
+
+		try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 6; i++) {
+				int offset = i;
+				executor.submit(() -> sink.handle(entries(offset, 1)));
+			}
+			Thread.sleep(200);
+			release.countDown();
+		}
+
+		assertEquals(2, maxWriting.get());
+		verify(connection, times(6)).commit();
+	}
+
+	private JdbcLogSink sink(int flushSize, Duration flushInterval, int maxInFlight, int maxAttempts) {
+		return new JdbcLogSink(dataSource, "logs", flushSize, flushInterval, maxInFlight, maxAttempts,
+			Duration.ofMillis(1), registry);
+	}
+
+	private static List<LogEntry> entries(long firstOffset, int count) {
+		return LongStream.range(firstOffset, firstOffset + count)
+			.mapToObj(offset -> LogEntry.builder()
+				.offset(offset)
+				.message("Log " + offset)
+				.priority(Priority.HIGH)
+				.creationTime(Instant.parse("2025-01-01T12:00:00Z"))
+				.source("billing")
+				.build())
+			.toList();
+	}
+
+	private static long rows(String sql) {
+		return sql.chars().filter(c -> c == '(').count() - 1;
+	}
+}
@@ -0,0 +1,179 @@
+package com.bgaidos.service.processor.storage;
+
+import com.bgaidos.service.processor.model.LogEntry;
+import com.bgaidos.service.processor.model.Priority;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class SegmentLogTest {
+
+	@TempDir
+	private Path directory;
+
+	@Test
+	@DisplayName("1.0 - Records are read back in append order with all fields intact")
+	void testAppendAndRead() {
+		var segmentLog = new SegmentLog(directory, 4096);
+		var first = entry(1, "Hello", Instant.parse("2025-01-01T12:00:00.123456789Z"));
+		var second = entry(2, null, Instant.parse("2025-01-01T12:00:01Z"));
+		var third = LogEntry.builder()
+			.offset(3)
+			.message("Tagged")
+			.priority(Priority.LOW)
+			.creationTime(Instant.parse("2025-01-01T12:00:02Z"))
+			.source("billing")
+			.repeats(41)
+			.lastCreationTime(Instant.parse("2025-01-01T12:00:03.5Z"))
+			.build();
+
+		segmentLog.append(first);
+		segmentLog.append(second);
+		segmentLog.append(third);
+
+		assertEquals(3, segmentLog.size());
+		assertEquals(first, segmentLog.read());
+		assertEquals(second, segmentLog.read());
+		assertEquals(third, segmentLog.read());
+		assertNull(segmentLog.read());
+		assertTrue(segmentLog.isEmpty());
+	}
+
+	@Test
+	@DisplayName("2.0 - Segments roll over and are deleted once read")
+	void testSegmentRollover() throws IOException {
+		var segmentLog = new SegmentLog(directory, 256);
+		for (int i = 0; i < 50; i++) {
+			segmentLog.append(entry(i, "Log " + i, Instant.now()));
+		}
+		assertTrue(segmentCount() > 1);
+
+		for (int i = 0; i < 50; i++) {
+			assertEquals(i, segmentLog.read().offset());
+		}
+
+		assertEquals(1, segmentCount());
+	}
+
+	@Test
+	@DisplayName("3.0 - Unread records are recovered after reopening")
+	void testRecovery() {
+		var segmentLog = new SegmentLog(directory, 256);
+		for (int i = 0; i < 30; i++) {
+			segmentLog.append(entry(i, "Log " + i, Instant.now()));
+		}
+		for (int i = 0; i < 12; i++) {
+			segmentLog.read();
+		}
+		segmentLog.close();
+
+		var reopened = new SegmentLog(directory, 256);
+
+		assertEquals(18, reopened.size());
+		assertEquals(12, reopened.readIndex());
+		assertEquals(12, reopened.read().offset());
+		reopened.append(entry(30, "Log 30", Instant.now()));
+		long last = -1;
+		for (var entry = reopened.read(); entry != null; entry = reopened.read()) {
+			last = entry.offset();
+		}
+		assertEquals(30, last);
+	}
+
+	@Test
+	@DisplayName("4.0 - Records larger than a segment are rejected")
+	void testRecordTooLarge() {
+		var segmentLog = new SegmentLog(directory, 64);
+
+		assertThrows(IllegalArgumentException.class,
+			() -> segmentLog.append(entry(1, "x".repeat(100), Instant.now())));
+		assertTrue(segmentLog.isEmpty());
+	}
+
+	@Test
+	@DisplayName("5.0 - Unread records can be iterated without reading them, and skipped")
+	void testUnreadAndSkip() throws IOException {
+		var segmentLog = new SegmentLog(directory, 256);
+		for (int i = 0; i < 20; i++) {
+			segmentLog.append(entry(i, "Log " + i, Instant.now()));
+		}
+		segmentLog.read();
+
+		var unread = segmentLog.unread();
+		// Appended after the iterator was created, so not part of it
+		segmentLog.append(entry(20, "Log 20", Instant.now()));
+		long expected = 1;
+		while (unread.hasNext()) {
+			assertEquals(expected++, unread.next().offset());
+		}
+		assertEquals(20, expected);
+		assertEquals(20, segmentLog.size());
+
+		long segments = segmentCount();
+		segmentLog.skip(15);
+		assertEquals(5, segmentLog.size());
+		assertEquals(16, segmentLog.read().offset());
+		assertEquals(17, segmentLog.readIndex());
+		assertTrue(segmentCount() < segments);
+		assertThrows(IllegalArgumentException.class, () -> segmentLog.skip(5));
+	}
+
+	@Test
+	@DisplayName("6.0 - Fetched records are recovered after reopening until they are released")
+	void testFetchAndRelease() throws IOException {
+		var segmentLog = new SegmentLog(directory, 256);
+		for (int i = 0; i < 20; i++) {
+			segmentLog.append(entry(i, "Log " + i, Instant.now()));
+		}
+		long segments = segmentCount();
+		for (int i = 0; i < 12; i++) {
+			assertEquals(i, segmentLog.fetch().offset());
+		}
+		assertEquals(8, segmentLog.size());
+		assertEquals(12, segmentLog.fetchedCount());
+		assertEquals(0, segmentLog.readIndex());
+		assertEquals(segments, segmentCount());
+		assertThrows(IllegalStateException.class, segmentLog::read);
+		segmentLog.close();
+
+		var reopened = new SegmentLog(directory, 256);
+		assertEquals(20, reopened.size());
+		for (int i = 0; i < 12; i++) {
+			assertEquals(i, reopened.fetch().offset());
+		}
+		reopened.release(5);
+		assertEquals(5, reopened.readIndex());
+		assertEquals(12, reopened.fetch().offset());
+		assertThrows(IllegalArgumentException.class, () -> reopened.release(9));
+		reopened.close();
+
+		var released = new SegmentLog(directory, 256);
+		assertEquals(15, released.size());
+		assertEquals(5, released.read().offset());
+	}
+
+	private long segmentCount() throws IOException {
+		try (var files = Files.list(directory)) {
+			return files.filter(file -> file.toString().endsWith(".seg")).count();
+		}
+	}
+
+	private static LogEntry entry(long offset, String message, Instant creationTime) {
+		return LogEntry.builder()
+			.offset(offset)
+			.message(message)
+			.priority(Priority.HIGH)
+			.creationTime(creationTime)
+			.build();
+	}
+}
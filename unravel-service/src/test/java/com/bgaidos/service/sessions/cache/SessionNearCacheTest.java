@@ -0,0 +1,102 @@
+package com.bgaidos.service.sessions.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class SessionNearCacheTest {
+
+	private final AtomicLong now = new AtomicLong(Instant.parse("2025-01-01T12:00:00Z").toEpochMilli());
+	private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("1.0 - Hits and misses are counted and stale entries are dropped")
+	void testHitsAndStaleness() {
+		var cache = cache(10);
+
+		assertNull(cache.get("user:session:a"));
+		cache.put("user:session:a", "SESSION_A", cache.version("user:session:a"));
+		assertEquals("SESSION_A", cache.get("user:session:a"));
+
+		now.addAndGet(Duration.ofSeconds(31).toMillis());
+		assertNull(cache.get("user:session:a"));
+
+		assertEquals(1, registry.get("session.cache.hits").counter().count());
+		assertEquals(2, registry.get("session.cache.misses").counter().count());
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	@DisplayName("1.1 - A lookup racing an invalidation does not cache the removed session")
+	void testVersionedPut() {
+		var cache = cache(10);
+
+		long version = cache.version("user:session:a");
+		// Another node removes the session while the lookup is reading Redis
+		cache.invalidate("user:session:a");
+		cache.put("user:session:a", "SESSION_A", version);
+
+		assertNull(cache.get("user:session:a"));
+		cache.put("user:session:a", "SESSION_A", cache.version("user:session:a"));
+		assertEquals("SESSION_A", cache.get("user:session:a"));
+		assertEquals(1, registry.get("session.cache.invalidations").counter().count());
+	}
+
+	@Test
+	@DisplayName("1.2 - Clearing drops every entry and voids lookups in flight")
+	void testClear() {
+		var cache = cache(10);
+		cache.put("user:session:a", "SESSION_A", cache.version("user:session:a"));
+		long version = cache.version("user:session:b");
+
+		cache.clear();
+		cache.put("user:session:b", "SESSION_B", version);
+
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	@DisplayName("2.0 - The cache is kept within its size")
+	void testEviction() {
+		var cache = cache(100);
+
+		for (int i = 0; i < 1_000; i++) {
+			var key = "user:session:" + i;
+			cache.put(key, "SESSION_" + i, cache.version(key));
+			assertEquals("SESSION_" + i, cache.get(key));
+		}
+
+		assertEquals(100, cache.size());
+		assertEquals(900, registry.get("session.cache.evictions").counter().count());
+	}
+
+	@Test
+	@DisplayName("3.0 - Expiration refreshes are due once per refresh interval")
+	void testRefreshInterval() {
+		var cache = cache(10);
+		cache.put("user:session:a", "SESSION_A", cache.version("user:session:a"));
+
+		assertFalse(cache.needsRefresh("user:session:a"));
+		now.addAndGet(Duration.ofSeconds(10).toMillis());
+		assertTrue(cache.needsRefresh("user:session:a"));
+
+		cache.refreshed("user:session:a");
+		assertFalse(cache.needsRefresh("user:session:a"));
+	}
+
+	private SessionNearCache cache(int maxEntries) {
+		return new SessionNearCache(maxEntries, Duration.ofSeconds(30), Duration.ofSeconds(10),
+			"session:invalidations", registry, clock);
+	}
+}
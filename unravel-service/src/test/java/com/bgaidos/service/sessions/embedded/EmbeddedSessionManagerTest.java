@@ -0,0 +1,83 @@
+package com.bgaidos.service.sessions.embedded;
+
+import com.bgaidos.exceptions.SessionConflictException;
+import com.bgaidos.exceptions.SessionNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class EmbeddedSessionManagerTest {
+
+	private final AtomicLong now = new AtomicLong(Instant.parse("2025-01-01T12:00:00Z").toEpochMilli());
+	private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+	private final EmbeddedStore store = new EmbeddedStore(4, 1 << 20, Duration.ofSeconds(1), Duration.ZERO,
+		new SimpleMeterRegistry(), clock);
+	private final EmbeddedSessionManager sessionManager = new EmbeddedSessionManager(store);
+	private final EmbeddedMemoryManager memoryManager = new EmbeddedMemoryManager(store);
+
+	@Test
+	@DisplayName("1.0 - Test login, lookup and logout")
+	void testSessionLifecycle() {
+		var created = sessionManager.saveSession("user123");
+
+		assertTrue(created.sessionId().startsWith("SESSION_"));
+		assertEquals(created, sessionManager.getSessionDetails("user123"));
+		assertThrows(SessionConflictException.class, () -> sessionManager.saveSession("user123"));
+
+		assertTrue(sessionManager.removeSession("user123").isRemoved());
+		var exception = assertThrows(SessionNotFoundException.class,
+			() -> sessionManager.getSessionDetails("user123"));
+		assertEquals("No session found for user: user123.", exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("1.1 - Test sessions expire an hour after their last lookup")
+	void testSessionExpiration() {
+		sessionManager.saveSession("user123");
+
+		now.addAndGet(Duration.ofMinutes(59).toMillis());
+		sessionManager.getSessionDetails("user123");
+		now.addAndGet(Duration.ofMinutes(59).toMillis());
+		sessionManager.getSessionDetails("user123");
+		now.addAndGet(Duration.ofHours(1).toMillis());
+
+		assertThrows(SessionNotFoundException.class, () -> sessionManager.getSessionDetails("user123"));
+	}
+
+	@Test
+	@DisplayName("1.2 - Test bulk operations")
+	void testBulk() {
+		sessionManager.saveSession("user1");
+
+		var created = sessionManager.saveSessions(List.of("user1", "user2"));
+		assertEquals(List.of("CONFLICT", "CREATED"), created.stream().map(result -> result.status().name()).toList());
+		assertEquals(2, sessionManager.getSessionsDetails(List.of("user1", "user2")).stream()
+			.filter(result -> result.sessionId() != null).count());
+	}
+
+	@Test
+	@DisplayName("2.0 - Test session data expires 30 minutes after its last read")
+	void testSessionData() {
+		byte[] data = "test data".getBytes();
+		memoryManager.addSessionData("SESSION_123", data);
+
+		now.addAndGet(Duration.ofMinutes(29).toMillis());
+		assertArrayEquals(data, memoryManager.getSessionData("SESSION_123"));
+		now.addAndGet(Duration.ofMinutes(30).toMillis());
+
+		var exception = assertThrows(SessionNotFoundException.class,
+			() -> memoryManager.getSessionData("SESSION_123"));
+		assertEquals("No session data found for session ID: SESSION_123.", exception.getMessage());
+	}
+}
@@ -0,0 +1,126 @@
+package com.bgaidos.service.sessions.embedded;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class EmbeddedStoreTest {
+
+	private static final Duration TTL = Duration.ofMinutes(30);
+
+	private final AtomicLong now = new AtomicLong(Instant.parse("2025-01-01T12:00:00Z").toEpochMilli());
+	private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("1.0 - Entries expire after their time to live, which reads extend")
+	void testSlidingExpiration() {
+		var store = store(4, 1 << 20);
+		assertNull(store.putIfAbsent("user:session:a", "SESSION_A", TTL));
+		store.put("SESSION_A", new byte[]{1, 2}, TTL);
+
+		now.addAndGet(TTL.toMillis() - 1);
+		assertEquals("SESSION_A", store.getAndExpire("user:session:a", TTL));
+		now.addAndGet(1);
+		assertNull(store.getAndExpire("SESSION_A", TTL));
+
+		// The session was last read 1ms before the data expired
+		now.addAndGet(TTL.toMillis() - 2);
+		assertEquals("SESSION_A", store.getAndExpire("user:session:a", TTL));
+		assertEquals(1, registry.get("session.store.expirations").counter().count(), 0.1,
+			"the data, on its read");
+	}
+
+	@Test
+	@DisplayName("1.1 - putIfAbsent keeps the stored value, put replaces it")
+	void testPutIfAbsent() {
+		var store = store(4, 1 << 20);
+
+		assertNull(store.putIfAbsent("user:session:a", "SESSION_A", TTL));
+		assertEquals("SESSION_A", store.putIfAbsent("user:session:a", "SESSION_B", TTL));
+		store.put("user:session:a", "SESSION_C", TTL);
+		assertEquals("SESSION_C", store.getAndExpire("user:session:a", TTL));
+
+		assertTrue(store.remove("user:session:a"));
+		assertFalse(store.remove("user:session:a"));
+		assertEquals(0, store.size());
+		assertEquals(0, store.usedBytes());
+	}
+
+	@Test
+	@DisplayName("2.0 - The sweeper frees expired entries nobody reads")
+	void testSweep() {
+		var store = store(4, 1 << 20);
+		for (int i = 0; i < 1_000; i++) {
+			store.putIfAbsent("user:session:" + i, "SESSION_" + i, TTL);
+		}
+		assertEquals(1_000, store.size());
+
+		now.addAndGet(TTL.toMillis() + 1_000);
+		store.sweep();
+
+		assertEquals(0, store.size());
+		assertEquals(0, store.usedBytes());
+		assertEquals(1_000, registry.get("session.store.expirations").counter().count());
+	}
+
+	@Test
+	@DisplayName("3.0 - Out of budget, the entries expiring soonest are evicted")
+	void testMemoryBudget() {
+		long weight = EmbeddedStore.weigh("user:session:0", "SESSION_0");
+		var store = store(1, weight * 10);
+		for (int i = 0; i < 10; i++) {
+			store.putIfAbsent("user:session:" + i, "SESSION_" + i, TTL);
+			now.addAndGet(1_000);
+		}
+		// Reading user 0 makes user 1 the least recently used
+		store.getAndExpire("user:session:0", TTL);
+
+		// As heavy as the others, so one eviction makes room
+		store.putIfAbsent("user:session:X", "SESSION_X", TTL);
+
+		assertEquals(10, store.size());
+		assertTrue(store.usedBytes() <= store.maxBytes());
+		assertNull(store.getAndExpire("user:session:1", TTL));
+		assertEquals("SESSION_0", store.getAndExpire("user:session:0", TTL));
+		assertEquals(1, registry.get("session.store.evictions").counter().count());
+		assertThrows(IllegalArgumentException.class, () -> store.put("SESSION_0", new byte[(int) weight * 10], TTL));
+	}
+
+	@Test
+	@DisplayName("4.0 - Concurrent logins of the same users create one session each")
+	void testConcurrentPutIfAbsent() {
+		var store = store(16, 1 << 24);
+		var created = new AtomicLong();
+
+		try (var executor = Executors.newFixedThreadPool(8)) {
+			for (int thread = 0; thread < 8; thread++) {
+				executor.submit(() -> {
+					for (int i = 0; i < 10_000; i++) {
+						if (store.putIfAbsent("user:session:" + i, "SESSION", TTL) == null) {
+							created.incrementAndGet();
+						}
+					}
+				});
+			}
+		}
+
+		assertEquals(10_000, created.get());
+		assertEquals(10_000, store.size());
+	}
+
+	private EmbeddedStore store(int stripes, long maxBytes) {
+		return new EmbeddedStore(stripes, maxBytes, Duration.ofSeconds(1), Duration.ZERO, registry, clock);
+	}
+}
@@ -0,0 +1,91 @@
+package com.bgaidos.service.sessions.embedded;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class TimingWheelTest {
+
+	@Test
+	@DisplayName("1.0 - Nodes expire on the first tick at or after their deadline, across every level")
+	void testExpiresOnTime() {
+		var wheel = new TimingWheel(1_000, 4, 0);
+		var random = new Random(42);
+		var nodes = new ArrayList<TestNode>();
+		for (int i = 0; i < 10_000; i++) {
+			// Up to 5 days ahead, spread over the three lowest levels and into the fourth
+			var node = new TestNode(random.nextLong(1, 5 * 86_400_000L));
+			wheel.schedule(node, node.deadline);
+			nodes.add(node);
+		}
+
+		var expired = new ArrayList<TestNode>();
+		for (long now = 0; now <= 5 * 86_400_000L; now += 1_000) {
+			long tickEnd = now;
+			wheel.advance(now, node -> {
+				var testNode = (TestNode) node;
+				// Rounded up to the tick, never early and at most one tick late
+				assertTrue(testNode.deadline <= tickEnd && tickEnd - testNode.deadline < 1_000,
+					"deadline %d expired at %d".formatted(testNode.deadline, tickEnd));
+				expired.add(testNode);
+			});
+		}
+
+		assertEquals(10_000, expired.size());
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	@DisplayName("1.1 - Cancelled and rescheduled nodes do not expire at their old deadline")
+	void testCancelAndReschedule() {
+		var wheel = new TimingWheel(1_000, 4, 0);
+		var cancelled = new TestNode(10_000);
+		var moved = new TestNode(10_000);
+		wheel.schedule(cancelled, cancelled.deadline);
+		wheel.schedule(moved, moved.deadline);
+
+		wheel.cancel(cancelled);
+		wheel.schedule(moved, 3_600_000);
+		assertEquals(1, wheel.size());
+
+		var expired = new ArrayList<TimingWheel.Node>();
+		wheel.advance(3_599_000, expired::add);
+		assertTrue(expired.isEmpty());
+		wheel.advance(3_600_000, expired::add);
+		assertEquals(List.of(moved), expired);
+	}
+
+	@Test
+	@DisplayName("2.0 - The earliest nodes are polled first")
+	void testPollEarliest() {
+		var wheel = new TimingWheel(1_000, 4, 0);
+		var late = new TestNode(7_200_000);
+		var soon = new TestNode(30_000);
+		var later = new TestNode(600_000);
+		wheel.schedule(late, late.deadline);
+		wheel.schedule(soon, soon.deadline);
+		wheel.schedule(later, later.deadline);
+
+		assertSame(soon, wheel.pollEarliest());
+		assertSame(later, wheel.pollEarliest());
+		assertSame(late, wheel.pollEarliest());
+		assertNull(wheel.pollEarliest());
+	}
+
+	private static final class TestNode extends TimingWheel.Node {
+
+		final long deadline;
+
+		TestNode(long deadline) {
+			this.deadline = deadline;
+		}
+	}
+}
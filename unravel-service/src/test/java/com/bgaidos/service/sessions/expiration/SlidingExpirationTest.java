@@ -0,0 +1,95 @@
+package com.bgaidos.service.sessions.expiration;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class SlidingExpirationTest {
+
+	private static final Duration TTL = Duration.ofHours(1);
+
+	private final AtomicLong now = new AtomicLong(Instant.parse("2025-01-01T12:00:00.900Z").toEpochMilli());
+	private final InstantSource clock = () -> Instant.ofEpochMilli(now.get());
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	@Test
+	@DisplayName("1.0 - Untracked keys are refreshed, tracked ones once their lifetime left drops below the fraction")
+	void testRefreshFraction() {
+		var expiration = new SlidingExpiration(0.5, 1024, registry, clock);
+
+		assertTrue(expiration.needsRefresh("user:session:a", TTL));
+		expiration.refreshed("user:session:a");
+
+		// Polling every second for just under half an hour leaves the expiration alone
+		for (int second = 0; second < 1_799; second++) {
+			now.addAndGet(1_000);
+			assertFalse(expiration.needsRefresh("user:session:a", TTL));
+		}
+		now.addAndGet(1_000);
+		assertTrue(expiration.needsRefresh("user:session:a", TTL));
+
+		assertEquals(2, registry.get("session.expiration.refreshes").counter().count());
+		assertEquals(1_799, registry.get("session.expiration.skipped").counter().count());
+	}
+
+	@Test
+	@DisplayName("1.1 - Refresh times are rounded down, so refreshes are never late")
+	void testNeverLate() {
+		var expiration = new SlidingExpiration(0.5, 1024, registry, clock);
+		expiration.refreshed("user:session:a");
+
+		// 900ms into the second of the refresh, so half the time to live is reached 900ms early
+		now.addAndGet(TTL.toMillis() / 2 - 900);
+		assertTrue(expiration.needsRefresh("user:session:a", TTL));
+	}
+
+	@Test
+	@DisplayName("1.2 - A fraction of 1 refreshes on every read")
+	void testAlwaysRefresh() {
+		var expiration = new SlidingExpiration(1, 1024, registry, clock);
+		expiration.refreshed("user:session:a");
+
+		assertTrue(expiration.needsRefresh("user:session:a", TTL));
+		assertThrows(IllegalArgumentException.class, () -> new SlidingExpiration(0, 1024, registry, clock));
+	}
+
+	@Test
+	@DisplayName("2.0 - Forgotten keys are refreshed on their next read")
+	void testForget() {
+		var expiration = new SlidingExpiration(0.5, 1024, registry, clock);
+		expiration.refreshed("user:session:a");
+
+		expiration.forget("user:session:a");
+
+		assertTrue(expiration.needsRefresh("user:session:a", TTL));
+	}
+
+	@Test
+	@DisplayName("2.1 - Keys beyond capacity push each other out and are refreshed, never skipped")
+	void testBounded() {
+		var expiration = new SlidingExpiration(0.5, 1000, registry, clock);
+		assertEquals(1024, expiration.trackedKeys());
+
+		for (int i = 0; i < 100_000; i++) {
+			expiration.refreshed("user:session:" + i);
+		}
+		int skipped = 0;
+		for (int i = 0; i < 100_000; i++) {
+			skipped += expiration.needsRefresh("user:session:" + i, TTL) ? 0 : 1;
+		}
+
+		// At most one key per slot is still remembered
+		assertTrue(skipped <= 1024, "skipped " + skipped);
+		assertTrue(skipped > 500, "skipped " + skipped);
+	}
+}
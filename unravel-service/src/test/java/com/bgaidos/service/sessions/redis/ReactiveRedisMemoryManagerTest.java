@@ -0,0 +1,90 @@
+package com.bgaidos.service.sessions.redis;
+
+import com.bgaidos.exceptions.SessionNotFoundException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class ReactiveRedisMemoryManagerTest {
+
+    @Mock
+    private ReactiveRedisTemplate<String, byte[]> byteArrayRedisTemplate;
+
+    @Mock
+    private ReactiveValueOperations<String, byte[]> valueOps;
+
+    private ReactiveRedisMemoryManager memoryManager;
+
+    @BeforeEach
+    void setUp() {
+        memoryManager = new ReactiveRedisMemoryManager(byteArrayRedisTemplate);
+    }
+
+    @Test
+    @DisplayName("1.0 - Test addSessionData success")
+    void testAddSessionDataSuccess() {
+        var sessionId = "SESSION_123";
+        byte[] data = "test data".getBytes();
+
+        when(byteArrayRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.set(sessionId, data, Duration.ofMinutes(30))).thenReturn(Mono.just(true));
+
+        memoryManager.addSessionData(sessionId, data).block();
+
+        verify(valueOps).set(sessionId, data, Duration.ofMinutes(30));
+    }
+
+    @Test
+    @DisplayName("2.0 - Test removeSessionData success")
+    void testRemoveSessionDataSuccess() {
+        var sessionId = "SESSION_123";
+
+        when(byteArrayRedisTemplate.delete(sessionId)).thenReturn(Mono.just(1L));
+
+        memoryManager.removeSessionData(sessionId).block();
+
+        verify(byteArrayRedisTemplate).delete(sessionId);
+    }
+
+    @Test
+    @DisplayName("3.0 - Test getSessionData success")
+    void testGetSessionDataSuccess() {
+        var sessionId = "SESSION_123";
+        byte[] expectedData = "test data".getBytes();
+
+        when(byteArrayRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.getAndExpire(sessionId, Duration.ofMinutes(30))).thenReturn(Mono.just(expectedData));
+
+        assertArrayEquals(expectedData, memoryManager.getSessionData(sessionId).block());
+    }
+
+    @Test
+    @DisplayName("3.1 - Test getSessionData when session not found")
+    void testGetSessionDataSessionNotFound() {
+        var sessionId = "SESSION_123";
+
+        when(byteArrayRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.getAndExpire(sessionId, Duration.ofMinutes(30))).thenReturn(Mono.empty());
+
+        var exception = assertThrows(SessionNotFoundException.class,
+            () -> memoryManager.getSessionData(sessionId).block());
+
+        assertEquals("No session data found for session ID: %s.".formatted(sessionId), exception.getMessage());
+    }
+}
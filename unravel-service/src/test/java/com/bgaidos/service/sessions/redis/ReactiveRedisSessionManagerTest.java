@@ -0,0 +1,194 @@
+package com.bgaidos.service.sessions.redis;
+
+import com.bgaidos.exceptions.SessionConflictException;
+import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.cache.SessionNearCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ReactiveValueOperations;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@TestMethodOrder(MethodOrderer.DisplayName.class)
+class ReactiveRedisSessionManagerTest {
+
+	@Mock
+	private ReactiveStringRedisTemplate redisSession;
+	@Mock
+	private ReactiveValueOperations<String, String> valueOps;
+
+	private ReactiveRedisSessionManager sessionManager;
+
+	@BeforeEach
+	void setUp() {
+		sessionManager = new ReactiveRedisSessionManager(redisSession);
+	}
+
+	@Test
+	@DisplayName("1.0 - Test login success")
+	void testSaveSessionSuccess() {
+		var userId = "user123";
+
+		// Created, so the script returns the new session
+		when(redisSession.execute(eq(RedisSessionManager.CREATE_SESSION), eq(List.of("user:session:%s".formatted(userId))),
+			anyList()))
+			.thenAnswer(invocation -> Flux.just(invocation.<List<String>>getArgument(2).getFirst()));
+
+		var sessionDetails = sessionManager.saveSession(userId).block();
+
+		assertNotNull(sessionDetails);
+		assertEquals(userId, sessionDetails.userId());
+		assertTrue(sessionDetails.sessionId().startsWith("SESSION_"));
+	}
+
+	@Test
+	@DisplayName("1.1 - Test login failure due user already logged in")
+	void testSaveSessionConflictSession() {
+		var userId = "user123";
+
+		when(redisSession.execute(eq(RedisSessionManager.CREATE_SESSION), anyList(), anyList()))
+			.thenReturn(Flux.just("SESSION_EXISTING"));
+
+		var exception = assertThrows(SessionConflictException.class,
+			() -> sessionManager.saveSession(userId).block());
+
+		assertEquals("User %s is already logged in.".formatted(userId), exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("2.0 - Test logout success")
+	void testRemoveSessionSuccess() {
+		var userId = "user123";
+
+		when(redisSession.delete("user:session:%s".formatted(userId)))
+			.thenReturn(Mono.just(1L));
+
+		var response = sessionManager.removeSession(userId).block();
+
+		assertNotNull(response);
+		assertTrue(response.isRemoved());
+	}
+
+	@Test
+	@DisplayName("3.0 - Test getSessionDetails success")
+	void testGetSessionDetailsSuccess() {
+		var userId = "user123";
+
+		when(redisSession.opsForValue())
+			.thenReturn(valueOps);
+		when(valueOps.getAndExpire("user:session:%s".formatted(userId), Duration.ofHours(1)))
+			.thenReturn(Mono.just("SESSION_ABC123"));
+
+		var sessionDetails = sessionManager.getSessionDetails(userId).block();
+
+		assertNotNull(sessionDetails);
+		assertEquals(userId, sessionDetails.userId());
+		assertEquals("SESSION_ABC123", sessionDetails.sessionId());
+	}
+
+	@Test
+	@DisplayName("3.1 - Test getSessionDetails failure due session not found")
+	void testGetSessionDetailsSessionNotFound() {
+		var userId = "user123";
+
+		when(redisSession.opsForValue())
+			.thenReturn(valueOps);
+		when(valueOps.getAndExpire(anyString(), any()))
+			.thenReturn(Mono.empty());
+
+		var exception = assertThrows(SessionNotFoundException.class,
+			() -> sessionManager.getSessionDetails(userId).block());
+
+		assertEquals("No session found for user: %s.".formatted(userId), exception.getMessage());
+	}
+
+	@Test
+	@DisplayName("3.2 - Test nothing reaches Redis until subscribed")
+	void testGetSessionDetailsLazy() {
+		sessionManager.getSessionDetails("user123");
+
+		verify(redisSession, never()).opsForValue();
+	}
+
+	@Test
+	@DisplayName("4.0 - Test getSessionDetails served from the near cache")
+	void testGetSessionDetailsCached() {
+		var userId = "user123";
+		var key = "user:session:%s".formatted(userId);
+		var cachingManager = new ReactiveRedisSessionManager(redisSession, nearCache());
+
+		when(redisSession.opsForValue())
+			.thenReturn(valueOps);
+		when(valueOps.getAndExpire(anyString(), any()))
+			.thenReturn(Mono.just("SESSION_ABC123"));
+
+		cachingManager.getSessionDetails(userId).block();
+		var sessionDetails = cachingManager.getSessionDetails(userId).block();
+
+		assertNotNull(sessionDetails);
+		assertEquals("SESSION_ABC123", sessionDetails.sessionId());
+		verify(valueOps, times(1)).getAndExpire(key, Duration.ofHours(1));
+	}
+
+	@Test
+	@DisplayName("4.1 - Test logout invalidates the near cache on every node")
+	void testRemoveSessionInvalidates() {
+		var userId = "user123";
+		var key = "user:session:%s".formatted(userId);
+		var nearCache = nearCache();
+		var cachingManager = new ReactiveRedisSessionManager(redisSession, nearCache);
+		nearCache.put(key, "SESSION_ABC123", nearCache.version(key));
+
+		var deleted = Sinks.<Long>one();
+		var published = new AtomicBoolean();
+		when(redisSession.delete(key))
+			.thenReturn(deleted.asMono());
+		when(redisSession.convertAndSend("session:invalidations", key))
+			.thenReturn(Mono.fromSupplier(() -> {
+				published.set(true);
+				return 1L;
+			}));
+
+		var response = cachingManager.removeSession(userId).toFuture();
+
+		// The invalidation is sent without waiting for the delete to reply
+		assertTrue(published.get());
+		assertFalse(response.isDone());
+		assertEquals(1, nearCache.size());
+		deleted.tryEmitValue(1L);
+		assertTrue(response.join().isRemoved());
+		assertEquals(0, nearCache.size());
+	}
+
+	private static SessionNearCache nearCache() {
+		InstantSource clock = () -> Instant.parse("2025-01-01T12:00:00Z");
+		return new SessionNearCache(100, Duration.ofMinutes(5), Duration.ofMinutes(1), "session:invalidations",
+			new SimpleMeterRegistry(), clock);
+	}
+}
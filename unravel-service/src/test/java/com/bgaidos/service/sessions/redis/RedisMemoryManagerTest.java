@@ -1,6 +1,8 @@
 package com.bgaidos.service.sessions.redis;
 
 import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.expiration.SlidingExpiration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
@@ -13,9 +15,11 @@ import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
 import java.time.Duration;
+import java.time.Instant;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -96,14 +100,13 @@ class RedisMemoryManagerTest {
         byte[] expectedData = "test data".getBytes();
 
         when(byteArrayRedisTemplate.opsForValue()).thenReturn(valueOps);
-        when(valueOps.get(eq(sessionId))).thenReturn(expectedData);
+        when(valueOps.getAndExpire(eq(sessionId), eq(Duration.ofMinutes(30)))).thenReturn(expectedData);
 
         byte[] actualData = redisMemoryManager.getSessionData(sessionId);
 
         assertNotNull(actualData);
         assertArrayEquals(expectedData, actualData);
-        verify(valueOps).get(eq(sessionId));
-        verify(byteArrayRedisTemplate).expire(eq(sessionId), eq(Duration.ofMinutes(30)));
+        verify(valueOps).getAndExpire(eq(sessionId), eq(Duration.ofMinutes(30)));
     }
 
     @Test
@@ -120,13 +123,31 @@ class RedisMemoryManagerTest {
         var sessionId = "SESSION_123";
 
         when(byteArrayRedisTemplate.opsForValue()).thenReturn(valueOps);
-        when(valueOps.get(eq(sessionId))).thenReturn(null);
+        when(valueOps.getAndExpire(eq(sessionId), eq(Duration.ofMinutes(30)))).thenReturn(null);
 
         SessionNotFoundException exception = assertThrows(SessionNotFoundException.class, () -> {
             redisMemoryManager.getSessionData(sessionId);
         });
 
         assertEquals("No session data found for session ID: %s.".formatted(sessionId), exception.getMessage());
-        verify(valueOps).get(eq(sessionId));
+        verify(valueOps).getAndExpire(eq(sessionId), eq(Duration.ofMinutes(30)));
+    }
+
+    @Test
+    @DisplayName("4.0 - Test getSessionData right after addSessionData leaves the expiration alone")
+    void testGetSessionDataAdaptiveExpiration() {
+        var sessionId = "SESSION_123";
+        byte[] data = "test data".getBytes();
+        var expiration = new SlidingExpiration(0.5, 1024, new SimpleMeterRegistry(),
+            () -> Instant.parse("2025-01-01T12:00:00Z"));
+        var adaptiveManager = new RedisMemoryManager(byteArrayRedisTemplate, expiration);
+
+        when(byteArrayRedisTemplate.opsForValue()).thenReturn(valueOps);
+        when(valueOps.get(sessionId)).thenReturn(data);
+
+        adaptiveManager.addSessionData(sessionId, data);
+
+        assertArrayEquals(data, adaptiveManager.getSessionData(sessionId));
+        verify(valueOps, never()).getAndExpire(eq(sessionId), eq(Duration.ofMinutes(30)));
     }
 }
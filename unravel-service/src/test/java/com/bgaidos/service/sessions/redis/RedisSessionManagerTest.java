@@ -1,25 +1,40 @@
 package com.bgaidos.service.sessions.redis;
 
+import com.bgaidos.api.SessionResultDto;
 import com.bgaidos.exceptions.SessionConflictException;
 import com.bgaidos.exceptions.SessionNotFoundException;
+import com.bgaidos.service.sessions.cache.SessionNearCache;
+import com.bgaidos.service.sessions.expiration.SlidingExpiration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestMethodOrder;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.time.InstantSource;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -44,21 +59,16 @@ class RedisSessionManagerTest {
 	void testSaveSessionSuccess() {
 		var userId = "user123";
 
-		when(redisSession.opsForValue())
-			.thenReturn(valueOps);
-		when(valueOps.setIfAbsent(anyString(), anyString(), any()))
-			.thenReturn(true);
+		// Created, so the script returns the new session
+		when(redisSession.execute(eq(RedisSessionManager.CREATE_SESSION), eq(List.of("user:session:%s".formatted(userId))),
+			startsWith("SESSION_"), eq("3600000")))
+			.thenAnswer(invocation -> invocation.getArgument(2));
 
 		var sessionDetails = redisSessionManager.saveSession(userId);
 
 		assertNotNull(sessionDetails);
 		assertEquals(userId, sessionDetails.userId());
-		assertNotNull(sessionDetails.sessionId());
-		verify(valueOps).setIfAbsent(
-			eq("user:session:%s".formatted(userId)),
-			startsWith("SESSION_"),
-			eq(Duration.ofHours(1))
-		);
+		assertTrue(sessionDetails.sessionId().startsWith("SESSION_"));
 	}
 
 	@Test
@@ -75,20 +85,15 @@ class RedisSessionManagerTest {
 	void testSaveSessionConflictSession() {
 		var userId = "user123";
 
-		when(redisSession.opsForValue())
-			.thenReturn(valueOps);
-		when(valueOps.setIfAbsent(anyString(), anyString(), any()))
-			.thenReturn(false);
+		// Not created, so the script returns the existing session
+		when(redisSession.execute(eq(RedisSessionManager.CREATE_SESSION), eq(List.of("user:session:%s".formatted(userId))),
+			startsWith("SESSION_"), eq("3600000")))
+			.thenReturn("SESSION_EXISTING");
 
 		var exception = assertThrows(SessionConflictException.class,
 			() -> redisSessionManager.saveSession(userId));
 
 		assertEquals("User %s is already logged in.".formatted(userId), exception.getMessage());
-		verify(valueOps).setIfAbsent(
-			eq("user:session:%s".formatted(userId)),
-			startsWith("SESSION_"),
-			eq(Duration.ofHours(1))
-		);
 	}
 
 	@Test
@@ -120,7 +125,7 @@ class RedisSessionManagerTest {
 
 		when(redisSession.opsForValue())
 			.thenReturn(valueOps);
-		when(valueOps.get(anyString()))
+		when(valueOps.getAndExpire(anyString(), any()))
 			.thenReturn(sessionId);
 
 		var sessionDetails = redisSessionManager.getSessionDetails(userId);
@@ -128,8 +133,8 @@ class RedisSessionManagerTest {
 		assertNotNull(sessionDetails);
 		assertEquals(userId, sessionDetails.userId());
 		assertEquals(sessionId, sessionDetails.sessionId());
-		verify(valueOps).get("user:session:%s".formatted(userId));
-		verify(redisSession).expire("user:session:%s".formatted(userId), Duration.ofHours(1));
+		verify(valueOps).getAndExpire("user:session:%s".formatted(userId), Duration.ofHours(1));
+		verify(redisSession, never()).expire(anyString(), any(Duration.class));
 	}
 
 	@Test
@@ -148,13 +153,194 @@ class RedisSessionManagerTest {
 
 		when(redisSession.opsForValue())
 			.thenReturn(valueOps);
-		when(valueOps.get(anyString()))
+		when(valueOps.getAndExpire(anyString(), any()))
 			.thenReturn(null);
 
 		var exception = assertThrows(SessionNotFoundException.class,
 			() -> redisSessionManager.getSessionDetails(userId));
 
 		assertEquals("No session found for user: %s.".formatted(userId), exception.getMessage());
-		verify(valueOps).get("user:session:%s".formatted(userId));
+		verify(valueOps).getAndExpire("user:session:%s".formatted(userId), Duration.ofHours(1));
+	}
+
+	@Test
+	@DisplayName("4.0 - Test getSessionDetails served from the near cache")
+	void testGetSessionDetailsCached() {
+		var userId = "user123";
+		var key = "user:session:%s".formatted(userId);
+		var nearCache = nearCache(new AtomicLong());
+		var cachingManager = new RedisSessionManager(redisSession, nearCache);
+
+		when(redisSession.opsForValue())
+			.thenReturn(valueOps);
+		when(valueOps.getAndExpire(anyString(), any()))
+			.thenReturn("SESSION_ABC123");
+
+		cachingManager.getSessionDetails(userId);
+		var sessionDetails = cachingManager.getSessionDetails(userId);
+
+		assertEquals("SESSION_ABC123", sessionDetails.sessionId());
+		verify(valueOps, times(1)).getAndExpire(key, Duration.ofHours(1));
+		verify(redisSession, never()).expire(anyString(), any(Duration.class));
+	}
+
+	@Test
+	@DisplayName("4.1 - Test logout invalidates the near cache on every node")
+	@SuppressWarnings("unchecked")
+	void testRemoveSessionInvalidates() {
+		var userId = "user123";
+		var key = "user:session:%s".formatted(userId);
+		var nearCache = nearCache(new AtomicLong());
+		var cachingManager = new RedisSessionManager(redisSession, nearCache);
+		nearCache.put(key, "SESSION_ABC123", nearCache.version(key));
+
+		var callback = ArgumentCaptor.forClass(RedisCallback.class);
+		when(redisSession.executePipelined(callback.capture())).thenReturn(List.of(1L, 1L));
+
+		cachingManager.removeSession(userId);
+
+		assertEquals(0, nearCache.size());
+		// The delete and the invalidation share one pipeline
+		verify(redisSession, times(1)).executePipelined(any(RedisCallback.class));
+		verify(redisSession, never()).delete(anyString());
+		var connection = mock(StringRedisConnection.class);
+		callback.getValue().doInRedis(connection);
+		verify(connection).del(key);
+		verify(connection).publish("session:invalidations", key);
+	}
+
+	@Test
+	@DisplayName("4.2 - Test cached session that expired in Redis is not served")
+	void testGetSessionDetailsCachedButExpired() {
+		var userId = "user123";
+		var key = "user:session:%s".formatted(userId);
+		var now = new AtomicLong();
+		var nearCache = nearCache(now);
+		var cachingManager = new RedisSessionManager(redisSession, nearCache);
+		nearCache.put(key, "SESSION_ABC123", nearCache.version(key));
+		now.addAndGet(Duration.ofMinutes(1).toMillis());
+
+		when(redisSession.expire(key, Duration.ofHours(1)))
+			.thenReturn(false);
+		when(redisSession.opsForValue())
+			.thenReturn(valueOps);
+		when(valueOps.getAndExpire(anyString(), any()))
+			.thenReturn(null);
+
+		assertThrows(SessionNotFoundException.class, () -> cachingManager.getSessionDetails(userId));
+		assertEquals(0, nearCache.size());
+		verify(redisSession, never()).convertAndSend(anyString(), any());
+	}
+
+	@Test
+	@DisplayName("5.0 - Test bulk login in one pipeline")
+	void testSaveSessionsPipelined() {
+		when(redisSession.executePipelined(any(RedisCallback.class)))
+			.thenReturn(List.of(true, false));
+
+		var results = redisSessionManager.saveSessions(List.of("user1", "user2"));
+
+		assertEquals(SessionResultDto.Status.CREATED, results.get(0).status());
+		assertTrue(results.get(0).sessionId().startsWith("SESSION_"));
+		assertEquals(new SessionResultDto("user2", null, SessionResultDto.Status.CONFLICT), results.get(1));
+		verify(redisSession, times(1)).executePipelined(any(RedisCallback.class));
+	}
+
+	@Test
+	@DisplayName("5.1 - Test bulk getSessionDetails reads only near cache misses, in one pipeline")
+	void testGetSessionsDetailsPipelined() {
+		var nearCache = nearCache(new AtomicLong());
+		var cachingManager = new RedisSessionManager(redisSession, nearCache);
+		nearCache.put("user:session:user1", "SESSION_1", nearCache.version("user:session:user1"));
+		when(redisSession.executePipelined(any(RedisCallback.class)))
+			.thenReturn(Arrays.asList("SESSION_2", null));
+
+		var results = cachingManager.getSessionsDetails(List.of("user1", "user2", "user3"));
+
+		assertEquals(List.of(
+			new SessionResultDto("user1", "SESSION_1", SessionResultDto.Status.FOUND),
+			new SessionResultDto("user2", "SESSION_2", SessionResultDto.Status.FOUND),
+			new SessionResultDto("user3", null, SessionResultDto.Status.NOT_FOUND)
+		), results);
+		// user2 was cached by the first call
+		assertEquals(SessionResultDto.Status.FOUND, cachingManager.getSessionsDetails(List.of("user2")).getFirst().status());
+		verify(redisSession, times(1)).executePipelined(any(RedisCallback.class));
+	}
+
+	@Test
+	@DisplayName("5.2 - Test bulk logout invalidates the near cache")
+	void testRemoveSessionsPipelined() {
+		var nearCache = nearCache(new AtomicLong());
+		var cachingManager = new RedisSessionManager(redisSession, nearCache);
+		nearCache.put("user:session:user1", "SESSION_1", nearCache.version("user:session:user1"));
+
+		var results = cachingManager.removeSessions(List.of("user1", "user2"));
+
+		assertEquals(List.of(
+			new SessionResultDto("user1", null, SessionResultDto.Status.REMOVED),
+			new SessionResultDto("user2", null, SessionResultDto.Status.REMOVED)
+		), results);
+		assertEquals(0, nearCache.size());
+		verify(redisSession, times(1)).executePipelined(any(RedisCallback.class));
+	}
+
+	private static SessionNearCache nearCache(AtomicLong now) {
+		long start = Instant.parse("2025-01-01T12:00:00Z").toEpochMilli();
+		InstantSource clock = () -> Instant.ofEpochMilli(start + now.get());
+		return new SessionNearCache(100, Duration.ofMinutes(5), Duration.ofMinutes(1), "session:invalidations",
+			new SimpleMeterRegistry(), clock);
+	}
+
+	@Test
+	@DisplayName("6.0 - Test polling getSessionDetails extends the expiration only when it is due")
+	void testGetSessionDetailsAdaptiveExpiration() {
+		var userId = "user123";
+		var key = "user:session:%s".formatted(userId);
+		var now = new AtomicLong();
+		var adaptiveManager = new RedisSessionManager(redisSession, null, slidingExpiration(now));
+
+		when(redisSession.opsForValue())
+			.thenReturn(valueOps);
+		when(valueOps.getAndExpire(key, Duration.ofHours(1)))
+			.thenReturn("SESSION_ABC123");
+		when(valueOps.get(key))
+			.thenReturn("SESSION_ABC123");
+
+		// One lookup a second for an hour
+		for (int second = 0; second < 3_600; second++) {
+			assertEquals("SESSION_ABC123", adaptiveManager.getSessionDetails(userId).sessionId());
+			now.addAndGet(1_000);
+		}
+
+		verify(valueOps, times(2)).getAndExpire(key, Duration.ofHours(1));
+		verify(valueOps, times(3_598)).get(key);
+	}
+
+	@Test
+	@DisplayName("6.1 - Test cached sessions skip the expiration refresh until it is due")
+	void testGetSessionDetailsCachedAdaptiveExpiration() {
+		var userId = "user123";
+		var key = "user:session:%s".formatted(userId);
+		var now = new AtomicLong();
+		var nearCache = nearCache(now);
+		var adaptiveManager = new RedisSessionManager(redisSession, nearCache, slidingExpiration(now));
+
+		when(redisSession.opsForValue())
+			.thenReturn(valueOps);
+		when(valueOps.getAndExpire(key, Duration.ofHours(1)))
+			.thenReturn("SESSION_ABC123");
+
+		adaptiveManager.getSessionDetails(userId);
+		now.addAndGet(Duration.ofMinutes(2).toMillis());
+		adaptiveManager.getSessionDetails(userId);
+
+		verify(valueOps, times(1)).getAndExpire(key, Duration.ofHours(1));
+		verify(redisSession, never()).expire(anyString(), any(Duration.class));
+	}
+
+	private static SlidingExpiration slidingExpiration(AtomicLong now) {
+		long start = Instant.parse("2025-01-01T12:00:00Z").toEpochMilli();
+		InstantSource clock = () -> Instant.ofEpochMilli(start + now.get());
+		return new SlidingExpiration(0.5, 1024, new SimpleMeterRegistry(), clock);
 	}
-}
\ No newline at end of file
+}